@@ -83,6 +83,10 @@ public enum ODataErrorCode {
      * Processor Error.
      */
     PROCESSOR_ERROR(8000),
+    /**
+     * Request Timeout Error.
+     */
+    REQUEST_TIMEOUT_ERROR(8500),
     /**
      * Unknown Error.
      */
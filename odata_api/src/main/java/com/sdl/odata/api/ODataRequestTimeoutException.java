@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api;
+
+/**
+ * Exception thrown when a request could not be completed before its deadline.
+ * <p>
+ * This will lead to a response being sent back to the client with a 503 status code (service unavailable).
+ */
+public class ODataRequestTimeoutException extends ODataServerException {
+
+    public ODataRequestTimeoutException(String message) {
+        super(ODataErrorCode.REQUEST_TIMEOUT_ERROR, message);
+    }
+}
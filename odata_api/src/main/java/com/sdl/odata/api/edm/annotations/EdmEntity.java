@@ -64,6 +64,16 @@ public @interface EdmEntity {
      */
     EdmPropertyRef[] keyRef() default { };
 
+    /**
+     * The concurrency properties of the entity, consisting of an array of the names of properties of which the values
+     * change whenever the entity changes, for example a version number or a last modified timestamp. The ETag of an
+     * entity is computed from the values of these properties; if none are specified, the entity does not have an
+     * ETag, unless its base type specifies them.
+     *
+     * @return The names of the concurrency properties of the entity.
+     */
+    String[] concurrency() default { };
+
     /**
      * Specifies whether the entity type is an open type.
      *
@@ -15,6 +15,8 @@
  */
 package com.sdl.odata.api.edm.model;
 
+import java.util.List;
+
 /**
  * OData entity type. An entity type is a complex type (it consists of properties and navigation properties) and it
  * has a key that uniquely identifies it.
@@ -31,6 +33,14 @@ public interface EntityType extends StructuredType {
      */
     Key getKey();
 
+    /**
+     * Returns the names of the properties of which the values change whenever an entity of this type changes, and of
+     * which the ETag of the entity is computed.
+     *
+     * @return The names of the concurrency properties of the entity type, or an empty list if it has none.
+     */
+    List<String> getConcurrencyPropertyNames();
+
     /**
      * Returns {@code true} if the entity type is read-only, {@code false} otherwise.
      *
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.processor;
+
+import com.sdl.odata.api.service.ODataRequestContext;
+
+/**
+ * Listener which is told about every write operation once it has been committed, for example to invalidate data
+ * which was cached for the entity sets that were written to. Any number of listeners can be registered as Spring
+ * beans.
+ */
+public interface ODataWriteListener {
+
+    /**
+     * Called after a write operation has been committed. For a change set in a batch request, this is called for
+     * each of the requests in the change set, after the change set has been committed as a whole.
+     *
+     * @param requestContext The context of the request which did the write operation.
+     */
+    void written(ODataRequestContext requestContext);
+}
@@ -18,8 +18,14 @@ package com.sdl.odata.api.processor.query.strategy;
 import com.sdl.odata.api.ODataException;
 import com.sdl.odata.api.processor.query.QueryResult;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Query operation strategy.
+ * <p>
+ * Strategies that take a long time to execute should regularly check the deadline of the request context they were
+ * created for ({@link com.sdl.odata.api.service.ODataRequestContext#getDeadline()}), and abort once it has expired.
  */
 public interface QueryOperationStrategy {
 
@@ -30,4 +36,20 @@ public interface QueryOperationStrategy {
      * @throws ODataException Thrown when an error occurs so that the query cannot be executed.
      */
     QueryResult execute() throws ODataException;
+
+    /**
+     * Returns only the values of the concurrency properties of the single entity that the query selects, without
+     * materializing the entity. When a client already has the current version of the entity, the request is then
+     * answered with {@code 304 Not Modified} without executing the query.
+     * <p>
+     * Strategies of which the data source can look up the version of an entity more cheaply than the entity itself
+     * should override this; by default the version is not available and the query is always executed.
+     *
+     * @return The values of the concurrency properties of the entity, in the order in which its entity type lists
+     * them, or empty if they cannot be looked up separately.
+     * @throws ODataException Thrown when an error occurs so that the version cannot be looked up.
+     */
+    default Optional<List<?>> executeVersion() throws ODataException {
+        return Optional.empty();
+    }
 }
@@ -40,6 +40,19 @@ public interface ODataRenderer {
      */
     int score(ODataRequestContext requestContext, QueryResult data);
 
+    /**
+     * Returns whether the score of this renderer may be cached. Which renderer is used for a request is remembered for
+     * the combination of the '$format' option, the 'Accept' and 'Content-Type' headers, the type of the result and the
+     * shape of the URI: the kind of URI, the meta type of its target type and whether it calls an operation or asks
+     * for a value or count. A renderer whose score depends on anything else must return {@code false}, so that it is
+     * scored for every request.
+     *
+     * @return {@code true} if the score of this renderer may be cached; {@code false} otherwise.
+     */
+    default boolean isScoreCacheable() {
+        return true;
+    }
+
     /**
      * Renders the response body for a request.
      *
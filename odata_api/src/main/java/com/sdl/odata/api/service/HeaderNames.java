@@ -66,6 +66,16 @@ public final class HeaderNames {
      * is willing to accept.
      */
     public static final String X_ODATA_TE = "X-Odata-TE";
+    /**
+     * X-Odata-Request-Timeout.
+     * The number of milliseconds the client is willing to wait for the response.
+     */
+    public static final String X_ODATA_REQUEST_TIMEOUT = "X-Odata-Request-Timeout";
+    /**
+     * Retry-After.
+     * The number of seconds the user agent should wait before making a follow-up request.
+     */
+    public static final String RETRY_AFTER = "Retry-After";
     /**
      * Transfer encoding.
      * The form of encoding used to safely transfer the entity to the user.
@@ -79,6 +89,10 @@ public final class HeaderNames {
      * ETag.
      */
     public static final String ETAG = "ETag";
+    /**
+     * If-None-Match.
+     */
+    public static final String IF_NONE_MATCH = "If-None-Match";
     /**
      * OData Version.
      */
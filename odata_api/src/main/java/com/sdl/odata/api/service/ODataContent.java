@@ -20,6 +20,7 @@ import com.sdl.odata.api.ODataException;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.function.BiConsumer;
 
 /**
  * OData content used for streaming content.
@@ -33,4 +34,17 @@ public interface ODataContent {
      * @param outputStream {@link OutputStream} in which the content is written.
      */
     void write(HttpServletResponse outputStream) throws IOException, ODataException;
+
+    /**
+     * Write the available content into the given <code>OutputStream</code>, for front ends which do not use the
+     * servlet API. Headers the content determines are handed to the given consumer before the content is first
+     * flushed.
+     *
+     * @param outputStream {@link OutputStream} in which the content is written.
+     * @param headers      Consumer of the name and value of each header to set on the response.
+     */
+    default void write(OutputStream outputStream, BiConsumer<String, String> headers)
+            throws IOException, ODataException {
+        throw new UnsupportedOperationException("This content can only be written to a servlet response");
+    }
 }
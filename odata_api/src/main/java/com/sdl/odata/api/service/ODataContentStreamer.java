@@ -20,11 +20,11 @@ import com.sdl.odata.api.processor.query.QueryResult;
 import com.sdl.odata.api.renderer.ChunkedActionRenderResult;
 import com.sdl.odata.api.renderer.ODataRenderer;
 
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 import static com.sdl.odata.api.service.HeaderNames.ODATA_CHUNKED_ERROR_MESSAGE_PROPERTY;
@@ -47,10 +47,15 @@ public class ODataContentStreamer implements ODataContent {
 
     @Override
     public void write(HttpServletResponse httpServletResponse) throws IOException, ODataException {
+        write(httpServletResponse.getOutputStream(), httpServletResponse::setHeader);
+    }
+
+    @Override
+    public void write(OutputStream outputStream, BiConsumer<String, String> headers)
+            throws IOException, ODataException {
         boolean firstChunk = true;
         ChunkedActionRenderResult startRenderResult = null;
         ChunkedActionRenderResult bodyRenderResult = null;
-        ServletOutputStream servletOutputStream = httpServletResponse.getOutputStream();
 
         try (Stream resultStream = (Stream) queryResult.getData()) {
             Iterator resultDataIterator = resultStream.iterator();
@@ -59,31 +64,31 @@ public class ODataContentStreamer implements ODataContent {
                 currentDataChunk = resultDataIterator.next();
                 if (firstChunk) {
                     startRenderResult = oDataRenderer.renderStart(oDataRequestContext,
-                            QueryResult.from(currentDataChunk), servletOutputStream);
+                            QueryResult.from(currentDataChunk), outputStream);
                     // First set headers added within renderer before sending first chunk
-                    addHeaders(startRenderResult, httpServletResponse);
-                    servletOutputStream.flush();
+                    addHeaders(startRenderResult, headers);
+                    outputStream.flush();
                     firstChunk = false;
                 }
                 bodyRenderResult = oDataRenderer.renderBody(
                         oDataRequestContext, QueryResult.from(currentDataChunk), startRenderResult);
-                servletOutputStream.flush();
+                outputStream.flush();
             }
 
             oDataRenderer.renderEnd(oDataRequestContext, QueryResult.from(currentDataChunk),
                     bodyRenderResult == null ? startRenderResult : bodyRenderResult);
-            servletOutputStream.flush();
+            outputStream.flush();
         } catch (RuntimeException e) {
             // Writing additional line into response if some error happened while iterating over elements.
             // We cannot modify set headers after any chunk sent already.
-            writeWithFlush(servletOutputStream,
+            writeWithFlush(outputStream,
                     System.lineSeparator() + ODATA_CHUNKED_ERROR_MESSAGE_PROPERTY + ":" + e.getMessage());
         }
     }
 
-    private void addHeaders(ChunkedActionRenderResult result, HttpServletResponse httpServletResponse) {
+    private void addHeaders(ChunkedActionRenderResult result, BiConsumer<String, String> headers) {
         result.getHeaders().entrySet().forEach(headerEntry ->
-                httpServletResponse.setHeader(headerEntry.getKey(), headerEntry.getValue()));
+                headers.accept(headerEntry.getKey(), headerEntry.getValue()));
     }
 
     private void writeWithFlush(OutputStream outputStream, String content) throws IOException {
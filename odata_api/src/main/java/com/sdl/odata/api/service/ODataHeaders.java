@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
+
+/**
+ * The headers of a request or response.
+ * <p>
+ * HTTP header names are case-insensitive, so headers are looked up by name regardless of case. The headers cannot be
+ * modified once built; the parsed {@code Accept} and {@code Content-Type} headers are kept so that they are only
+ * parsed once, however often they are asked for.
+ */
+public final class ODataHeaders extends AbstractMap<String, String> {
+
+    private static final ODataHeaders EMPTY = new ODataHeaders(Collections.emptyMap());
+
+    private final Map<String, Entry<String, String>> entries;
+    private final Set<Entry<String, String>> entrySet;
+
+    private volatile List<MediaType> accept;
+    private volatile Optional<MediaType> contentType;
+
+    private ODataHeaders(Map<String, Entry<String, String>> entries) {
+        this.entries = entries;
+        this.entrySet = new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return Collections.unmodifiableCollection(entries.values()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the given headers as {@code ODataHeaders}.
+     *
+     * @param headers The headers.
+     * @return The headers, as {@code ODataHeaders}.
+     */
+    public static ODataHeaders of(Map<String, String> headers) {
+        if (headers instanceof ODataHeaders) {
+            return (ODataHeaders) headers;
+        }
+        return new Builder().setAll(headers).build();
+    }
+
+    /**
+     * Returns the headers of a request or response without headers.
+     *
+     * @return No headers.
+     */
+    public static ODataHeaders empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public String get(Object name) {
+        Entry<String, String> entry = name instanceof String ? entries.get(key((String) name)) : null;
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return name instanceof String && entries.containsKey(key((String) name));
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * Returns the media types of the {@code Accept} header, in the order in which they are listed.
+     *
+     * @return The accepted media types, or an empty list if there is no {@code Accept} header.
+     */
+    public List<MediaType> getAccept() {
+        List<MediaType> result = accept;
+        if (result == null) {
+            String acceptHeader = get(HeaderNames.ACCEPT);
+            if (isNullOrEmpty(acceptHeader)) {
+                result = Collections.emptyList();
+            } else {
+                List<MediaType> mediaTypes = new ArrayList<>();
+                for (String part : acceptHeader.split(",")) {
+                    mediaTypes.add(MediaType.fromString(part.trim()));
+                }
+                result = Collections.unmodifiableList(mediaTypes);
+            }
+            accept = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the media type of the {@code Content-Type} header.
+     *
+     * @return The content type, or {@code null} if there is no {@code Content-Type} header.
+     */
+    public MediaType getContentType() {
+        Optional<MediaType> result = contentType;
+        if (result == null) {
+            String contentTypeHeader = get(HeaderNames.CONTENT_TYPE);
+            result = isNullOrEmpty(contentTypeHeader) ?
+                    Optional.empty() : Optional.of(MediaType.fromString(contentTypeHeader));
+            contentType = result;
+        }
+        return result.orElse(null);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builder for {@code ODataHeaders} objects. A header replaces an earlier header of which the name only differs
+     * in case.
+     */
+    public static final class Builder {
+        private final Map<String, Entry<String, String>> entries = new LinkedHashMap<>();
+
+        public Builder set(String name, String value) {
+            entries.put(key(name), new SimpleImmutableEntry<>(name, value));
+            return this;
+        }
+
+        public Builder setAll(Map<String, String> headers) {
+            for (Entry<String, String> entry : headers.entrySet()) {
+                set(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        public ODataHeaders build() {
+            return entries.isEmpty() ? EMPTY : new ODataHeaders(new LinkedHashMap<>(entries));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+/**
+ * The stages of the request pipeline, for which {@link ODataRequestMetrics metrics} are recorded.
+ */
+public enum ODataPipelineStage {
+    /**
+     * Parsing the URI of the request.
+     */
+    PARSE,
+    /**
+     * Unmarshalling the body of the request.
+     */
+    UNMARSHALL,
+    /**
+     * Executing a query or function call.
+     */
+    QUERY,
+    /**
+     * Executing a write operation.
+     */
+    WRITE,
+    /**
+     * Executing the requests of a batch.
+     */
+    BATCH,
+    /**
+     * Rendering the response, or the error the request failed with.
+     */
+    RENDER
+}
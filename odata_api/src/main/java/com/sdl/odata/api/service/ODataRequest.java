@@ -15,6 +15,9 @@
  */
 package com.sdl.odata.api.service;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -68,8 +71,9 @@ public final class ODataRequest extends ODataRequestResponseBase {
     public static class Builder {
         private Method method;
         private String uri;
-        private final Map<String, String> headersBuilder = new HashMap<>();
+        private final ODataHeaders.Builder headersBuilder = new ODataHeaders.Builder();
         private byte[] body;
+        private ODataRequestBody requestBody;
         private Map<Class<?>, Object> additionalData = new HashMap<>();
 
         public Builder setMethod(Method builderMethod) {
@@ -83,44 +87,56 @@ public final class ODataRequest extends ODataRequestResponseBase {
         }
 
         public Builder setHeader(String name, String value) {
-            this.headersBuilder.put(name, value);
+            this.headersBuilder.set(name, value);
             return this;
         }
 
         public Builder setHeaders(Map<String, String> headers) {
-            this.headersBuilder.putAll(headers);
+            this.headersBuilder.setAll(headers);
             return this;
         }
 
         public Builder setAccept(MediaType... mediaTypes) {
 
 
-            this.headersBuilder.put(
+            this.headersBuilder.set(
                     HeaderNames.ACCEPT,
                     Arrays.stream(mediaTypes).map(Object::toString).collect(Collectors.joining(", ")));
             return this;
         }
 
         public Builder setContentType(MediaType mediaType) {
-            this.headersBuilder.put(HeaderNames.CONTENT_TYPE, mediaType.toString());
+            this.headersBuilder.set(HeaderNames.CONTENT_TYPE, mediaType.toString());
             return this;
         }
 
         public Builder setPrefer(String... prefers) {
-            this.headersBuilder.put(HeaderNames.PREFER, Stream.of(prefers).collect(Collectors.joining(",")));
+            this.headersBuilder.set(HeaderNames.PREFER, Stream.of(prefers).collect(Collectors.joining(",")));
             return this;
         }
 
         public Builder setBody(byte[] builderBody) {
             this.body = builderBody;
+            this.requestBody = null;
             return this;
         }
 
-        public Builder setBodyText(String bodyText, String charset) throws UnsupportedEncodingException {
-            this.body = bodyText.getBytes(charset);
+        /**
+         * Sets a body which is read lazily from its source.
+         *
+         * @param builderRequestBody The body.
+         * @return This builder.
+         */
+        public Builder setBody(ODataRequestBody builderRequestBody) {
+            this.requestBody = builderRequestBody;
+            this.body = null;
             return this;
         }
 
+        public Builder setBodyText(String bodyText, String charset) throws UnsupportedEncodingException {
+            return setBody(bodyText.getBytes(charset));
+        }
+
         public Builder addAdditionalData(Object data) {
             additionalData.put(data.getClass(), data);
             return this;
@@ -134,9 +150,10 @@ public final class ODataRequest extends ODataRequestResponseBase {
     private final Method method;
     private final String uri;
     private final Map<Class<?>, Object> additionalData;
+    private final ODataRequestBody requestBody;
 
     private ODataRequest(Builder builder) {
-        super(unmodifiableMap(builder.headersBuilder), builder.body, null);
+        super(builder.headersBuilder.build(), builder.body, null);
 
         if (builder.method == null) {
             throw new IllegalArgumentException("Method is required");
@@ -149,6 +166,41 @@ public final class ODataRequest extends ODataRequestResponseBase {
         this.method = builder.method;
         this.uri = builder.uri;
         this.additionalData = unmodifiableMap(builder.additionalData);
+        this.requestBody = builder.requestBody;
+    }
+
+    /**
+     * Returns the body of the request. A body which is read lazily is read as a whole by this method; use
+     * {@link #getBodyStream()} to read it incrementally instead.
+     *
+     * @return The body, or {@code null} if the request has no body.
+     */
+    @Override
+    public byte[] getBody() {
+        return requestBody != null ? requestBody.toByteArray() : super.getBody();
+    }
+
+    /**
+     * Opens a stream which reads the body of the request from the start.
+     *
+     * @return The stream; the caller must close it.
+     * @throws IOException If the body could not be read.
+     */
+    public InputStream getBodyStream() throws IOException {
+        if (requestBody != null) {
+            return requestBody.openStream();
+        }
+        byte[] body = super.getBody();
+        return new ByteArrayInputStream(body != null ? body : new byte[0]);
+    }
+
+    /**
+     * Returns the body of the request if it is read lazily from its source.
+     *
+     * @return The body, or empty if the body was given as an array.
+     */
+    public Optional<ODataRequestBody> getRequestBody() {
+        return Optional.ofNullable(requestBody);
     }
 
     public Method getMethod() {
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import com.sdl.odata.api.ODataSystemException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The body of an OData request, read lazily from its source.
+ * <p>
+ * The source is read once, the first time the body is accessed; bodies up to the spill threshold are kept in memory,
+ * larger bodies are written to a temporary file instead. After that the body can be read any number of times,
+ * without holding a large body in memory as a whole. The temporary file is deleted when the body is closed.
+ */
+public final class ODataRequestBody implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int spillThreshold;
+    private InputStream source;
+    private byte[] bytes;
+    private Path file;
+    private long length = -1;
+    private IOException failure;
+    private boolean closed;
+
+    private ODataRequestBody(InputStream source, byte[] bytes, int spillThreshold) {
+        this.source = source;
+        this.bytes = bytes;
+        this.spillThreshold = spillThreshold;
+        if (bytes != null) {
+            this.length = bytes.length;
+        }
+    }
+
+    /**
+     * Creates a body which is read from the given source when it is first accessed.
+     *
+     * @param source         The source of the body; it is closed once it is read.
+     * @param spillThreshold The largest number of bytes kept in memory; larger bodies are written to a temporary file.
+     * @return The body.
+     */
+    public static ODataRequestBody fromStream(InputStream source, int spillThreshold) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source is required");
+        }
+        return new ODataRequestBody(source, null, Math.max(spillThreshold, 0));
+    }
+
+    /**
+     * Creates a body which is held in memory.
+     *
+     * @param bytes The body.
+     * @return The body.
+     */
+    public static ODataRequestBody fromBytes(byte[] bytes) {
+        return new ODataRequestBody(null, bytes == null ? EMPTY : bytes, 0);
+    }
+
+    /**
+     * Opens a stream which reads the body from the start.
+     *
+     * @return The stream; the caller must close it.
+     * @throws IOException If the source of the body could not be read.
+     */
+    public InputStream openStream() throws IOException {
+        load();
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Returns the number of bytes in the body.
+     *
+     * @return The length of the body.
+     * @throws IOException If the source of the body could not be read.
+     */
+    public long getLength() throws IOException {
+        load();
+        return length;
+    }
+
+    /**
+     * Returns the body as an array; which means holding it in memory as a whole.
+     *
+     * @return The body.
+     */
+    public byte[] toByteArray() {
+        try {
+            load();
+            return file != null ? Files.readAllBytes(file) : bytes;
+        } catch (IOException e) {
+            throw new ODataSystemException("Unable to read the body of the request", e);
+        }
+    }
+
+    /**
+     * Returns whether the body has been read from its source, so that it can be accessed without blocking on the
+     * source.
+     *
+     * @return {@code true} if the body has been read and is not closed, {@code false} otherwise.
+     */
+    public synchronized boolean isLoaded() {
+        return source == null && failure == null && !closed;
+    }
+
+    /**
+     * Returns whether the body has been written to a temporary file.
+     *
+     * @return {@code true} if the body is larger than the spill threshold, {@code false} otherwise.
+     * @throws IOException If the source of the body could not be read.
+     */
+    public boolean isSpilled() throws IOException {
+        load();
+        return file != null;
+    }
+
+    /**
+     * Deletes the temporary file the body was written to, if any. A source which was never read is closed unread.
+     *
+     * @throws IOException If the temporary file could not be deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+        if (file != null) {
+            Files.deleteIfExists(file);
+            file = null;
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        if (closed) {
+            throw new ODataSystemException("The body of the request has been closed");
+        }
+        if (failure != null) {
+            throw new IOException("Unable to read the body of the request", failure);
+        }
+        if (source == null) {
+            return;
+        }
+
+        try (InputStream in = source) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            long count = copy(in, buffer, spillThreshold + 1L);
+            if (count <= spillThreshold) {
+                bytes = buffer.toByteArray();
+                length = count;
+            } else {
+                Path spillFile = Files.createTempFile("odata-request-", ".body");
+                try (OutputStream out = Files.newOutputStream(spillFile)) {
+                    buffer.writeTo(out);
+                    length = count + copy(in, out, Long.MAX_VALUE);
+                } catch (IOException e) {
+                    Files.deleteIfExists(spillFile);
+                    throw e;
+                }
+                file = spillFile;
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            source = null;
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int count;
+        while (total < limit && (count = in.read(buffer, 0, (int) Math.min(buffer.length, limit - total))) != -1) {
+            out.write(buffer, 0, count);
+            total += count;
+        }
+        return total;
+    }
+}
@@ -26,11 +26,18 @@ public final class ODataRequestContext {
     private final ODataRequest request;
     private final ODataUri uri;
     private final EntityDataModel entityDataModel;
+    private final ODataRequestDeadline deadline;
 
-    public ODataRequestContext(ODataRequest request, ODataUri uri, EntityDataModel entityDataModel) {
+    public ODataRequestContext(ODataRequest request, ODataUri uri, EntityDataModel entityDataModel,
+                               ODataRequestDeadline deadline) {
         this.request = request;
         this.uri = uri;
         this.entityDataModel = entityDataModel;
+        this.deadline = deadline;
+    }
+
+    public ODataRequestContext(ODataRequest request, ODataUri uri, EntityDataModel entityDataModel) {
+        this(request, uri, entityDataModel, ODataRequestDeadline.none());
     }
 
     public ODataRequestContext(ODataRequest request, EntityDataModel entityDataModel) {
@@ -38,7 +45,7 @@ public final class ODataRequestContext {
     }
 
     public ODataRequestContext withUri(ODataUri oDataUri) {
-        return new ODataRequestContext(this.request, oDataUri, this.entityDataModel);
+        return new ODataRequestContext(this.request, oDataUri, this.entityDataModel, this.deadline);
     }
 
     public ODataRequest getRequest() {
@@ -53,6 +60,10 @@ public final class ODataRequestContext {
         return entityDataModel;
     }
 
+    public ODataRequestDeadline getDeadline() {
+        return deadline;
+    }
+
     @Override
     public String toString() {
         return request.toString();
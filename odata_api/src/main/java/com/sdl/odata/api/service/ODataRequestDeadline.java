@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import com.sdl.odata.api.ODataRequestTimeoutException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The point in time by which the handling of a request must be completed.
+ * <p>
+ * A deadline is also cancelled when the request times out while one of the stages of the request pipeline is still
+ * busy. Long running work, such as a query operation strategy, can check the deadline of its request context in order
+ * to abort early.
+ */
+public final class ODataRequestDeadline {
+
+    /**
+     * The longest timeout a client can ask for with the {@link HeaderNames#X_ODATA_REQUEST_TIMEOUT} header when no
+     * timeout is configured: one day.
+     */
+    public static final long MAX_REQUESTED_TIMEOUT_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Longer timeouts are cut to this, so that the deadline does not overflow System.nanoTime()
+    private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE / 4;
+
+    private final boolean bounded;
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    private ODataRequestDeadline(boolean bounded, long deadlineNanos) {
+        this.bounded = bounded;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline which never expires, unless it is cancelled.
+     *
+     * @return The deadline.
+     */
+    public static ODataRequestDeadline none() {
+        return new ODataRequestDeadline(false, 0L);
+    }
+
+    /**
+     * Creates a deadline which expires after the given amount of time. Timeouts of more than about 70 years are cut to
+     * that.
+     *
+     * @param timeout The amount of time after which the deadline expires.
+     * @return The deadline.
+     */
+    public static ODataRequestDeadline after(Duration timeout) {
+        long timeoutNanos;
+        if (timeout.compareTo(Duration.ofNanos(MAX_TIMEOUT_NANOS)) > 0) {
+            timeoutNanos = MAX_TIMEOUT_NANOS;
+        } else {
+            timeoutNanos = Math.max(0L, timeout.toNanos());
+        }
+        return new ODataRequestDeadline(true, System.nanoTime() + timeoutNanos);
+    }
+
+    /**
+     * Creates the deadline of a request. This is the configured timeout, unless the client asked for a shorter timeout
+     * with the {@link HeaderNames#X_ODATA_REQUEST_TIMEOUT} header. Without a configured timeout, the client can ask
+     * for at most {@link #MAX_REQUESTED_TIMEOUT_MILLIS}. Invalid header values are ignored.
+     *
+     * @param request       The request.
+     * @param timeoutMillis The configured timeout in milliseconds, or 0 for no timeout.
+     * @return The deadline.
+     */
+    public static ODataRequestDeadline forRequest(ODataRequest request, long timeoutMillis) {
+        long millis = timeoutMillis > 0 ? timeoutMillis : Long.MAX_VALUE;
+
+        String requested = request.getHeader(HeaderNames.X_ODATA_REQUEST_TIMEOUT);
+        if (requested != null) {
+            try {
+                long requestedMillis = Long.parseLong(requested.trim());
+                if (requestedMillis > 0) {
+                    millis = Math.min(millis, Math.min(requestedMillis, MAX_REQUESTED_TIMEOUT_MILLIS));
+                }
+            } catch (NumberFormatException e) {
+                // Not a timeout, so not a reason to fail the request
+            }
+        }
+
+        return millis == Long.MAX_VALUE ? none() : after(Duration.ofMillis(millis));
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * Gets the time remaining until this deadline expires.
+     *
+     * @return The remaining time, which is zero when the deadline has expired; or empty if this deadline is not
+     * bounded.
+     */
+    public Optional<Duration> getRemaining() {
+        if (!bounded) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos(Math.max(0L, deadlineNanos - System.nanoTime())));
+    }
+
+    /**
+     * Cancels the request. Stages of the request pipeline that are still busy will see the deadline as expired.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return cancelled || (bounded && deadlineNanos - System.nanoTime() <= 0L);
+    }
+
+    /**
+     * Checks that this deadline has not expired yet.
+     *
+     * @throws ODataRequestTimeoutException If the deadline has expired or the request has been cancelled.
+     */
+    public void checkNotExpired() throws ODataRequestTimeoutException {
+        if (isExpired()) {
+            throw new ODataRequestTimeoutException(cancelled ? "The request has been cancelled" :
+                    "The request could not be completed in time");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+/**
+ * Records the latency of requests, and of the stages of the request pipeline they pass through. The OData service
+ * uses the bean implementing this interface, if there is one; a typical implementation records the durations into
+ * timers or histograms of a metrics library, tagged by stage, entity set, method and status.
+ * <p>
+ * A stage lasts from the moment the request is handed to it until it hands the request on, so it includes the time the
+ * request waits for the stage to pick it up. The metrics of a request are recorded when its response is ready, from the
+ * thread handling the request, so implementations must be thread-safe and fast.
+ */
+public interface ODataRequestMetrics {
+
+    /**
+     * Records the duration of a stage of the request pipeline.
+     *
+     * @param stage         The stage.
+     * @param entitySet     The entity set the request addressed, or {@code null} if it did not address an entity set
+     *                      or its URI could not be parsed.
+     * @param method        The method of the request.
+     * @param status        The status of the response.
+     * @param durationNanos The duration of the stage, in nanoseconds.
+     */
+    void recordStage(ODataPipelineStage stage, String entitySet, ODataRequest.Method method,
+                     ODataResponse.Status status, long durationNanos);
+
+    /**
+     * Records the duration of a request, from the moment the OData service received it until its response was ready.
+     *
+     * @param entitySet     The entity set the request addressed, or {@code null} if it did not address an entity set
+     *                      or its URI could not be parsed.
+     * @param method        The method of the request.
+     * @param status        The status of the response.
+     * @param durationNanos The duration of the request, in nanoseconds.
+     */
+    void recordRequest(String entitySet, ODataRequest.Method method, ODataResponse.Status status, long durationNanos);
+}
@@ -16,66 +16,58 @@
 package com.sdl.odata.api.service;
 
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
-
 /**
  * Superclass for {@code ODataRequest} and {@code ODataResponse} which contains common functionality for requests
  * and responses.
  */
 public abstract class ODataRequestResponseBase {
 
-    private Map<String, String> headers;
+    private ODataHeaders headers;
     private final byte[] body;
     private ODataContent streamingContent;
 
     protected ODataRequestResponseBase(Map<String, String> headers, byte[] body, ODataContent streamingContent) {
-        this.headers = headers;
+        this.headers = ODataHeaders.of(headers);
         this.body = body;
         this.streamingContent = streamingContent;
     }
 
+    /**
+     * The headers, looked up case-insensitively. The map is an {@link ODataHeaders}, which {@link #getODataHeaders()}
+     * returns as such.
+     *
+     * @return The headers.
+     */
     public Map<String, String> getHeaders() {
         return headers;
     }
 
+    /**
+     * The headers, with the media types of the {@code Accept} and {@code Content-Type} headers parsed once.
+     *
+     * @return The headers.
+     */
+    public ODataHeaders getODataHeaders() {
+        return headers;
+    }
+
     public void setHeaders(Map<String, String> headers) {
-        this.headers = headers;
+        this.headers = ODataHeaders.of(headers);
     }
 
     public String getHeader(String name) {
-        // NOTE: HTTP header names are case-insensitive; search through the map with a case-insensitive search
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            if (entry.getKey().equalsIgnoreCase(name)) {
-                return entry.getValue();
-            }
-        }
-        return null;
+        return headers.get(name);
     }
 
     public List<MediaType> getAccept() {
-        String acceptHeader = getHeader(HeaderNames.ACCEPT);
-        if (isNullOrEmpty(acceptHeader)) {
-            return Collections.emptyList();
-        }
-
-        List<MediaType> mediaTypesBuilder = new ArrayList<>();
-        for (String part : acceptHeader.split(",")) {
-            mediaTypesBuilder.add(MediaType.fromString(part.trim()));
-        }
-
-        return Collections.unmodifiableList(mediaTypesBuilder);
+        return headers.getAccept();
     }
 
-
     public MediaType getContentType() {
-        String contentTypeHeader = getHeader(HeaderNames.CONTENT_TYPE);
-        return (isNullOrEmpty(contentTypeHeader)) ?
-                null : MediaType.fromString(contentTypeHeader);
+        return headers.getContentType();
     }
 
     public byte[] getBody() {
@@ -87,6 +79,6 @@ public abstract class ODataRequestResponseBase {
     }
 
     public String getBodyText(String charset) throws UnsupportedEncodingException {
-        return new String(body, charset);
+        return new String(getBody(), charset);
     }
 }
@@ -16,9 +16,8 @@
 package com.sdl.odata.api.service;
 
 import java.io.UnsupportedEncodingException;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * OData response.
@@ -144,9 +143,10 @@ public final class ODataResponse extends ODataRequestResponseBase {
      */
     public static class Builder {
         private Status status;
-        private final Map<String, String> headersMap = new HashMap<>();
+        private final ODataHeaders.Builder headersBuilder = new ODataHeaders.Builder();
 
         private byte[] body;
+        private ODataResponseBody responseBody;
         private ODataContent oDataContent;
 
         public Builder setStatus(Status builderStatus) {
@@ -155,22 +155,35 @@ public final class ODataResponse extends ODataRequestResponseBase {
         }
 
         public Builder setHeader(String name, String value) {
-            this.headersMap.put(name, value);
+            this.headersBuilder.set(name, value);
             return this;
         }
 
         public Builder setHeaders(Map<String, String> headers) {
-            this.headersMap.putAll(headers);
+            this.headersBuilder.setAll(headers);
             return this;
         }
 
         public Builder setContentType(MediaType contentType) {
-            this.headersMap.put(HeaderNames.CONTENT_TYPE, contentType.toString());
+            this.headersBuilder.set(HeaderNames.CONTENT_TYPE, contentType.toString());
             return this;
         }
 
         public Builder setBody(byte[] builderBody) {
             this.body = builderBody;
+            this.responseBody = null;
+            return this;
+        }
+
+        /**
+         * Sets a body which the renderer has written into directly.
+         *
+         * @param builderResponseBody The body.
+         * @return This builder.
+         */
+        public Builder setBody(ODataResponseBody builderResponseBody) {
+            this.responseBody = builderResponseBody;
+            this.body = null;
             return this;
         }
 
@@ -180,8 +193,7 @@ public final class ODataResponse extends ODataRequestResponseBase {
         }
 
         public Builder setBodyText(String bodyText, String charset) throws UnsupportedEncodingException {
-            this.body = bodyText.getBytes(charset);
-            return this;
+            return setBody(bodyText.getBytes(charset));
         }
 
         public ODataResponse build() {
@@ -190,9 +202,10 @@ public final class ODataResponse extends ODataRequestResponseBase {
     }
 
     private final Status status;
+    private final ODataResponseBody responseBody;
 
     private ODataResponse(Builder builder) {
-        super(Collections.unmodifiableMap(builder.headersMap), builder.body, builder.oDataContent);
+        super(builder.headersBuilder.build(), builder.body, builder.oDataContent);
 
         if (builder.status == null) {
             throw new IllegalArgumentException("Status is required");
@@ -200,12 +213,33 @@ public final class ODataResponse extends ODataRequestResponseBase {
 
 
         this.status = builder.status;
+        this.responseBody = builder.responseBody;
     }
 
     public Status getStatus() {
         return status;
     }
 
+    /**
+     * Returns the body of the response. A body which the renderer has written into directly is copied into an array
+     * by this method; use {@link #getResponseBody()} to write it out without copying instead.
+     *
+     * @return The body, or {@code null} if the response has no body.
+     */
+    @Override
+    public byte[] getBody() {
+        return responseBody != null ? responseBody.toByteArray() : super.getBody();
+    }
+
+    /**
+     * Returns the body of the response if the renderer has written into it directly.
+     *
+     * @return The body, or empty if the body was given as an array.
+     */
+    public Optional<ODataResponseBody> getResponseBody() {
+        return Optional.ofNullable(responseBody);
+    }
+
     @Override
     public String toString() {
         return status.toString();
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The body of an OData response, which a renderer writes into directly.
+ * <p>
+ * The body is held in fixed-size chunks taken from a shared pool, so that rendering a large response neither grows
+ * and copies one large array, nor leaves it behind for the garbage collector. Its length is known once the renderer
+ * is done, so that it can be sent with a {@code Content-Length}. Whoever writes the body out {@link #release()
+ * releases} it afterwards, which hands the chunks back to the pool; a body which is never released is simply
+ * collected as garbage.
+ * <p>
+ * A body is written by a single renderer, and read once it is complete; it is not safe for concurrent use.
+ */
+public final class ODataResponseBody {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_POOLED_CHUNKS = 1024;
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private final OutputStream outputStream = new ChunkOutputStream();
+    private long length;
+    private boolean released;
+
+    /**
+     * Returns the stream the body is written to.
+     *
+     * @return The stream.
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Returns the number of bytes written to the body.
+     *
+     * @return The length of the body.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Writes the body to a stream.
+     *
+     * @param out The stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        checkNotReleased();
+        long remaining = length;
+        for (byte[] chunk : chunks) {
+            int count = (int) Math.min(chunk.length, remaining);
+            out.write(chunk, 0, count);
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Copies the body into an array.
+     *
+     * @return The body.
+     */
+    public byte[] toByteArray() {
+        checkNotReleased();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The body is too large for an array: " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        for (byte[] chunk : chunks) {
+            int count = Math.min(chunk.length, bytes.length - offset);
+            System.arraycopy(chunk, 0, bytes, offset, count);
+            offset += count;
+        }
+        return bytes;
+    }
+
+    /**
+     * Hands the chunks of the body back to the pool. The body can not be used afterwards.
+     */
+    public void release() {
+        if (!released) {
+            released = true;
+            for (byte[] chunk : chunks) {
+                POOL.offer(chunk);
+            }
+            chunks.clear();
+        }
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("The body has been released");
+        }
+    }
+
+    private byte[] writableChunk() {
+        if (length == (long) chunks.size() * CHUNK_SIZE) {
+            byte[] chunk = POOL.poll();
+            chunks.add(chunk != null ? chunk : new byte[CHUNK_SIZE]);
+        }
+        return chunks.get(chunks.size() - 1);
+    }
+
+    /**
+     * Appends to the chunks of the body.
+     */
+    private final class ChunkOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            checkNotReleased();
+            writableChunk()[(int) (length % CHUNK_SIZE)] = (byte) b;
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            checkNotReleased();
+            if (off < 0 || len < 0 || off + len > b.length) {
+                throw new IndexOutOfBoundsException();
+            }
+            int written = 0;
+            while (written < len) {
+                byte[] chunk = writableChunk();
+                int offset = (int) (length % CHUNK_SIZE);
+                int count = Math.min(len - written, CHUNK_SIZE - offset);
+                System.arraycopy(b, off + written, chunk, offset, count);
+                written += count;
+                length += count;
+            }
+        }
+    }
+}
@@ -17,6 +17,9 @@ package com.sdl.odata.api.service;
 
 import com.sdl.odata.api.ODataException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * OData service interface.
  */
@@ -30,4 +33,23 @@ public interface ODataService {
      * @throws ODataException If an error occurs while handling the request.
      */
     ODataResponse handleRequest(ODataRequest request) throws ODataException;
+
+    /**
+     * Handles an OData request without blocking the calling thread.
+     * <p>
+     * The default implementation handles the request synchronously and returns an already completed stage.
+     *
+     * @param request The request to handle.
+     * @return A stage that completes with the response, or completes exceptionally if an error occurs while handling
+     * the request.
+     */
+    default CompletionStage<ODataResponse> handleRequestAsync(ODataRequest request) {
+        CompletableFuture<ODataResponse> response = new CompletableFuture<>();
+        try {
+            response.complete(handleRequest(request));
+        } catch (ODataException | RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.util.edm;
+
+import com.sdl.odata.api.edm.model.EntityDataModel;
+import com.sdl.odata.api.edm.model.EntityType;
+import com.sdl.odata.api.edm.model.PropertyRef;
+import com.sdl.odata.api.edm.model.Type;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
+import static com.sdl.odata.util.edm.EntityDataModelUtil.getConcurrencyPropertyValues;
+import static com.sdl.odata.util.edm.EntityDataModelUtil.getKeyPropertyValues;
+
+/**
+ * Computes the ETags of entities and feeds, and matches them against the ETags a client sends.
+ * <p>
+ * The ETag of an entity is computed from the values of the concurrency properties of its entity type; entities of
+ * a type without concurrency properties do not have an ETag. The ETag of a feed is computed from the keys and the
+ * concurrency values of its entities, so that it changes when an entity is added, removed or changed. ETags are
+ * weak: they identify the entities, not the bytes of a particular representation of them.
+ */
+public final class ETagUtil {
+
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Computes the ETag of an entity or of a feed of entities, with the concurrency properties of the entity type of
+     * each entity.
+     *
+     * @param entityDataModel The entity data model.
+     * @param data            An entity or a list of entities.
+     * @return The ETag, or empty if the data is not an entity or a non-empty list of entities of which the entity
+     * types have concurrency properties.
+     */
+    public static Optional<String> getETag(EntityDataModel entityDataModel, Object data) {
+        return getETag(entityDataModel, data, entity -> getVersionedEntityType(entityDataModel, entity));
+    }
+
+    /**
+     * Computes the ETag of an entity or of a feed of entities, with the concurrency properties of the entity type a
+     * request declares, whatever the types of the entities themselves. This is the ETag that a version which a query
+     * operation strategy looks up for an entity of the declared type formats to.
+     *
+     * @param entityDataModel The entity data model.
+     * @param typeName        The fully qualified name of the declared type of the entities.
+     * @param data            An entity or a list of entities.
+     * @return The ETag, or empty if the declared type is not an entity type with concurrency properties or the data
+     * is not an entity or a non-empty list of entities.
+     */
+    public static Optional<String> getETag(EntityDataModel entityDataModel, String typeName, Object data) {
+        EntityType entityType = getVersionedEntityType(entityDataModel.getType(typeName));
+        if (entityType == null) {
+            return Optional.empty();
+        }
+        return getETag(entityDataModel, data, entity -> entity == null ? null : entityType);
+    }
+
+    private static Optional<String> getETag(EntityDataModel entityDataModel, Object data,
+                                            Function<Object, EntityType> entityTypes) {
+        if (data instanceof List) {
+            List<?> entities = (List<?>) data;
+            if (entities.isEmpty()) {
+                return Optional.empty();
+            }
+            long hash = FNV_OFFSET_BASIS;
+            for (Object entity : entities) {
+                EntityType entityType = entityTypes.apply(entity);
+                if (entityType == null) {
+                    return Optional.empty();
+                }
+                hash = hash(hash, entityType.getFullyQualifiedName());
+                Map<String, Object> keyPropertyValues = getKeyPropertyValues(entityType, entity);
+                for (PropertyRef propertyRef : entityType.getKey().getPropertyRefs()) {
+                    hash = hash(hash, keyPropertyValues.get(propertyRef.getPath()));
+                }
+                hash = hash(hash, getConcurrencyPropertyValues(entityDataModel, entityType, entity));
+            }
+            return Optional.of(format(hash));
+        }
+
+        EntityType entityType = entityTypes.apply(data);
+        return entityType == null ? Optional.empty() :
+                Optional.of(formatETag(getConcurrencyPropertyValues(entityDataModel, entityType, data)));
+    }
+
+    /**
+     * Formats the ETag of an entity with the given values of its concurrency properties. This is the ETag that
+     * {@link #getETag(EntityDataModel, Object)} computes for the entity.
+     *
+     * @param concurrencyPropertyValues The values of the concurrency properties, in the order in which the entity type
+     *                                  lists them.
+     * @return The ETag.
+     */
+    public static String formatETag(List<?> concurrencyPropertyValues) {
+        return format(hash(FNV_OFFSET_BASIS, concurrencyPropertyValues));
+    }
+
+    /**
+     * Checks whether an ETag matches the value of an {@code If-None-Match} header, using the weak comparison.
+     *
+     * @param ifNoneMatch The value of the {@code If-None-Match} header.
+     * @param eTag        The ETag.
+     * @return {@code true} if the header lists the ETag or is {@code *}, {@code false} otherwise.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (isNullOrEmpty(ifNoneMatch) || isNullOrEmpty(eTag)) {
+            return false;
+        }
+        String opaqueTag = opaqueTag(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (ANY.equals(trimmed) || opaqueTag.equals(opaqueTag(trimmed))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static EntityType getVersionedEntityType(EntityDataModel entityDataModel, Object entity) {
+        return entity == null ? null : getVersionedEntityType(entityDataModel.getType(entity.getClass()));
+    }
+
+    private static EntityType getVersionedEntityType(Type type) {
+        if (!(type instanceof EntityType)) {
+            return null;
+        }
+        EntityType entityType = (EntityType) type;
+        return entityType.getConcurrencyPropertyNames().isEmpty() ? null : entityType;
+    }
+
+    private static String opaqueTag(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+
+    private static String format(long hash) {
+        return WEAK_PREFIX + '"' + Long.toHexString(hash) + '"';
+    }
+
+    private static long hash(long hash, List<?> values) {
+        long result = hash;
+        for (Object value : values) {
+            result = hash(result, value);
+        }
+        return result;
+    }
+
+    // FNV-1a over the characters of the value, followed by a separator so that adjacent values cannot run together
+    private static long hash(long hash, Object value) {
+        String s = value instanceof byte[] ? Arrays.toString((byte[]) value) : String.valueOf(value);
+        long result = hash;
+        for (int i = 0; i < s.length(); i++) {
+            result = (result ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return result * FNV_PRIME;
+    }
+}
@@ -454,6 +454,29 @@ public final class EntityDataModelUtil {
         return keyPropertyValues;
     }
 
+    /**
+     * Gets the values of the concurrency properties of an entity, of which its ETag is computed.
+     *
+     * @param entityDataModel The entity data model.
+     * @param entityType      The entity type.
+     * @param entity          The entity.
+     * @return A {@code List} containing the values of the concurrency properties of the entity, in the order in which
+     * the entity type lists them.
+     */
+    public static List<Object> getConcurrencyPropertyValues(EntityDataModel entityDataModel, EntityType entityType,
+                                                            Object entity) {
+        List<Object> concurrencyPropertyValues = new ArrayList<>();
+        for (String propertyName : entityType.getConcurrencyPropertyNames()) {
+            StructuralProperty property = getStructuralProperty(entityDataModel, entityType, propertyName);
+            if (property == null) {
+                throw new ODataSystemException("Concurrency property: " + propertyName + " not found in entity type: "
+                        + entityType);
+            }
+            concurrencyPropertyValues.add(getPropertyValue(property, entity));
+        }
+        return concurrencyPropertyValues;
+    }
+
     /**
      * Gets the entity set with the specified name, throws an exception if no entity set with the specified name exists.
      *
@@ -222,6 +222,21 @@ object ODataUriUtil {
     }
   }
 
+  /**
+   * Check whether an `ODataUri` has options which shape its result beyond the entities it addresses: `$expand`,
+   * `$select` or `$count=true`.
+   *
+   * @param odataUri The `ODataUri`.
+   * @return `true` if the URI has a `$expand` or `$select` option or a `$count` option which is `true`.
+   */
+  def hasShapingOptions(odataUri: ODataUri): Boolean = {
+    getQueryOptions(odataUri).exists {
+      case _: ExpandOption | _: SelectOption => true
+      case CountOption(true) => true
+      case _ => false
+    }
+  }
+
   /**
    * Builds the 'Context URL' from a given OData URI.
    * The context will be generated for entity set, entity, simple property and complex property (including derived types)
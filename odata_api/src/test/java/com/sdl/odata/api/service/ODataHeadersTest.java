@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ODataHeaders}.
+ */
+public class ODataHeadersTest {
+
+    @Test
+    public void testCaseInsensitiveLookup() {
+        ODataHeaders headers = new ODataHeaders.Builder()
+                .set("Content-Type", "application/json")
+                .set("X-Custom", "one")
+                .build();
+
+        assertEquals("application/json", headers.get("content-type"));
+        assertEquals("application/json", headers.get("CONTENT-TYPE"));
+        assertTrue(headers.containsKey("x-custom"));
+        assertFalse(headers.containsKey("Accept"));
+        assertNull(headers.get("Accept"));
+        assertEquals(ImmutableMap.of("Content-Type", "application/json", "X-Custom", "one"), headers);
+    }
+
+    @Test
+    public void testLaterHeaderReplacesEarlier() {
+        ODataHeaders headers = new ODataHeaders.Builder()
+                .set("accept", "application/xml")
+                .set("Accept", "application/json")
+                .build();
+
+        assertEquals(1, headers.size());
+        assertEquals("Accept", headers.keySet().iterator().next());
+        assertEquals("application/json", headers.get("ACCEPT"));
+    }
+
+    @Test
+    public void testParsedHeadersAreKept() {
+        ODataHeaders headers = ODataHeaders.of(ImmutableMap.of(
+                "accept", "application/json, application/xml;q=0.5",
+                "content-type", "application/json;charset=UTF-8"));
+
+        List<MediaType> accept = headers.getAccept();
+        assertEquals(2, accept.size());
+        assertEquals(MediaType.JSON, accept.get(0));
+        assertSame(accept, headers.getAccept());
+
+        MediaType contentType = headers.getContentType();
+        assertEquals("UTF-8", contentType.getParameter("charset"));
+        assertSame(contentType, headers.getContentType());
+    }
+
+    @Test
+    public void testMissingParsedHeaders() {
+        ODataHeaders headers = ODataHeaders.empty();
+
+        assertTrue(headers.getAccept().isEmpty());
+        assertNull(headers.getContentType());
+    }
+
+    @Test
+    public void testUnmodifiable() {
+        ODataHeaders headers = new ODataHeaders.Builder().set("Accept", "application/json").build();
+
+        assertThrows(UnsupportedOperationException.class, () -> headers.put("Prefer", "return=minimal"));
+        assertThrows(UnsupportedOperationException.class, () -> headers.entrySet().clear());
+        assertSame(headers, ODataHeaders.of(headers));
+        assertEquals(1, new ArrayList<>(headers.values()).size());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import com.sdl.odata.api.ODataSystemException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ODataRequestBody}.
+ */
+public class ODataRequestBodyTest {
+
+    private static final byte[] BODY = "{\"name\":\"The bike costs € 725\"}".getBytes(UTF_8);
+
+    @Test
+    public void testInMemory() throws IOException {
+        try (ODataRequestBody body = ODataRequestBody.fromStream(new ByteArrayInputStream(BODY), BODY.length)) {
+            assertFalse(body.isSpilled());
+            assertEquals(BODY.length, body.getLength());
+            assertArrayEquals(BODY, body.toByteArray());
+            assertArrayEquals(BODY, readAll(body));
+        }
+    }
+
+    @Test
+    public void testSpilled() throws IOException {
+        ODataRequestBody body = ODataRequestBody.fromStream(new ByteArrayInputStream(BODY), BODY.length - 1);
+
+        assertTrue(body.isSpilled());
+        assertEquals(BODY.length, body.getLength());
+        assertArrayEquals(BODY, readAll(body));
+        // The body can be read again
+        assertArrayEquals(BODY, readAll(body));
+
+        body.close();
+        assertThrows(ODataSystemException.class, body::toByteArray);
+    }
+
+    @Test
+    public void testReadLazily() throws IOException {
+        AtomicBoolean read = new AtomicBoolean();
+        InputStream source = new ByteArrayInputStream(BODY) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                read.set(true);
+                return super.read(b, off, len);
+            }
+        };
+
+        ODataRequest request = new ODataRequest.Builder()
+                .setMethod(ODataRequest.Method.POST)
+                .setUri("http://localhost:8080/test")
+                .setBody(ODataRequestBody.fromStream(source, 0))
+                .build();
+        assertFalse(read.get());
+        assertFalse(request.getRequestBody().get().isLoaded());
+
+        assertEquals("{\"name\":\"The bike costs € 725\"}", request.getBodyText(UTF_8.name()));
+        assertTrue(read.get());
+        assertTrue(request.getRequestBody().get().isLoaded());
+        try (InputStream in = request.getBodyStream()) {
+            assertEquals('{', in.read());
+        }
+        assertTrue(request.getRequestBody().get().isSpilled());
+        request.getRequestBody().get().close();
+        assertFalse(request.getRequestBody().get().isLoaded());
+    }
+
+    @Test
+    public void testFromBytes() throws IOException {
+        ODataRequest request = new ODataRequest.Builder()
+                .setMethod(ODataRequest.Method.POST)
+                .setUri("http://localhost:8080/test")
+                .setBody(BODY)
+                .build();
+
+        assertFalse(request.getRequestBody().isPresent());
+        try (InputStream in = request.getBodyStream()) {
+            assertArrayEquals(BODY, in.readAllBytes());
+        }
+        assertEquals(0, ODataRequestBody.fromBytes(null).getLength());
+        assertTrue(ODataRequestBody.fromBytes(BODY).isLoaded());
+    }
+
+    private static byte[] readAll(ODataRequestBody body) throws IOException {
+        try (InputStream in = body.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import com.sdl.odata.api.ODataRequestTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ODataRequestDeadline}.
+ */
+public class ODataRequestDeadlineTest {
+
+    @Test
+    public void testNone() throws ODataRequestTimeoutException {
+        ODataRequestDeadline deadline = ODataRequestDeadline.none();
+
+        assertFalse(deadline.isBounded());
+        assertFalse(deadline.getRemaining().isPresent());
+        assertFalse(deadline.isExpired());
+        deadline.checkNotExpired();
+    }
+
+    @Test
+    public void testNotExpired() throws ODataRequestTimeoutException {
+        ODataRequestDeadline deadline = ODataRequestDeadline.after(Duration.ofMinutes(1));
+
+        assertTrue(deadline.isBounded());
+        assertTrue(deadline.getRemaining().get().compareTo(Duration.ZERO) > 0);
+        assertFalse(deadline.isExpired());
+        deadline.checkNotExpired();
+    }
+
+    @Test
+    public void testExpired() {
+        ODataRequestDeadline deadline = ODataRequestDeadline.after(Duration.ZERO);
+
+        assertEquals(Duration.ZERO, deadline.getRemaining().get());
+        assertTrue(deadline.isExpired());
+        assertThrows(ODataRequestTimeoutException.class, deadline::checkNotExpired);
+    }
+
+    @Test
+    public void testCancelled() {
+        ODataRequestDeadline deadline = ODataRequestDeadline.none();
+        deadline.cancel();
+
+        assertTrue(deadline.isCancelled());
+        assertTrue(deadline.isExpired());
+        assertThrows(ODataRequestTimeoutException.class, deadline::checkNotExpired);
+    }
+
+    @Test
+    public void testForRequest() {
+        assertFalse(ODataRequestDeadline.forRequest(request(null), 0).isBounded());
+        assertFalse(ODataRequestDeadline.forRequest(request("junk"), 0).isBounded());
+        assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request(null), 60000)) > 30000);
+        assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request("1000"), 60000)) <= 1000);
+        assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request("1000"), 0)) <= 1000);
+        assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request("120000"), 60000)) <= 60000);
+        assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request("-1"), 60000)) > 30000);
+    }
+
+    @Test
+    public void testForRequestWithHugeTimeout() {
+        long maxMillis = ODataRequestDeadline.MAX_REQUESTED_TIMEOUT_MILLIS;
+        for (String timeout : new String[] {"21000000000", "9300000000000", String.valueOf(Long.MAX_VALUE)}) {
+            assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request(timeout), 0)) <= maxMillis);
+            assertTrue(remainingMillis(ODataRequestDeadline.forRequest(request(timeout), 60000)) <= 60000);
+        }
+        assertFalse(ODataRequestDeadline.forRequest(request(Long.MAX_VALUE + "0"), 0).isBounded());
+    }
+
+    @Test
+    public void testAfterLongTimeout() {
+        ODataRequestDeadline deadline = ODataRequestDeadline.after(Duration.ofSeconds(Long.MAX_VALUE));
+
+        assertTrue(deadline.getRemaining().get().compareTo(Duration.ofDays(365L * 50)) > 0);
+        assertFalse(deadline.isExpired());
+        assertTrue(ODataRequestDeadline.after(Duration.ofMillis(-1)).isExpired());
+    }
+
+    @Test
+    public void testWithUriKeepsDeadline() {
+        ODataRequestDeadline deadline = ODataRequestDeadline.after(Duration.ofMinutes(1));
+        ODataRequestContext requestContext = new ODataRequestContext(null, null, null, deadline);
+
+        assertTrue(requestContext.withUri(null).getDeadline() == deadline);
+    }
+
+    private static ODataRequest request(String timeoutHeader) {
+        ODataRequest.Builder builder = new ODataRequest.Builder()
+                .setMethod(ODataRequest.Method.GET)
+                .setUri("http://localhost/odata.svc/Customers");
+        if (timeoutHeader != null) {
+            builder.setHeader(HeaderNames.X_ODATA_REQUEST_TIMEOUT, timeoutHeader);
+        }
+        return builder.build();
+    }
+
+    private static long remainingMillis(ODataRequestDeadline deadline) {
+        return deadline.getRemaining().get().toMillis();
+    }
+}
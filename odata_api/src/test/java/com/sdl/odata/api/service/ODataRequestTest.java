@@ -24,6 +24,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -48,6 +49,8 @@ public class ODataRequestTest {
         assertEquals("value2", request.getHeader("TWO"));
         assertEquals("value2", request.getHeader("TWO"));
         assertEquals("value3", request.getHeader("Three"));
+        assertEquals("value3", request.getHeaders().get("THREE"));
+        assertSame(request.getODataHeaders(), request.getHeaders());
         assertArrayEquals(new byte[]{1, 2, 3}, request.getBody());
     }
 
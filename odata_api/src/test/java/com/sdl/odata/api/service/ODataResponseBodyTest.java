@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ODataResponseBody}.
+ */
+public class ODataResponseBodyTest {
+
+    @Test
+    public void testWriteAcrossChunks() throws IOException {
+        byte[] data = new byte[20000];
+        new Random(42).nextBytes(data);
+
+        ODataResponseBody body = new ODataResponseBody();
+        OutputStream out = body.getOutputStream();
+        out.write(data[0]);
+        out.write(data, 1, 8191);
+        out.write(data, 8192, data.length - 8192);
+
+        assertEquals(data.length, body.getLength());
+        assertArrayEquals(data, body.toByteArray());
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        body.writeTo(written);
+        assertArrayEquals(data, written.toByteArray());
+    }
+
+    @Test
+    public void testRelease() throws IOException {
+        ODataResponseBody body = new ODataResponseBody();
+        body.getOutputStream().write("released".getBytes(UTF_8));
+        body.release();
+        body.release();
+
+        assertThrows(IllegalStateException.class, body::toByteArray);
+        assertThrows(IllegalStateException.class, () -> body.getOutputStream().write(1));
+
+        // A body reusing the released chunks only exposes what is written to it
+        ODataResponseBody reused = new ODataResponseBody();
+        reused.getOutputStream().write("new".getBytes(UTF_8));
+        assertEquals("new", new String(reused.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testResponse() throws IOException {
+        ODataResponseBody body = new ODataResponseBody();
+        body.getOutputStream().write("The bike costs € 725".getBytes(UTF_8));
+
+        ODataResponse response = new ODataResponse.Builder()
+                .setStatus(ODataResponse.Status.OK)
+                .setBody(body)
+                .build();
+
+        assertTrue(response.getResponseBody().isPresent());
+        assertEquals("The bike costs € 725", response.getBodyText(UTF_8.name()));
+
+        ODataResponse arrayResponse = new ODataResponse.Builder()
+                .setStatus(ODataResponse.Status.OK)
+                .setBody(body)
+                .setBody(new byte[]{1})
+                .build();
+        assertFalse(arrayResponse.getResponseBody().isPresent());
+        assertArrayEquals(new byte[]{1}, arrayResponse.getBody());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.util.edm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.sdl.odata.util.edm.ETagUtil.formatETag;
+import static com.sdl.odata.util.edm.ETagUtil.matches;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ETagUtil}.
+ */
+public class ETagUtilTest {
+
+    @Test
+    public void testFormatETag() {
+        String eTag = formatETag(Arrays.asList(1L, "a"));
+        assertTrue(eTag.startsWith("W/\""));
+        assertTrue(eTag.endsWith("\""));
+        assertEquals(eTag, formatETag(Arrays.asList(1L, "a")));
+        assertNotEquals(eTag, formatETag(Arrays.asList(1L, "b")));
+        // Adjacent values do not run together
+        assertNotEquals(formatETag(Arrays.asList("ab", "c")), formatETag(Arrays.asList("a", "bc")));
+    }
+
+    @Test
+    public void testMatches() {
+        String eTag = formatETag(Arrays.asList(42L));
+        String opaqueTag = eTag.substring(2);
+
+        assertTrue(matches(eTag, eTag));
+        assertTrue(matches(opaqueTag, eTag));
+        assertTrue(matches("\"other\", " + eTag, eTag));
+        assertTrue(matches("*", eTag));
+        assertFalse(matches("\"other\"", eTag));
+        assertFalse(matches("", eTag));
+        assertFalse(matches(null, eTag));
+    }
+}
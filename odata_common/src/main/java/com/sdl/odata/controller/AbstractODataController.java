@@ -17,24 +17,34 @@ package com.sdl.odata.controller;
 
 import com.sdl.odata.api.ODataException;
 import com.sdl.odata.api.service.ODataRequest;
+import com.sdl.odata.api.service.ODataRequestBody;
+import com.sdl.odata.api.service.ODataRequestDeadline;
 import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataResponseBody;
 import com.sdl.odata.api.service.ODataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Enumeration;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.sdl.odata.api.service.ODataResponse.Status.INTERNAL_SERVER_ERROR;
+import static com.sdl.odata.api.service.ODataResponse.Status.SERVICE_UNAVAILABLE;
 import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
@@ -45,34 +55,85 @@ import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 
 /**
  * The abstract OData Controller.
+ * <p>
+ * When the servlet container supports it, requests are processed asynchronously: the container thread is released
+ * while the request is handled and the response is written once it is available. This can be switched off with the
+ * {@code odata.controller.async} property. An asynchronous request times out
+ * {@code odata.controller.async-timeout-margin} milliseconds after the deadline of the request, as set by
+ * {@code odata.service.request-timeout} or asked for by the client, and is then answered with 503 Service Unavailable.
+ * Without a deadline it waits for the service as long as the synchronous path does.
+ * <p>
+ * The body of a request is read lazily, when the service first needs it. Bodies larger than
+ * {@code odata.controller.spill-threshold} bytes are written to a temporary file instead of being held in memory; the
+ * file is deleted once the response has been written.
+ * <p>
+ * Responses are compressed with gzip or deflate when the client accepts it, as configured by the
+ * {@code odata.controller.compression} properties. Responses smaller than {@code min-size} bytes are sent as they are.
  */
 public abstract class AbstractODataController {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractODataController.class);
 
-    private static final int BUFFER_SIZE = 1024;
     private static final int DEFAULT_PORT_NUMBER = 80;
     private static final int DEFAULT_SSL_PORT_NUMBER = 443;
+    private static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+    private static final long DEFAULT_ASYNC_TIMEOUT_MARGIN = 5000L;
 
     @Autowired
     private ODataService oDataService;
 
+    @Value("${odata.controller.async:true}")
+    private boolean asyncEnabled = true;
+
+    @Value("${odata.controller.async-timeout-margin:5000}")
+    private long asyncTimeoutMargin = DEFAULT_ASYNC_TIMEOUT_MARGIN;
+
+    @Value("${odata.service.request-timeout:0}")
+    private long requestTimeout;
+
+    @Value("${odata.controller.spill-threshold:1048576}")
+    private int spillThreshold = DEFAULT_SPILL_THRESHOLD;
+
+    private ResponseCompression compression = ResponseCompression.disabled();
+
+    @Autowired
+    void setCompression(
+            @Value("${odata.controller.compression.enabled:true}") boolean enabled,
+            @Value("${odata.controller.compression.min-size:2048}") int minSize,
+            @Value("${odata.controller.compression.level:6}") int level,
+            @Value("${odata.controller.compression.mime-types:" + ResponseCompression.DEFAULT_MIME_TYPES + "}")
+                    String mimeTypes) {
+        this.compression = new ResponseCompression(enabled, minSize, level, mimeTypes);
+    }
+
     @RequestMapping(method = {
             GET, POST, PATCH, PUT, DELETE
     })
-    protected void service(HttpServletRequest servletRequest, HttpServletResponse servletResponse)
+    protected void service(HttpServletRequest servletRequest, HttpServletResponse httpServletResponse)
             throws ServletException, IOException {
         if (LOG.isTraceEnabled()) {
             LOG.trace("Start processing request from: {}", servletRequest.getRemoteAddr());
         }
 
-        ODataResponse oDataResponse;
+        ODataRequest oDataRequest = buildODataRequest(servletRequest);
+        doWireLogging(oDataRequest);
+
+        HttpServletResponse servletResponse = compression.wrap(servletRequest, httpServletResponse);
+        if (asyncEnabled && servletRequest.isAsyncSupported()) {
+            serviceAsync(oDataRequest, servletRequest, servletResponse);
+            return;
+        }
+
         try {
-            ODataRequest oDataRequest = buildODataRequest(servletRequest);
-            doWireLogging(oDataRequest);
-            oDataResponse = oDataService.handleRequest(oDataRequest);
+            ODataResponse oDataResponse = oDataService.handleRequest(oDataRequest);
             fillServletResponse(oDataResponse, servletResponse);
         } catch (ODataException e) {
             throw new ServletException(e);
+        } finally {
+            try {
+                finishServletResponse(servletResponse);
+            } finally {
+                closeBody(oDataRequest);
+            }
         }
 
         if (LOG.isTraceEnabled()) {
@@ -80,6 +141,132 @@ public abstract class AbstractODataController {
         }
     }
 
+    /**
+     * Hands an {@code ODataRequest} to the service and writes the response once it is available, without keeping
+     * the current container thread busy in the meantime.
+     *
+     * @param oDataRequest    The {@code ODataRequest}.
+     * @param servletRequest  The {@code HttpServletRequest}.
+     * @param servletResponse The {@code HttpServletResponse}.
+     */
+    private void serviceAsync(ODataRequest oDataRequest, HttpServletRequest servletRequest,
+                              HttpServletResponse servletResponse) {
+        AsyncContext asyncContext = servletRequest.startAsync(servletRequest, servletResponse);
+        asyncContext.setTimeout(asyncTimeout(oDataRequest));
+
+        // The request is completed either with the response or by its timeout, whichever comes first
+        AtomicBoolean completing = new AtomicBoolean();
+        asyncContext.addListener(new TimeoutListener(oDataRequest, servletResponse, completing));
+
+        String remoteAddr = servletRequest.getRemoteAddr();
+        oDataService.handleRequestAsync(oDataRequest).whenComplete((oDataResponse, failure) -> {
+            if (!completing.compareAndSet(false, true)) {
+                LOG.debug("Dropping response for request which has timed out: {}", oDataRequest);
+                releaseResponse(oDataResponse);
+                return;
+            }
+            // Write the response on a container thread rather than on the thread which completed the response
+            asyncContext.start(() -> {
+                try {
+                    completeAsync(oDataRequest, oDataResponse, failure, servletResponse);
+                } finally {
+                    closeBody(oDataRequest);
+                    asyncContext.complete();
+                }
+
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Finished processing request from: {}", remoteAddr);
+                }
+            });
+        });
+    }
+
+    private long asyncTimeout(ODataRequest oDataRequest) {
+        // The service answers by the deadline; the margin leaves it the time to render its own timeout error
+        return ODataRequestDeadline.forRequest(oDataRequest, requestTimeout).getRemaining()
+                .map(remaining -> Math.max(remaining.toMillis() + asyncTimeoutMargin, 1L))
+                .orElse(0L);
+    }
+
+    private static void releaseResponse(ODataResponse oDataResponse) {
+        if (oDataResponse != null) {
+            oDataResponse.getResponseBody().ifPresent(ODataResponseBody::release);
+        }
+    }
+
+    private void completeAsync(ODataRequest oDataRequest, ODataResponse oDataResponse, Throwable failure,
+                               HttpServletResponse servletResponse) {
+        try {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ?
+                        failure.getCause() : failure;
+                LOG.error("Unable to handle request: {}", oDataRequest, cause);
+                servletResponse.sendError(INTERNAL_SERVER_ERROR.getCode());
+            } else {
+                fillServletResponse(oDataResponse, servletResponse);
+            }
+        } catch (IOException | ODataException e) {
+            LOG.error("Unable to write response for request: {}", oDataRequest, e);
+        } finally {
+            try {
+                finishServletResponse(servletResponse);
+            } catch (IOException e) {
+                LOG.error("Unable to finish response for request: {}", oDataRequest, e);
+            }
+        }
+    }
+
+    /**
+     * Answers an asynchronous request of which the response is not available in time.
+     */
+    private final class TimeoutListener implements AsyncListener {
+        private final ODataRequest oDataRequest;
+        private final HttpServletResponse servletResponse;
+        private final AtomicBoolean completing;
+
+        private TimeoutListener(ODataRequest oDataRequest, HttpServletResponse servletResponse,
+                                AtomicBoolean completing) {
+            this.oDataRequest = oDataRequest;
+            this.servletResponse = servletResponse;
+            this.completing = completing;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (!completing.compareAndSet(false, true)) {
+                // The response is being written already
+                return;
+            }
+            LOG.warn("Request timed out before its response was available: {}", oDataRequest);
+            try {
+                servletResponse.sendError(SERVICE_UNAVAILABLE.getCode());
+            } catch (IOException e) {
+                LOG.error("Unable to write response for request: {}", oDataRequest, e);
+            } finally {
+                try {
+                    finishServletResponse(servletResponse);
+                } catch (IOException e) {
+                    LOG.error("Unable to finish response for request: {}", oDataRequest, e);
+                } finally {
+                    closeBody(oDataRequest);
+                    event.getAsyncContext().complete();
+                }
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
     /**
      * Converts an {@code HttpServletRequest} to an {@code ODataRequest}.
      *
@@ -100,7 +287,8 @@ public abstract class AbstractODataController {
         }
         builder.setUri(sb.toString());
 
-        // Unfortunately, HttpServletRequest has a very old-style API to iterate the headers
+        // Unfortunately, HttpServletRequest has a very old-style API to iterate the headers; they are collected once
+        // into the case-insensitive headers which every stage of the pipeline looks them up in
         Enumeration e = servletRequest.getHeaderNames();
         while (e.hasMoreElements()) {
             String name = (String) e.nextElement();
@@ -108,19 +296,22 @@ public abstract class AbstractODataController {
             builder.setHeader(name, value);
         }
 
-        // Read the request body
-        InputStream in = servletRequest.getInputStream();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        int count;
-        byte[] buffer = new byte[BUFFER_SIZE];
-        while ((count = in.read(buffer)) != -1) {
-            out.write(buffer, 0, count);
-        }
-        builder.setBody(out.toByteArray());
+        // The request body is read when it is first needed
+        builder.setBody(ODataRequestBody.fromStream(servletRequest.getInputStream(), spillThreshold));
 
         return builder.build();
     }
 
+    private void closeBody(ODataRequest oDataRequest) {
+        oDataRequest.getRequestBody().ifPresent(body -> {
+            try {
+                body.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to clean up the body of request: {}", oDataRequest, e);
+            }
+        });
+    }
+
     /**
      * In cases when {@link HttpServletRequest} is wrapped, request url will consist values from top wrapper now.
      * Instead of schema, port and server name from inner {@link org.apache.coyote.Request}.
@@ -165,16 +356,41 @@ public abstract class AbstractODataController {
             servletResponse.setHeader(entry.getKey(), entry.getValue());
         }
 
+        Optional<ODataResponseBody> responseBody = oDataResponse.getResponseBody();
+        if (responseBody.isPresent()) {
+            // Write the chunks the renderer wrote into, and hand them back to the pool
+            ODataResponseBody body = responseBody.get();
+            try {
+                servletResponse.setContentLengthLong(body.getLength());
+                if (body.getLength() != 0) {
+                    OutputStream out = servletResponse.getOutputStream();
+                    body.writeTo(out);
+                    out.flush();
+                }
+            } finally {
+                body.release();
+            }
+            return;
+        }
+
         byte[] body = oDataResponse.getBody();
         if (body != null && body.length != 0) {
+            servletResponse.setContentLength(body.length);
             OutputStream out = servletResponse.getOutputStream();
-            out.write(oDataResponse.getBody());
+            out.write(body);
             out.flush();
         } else if (oDataResponse.getStreamingContent() != null) {
             oDataResponse.getStreamingContent().write(servletResponse);
         }
     }
 
+    // Also called when the response could not be filled, so that a compressor always releases its native memory
+    private void finishServletResponse(HttpServletResponse servletResponse) throws IOException {
+        if (servletResponse instanceof CompressingResponse) {
+            ((CompressingResponse) servletResponse).finish();
+        }
+    }
+
     private void doWireLogging(ODataRequest request) throws UnsupportedEncodingException {
         if (LOG.isTraceEnabled()) {
             LOG.trace("RAW REQUEST LOGGING");
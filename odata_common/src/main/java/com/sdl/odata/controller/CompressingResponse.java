@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.controller;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A response of which the body is compressed, unless it turns out not to be worth it.
+ * <p>
+ * Whether the body is compressed is decided from the content type, and from the content length if it is set before
+ * the body is written. Otherwise the body is held back until it reaches the minimum size for compression, is flushed,
+ * or is finished. The body must be {@link #finish() finished} once it is complete.
+ */
+final class CompressingResponse extends HttpServletResponseWrapper {
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String VARY = "Vary";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private final ResponseCompression compression;
+    private final String encoding;
+    private long contentLength = -1;
+    private ByteArrayOutputStream pending;
+    private OutputStream target;
+    private DeflaterOutputStream compressor;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    CompressingResponse(HttpServletResponse response, ResponseCompression compression, String encoding) {
+        super(response);
+        this.compression = compression;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // The length is only known once it is decided whether the body is compressed
+        if (target == null) {
+            contentLength = len;
+        } else if (compressor == null) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream underlying = super.getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return underlying.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    underlying.setWriteListener(writeListener);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (target == null && contentLength < 0) {
+                        hold(b, off, len);
+                    } else {
+                        target(true).write(b, off, len);
+                    }
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (target != null || pending != null) {
+                        target(true).flush();
+                    }
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * Completes the compressed body, if the body is compressed.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (target == null) {
+            if (pending != null) {
+                // The whole body is held back, so it is smaller than the minimum size
+                contentLength = pending.size();
+                target(false);
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+        if (compressor != null) {
+            compressor.close();
+        }
+    }
+
+    private void hold(byte[] b, int off, int len) throws IOException {
+        if (pending == null) {
+            pending = new ByteArrayOutputStream();
+        }
+        pending.write(b, off, len);
+        if (pending.size() >= compression.getMinSize()) {
+            target(true);
+        }
+    }
+
+    private OutputStream target(boolean compressible) throws IOException {
+        if (target == null) {
+            ServletOutputStream underlying = super.getOutputStream();
+            if (compressible && getHeader(CONTENT_ENCODING) == null
+                    && compression.isCompressible(getContentType(), contentLength)) {
+                super.setHeader(CONTENT_ENCODING, encoding);
+                super.addHeader(VARY, ACCEPT_ENCODING);
+                compressor = compression.compressor(encoding, underlying);
+                target = compressor;
+            } else {
+                if (contentLength >= 0) {
+                    super.setContentLengthLong(contentLength);
+                }
+                target = underlying;
+            }
+            if (pending != null) {
+                pending.writeTo(target);
+                pending = null;
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
+
+/**
+ * Negotiates the compression of responses with the {@code Accept-Encoding} header of the request.
+ * <p>
+ * Responses are compressed with gzip or deflate when the client accepts it, their content type is one of the
+ * compressible types, and they are not smaller than the minimum size. A body of which the size is not known up front
+ * is held back until it reaches the minimum size, is flushed, or is complete; a streamed body is compressed as it is
+ * flushed, so that each flush still sends what has been written so far.
+ */
+public final class ResponseCompression {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    /**
+     * The content types which are compressed unless configured otherwise.
+     */
+    public static final String DEFAULT_MIME_TYPES = "application/json,application/xml,application/atom+xml,"
+            + "application/atomsvc+xml,text/plain,text/xml,multipart/mixed";
+
+    private static final String ANY = "*";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean enabled;
+    private final int minSize;
+    private final int level;
+    private final Set<String> mimeTypes;
+
+    /**
+     * Creates the compression settings.
+     *
+     * @param enabled   Whether responses are compressed at all.
+     * @param minSize   The number of bytes below which a response of known size is not compressed.
+     * @param level     The compression level, from 1 (fastest) to 9 (smallest).
+     * @param mimeTypes The comma separated content types which are compressed.
+     */
+    public ResponseCompression(boolean enabled, int minSize, int level, String mimeTypes) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.level = level;
+        this.mimeTypes = Arrays.stream(mimeTypes.split(","))
+                .map(mimeType -> mimeType.trim().toLowerCase(Locale.ROOT))
+                .filter(mimeType -> !mimeType.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Settings which never compress.
+     *
+     * @return The settings.
+     */
+    public static ResponseCompression disabled() {
+        return new ResponseCompression(false, 0, Deflater.BEST_SPEED, "");
+    }
+
+    /**
+     * Wraps a response so that its body is compressed, if the client accepts a compressed response.
+     *
+     * @param request  The request.
+     * @param response The response.
+     * @return The wrapped response, or the given response if it is not compressed.
+     */
+    public HttpServletResponse wrap(HttpServletRequest request, HttpServletResponse response) {
+        if (!enabled) {
+            return response;
+        }
+        String encoding = negotiate(request.getHeader("Accept-Encoding"));
+        return encoding != null ? new CompressingResponse(response, this, encoding) : response;
+    }
+
+    /**
+     * Chooses the encoding of a response: gzip or deflate, whichever the client prefers, gzip if it has no preference.
+     *
+     * @param acceptEncoding The {@code Accept-Encoding} header of the request.
+     * @return The encoding, or {@code null} if the client does not accept either.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (isNullOrEmpty(acceptEncoding)) {
+            return null;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] codingAndParams = part.split(";");
+            String coding = codingAndParams[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(codingAndParams);
+            if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                gzip = Math.max(gzip, quality);
+            } else if (DEFLATE.equals(coding)) {
+                deflate = Math.max(deflate, quality);
+            } else if (ANY.equals(coding)) {
+                any = quality;
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static double quality(String[] codingAndParams) {
+        for (int i = 1; i < codingAndParams.length; i++) {
+            String param = codingAndParams[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    boolean isCompressible(String contentType, long contentLength) {
+        if (isNullOrEmpty(contentType) || (contentLength >= 0 && contentLength < minSize)) {
+            return false;
+        }
+        int parametersStart = contentType.indexOf(';');
+        String mimeType = (parametersStart < 0 ? contentType : contentType.substring(0, parametersStart))
+                .trim().toLowerCase(Locale.ROOT);
+        return mimeTypes.contains(mimeType);
+    }
+
+    int getMinSize() {
+        return minSize;
+    }
+
+    DeflaterOutputStream compressor(String encoding, OutputStream out) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE, true) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        return new DeflaterOutputStream(out, new Deflater(level), BUFFER_SIZE, true) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                // The deflater was passed in, so it is not released by the stream itself
+                def.end();
+            }
+        };
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.controller;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.sdl.odata.api.ODataException;
+import com.sdl.odata.api.ODataServerException;
+import com.sdl.odata.api.ODataSystemException;
+import com.sdl.odata.api.service.MediaType;
+import com.sdl.odata.api.service.ODataContent;
+import com.sdl.odata.api.service.ODataRequest;
+import com.sdl.odata.api.service.ODataRequestBody;
+import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataResponseBody;
+import com.sdl.odata.api.service.ODataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static com.sdl.odata.api.service.HeaderNames.X_ODATA_REQUEST_TIMEOUT;
+import static com.sdl.odata.api.service.ODataResponse.Status.OK;
+import static com.sdl.odata.api.ODataErrorCode.UNKNOWN_ERROR;
+import static com.sdl.odata.controller.ResponseCompression.DEFAULT_MIME_TYPES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link AbstractODataController}.
+ */
+public class AbstractODataControllerTest {
+
+    private static final long MARGIN = 5000L;
+
+    private final AtomicReference<ODataRequest> handledRequest = new AtomicReference<>();
+    private final CompletableFuture<ODataResponse> response = new CompletableFuture<>();
+
+    private final AbstractODataController controller = new AbstractODataController() {
+    };
+
+    private final MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/odata.svc/Customers");
+    private final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+    @BeforeEach
+    public void setUp() {
+        ODataService service = new ODataService() {
+            @Override
+            public ODataResponse handleRequest(ODataRequest request) throws ODataException {
+                handledRequest.set(request);
+                try {
+                    return response.join();
+                } catch (CompletionException e) {
+                    throw (ODataException) e.getCause();
+                }
+            }
+
+            @Override
+            public CompletableFuture<ODataResponse> handleRequestAsync(ODataRequest request) {
+                handledRequest.set(request);
+                return response;
+            }
+        };
+        ReflectionTestUtils.setField(controller, "oDataService", service);
+        servletRequest.setAsyncSupported(true);
+        servletRequest.setContent("{}".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testAsyncTimeoutWithoutDeadline() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+
+        assertEquals(0, asyncContext().getTimeout());
+    }
+
+    @Test
+    public void testAsyncTimeoutFollowsDeadline() throws ServletException, IOException {
+        ReflectionTestUtils.setField(controller, "requestTimeout", 1000L);
+        controller.service(servletRequest, servletResponse);
+
+        long timeout = asyncContext().getTimeout();
+        assertTrue(timeout > MARGIN && timeout <= 1000L + MARGIN);
+    }
+
+    @Test
+    public void testAsyncTimeoutFollowsRequestedTimeout() throws ServletException, IOException {
+        servletRequest.addHeader(X_ODATA_REQUEST_TIMEOUT, "100");
+        controller.service(servletRequest, servletResponse);
+
+        long timeout = asyncContext().getTimeout();
+        assertTrue(timeout > MARGIN && timeout <= 100L + MARGIN);
+    }
+
+    @Test
+    public void testTimeoutAnswersServiceUnavailable() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        assertTrue(servletRequest.isAsyncStarted());
+
+        timeOut();
+        assertEquals(503, servletResponse.getStatus());
+        assertFalse(servletRequest.isAsyncStarted());
+        ODataRequestBody body = handledRequest.get().getRequestBody().get();
+        assertThrows(ODataSystemException.class, body::toByteArray);
+
+        // The response which turns up late is dropped
+        response.complete(new ODataResponse.Builder().setStatus(OK).setBodyText("late", UTF_8.name()).build());
+        assertEquals(503, servletResponse.getStatus());
+        assertEquals(0, servletResponse.getContentLength());
+    }
+
+    @Test
+    public void testResponseBeforeTimeout() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        response.complete(new ODataResponse.Builder().setStatus(OK).setBodyText("body", UTF_8.name()).build());
+        assertEquals(200, servletResponse.getStatus());
+        assertEquals("body", servletResponse.getContentAsString());
+        assertFalse(servletRequest.isAsyncStarted());
+
+        // A timeout which comes in while the response is written does not change it
+        timeOut();
+        assertEquals(200, servletResponse.getStatus());
+    }
+
+    @Test
+    public void testFailureAnswersInternalServerError() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        response.completeExceptionally(new IllegalStateException("Failed"));
+
+        assertEquals(500, servletResponse.getStatus());
+        assertFalse(servletRequest.isAsyncStarted());
+    }
+
+    @Test
+    public void testFailureAfterTimeoutIsDropped() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        timeOut();
+        response.completeExceptionally(new CompletionException(null));
+
+        assertEquals(503, servletResponse.getStatus());
+    }
+
+    @Test
+    public void testFailureWithoutCauseAnswersInternalServerError() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        response.completeExceptionally(new CompletionException(null));
+
+        assertEquals(500, servletResponse.getStatus());
+    }
+
+    @Test
+    public void testWrappedFailureAnswersInternalServerError() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        response.completeExceptionally(new CompletionException(new IllegalStateException("Failed")));
+
+        assertEquals(500, servletResponse.getStatus());
+        assertFalse(servletRequest.isAsyncStarted());
+    }
+
+    @Test
+    public void testAsyncResponseIsCompressed() throws ServletException, IOException {
+        controller.setCompression(true, 16, 6, DEFAULT_MIME_TYPES);
+        servletRequest.addHeader("Accept-Encoding", "gzip");
+        controller.service(servletRequest, servletResponse);
+
+        byte[] body = new byte[1024];
+        ODataResponseBody responseBody = new ODataResponseBody();
+        responseBody.getOutputStream().write(body);
+        response.complete(new ODataResponse.Builder().setStatus(OK).setContentType(MediaType.JSON)
+                .setBody(responseBody).build());
+
+        assertEquals("gzip", servletResponse.getHeader("Content-Encoding"));
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(servletResponse.getContentAsByteArray()))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testFailedCompressedResponseIsFinished() throws ServletException, IOException {
+        controller.setCompression(true, 16, 6, DEFAULT_MIME_TYPES);
+        servletRequest.addHeader("Accept-Encoding", "gzip");
+        controller.service(servletRequest, servletResponse);
+        response.complete(new ODataResponse.Builder().setStatus(OK).setContentType(MediaType.JSON)
+                .setODataContent(new ODataContent() {
+                    @Override
+                    public void write(HttpServletResponse httpServletResponse) throws ODataException {
+                        throw new ODataServerException(UNKNOWN_ERROR, "Failed");
+                    }
+                }).build());
+
+        assertEquals(200, servletResponse.getStatus());
+        assertFalse(servletRequest.isAsyncStarted());
+    }
+
+    @Test
+    public void testResponseBodies() throws ServletException, IOException {
+        controller.service(servletRequest, servletResponse);
+        response.complete(new ODataResponse.Builder().setStatus(OK)
+                .setODataContent(httpServletResponse -> httpServletResponse.getWriter().write("streamed")).build());
+        assertEquals("streamed", servletResponse.getContentAsString());
+
+        for (String body : new String[] {"", "body"}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/odata.svc/Customers");
+            MockHttpServletResponse emptyResponse = new MockHttpServletResponse();
+            ODataResponseBody responseBody = new ODataResponseBody();
+            responseBody.getOutputStream().write(body.getBytes(UTF_8));
+            response.obtrudeValue(new ODataResponse.Builder().setStatus(OK).setBody(responseBody).build());
+            controller.service(request, emptyResponse);
+            assertEquals(body.length(), emptyResponse.getContentLength());
+            assertEquals(body, emptyResponse.getContentAsString());
+        }
+    }
+
+    @Test
+    public void testSynchronousRequest() throws ServletException, IOException {
+        ReflectionTestUtils.setField(controller, "asyncEnabled", false);
+        servletRequest.setQueryString("$top=1");
+        response.complete(new ODataResponse.Builder().setStatus(OK).setBodyText("body", UTF_8.name()).build());
+        controller.service(servletRequest, servletResponse);
+
+        assertEquals("http://localhost/odata.svc/Customers?$top=1", handledRequest.get().getUri());
+        assertEquals("body", servletResponse.getContentAsString());
+        assertFalse(servletRequest.isAsyncStarted());
+        assertThrows(ODataSystemException.class, handledRequest.get().getRequestBody().get()::toByteArray);
+    }
+
+    @Test
+    public void testSynchronousFailure() {
+        servletRequest.setAsyncSupported(false);
+        response.completeExceptionally(new ODataServerException(UNKNOWN_ERROR, "Failed"));
+
+        assertThrows(ServletException.class, () -> controller.service(servletRequest, servletResponse));
+    }
+
+    @Test
+    public void testWireLogging() throws ServletException, IOException {
+        Logger logger = (Logger) LoggerFactory.getLogger(AbstractODataController.class);
+        logger.setLevel(Level.TRACE);
+        try {
+            for (boolean async : new boolean[] {false, true}) {
+                MockHttpServletRequest request = new MockHttpServletRequest("POST", "/odata.svc/Customers");
+                request.setAsyncSupported(async);
+                request.addHeader("Content-Type", "application/json");
+                request.setContent("{}".getBytes(UTF_8));
+                response.obtrudeValue(new ODataResponse.Builder().setStatus(OK).build());
+                controller.service(request, new MockHttpServletResponse());
+                assertEquals(ODataRequest.Method.POST, handledRequest.get().getMethod());
+            }
+        } finally {
+            logger.setLevel(null);
+        }
+    }
+
+    @Test
+    public void testRequestUri() throws ServletException, IOException {
+        ReflectionTestUtils.setField(controller, "asyncEnabled", false);
+        response.complete(new ODataResponse.Builder().setStatus(OK).build());
+        String[][] urls = {
+                {"http", "80", "http://localhost/odata.svc/Customers"},
+                {"http", "-1", "http://localhost/odata.svc/Customers"},
+                {"http", "8080", "http://localhost:8080/odata.svc/Customers"},
+                {"https", "443", "https://localhost/odata.svc/Customers"},
+                {"https", "8443", "https://localhost:8443/odata.svc/Customers"},
+        };
+        for (String[] url : urls) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/odata.svc/Customers");
+            request.setScheme(url[0]);
+            request.setServerPort(Integer.parseInt(url[1]));
+            controller.service(request, new MockHttpServletResponse());
+            assertEquals(url[2], handledRequest.get().getUri());
+        }
+    }
+
+    private MockAsyncContext asyncContext() {
+        return (MockAsyncContext) servletRequest.getAsyncContext();
+    }
+
+    private void timeOut() throws IOException {
+        MockAsyncContext asyncContext = asyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext, servletRequest, servletResponse));
+        }
+    }
+}
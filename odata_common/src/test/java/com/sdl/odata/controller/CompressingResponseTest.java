@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.sdl.odata.controller.ResponseCompression.DEFAULT_MIME_TYPES;
+import static com.sdl.odata.controller.ResponseCompression.DEFLATE;
+import static com.sdl.odata.controller.ResponseCompression.GZIP;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link CompressingResponse}.
+ */
+public class CompressingResponseTest {
+
+    private static final int MIN_SIZE = 64;
+
+    private final ResponseCompression compression = new ResponseCompression(true, MIN_SIZE, 6, DEFAULT_MIME_TYPES);
+    private final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+    @Test
+    public void testHeldBelowMinSize() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        byte[] body = body(MIN_SIZE - 1);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body, 0, 1);
+        out.write(body, 1, body.length - 1);
+        assertEquals(0, servletResponse.getContentAsByteArray().length);
+
+        response.finish();
+        assertNull(servletResponse.getHeader("Content-Encoding"));
+        assertEquals(body.length, servletResponse.getContentLengthLong());
+        assertArrayEquals(body, servletResponse.getContentAsByteArray());
+    }
+
+    @Test
+    public void testCompressedAboveMinSize() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        byte[] body = body(MIN_SIZE * 4);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body, 0, MIN_SIZE);
+        out.write(body, MIN_SIZE, body.length - MIN_SIZE);
+        response.finish();
+
+        assertEquals(GZIP, servletResponse.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", servletResponse.getHeader("Vary"));
+        assertNull(servletResponse.getHeader("Content-Length"));
+        assertArrayEquals(body, gunzip(servletResponse.getContentAsByteArray()));
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        CompressingResponse response = compressingResponse(DEFLATE, "text/plain; charset=UTF-8");
+        String body = new String(body(MIN_SIZE * 2), StandardCharsets.UTF_8);
+        response.getWriter().write(body);
+        response.finish();
+
+        assertEquals(DEFLATE, servletResponse.getHeader("Content-Encoding"));
+        byte[] inflated = readAll(new InflaterInputStream(
+                new ByteArrayInputStream(servletResponse.getContentAsByteArray())));
+        assertEquals(body, new String(inflated, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testKnownLengthAboveMinSize() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        byte[] body = body(MIN_SIZE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body, 0, 1);
+
+        // Decided at the first write, without holding anything back
+        assertEquals(GZIP, servletResponse.getHeader("Content-Encoding"));
+        response.getOutputStream().write(body, 1, body.length - 1);
+        response.finish();
+
+        assertNull(servletResponse.getHeader("Content-Length"));
+        assertArrayEquals(body, gunzip(servletResponse.getContentAsByteArray()));
+    }
+
+    @Test
+    public void testKnownLengthBelowMinSize() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        byte[] body = body(MIN_SIZE - 1);
+        response.setContentLengthLong(body.length);
+        response.getOutputStream().write(body, 0, 1);
+
+        // The length is set before the first byte is sent
+        assertEquals(body.length, servletResponse.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOf(body, 1), servletResponse.getContentAsByteArray());
+        response.getOutputStream().write(body, 1, body.length - 1);
+        response.finish();
+
+        assertNull(servletResponse.getHeader("Content-Encoding"));
+        assertEquals(body.length, servletResponse.getContentLengthLong());
+        assertArrayEquals(body, servletResponse.getContentAsByteArray());
+    }
+
+    @Test
+    public void testKnownLengthWithoutBody() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        response.setContentLength(0);
+        response.finish();
+
+        assertEquals(0, servletResponse.getContentLengthLong());
+        assertEquals("0", servletResponse.getHeader("Content-Length"));
+        assertNull(servletResponse.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void testContentLengthAfterDecision() throws IOException {
+        CompressingResponse compressed = compressingResponse(GZIP, "application/json");
+        compressed.getOutputStream().write(body(MIN_SIZE));
+        compressed.setContentLength(MIN_SIZE);
+        compressed.finish();
+
+        // The length of the compressed body is not known up front
+        assertNull(servletResponse.getHeader("Content-Length"));
+
+        MockHttpServletResponse uncompressedResponse = new MockHttpServletResponse();
+        CompressingResponse uncompressed = new CompressingResponse(uncompressedResponse, compression, GZIP);
+        uncompressed.setContentType("image/png");
+        uncompressed.getOutputStream().write(body(MIN_SIZE));
+        uncompressed.setContentLength(MIN_SIZE);
+        uncompressed.finish();
+
+        assertEquals(MIN_SIZE, uncompressedResponse.getContentLengthLong());
+    }
+
+    @Test
+    public void testWithoutBody() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        response.flushBuffer();
+        response.getOutputStream().flush();
+        response.finish();
+
+        assertNull(servletResponse.getHeader("Content-Length"));
+        assertNull(servletResponse.getHeader("Content-Encoding"));
+        assertEquals(0, servletResponse.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testFlushBufferForcesDecision() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "text/plain; charset=UTF-8");
+        String body = new String(body(MIN_SIZE * 2), StandardCharsets.UTF_8);
+        response.getWriter().write(body.substring(0, 1));
+        response.flushBuffer();
+
+        assertEquals(GZIP, servletResponse.getHeader("Content-Encoding"));
+        assertTrue(servletResponse.isCommitted());
+        response.getWriter().write(body.substring(1));
+        response.finish();
+
+        assertEquals(body, new String(gunzip(servletResponse.getContentAsByteArray()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFlushForcesDecision() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        byte[] body = body(MIN_SIZE * 2);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body, 0, 1);
+        out.flush();
+
+        // A flushed body is streamed, so it is compressed even if it turns out to be small
+        assertEquals(GZIP, servletResponse.getHeader("Content-Encoding"));
+        int flushed = servletResponse.getContentAsByteArray().length;
+        out.write(body, 1, body.length - 1);
+        out.flush();
+        assertTrue(servletResponse.getContentAsByteArray().length > flushed);
+        response.finish();
+
+        assertArrayEquals(body, gunzip(servletResponse.getContentAsByteArray()));
+    }
+
+    @Test
+    public void testNotCompressible() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "image/png");
+        byte[] body = body(MIN_SIZE * 2);
+        response.getOutputStream().write(body);
+        response.finish();
+
+        assertNull(servletResponse.getHeader("Content-Encoding"));
+        assertArrayEquals(body, servletResponse.getContentAsByteArray());
+    }
+
+    @Test
+    public void testAlreadyEncoded() throws IOException {
+        CompressingResponse response = compressingResponse(GZIP, "application/json");
+        response.setHeader("Content-Encoding", "br");
+        byte[] body = body(MIN_SIZE * 2);
+        response.getOutputStream().write(body);
+        response.finish();
+
+        assertEquals("br", servletResponse.getHeader("Content-Encoding"));
+        assertArrayEquals(body, servletResponse.getContentAsByteArray());
+    }
+
+    private CompressingResponse compressingResponse(String encoding, String contentType) {
+        CompressingResponse response = new CompressingResponse(servletResponse, compression, encoding);
+        response.setContentType(contentType);
+        return response;
+    }
+
+    private static byte[] body(int size) {
+        byte[] body = new byte[size];
+        for (int i = 0; i < size; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        return body;
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        return readAll(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+
+import static com.sdl.odata.controller.ResponseCompression.DEFAULT_MIME_TYPES;
+import static com.sdl.odata.controller.ResponseCompression.DEFLATE;
+import static com.sdl.odata.controller.ResponseCompression.GZIP;
+import static com.sdl.odata.controller.ResponseCompression.negotiate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ResponseCompression}.
+ */
+public class ResponseCompressionTest {
+
+    @Test
+    public void testNegotiate() {
+        assertNull(negotiate(null));
+        assertNull(negotiate(""));
+        assertNull(negotiate("identity, br"));
+
+        assertEquals(GZIP, negotiate("gzip"));
+        assertEquals(GZIP, negotiate("GZip"));
+        assertEquals(GZIP, negotiate("x-gzip"));
+        assertEquals(DEFLATE, negotiate("deflate"));
+        assertEquals(GZIP, negotiate("deflate, gzip"));
+        assertEquals(GZIP, negotiate("*"));
+    }
+
+    @Test
+    public void testNegotiateQualities() {
+        assertEquals(DEFLATE, negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals(GZIP, negotiate("gzip ; q=0.8, deflate;q=0.8"));
+        assertEquals(GZIP, negotiate("x-gzip;q=0.9, deflate;q=0.5"));
+        assertEquals(DEFLATE, negotiate("deflate, *;q=0.5"));
+        assertEquals(GZIP, negotiate("deflate;q=0.5, *"));
+    }
+
+    @Test
+    public void testNegotiateNotAcceptable() {
+        assertNull(negotiate("gzip;q=0"));
+        assertEquals(DEFLATE, negotiate("gzip;q=0, deflate"));
+        assertEquals(DEFLATE, negotiate("gzip;q=0, *"));
+        assertNull(negotiate("*;q=0"));
+        assertNull(negotiate("gzip;q=0, deflate;q=0.0, *"));
+    }
+
+    @Test
+    public void testNegotiateMalformedQuality() {
+        // A quality which can not be parsed does not make the coding acceptable
+        assertNull(negotiate("gzip;q=high"));
+        assertEquals(DEFLATE, negotiate("gzip;q=, deflate"));
+        assertEquals(GZIP, negotiate("gzip;level=1"));
+    }
+
+    @Test
+    public void testWrap() {
+        ResponseCompression compression = new ResponseCompression(true, 0, 6, DEFAULT_MIME_TYPES);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        HttpServletResponse response = new MockHttpServletResponse();
+        assertSame(response, compression.wrap(request, response));
+
+        request.addHeader("Accept-Encoding", "gzip");
+        assertTrue(compression.wrap(request, response) instanceof CompressingResponse);
+        assertSame(response, ResponseCompression.disabled().wrap(request, response));
+    }
+
+    @Test
+    public void testIsCompressible() {
+        ResponseCompression compression = new ResponseCompression(true, 100, 6, " application/json, Text/Plain ,");
+
+        assertTrue(compression.isCompressible("application/json", -1));
+        assertTrue(compression.isCompressible("application/json;odata.metadata=minimal", 100));
+        assertTrue(compression.isCompressible("text/plain; charset=UTF-8", 1000));
+        assertFalse(compression.isCompressible("application/json", 99));
+        assertFalse(compression.isCompressible("application/xml", -1));
+        assertFalse(compression.isCompressible(null, -1));
+    }
+
+    @Test
+    public void testInvalidLevel() {
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCompression(true, 0, 0, DEFAULT_MIME_TYPES));
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCompression(true, 0, 10, DEFAULT_MIME_TYPES));
+    }
+}
@@ -26,6 +26,7 @@ import com.sdl.odata.edm.model.TypeNameResolver;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -71,6 +72,16 @@ final class AnnotationEntityTypeFactory extends AnnotationStructuredTypeFactory<
             throw new IllegalArgumentException("Key is not specified on entity: " + cls.getName());
         }
 
+        // Concurrency properties, which are inherited unless the entity specifies its own
+        List<String> concurrencyPropertyNames = Collections.emptyList();
+        for (Class<?> c = cls; c != null && c.isAnnotationPresent(EdmEntity.class); c = c.getSuperclass()) {
+            String[] names = c.getAnnotation(EdmEntity.class).concurrency();
+            if (names.length > 0) {
+                concurrencyPropertyNames = Arrays.asList(names);
+                break;
+            }
+        }
+
         // NOTE: hasStream is not (yet) supported.
 
         return new EntityTypeImpl.Builder()
@@ -82,6 +93,7 @@ final class AnnotationEntityTypeFactory extends AnnotationStructuredTypeFactory<
                 .addStructuralProperties(buildStructuralProperties(cls))
                 .setIsOpen(entityAnno.open())
                 .setKey(key)
+                .setConcurrencyPropertyNames(concurrencyPropertyNames)
                 .build();
     }
 
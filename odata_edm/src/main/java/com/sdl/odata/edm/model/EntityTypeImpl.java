@@ -19,6 +19,9 @@ import com.sdl.odata.api.edm.model.EntityType;
 import com.sdl.odata.api.edm.model.Key;
 import com.sdl.odata.api.edm.model.MetaType;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Implementation of {@link com.sdl.odata.api.edm.model.EntityType}.
  *
@@ -29,6 +32,7 @@ public final class EntityTypeImpl extends StructuredTypeImpl implements EntityTy
      */
     public static final class Builder extends StructuredTypeImpl.Builder<Builder> {
         private Key key;
+        private List<String> concurrencyPropertyNames = Collections.emptyList();
         private boolean isReadOnly;
         private boolean hasStream;
 
@@ -37,6 +41,11 @@ public final class EntityTypeImpl extends StructuredTypeImpl implements EntityTy
             return this;
         }
 
+        public Builder setConcurrencyPropertyNames(List<String> builderConcurrencyPropertyNames) {
+            this.concurrencyPropertyNames = builderConcurrencyPropertyNames;
+            return this;
+        }
+
         public Builder setIsReadOnly(boolean readOnly) {
             this.isReadOnly = readOnly;
             return this;
@@ -53,12 +62,14 @@ public final class EntityTypeImpl extends StructuredTypeImpl implements EntityTy
     }
 
     private final Key key;
+    private final List<String> concurrencyPropertyNames;
     private final boolean isReadOnly;
     private final boolean hasStream;
 
     private EntityTypeImpl(Builder builder) {
         super(builder);
         this.key = builder.key;
+        this.concurrencyPropertyNames = Collections.unmodifiableList(builder.concurrencyPropertyNames);
         this.isReadOnly = builder.isReadOnly;
         this.hasStream = builder.hasStream;
     }
@@ -73,6 +84,11 @@ public final class EntityTypeImpl extends StructuredTypeImpl implements EntityTy
         return key;
     }
 
+    @Override
+    public List<String> getConcurrencyPropertyNames() {
+        return concurrencyPropertyNames;
+    }
+
     @Override
     public boolean isReadOnly() {
         return isReadOnly;
@@ -28,6 +28,11 @@ import java.util.List;
 
 /**
  * Implementation of {@link com.sdl.odata.api.edm.registry.ODataEdmRegistry}.
+ * <p>
+ * The entity data model is an immutable snapshot, which is read without locking. Registering classes only marks the
+ * snapshot as stale; it is built once, from all classes registered so far, when the model is first used afterwards,
+ * which is during the warm-up of the service if that is enabled. A model which can not be built is logged as an
+ * error, and the failure is kept until more classes are registered.
  */
 @Component
 public class ODataEdmRegistryImpl implements ODataEdmRegistry {
@@ -35,25 +40,52 @@ public class ODataEdmRegistryImpl implements ODataEdmRegistry {
 
     private final List<Class<?>> classes = new ArrayList<>();
 
-    private EntityDataModel entityDataModel;
+    // Null when classes have been registered since the snapshot was built
+    private volatile Snapshot snapshot;
 
     @Override
     public synchronized void registerClasses(List<Class<?>> registerClasses) {
         LOG.debug("registerClasses: classes={}", registerClasses);
         this.classes.addAll(registerClasses);
-        entityDataModel = null;
+        snapshot = null;
     }
 
     @Override
-    public synchronized EntityDataModel getEntityDataModel() throws ODataException {
-        if (entityDataModel == null) {
-            AnnotationEntityDataModelFactory factory = new AnnotationEntityDataModelFactory();
-            classes.forEach(factory::addClass);
+    public EntityDataModel getEntityDataModel() throws ODataException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = buildSnapshot();
+        }
+        return current.getEntityDataModel();
+    }
+
+    private synchronized Snapshot buildSnapshot() {
+        if (snapshot == null) {
+            snapshot = build();
+        }
+        return snapshot;
+    }
 
-            LOG.info("Building EntityDataModel");
-            entityDataModel = factory.buildEntityDataModel();
+    private Snapshot build() {
+        AnnotationEntityDataModelFactory factory = new AnnotationEntityDataModelFactory();
+        LOG.info("Building EntityDataModel");
+        try {
+            classes.forEach(factory::addClass);
+            EntityDataModel entityDataModel = factory.buildEntityDataModel();
+            return () -> entityDataModel;
+        } catch (ODataException | RuntimeException e) {
+            LOG.error("Unable to build EntityDataModel", e);
+            return () -> {
+                throw e;
+            };
         }
+    }
 
-        return entityDataModel;
+    /**
+     * The entity data model built from the classes registered so far, or the reason it could not be built.
+     */
+    @FunctionalInterface
+    private interface Snapshot {
+        EntityDataModel getEntityDataModel() throws ODataException;
     }
 }
@@ -17,6 +17,9 @@ package com.sdl.odata.edm.factory.annotations;
 
 import com.google.common.collect.Lists;
 import com.sdl.odata.api.edm.ODataEdmException;
+import com.sdl.odata.api.edm.annotations.EdmEntity;
+import com.sdl.odata.api.edm.annotations.EdmEntitySet;
+import com.sdl.odata.api.edm.annotations.EdmProperty;
 import com.sdl.odata.api.edm.model.Action;
 import com.sdl.odata.api.edm.model.ActionImport;
 import com.sdl.odata.api.edm.model.ComplexType;
@@ -48,6 +51,7 @@ import com.sdl.odata.test.model.OrderLine;
 import com.sdl.odata.test.model.Product;
 import com.sdl.odata.test.model.UnboundActionSample;
 import com.sdl.odata.test.model.UnboundFunctionSample;
+import com.sdl.odata.util.edm.ETagUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -55,6 +59,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -341,4 +346,89 @@ public class AnnotationEntityDataModelFactoryTest {
         assertTrue(type instanceof EnumType);
         assertEquals(MetaType.ENUM, type.getMetaType());
     }
+
+    @Test
+    public void testConcurrencyProperties() throws ODataEdmException {
+        factory = new AnnotationEntityDataModelFactory();
+        factory.addClass(VersionedItem.class);
+        factory.addClass(DerivedVersionedItem.class);
+        factory.addClass(RevisedVersionedItem.class);
+        factory.addClass(Product.class);
+        model = factory.buildEntityDataModel();
+
+        assertEquals(Lists.newArrayList("version"),
+                ((EntityType) model.getType(VersionedItem.class)).getConcurrencyPropertyNames());
+        assertEquals(Lists.newArrayList("version"),
+                ((EntityType) model.getType(DerivedVersionedItem.class)).getConcurrencyPropertyNames());
+        assertTrue(((EntityType) model.getType(Product.class)).getConcurrencyPropertyNames().isEmpty());
+
+        VersionedItem item = new VersionedItem(1, 7L);
+        String eTag = ETagUtil.getETag(model, item).get();
+        assertEquals(ETagUtil.formatETag(Lists.newArrayList(7L)), eTag);
+        assertEquals(eTag, ETagUtil.getETag(model, new VersionedItem(2, 7L)).get());
+        assertNotEquals(eTag, ETagUtil.getETag(model, new VersionedItem(1, 8L)).get());
+        assertFalse(ETagUtil.getETag(model, new Product()).isPresent());
+
+        String feedETag = ETagUtil.getETag(model, Lists.newArrayList(item, new VersionedItem(2, 3L))).get();
+        assertNotEquals(feedETag, ETagUtil.getETag(model, Lists.newArrayList(item)).get());
+        assertNotEquals(feedETag, ETagUtil.getETag(model, Lists.newArrayList(item, new VersionedItem(3, 3L))).get());
+        assertFalse(ETagUtil.getETag(model, Lists.newArrayList(item, new Product())).isPresent());
+
+        // The ETag for a declared type is computed from the concurrency properties of that type
+        String typeName = model.getType(VersionedItem.class).getFullyQualifiedName();
+        RevisedVersionedItem revisedItem = new RevisedVersionedItem(1, 7L, 3L);
+        assertEquals(ETagUtil.formatETag(Lists.newArrayList(3L)), ETagUtil.getETag(model, revisedItem).get());
+        assertEquals(eTag, ETagUtil.getETag(model, typeName, revisedItem).get());
+        assertEquals(feedETag,
+                ETagUtil.getETag(model, typeName, Lists.newArrayList(item, new VersionedItem(2, 3L))).get());
+        assertFalse(ETagUtil.getETag(model, model.getType(Product.class).getFullyQualifiedName(), item).isPresent());
+        assertFalse(ETagUtil.getETag(model, typeName, Lists.newArrayList()).isPresent());
+    }
+
+    /**
+     * An entity with a concurrency property.
+     */
+    @EdmEntity(namespace = NAMESPACE, key = "id", concurrency = "version")
+    @EdmEntitySet
+    public static class VersionedItem {
+        @EdmProperty(nullable = false)
+        private long id;
+
+        @EdmProperty(nullable = false)
+        private long version;
+
+        public VersionedItem() {
+        }
+
+        VersionedItem(long id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+    }
+
+    /**
+     * An entity which inherits the concurrency property of its base type.
+     */
+    @EdmEntity(namespace = NAMESPACE, key = "id")
+    public static class DerivedVersionedItem extends VersionedItem {
+        @EdmProperty
+        private String name;
+    }
+
+    /**
+     * An entity which specifies its own concurrency property instead of the one of its base type.
+     */
+    @EdmEntity(namespace = NAMESPACE, key = "id", concurrency = "revision")
+    public static class RevisedVersionedItem extends VersionedItem {
+        @EdmProperty(nullable = false)
+        private long revision;
+
+        public RevisedVersionedItem() {
+        }
+
+        RevisedVersionedItem(long id, long version, long revision) {
+            super(id, version);
+            this.revision = revision;
+        }
+    }
 }
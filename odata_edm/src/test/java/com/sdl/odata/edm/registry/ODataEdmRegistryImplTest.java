@@ -33,6 +33,9 @@ import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Unit tests for {@code ODataEdmRegistryImpl}.
@@ -58,4 +61,41 @@ public class ODataEdmRegistryImplTest {
         assertNotNull(schema);
         assertEquals(6, schema.getTypes().size());
     }
+
+    @Test
+    public void testEntityDataModelIsReusedUntilClassesAreRegistered() throws ODataException {
+        registry.registerClasses(Arrays.asList(Address.class, Category.class, Customer.class, ExampleFlags.class,
+                Order.class, OrderLine.class, Product.class));
+
+        EntityDataModel entityDataModel = registry.getEntityDataModel();
+        assertSame(entityDataModel, registry.getEntityDataModel());
+
+        registry.registerClasses(Arrays.asList(Address.class));
+        EntityDataModel rebuiltEntityDataModel = registry.getEntityDataModel();
+        assertNotSame(entityDataModel, rebuiltEntityDataModel);
+        assertSame(rebuiltEntityDataModel, registry.getEntityDataModel());
+    }
+
+    @Test
+    public void testEntityDataModelWithoutRegisteredClasses() throws ODataException {
+        assertEquals(0, registry.getEntityDataModel().getSchemas().size());
+    }
+
+    @Test
+    public void testInvalidClassFailsGetEntityDataModel() {
+        registry.registerClasses(Arrays.asList(Customer.class, String.class));
+
+        assertThrows(IllegalArgumentException.class, registry::getEntityDataModel);
+    }
+
+    @Test
+    public void testFailureIsKeptUntilClassesAreRegistered() {
+        registry.registerClasses(Arrays.asList(Customer.class, String.class));
+
+        Exception failure = assertThrows(IllegalArgumentException.class, registry::getEntityDataModel);
+        assertSame(failure, assertThrows(IllegalArgumentException.class, registry::getEntityDataModel));
+
+        registry.registerClasses(Arrays.asList(Address.class));
+        assertNotSame(failure, assertThrows(IllegalArgumentException.class, registry::getEntityDataModel));
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * The stream a streamed response is written to, which sends it to the client as a chunked HTTP response.
+ * <p>
+ * The head of the response is sent when the stream is first flushed, so that headers can be set until then. Bytes
+ * are sent in chunks of at most {@value #CHUNK_SIZE} bytes. Before a chunk is sent, the writing thread waits until
+ * the connection can take more data, so that no more than the write buffer of the connection is held in memory
+ * however slowly the client reads. A response which is closed before it is flushed is sent with a
+ * {@code Content-Length} instead.
+ * <p>
+ * The stream is written by a single thread, which must not be an event loop thread.
+ */
+final class ChunkedResponseOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final long WRITABILITY_POLL_MILLIS = 100;
+
+    private final ChannelHandlerContext ctx;
+    private final HttpResponse head;
+    private ByteBuf buffer;
+    private boolean headSent;
+    private boolean closed;
+
+    ChunkedResponseOutputStream(ChannelHandlerContext ctx, HttpResponse head) {
+        this.ctx = ctx;
+        this.head = head;
+    }
+
+    /**
+     * Sets a header of the response, if its head has not been sent yet.
+     *
+     * @param name  The name of the header.
+     * @param value The value of the header.
+     */
+    void setHeader(String name, String value) {
+        if (!headSent) {
+            head.headers().set(name, value);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkNotClosed();
+        writableBuffer().writeByte(b);
+        if (buffer.readableBytes() >= CHUNK_SIZE) {
+            sendChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkNotClosed();
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            ByteBuf target = writableBuffer();
+            int count = Math.min(remaining, CHUNK_SIZE - target.readableBytes());
+            target.writeBytes(b, offset, count);
+            offset += count;
+            remaining -= count;
+            if (target.readableBytes() >= CHUNK_SIZE) {
+                sendChunk();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkNotClosed();
+        sendChunk();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (headSent) {
+            sendChunk();
+            send(LastHttpContent.EMPTY_LAST_CONTENT);
+            return;
+        }
+
+        ByteBuf content = buffer != null ? buffer : Unpooled.EMPTY_BUFFER;
+        buffer = null;
+        FullHttpResponse response = new DefaultFullHttpResponse(head.protocolVersion(), head.status(), content,
+                head.headers(), EmptyHttpHeaders.INSTANCE);
+        HttpUtil.setContentLength(response, content.readableBytes());
+        headSent = true;
+        send(response);
+    }
+
+    /**
+     * Gives up on the response after writing it failed, and releases what has not been sent.
+     *
+     * @return {@code true} if part of the response has been sent already, and the connection has been closed as the
+     * response can not be completed anymore; {@code false} if nothing has been sent, and a different response can be
+     * sent instead.
+     */
+    boolean abort() {
+        closed = true;
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        if (headSent) {
+            ctx.close();
+        }
+        return headSent;
+    }
+
+    /**
+     * Wakes up the writing thread when the connection became writable or was closed.
+     */
+    void writabilityChanged() {
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private ByteBuf writableBuffer() {
+        if (buffer == null) {
+            buffer = ctx.alloc().buffer(CHUNK_SIZE);
+        }
+        return buffer;
+    }
+
+    private void sendChunk() throws IOException {
+        if (!headSent) {
+            HttpUtil.setTransferEncodingChunked(head, true);
+            headSent = true;
+            send(head);
+        }
+        if (buffer != null && buffer.isReadable()) {
+            ByteBuf chunk = buffer;
+            buffer = null;
+            send(new DefaultHttpContent(chunk));
+        }
+    }
+
+    private void send(Object message) throws IOException {
+        Channel channel = ctx.channel();
+        synchronized (this) {
+            while (channel.isActive() && !channel.isWritable()) {
+                try {
+                    wait(WRITABILITY_POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    ReferenceCountUtil.release(message);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the client to read the response");
+                }
+            }
+        }
+        if (!channel.isActive()) {
+            ReferenceCountUtil.release(message);
+            throw new IOException("The connection was closed before the response was sent");
+        }
+        ctx.writeAndFlush(message);
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import com.sdl.odata.api.service.ODataContent;
+import com.sdl.odata.api.service.ODataRequest;
+import com.sdl.odata.api.service.ODataRequestBody;
+import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataResponseBody;
+import com.sdl.odata.api.service.ODataService;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NO_CONTENT;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Handles the OData requests on a single connection.
+ * <p>
+ * Each request is handed to the OData service as soon as it has been read, so that requests pipelined on the
+ * connection are handled concurrently, while their responses are written in the order of the requests. When more
+ * than {@code maxPipelined} responses are outstanding the connection is not read from anymore, until they have been
+ * written.
+ * <p>
+ * When the server stops, it sends the {@link #DRAIN} event: the connection is not read from anymore, and it is closed
+ * as soon as the outstanding responses have been written.
+ * <p>
+ * All state of the handler is accessed from the event loop of its connection only, except for the stream a streamed
+ * response is written to.
+ */
+final class ODataHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    /**
+     * The user event which asks the handler to close its connection once it is no longer busy.
+     */
+    static final Object DRAIN = new Object();
+
+    private static final Logger LOG = LoggerFactory.getLogger(ODataHttpHandler.class);
+
+    private final ODataService oDataService;
+    private final Executor streamingExecutor;
+    private final int maxPipelined;
+
+    private final Deque<PendingResponse> pendingResponses = new ArrayDeque<>();
+    private ChunkedResponseOutputStream streamingResponse;
+    private boolean draining;
+
+    ODataHttpHandler(ODataService oDataService, Executor streamingExecutor, int maxPipelined) {
+        this.oDataService = oDataService;
+        this.streamingExecutor = streamingExecutor;
+        this.maxPipelined = Math.max(maxPipelined, 1);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        PendingResponse pendingResponse = new PendingResponse();
+        pendingResponses.addLast(pendingResponse);
+        if (pendingResponses.size() >= maxPipelined) {
+            ctx.channel().config().setAutoRead(false);
+        }
+
+        if (request.decoderResult().isFailure()) {
+            // The rest of what was sent on the connection can not be made sense of either
+            FullHttpResponse response = emptyResponse(BAD_REQUEST);
+            HttpUtil.setKeepAlive(response, false);
+            pendingResponse.complete(response);
+            writePendingResponses(ctx);
+            return;
+        }
+
+        ODataRequest oDataRequest;
+        try {
+            oDataRequest = buildODataRequest(ctx, request);
+        } catch (IllegalArgumentException e) {
+            pendingResponse.complete(emptyResponse(METHOD_NOT_ALLOWED));
+            writePendingResponses(ctx);
+            return;
+        }
+
+        oDataService.handleRequestAsync(oDataRequest).whenComplete((oDataResponse, failure) ->
+                ctx.executor().execute(() -> {
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ?
+                                failure.getCause() : failure;
+                        LOG.error("Unable to handle request: {}", oDataRequest, cause);
+                        pendingResponse.complete(emptyResponse(INTERNAL_SERVER_ERROR));
+                    } else {
+                        pendingResponse.complete(oDataResponse);
+                    }
+                    writePendingResponses(ctx);
+                }));
+    }
+
+    /**
+     * Converts a Netty {@code FullHttpRequest} to an {@code ODataRequest}.
+     *
+     * @param ctx     The context of the connection.
+     * @param request The {@code FullHttpRequest}.
+     * @return An {@code ODataRequest} containing the request information.
+     * @throws IllegalArgumentException If the method of the request is not supported.
+     */
+    private ODataRequest buildODataRequest(ChannelHandlerContext ctx, FullHttpRequest request) {
+        ODataRequest.Builder builder = new ODataRequest.Builder();
+
+        builder.setMethod(ODataRequest.Method.valueOf(request.method().name()));
+
+        String uri = request.uri();
+        if (uri.startsWith("/")) {
+            String authority = request.headers().get(HttpHeaderNames.HOST);
+            if (authority == null) {
+                InetSocketAddress localAddress = (InetSocketAddress) ctx.channel().localAddress();
+                authority = localAddress.getHostString() + ':' + localAddress.getPort();
+            }
+            uri = "http://" + authority + uri;
+        }
+        builder.setUri(uri);
+
+        // As in the servlet container, the first value of a repeated header is the one which counts
+        HttpHeaders headers = request.headers();
+        for (String name : headers.names()) {
+            builder.setHeader(name, headers.get(name));
+        }
+
+        // The body has been read completely by the aggregator; it is copied, as its buffer is released on return
+        builder.setBody(ODataRequestBody.fromBytes(ByteBufUtil.getBytes(request.content())));
+
+        return builder.build();
+    }
+
+    /**
+     * Writes the responses which are complete, in the order of their requests, up to the first one which is not
+     * complete yet or which is streamed. The responses after a streamed one are written once it has been sent.
+     *
+     * @param ctx The context of the connection.
+     */
+    private void writePendingResponses(ChannelHandlerContext ctx) {
+        while (streamingResponse == null && !pendingResponses.isEmpty() && pendingResponses.peekFirst().isComplete()) {
+            PendingResponse pendingResponse = pendingResponses.pollFirst();
+            if (pendingResponse.httpResponse != null) {
+                ctx.writeAndFlush(pendingResponse.httpResponse);
+            } else {
+                writeResponse(ctx, pendingResponse.oDataResponse);
+            }
+
+            // Only after the response has been written, as reading again may complete the next responses right away
+            if (!draining && !ctx.channel().config().isAutoRead() && pendingResponses.size() < maxPipelined) {
+                ctx.channel().config().setAutoRead(true);
+            }
+        }
+        closeIfDrained(ctx);
+    }
+
+    private void closeIfDrained(ChannelHandlerContext ctx) {
+        if (draining && pendingResponses.isEmpty() && streamingResponse == null) {
+            // Closed after what has been written so far
+            ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, ODataResponse oDataResponse) {
+        HttpResponseStatus status = HttpResponseStatus.valueOf(oDataResponse.getStatus().getCode());
+
+        ByteBuf content;
+        if (oDataResponse.getResponseBody().isPresent()) {
+            // Copy the chunks the renderer wrote into, and hand them back to the pool
+            ODataResponseBody body = oDataResponse.getResponseBody().get();
+            try {
+                content = ctx.alloc().buffer((int) body.getLength());
+                try (OutputStream out = new ByteBufOutputStream(content)) {
+                    body.writeTo(out);
+                } catch (IOException e) {
+                    content.release();
+                    throw new IllegalStateException("Unable to copy the response body", e);
+                }
+            } finally {
+                body.release();
+            }
+        } else if (oDataResponse.getBody() != null && oDataResponse.getBody().length != 0) {
+            content = Unpooled.wrappedBuffer(oDataResponse.getBody());
+        } else if (oDataResponse.getStreamingContent() != null) {
+            HttpResponse head = new DefaultHttpResponse(HTTP_1_1, status);
+            setHeaders(head, oDataResponse);
+            if (draining) {
+                HttpUtil.setKeepAlive(head, false);
+            }
+            writeStreamingResponse(ctx, head, oDataResponse.getStreamingContent());
+            return;
+        } else {
+            content = Unpooled.EMPTY_BUFFER;
+        }
+
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status, content);
+        setHeaders(response, oDataResponse);
+        setContentLength(response);
+        if (draining) {
+            HttpUtil.setKeepAlive(response, false);
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    private void writeStreamingResponse(ChannelHandlerContext ctx, HttpResponse head, ODataContent streamingContent) {
+        ChunkedResponseOutputStream out = new ChunkedResponseOutputStream(ctx, head);
+        streamingResponse = out;
+        try {
+            streamingExecutor.execute(() -> {
+                try {
+                    streamingContent.write(out, out::setHeader);
+                    out.close();
+                } catch (Exception e) {
+                    if (ctx.channel().isActive()) {
+                        LOG.error("Unable to write streamed response", e);
+                    } else {
+                        LOG.debug("The client closed the connection before the streamed response was sent", e);
+                    }
+                    if (!out.abort()) {
+                        ctx.writeAndFlush(emptyResponse(INTERNAL_SERVER_ERROR));
+                    }
+                } finally {
+                    ctx.executor().execute(() -> {
+                        streamingResponse = null;
+                        writePendingResponses(ctx);
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The server is shutting down
+            streamingResponse = null;
+            ctx.close();
+        }
+    }
+
+    private static void setHeaders(HttpResponse response, ODataResponse oDataResponse) {
+        for (Map.Entry<String, String> entry : oDataResponse.getHeaders().entrySet()) {
+            response.headers().set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void setContentLength(FullHttpResponse response) {
+        if (!NO_CONTENT.equals(response.status()) && !NOT_MODIFIED.equals(response.status())) {
+            HttpUtil.setContentLength(response, response.content().readableBytes());
+        }
+    }
+
+    private static FullHttpResponse emptyResponse(HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+        setContentLength(response);
+        return response;
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (streamingResponse != null) {
+            streamingResponse.writabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (streamingResponse != null) {
+            streamingResponse.writabilityChanged();
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object event) throws Exception {
+        if (event == DRAIN) {
+            draining = true;
+            ctx.channel().config().setAutoRead(false);
+            closeIfDrained(ctx);
+            return;
+        }
+        if (event instanceof IdleStateEvent) {
+            // Only close connections which are not waiting for a response
+            if (pendingResponses.isEmpty() && streamingResponse == null) {
+                ctx.close();
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, event);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOG.debug("Closing connection after an error", cause);
+        ctx.close();
+    }
+
+    /**
+     * The response to a request on the connection, which is complete once the service has handled the request.
+     */
+    private static final class PendingResponse {
+        private ODataResponse oDataResponse;
+        private FullHttpResponse httpResponse;
+
+        void complete(ODataResponse response) {
+            this.oDataResponse = response;
+        }
+
+        void complete(FullHttpResponse response) {
+            this.httpResponse = response;
+        }
+
+        boolean isComplete() {
+            return oDataResponse != null || httpResponse != null;
+        }
+    }
+}
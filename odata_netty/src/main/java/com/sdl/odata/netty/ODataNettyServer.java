@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import com.sdl.odata.api.service.ODataService;
+import com.sdl.odata.service.util.ExecutorUtil;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerKeepAliveHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import scala.Option;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A non-blocking HTTP front end for the OData service, as an alternative to running the OData controller in a
+ * servlet container.
+ * <p>
+ * Requests are read by a small number of Netty event loop threads and handed to
+ * {@link ODataService#handleRequestAsync} as soon as they are complete; no thread waits for the service in the
+ * meantime. Connections are kept alive, and requests pipelined on a connection are answered in order. Streamed
+ * responses are written in chunks by a separate pool of threads, which wait while the connection can not take more
+ * data, so that a slow client does not make the server buffer the whole response.
+ * <p>
+ * When the server stops, it stops accepting connections and closes the idle ones. The other connections are closed once
+ * the responses to the requests read from them have been written, streamed responses included, or when
+ * {@code odata.netty.drain-timeout} milliseconds have passed.
+ * <p>
+ * The server is configured by the {@code odata.netty} properties.
+ */
+@Component
+public class ODataNettyServer implements SmartLifecycle {
+    private static final Logger LOG = LoggerFactory.getLogger(ODataNettyServer.class);
+
+    private static final int WINDOW_BITS = 15;
+    private static final int MEM_LEVEL = 8;
+
+    @Autowired
+    private ODataService oDataService;
+
+    @Value("${odata.netty.host:}")
+    private String host;
+
+    @Value("${odata.netty.port:8080}")
+    private int port;
+
+    @Value("${odata.netty.io-threads:0}")
+    private int ioThreads;
+
+    @Value("${odata.netty.max-content-length:10485760}")
+    private int maxContentLength;
+
+    @Value("${odata.netty.idle-timeout:60000}")
+    private long idleTimeout;
+
+    @Value("${odata.netty.max-pipelined:16}")
+    private int maxPipelined;
+
+    @Value("${odata.netty.streaming.virtual-threads:true}")
+    private boolean streamingVirtualThreads;
+
+    @Value("${odata.netty.streaming.pool-size:64}")
+    private int streamingPoolSize;
+
+    @Value("${odata.netty.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${odata.netty.compression.min-size:2048}")
+    private int compressionMinSize;
+
+    @Value("${odata.netty.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${odata.netty.drain-timeout:30000}")
+    private long drainTimeout;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private ExecutorService streamingExecutor;
+    private Channel serverChannel;
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    @Override
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+
+        Option<ExecutorService> virtualThreadExecutor = streamingVirtualThreads ?
+                ExecutorUtil.virtualThreadPerTaskExecutor() : Option.empty();
+        streamingExecutor = virtualThreadExecutor.isDefined() ? virtualThreadExecutor.get() :
+                ExecutorUtil.fixedThreadPool("odata-netty-stream", streamingPoolSize);
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(ioThreads);
+
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channels.add(channel);
+                        initPipeline(channel.pipeline());
+                    }
+                });
+
+        InetSocketAddress address = host.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+        try {
+            serverChannel = bootstrap.bind(address).sync().channel();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new IllegalStateException("Interrupted while binding to " + address, e);
+        } catch (RuntimeException e) {
+            stop();
+            throw e;
+        }
+        LOG.info("OData Netty server listening on {}", serverChannel.localAddress());
+    }
+
+    private void initPipeline(ChannelPipeline pipeline) {
+        pipeline.addLast(new HttpServerCodec());
+        if (compressionEnabled) {
+            pipeline.addLast(new HttpContentCompressor(compressionLevel, WINDOW_BITS, MEM_LEVEL, compressionMinSize));
+        }
+        pipeline.addLast(new HttpServerKeepAliveHandler());
+        pipeline.addLast(new HttpObjectAggregator(maxContentLength));
+        if (idleTimeout > 0) {
+            pipeline.addLast(new IdleStateHandler(0, 0, idleTimeout, TimeUnit.MILLISECONDS));
+        }
+        pipeline.addLast(new ODataHttpHandler(oDataService, streamingExecutor, maxPipelined));
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            serverChannel = null;
+            drain();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            bossGroup = null;
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            workerGroup = null;
+        }
+        if (streamingExecutor != null) {
+            streamingExecutor.shutdownNow();
+            streamingExecutor = null;
+        }
+    }
+
+    private void drain() {
+        long start = System.currentTimeMillis();
+        channels.forEach(channel -> channel.pipeline().fireUserEventTriggered(ODataHttpHandler.DRAIN));
+        if (channels.newCloseFuture().awaitUninterruptibly(drainTimeout, TimeUnit.MILLISECONDS)) {
+            LOG.info("Drained OData Netty server in {} ms", System.currentTimeMillis() - start);
+        } else {
+            LOG.warn("Closing {} connections which are still busy after {} ms", channels.size(), drainTimeout);
+            channels.close().awaitUninterruptibly();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return serverChannel != null;
+    }
+}
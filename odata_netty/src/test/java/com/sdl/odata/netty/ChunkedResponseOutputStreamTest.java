@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCounted;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ChunkedResponseOutputStream}.
+ */
+public class ChunkedResponseOutputStreamTest {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final AtomicBoolean active = new AtomicBoolean(true);
+    private final AtomicBoolean writable = new AtomicBoolean(true);
+    private final List<Object> sent = new CopyOnWriteArrayList<>();
+    private final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+    private final HttpResponse head = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.OK);
+    private ChunkedResponseOutputStream out;
+
+    @BeforeEach
+    public void setUp() {
+        Channel channel = mock(Channel.class);
+        when(channel.isActive()).thenAnswer(invocation -> active.get());
+        when(channel.isWritable()).thenAnswer(invocation -> writable.get());
+        when(ctx.channel()).thenReturn(channel);
+        when(ctx.alloc()).thenReturn(UnpooledByteBufAllocator.DEFAULT);
+        when(ctx.writeAndFlush(any())).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return null;
+        });
+        out = new ChunkedResponseOutputStream(ctx, head);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sent.stream().filter(ReferenceCounted.class::isInstance)
+                .forEach(message -> ((ReferenceCounted) message).release());
+    }
+
+    @Test
+    public void testResponseClosedBeforeFlushHasContentLength() throws IOException {
+        out.setHeader("Content-Type", "application/json");
+        out.write("{}".getBytes(StandardCharsets.UTF_8));
+        out.close();
+        out.close();
+
+        assertEquals(1, sent.size());
+        FullHttpResponse response = (FullHttpResponse) sent.get(0);
+        assertEquals("application/json", response.headers().get("Content-Type"));
+        assertEquals(2, HttpUtil.getContentLength(response));
+        assertFalse(HttpUtil.isTransferEncodingChunked(response));
+        assertEquals("{}", response.content().toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmptyResponse() throws IOException {
+        out.close();
+
+        assertEquals(1, sent.size());
+        assertEquals(0, HttpUtil.getContentLength((FullHttpResponse) sent.get(0)));
+    }
+
+    @Test
+    public void testResponseIsSentInChunks() throws IOException {
+        out.write(new byte[CHUNK_SIZE * 2 + 10]);
+        out.setHeader("Content-Type", "application/json");
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            out.write('x');
+        }
+        out.close();
+
+        assertEquals(6, sent.size());
+        HttpResponse response = (HttpResponse) sent.get(0);
+        assertTrue(HttpUtil.isTransferEncodingChunked(response));
+        assertFalse(response.headers().contains("Content-Type"));
+        assertEquals(CHUNK_SIZE, ((HttpContent) sent.get(1)).content().readableBytes());
+        assertEquals(CHUNK_SIZE, ((HttpContent) sent.get(2)).content().readableBytes());
+        assertEquals(CHUNK_SIZE, ((HttpContent) sent.get(3)).content().readableBytes());
+        assertEquals(10, ((HttpContent) sent.get(4)).content().readableBytes());
+        assertInstanceOf(LastHttpContent.class, sent.get(5));
+    }
+
+    @Test
+    public void testFlushSendsHead() throws IOException {
+        out.flush();
+        out.flush();
+        out.write('x');
+        out.close();
+
+        assertEquals(3, sent.size());
+        assertTrue(HttpUtil.isTransferEncodingChunked((HttpResponse) sent.get(0)));
+        assertEquals(1, ((HttpContent) sent.get(1)).content().readableBytes());
+        assertInstanceOf(LastHttpContent.class, sent.get(2));
+    }
+
+    @Test
+    public void testWaitsUntilConnectionIsWritable() throws Exception {
+        writable.set(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                out.write(new byte[CHUNK_SIZE]);
+                out.close();
+            } catch (IOException e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+
+        writer.join(300);
+        assertTrue(writer.isAlive());
+        assertTrue(sent.isEmpty());
+
+        writable.set(true);
+        out.writabilityChanged();
+        writer.join(10000);
+        assertFalse(writer.isAlive());
+        assertEquals(null, failure.get());
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void testInterruptedWhileWaiting() throws Exception {
+        writable.set(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> failure.set(assertThrows(InterruptedIOException.class, out::flush)));
+        writer.start();
+        writer.interrupt();
+        writer.join(10000);
+
+        assertInstanceOf(InterruptedIOException.class, failure.get());
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void testConnectionClosedWhileWaiting() throws Exception {
+        writable.set(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> failure.set(assertThrows(IOException.class, out::flush)));
+        writer.start();
+
+        active.set(false);
+        out.writabilityChanged();
+        writer.join(10000);
+
+        assertEquals("The connection was closed before the response was sent", failure.get().getMessage());
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void testClosedStreamCanNotBeWritten() throws IOException {
+        out.close();
+
+        assertThrows(IOException.class, () -> out.write('x'));
+        assertThrows(IOException.class, () -> out.write(new byte[1], 0, 1));
+        assertThrows(IOException.class, out::flush);
+    }
+
+    @Test
+    public void testAbortBeforeHeadIsSent() throws IOException {
+        out.write('x');
+
+        assertFalse(out.abort());
+        assertFalse(out.abort());
+        verify(ctx, never()).close();
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void testAbortAfterHeadIsSentClosesConnection() throws IOException {
+        out.flush();
+        out.write('x');
+
+        assertTrue(out.abort());
+        verify(ctx).close();
+        assertEquals(1, sent.size());
+    }
+}
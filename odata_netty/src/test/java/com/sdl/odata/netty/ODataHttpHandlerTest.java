@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import com.sdl.odata.api.service.ODataContent;
+import com.sdl.odata.api.service.ODataRequest;
+import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataResponseBody;
+import com.sdl.odata.api.service.ODataService;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ODataHttpHandler}.
+ */
+public class ODataHttpHandlerTest {
+
+    private static final int MAX_PIPELINED = 2;
+
+    private final TestService service = new TestService();
+    private final Deque<Runnable> streamingTasks = new ArrayDeque<>();
+    private boolean rejectStreaming;
+    private final Executor streamingExecutor = task -> {
+        if (rejectStreaming) {
+            throw new RejectedExecutionException("Shutting down");
+        }
+        streamingTasks.addLast(task);
+    };
+    private final EmbeddedChannel channel =
+            new EmbeddedChannel(new ODataHttpHandler(service, streamingExecutor, MAX_PIPELINED));
+
+    @AfterEach
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testPipelinedResponsesInRequestOrder() {
+        channel.writeInbound(request("/odata.svc/First"));
+        channel.writeInbound(request("/odata.svc/Second"));
+
+        service.complete("/odata.svc/Second");
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+
+        service.complete("/odata.svc/First");
+        channel.runPendingTasks();
+        assertResponse(HttpResponseStatus.OK, "http://localhost/odata.svc/First");
+        assertResponse(HttpResponseStatus.OK, "http://localhost/odata.svc/Second");
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testAutoReadBackPressure() {
+        channel.writeInbound(request("/odata.svc/First"));
+        assertTrue(channel.config().isAutoRead());
+
+        channel.writeInbound(request("/odata.svc/Second"));
+        assertFalse(channel.config().isAutoRead());
+
+        service.complete("/odata.svc/Second");
+        channel.runPendingTasks();
+        assertFalse(channel.config().isAutoRead());
+
+        service.complete("/odata.svc/First");
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+        assertResponse(HttpResponseStatus.OK, "http://localhost/odata.svc/First");
+        assertResponse(HttpResponseStatus.OK, "http://localhost/odata.svc/Second");
+    }
+
+    @Test
+    public void testDecoderFailure() {
+        FullHttpRequest request = request("/odata.svc/First");
+        request.setDecoderResult(DecoderResult.failure(new IllegalArgumentException("Invalid request")));
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+        try {
+            assertEquals(HttpResponseStatus.BAD_REQUEST, response.status());
+            assertFalse(HttpUtil.isKeepAlive(response));
+        } finally {
+            response.release();
+        }
+        assertTrue(service.requests.isEmpty());
+    }
+
+    @Test
+    public void testUnsupportedMethod() {
+        channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, HttpMethod.TRACE, "/odata.svc/First"));
+
+        assertResponse(HttpResponseStatus.METHOD_NOT_ALLOWED, "");
+        assertTrue(service.requests.isEmpty());
+    }
+
+    @Test
+    public void testDrainClosesAfterOutstandingResponses() {
+        channel.writeInbound(request("/odata.svc/First"));
+
+        channel.pipeline().fireUserEventTriggered(ODataHttpHandler.DRAIN);
+        assertTrue(channel.isOpen());
+        assertFalse(channel.config().isAutoRead());
+
+        service.complete("/odata.svc/First");
+        channel.runPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        try {
+            assertEquals(HttpResponseStatus.OK, response.status());
+            assertFalse(HttpUtil.isKeepAlive(response));
+        } finally {
+            response.release();
+        }
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testDrainClosesIdleConnection() {
+        channel.pipeline().fireUserEventTriggered(ODataHttpHandler.DRAIN);
+        channel.runPendingTasks();
+
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testDrainWaitsForStreamedResponse() {
+        channel.writeInbound(request("/odata.svc/First"));
+        channel.pipeline().fireUserEventTriggered(ODataHttpHandler.DRAIN);
+        service.completeStreamed("/odata.svc/First", "streamed");
+        channel.runPendingTasks();
+        assertTrue(channel.isOpen());
+
+        runStreamingTasks();
+        HttpResponse head = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, head.status());
+        assertTrue(HttpUtil.isTransferEncodingChunked(head));
+        assertFalse(HttpUtil.isKeepAlive(head));
+        assertContent("streamed");
+        assertInstanceOf(LastHttpContent.class, channel.readOutbound());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testResponsesAfterStreamedResponseWaitForIt() {
+        channel.writeInbound(request("/odata.svc/First"));
+        channel.writeInbound(request("/odata.svc/Second"));
+        service.completeStreamed("/odata.svc/First", "streamed");
+        service.complete("/odata.svc/Second");
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+
+        channel.pipeline().fireChannelWritabilityChanged();
+        runStreamingTasks();
+        HttpResponse head = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, head.status());
+        assertContent("streamed");
+        assertInstanceOf(LastHttpContent.class, channel.readOutbound());
+        assertResponse(HttpResponseStatus.OK, "http://localhost/odata.svc/Second");
+    }
+
+    @Test
+    public void testStreamingFailureBeforeHeadIsSent() {
+        channel.writeInbound(request("/odata.svc/First"));
+        service.completeStreamed("/odata.svc/First", null);
+        channel.runPendingTasks();
+        runStreamingTasks();
+
+        assertResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR, "");
+        assertTrue(channel.isOpen());
+    }
+
+    @Test
+    public void testStreamingRejectedClosesConnection() {
+        rejectStreaming = true;
+        channel.writeInbound(request("/odata.svc/First"));
+        service.completeStreamed("/odata.svc/First", "streamed");
+        channel.runPendingTasks();
+
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testStreamingFailureAfterHeadIsSentClosesConnection() {
+        channel.writeInbound(request("/odata.svc/First"));
+        service.completeStreamed("/odata.svc/First", "");
+        channel.runPendingTasks();
+        runStreamingTasks();
+
+        HttpResponse head = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, head.status());
+        assertNull(channel.readOutbound());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testConnectionClosedWhileStreaming() {
+        channel.writeInbound(request("/odata.svc/First"));
+        service.completeStreamed("/odata.svc/First", "streamed");
+        channel.runPendingTasks();
+        channel.close();
+        runStreamingTasks();
+
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testServiceFailure() {
+        channel.writeInbound(request("/odata.svc/First"));
+        channel.writeInbound(request("/odata.svc/Second"));
+        service.requests.get("http://localhost/odata.svc/First")
+                .completeExceptionally(new CompletionException(new IllegalStateException("Failed")));
+        service.requests.get("http://localhost/odata.svc/Second")
+                .completeExceptionally(new IllegalStateException("Failed"));
+        channel.runPendingTasks();
+
+        assertResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR, "");
+        assertResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR, "");
+    }
+
+    @Test
+    public void testAbsoluteRequestUri() {
+        channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, HttpMethod.GET,
+                "http://example.com/odata.svc/First"));
+
+        assertTrue(service.requests.containsKey("http://example.com/odata.svc/First"));
+    }
+
+    @Test
+    public void testErrorClosesConnection() {
+        channel.pipeline().fireChannelWritabilityChanged();
+        channel.pipeline().fireUserEventTriggered("Other event");
+        assertTrue(channel.isOpen());
+
+        channel.pipeline().fireExceptionCaught(new IOException("Connection reset"));
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testResponseBodies() throws IOException {
+        channel.writeInbound(request("/odata.svc/First"));
+        channel.writeInbound(request(HttpMethod.DELETE, "/odata.svc/Second"));
+        ODataResponseBody body = new ODataResponseBody();
+        body.getOutputStream().write('x');
+        service.requests.get("http://localhost/odata.svc/First").complete(new ODataResponse.Builder()
+                .setStatus(ODataResponse.Status.OK).setHeader("OData-Version", "4.0").setBody(body).build());
+        service.requests.get("http://localhost/odata.svc/Second").complete(new ODataResponse.Builder()
+                .setStatus(ODataResponse.Status.NO_CONTENT).build());
+        channel.runPendingTasks();
+        channel.writeInbound(request("/odata.svc/Third"));
+        service.requests.get("http://localhost/odata.svc/Third").complete(new ODataResponse.Builder()
+                .setStatus(ODataResponse.Status.NOT_MODIFIED).build());
+        channel.runPendingTasks();
+
+        FullHttpResponse response = channel.readOutbound();
+        try {
+            assertEquals("4.0", response.headers().get("OData-Version"));
+            assertEquals("x", response.content().toString(StandardCharsets.UTF_8));
+        } finally {
+            response.release();
+        }
+        for (HttpResponseStatus status : new HttpResponseStatus[] {
+                HttpResponseStatus.NO_CONTENT, HttpResponseStatus.NOT_MODIFIED}) {
+            response = channel.readOutbound();
+            try {
+                assertEquals(status, response.status());
+                assertFalse(HttpUtil.isContentLengthSet(response));
+            } finally {
+                response.release();
+            }
+        }
+    }
+
+    @Test
+    public void testIdleConnectionIsClosedOnlyWithoutOutstandingResponses() {
+        channel.writeInbound(request("/odata.svc/First"));
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+        assertTrue(channel.isOpen());
+
+        service.complete("/odata.svc/First");
+        channel.runPendingTasks();
+        assertResponse(HttpResponseStatus.OK, "http://localhost/odata.svc/First");
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+        assertFalse(channel.isOpen());
+    }
+
+    private void runStreamingTasks() {
+        while (!streamingTasks.isEmpty()) {
+            streamingTasks.pollFirst().run();
+        }
+        channel.runPendingTasks();
+    }
+
+    private void assertContent(String content) {
+        HttpContent chunk = channel.readOutbound();
+        try {
+            assertEquals(content, chunk.content().toString(StandardCharsets.UTF_8));
+        } finally {
+            chunk.release();
+        }
+    }
+
+    private static FullHttpRequest request(String uri) {
+        return request(HttpMethod.GET, uri);
+    }
+
+    private static FullHttpRequest request(HttpMethod method, String uri) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HTTP_1_1, method, uri);
+        request.headers().set("Host", "localhost");
+        return request;
+    }
+
+    private void assertResponse(HttpResponseStatus status, String body) {
+        FullHttpResponse response = channel.readOutbound();
+        try {
+            assertEquals(status, response.status());
+            assertEquals(body, response.content().toString(StandardCharsets.UTF_8));
+            assertEquals(body.length(), HttpUtil.getContentLength(response));
+        } finally {
+            ReferenceCountUtil.release(response);
+        }
+    }
+
+    /**
+     * A service which completes the responses to its requests when the test asks it to; the body of a response is
+     * the URI of its request.
+     */
+    private static final class TestService implements ODataService {
+        private final Map<String, CompletableFuture<ODataResponse>> requests = new LinkedHashMap<>();
+
+        @Override
+        public ODataResponse handleRequest(ODataRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletionStage<ODataResponse> handleRequestAsync(ODataRequest request) {
+            CompletableFuture<ODataResponse> response = new CompletableFuture<>();
+            requests.put(request.getUri(), response);
+            return response;
+        }
+
+        void complete(String path) {
+            String uri = "http://localhost" + path;
+            requests.get(uri).complete(new ODataResponse.Builder()
+                    .setStatus(ODataResponse.Status.OK)
+                    .setBody(uri.getBytes(StandardCharsets.UTF_8))
+                    .build());
+        }
+
+        /**
+         * Completes the response with streamed content, which fails before it is flushed if the given content is
+         * {@code null}, and after it is flushed if it is empty.
+         */
+        void completeStreamed(String path, String content) {
+            requests.get("http://localhost" + path).complete(new ODataResponse.Builder()
+                    .setStatus(ODataResponse.Status.OK)
+                    .setODataContent(new ODataContent() {
+                        @Override
+                        public void write(HttpServletResponse response) {
+                            throw new UnsupportedOperationException();
+                        }
+
+                        @Override
+                        public void write(OutputStream outputStream, BiConsumer<String, String> headers)
+                                throws IOException {
+                            if (content == null) {
+                                throw new UncheckedIOException(new IOException("Failed"));
+                            }
+                            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+                            outputStream.flush();
+                            if (content.isEmpty()) {
+                                throw new IOException("Failed after the head was sent");
+                            }
+                        }
+                    })
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A load benchmark which compares OData front ends, such as the Tomcat based {@code ODataServiceContainer} and the
+ * Netty based {@code ODataNettyServiceContainer}, by sending the same requests to each of them in turn.
+ * <p>
+ * Start the containers with the same data source and on different ports, then run for example:
+ * <pre>
+ * java -cp odata_netty/target/test-classes com.sdl.odata.netty.ODataLoadBenchmark -c 64 -d 30 \
+ *     tomcat=http://localhost:8080/odata.svc/Customers netty=http://localhost:8081/odata.svc/Customers
+ * </pre>
+ * Each target is first warmed up, and then loaded by a number of concurrent clients, each of which sends its next
+ * request as soon as it received the previous response, over connections which are kept alive. The throughput, the
+ * latency percentiles and the number of failed requests are printed per target.
+ * <p>
+ * Options: {@code -c} the number of concurrent clients (default 32), {@code -d} the seconds to measure for (default
+ * 20), {@code -w} the seconds to warm up for (default 5), {@code -H name:value} a header to send (default
+ * {@code Accept: application/json}; may be repeated).
+ */
+public final class ODataLoadBenchmark {
+
+    private static final int DEFAULT_CONCURRENCY = 32;
+    private static final int DEFAULT_DURATION = 20;
+    private static final int DEFAULT_WARM_UP = 5;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final int HTTP_OK_MIN = 200;
+    private static final int HTTP_OK_MAX = 399;
+
+    private ODataLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = DEFAULT_CONCURRENCY;
+        int duration = DEFAULT_DURATION;
+        int warmUp = DEFAULT_WARM_UP;
+        List<String> headers = new ArrayList<>();
+        Map<String, URI> targets = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-c":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "-d":
+                    duration = Integer.parseInt(args[++i]);
+                    break;
+                case "-w":
+                    warmUp = Integer.parseInt(args[++i]);
+                    break;
+                case "-H":
+                    int colon = args[++i].indexOf(':');
+                    headers.add(args[i].substring(0, colon).trim());
+                    headers.add(args[i].substring(colon + 1).trim());
+                    break;
+                default:
+                    int equals = args[i].indexOf('=');
+                    targets.put(equals > 0 ? args[i].substring(0, equals) : args[i],
+                            URI.create(args[i].substring(equals + 1)));
+            }
+        }
+        if (targets.isEmpty()) {
+            System.err.println("Usage: ODataLoadBenchmark [-c clients] [-d seconds] [-w seconds] "
+                    + "[-H name:value]... name=url...");
+            System.exit(1);
+        }
+        if (headers.isEmpty()) {
+            headers.addAll(Arrays.asList("Accept", "application/json"));
+        }
+
+        System.out.printf("%d clients, %d s warm-up, %d s measured%n", concurrency, warmUp, duration);
+        System.out.printf("%-12s %10s %8s %10s %9s %9s %9s %9s %9s%n", "target", "requests", "failed", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, URI> target : targets.entrySet()) {
+            HttpRequest request = HttpRequest.newBuilder(target.getValue())
+                    .headers(headers.toArray(new String[0]))
+                    .GET()
+                    .build();
+            run(request, concurrency, warmUp);
+            Result result = run(request, concurrency, duration);
+            result.print(target.getKey(), duration);
+        }
+    }
+
+    private static Result run(HttpRequest request, int concurrency, int seconds) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(DEFAULT_WARM_UP))
+                .build();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> {
+                    Result result = new Result();
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(request,
+                                    HttpResponse.BodyHandlers.ofByteArray());
+                            result.record(System.nanoTime() - start,
+                                    response.statusCode() >= HTTP_OK_MIN && response.statusCode() <= HTTP_OK_MAX);
+                        } catch (IOException e) {
+                            result.record(System.nanoTime() - start, false);
+                        }
+                    }
+                    return result;
+                }));
+            }
+            Result total = new Result();
+            for (Future<Result> future : futures) {
+                total.add(future.get());
+            }
+            return total;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * The latencies and failures recorded by one or more clients.
+     */
+    private static final class Result {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int failed;
+
+        void record(long latency, boolean succeeded) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if (!succeeded) {
+                failed++;
+            }
+        }
+
+        void add(Result other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], true);
+            }
+            failed += other.failed;
+        }
+
+        void print(String name, int seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-12s %10d %8d %10.0f", name, count, failed, (double) count / seconds);
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %9.2f", percentile(sorted, percentile) / NANOS_PER_MILLI);
+            }
+            System.out.printf(" %9.2f%n", count == 0 ? 0 : sorted[count - 1] / NANOS_PER_MILLI);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
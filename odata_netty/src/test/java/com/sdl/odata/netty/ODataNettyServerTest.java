@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.netty;
+
+import com.sdl.odata.api.service.ODataRequest;
+import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataService;
+import io.netty.channel.Channel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ODataNettyServer}.
+ */
+public class ODataNettyServerTest {
+
+    private final CountDownLatch received = new CountDownLatch(1);
+    private final CompletableFuture<ODataResponse> pending = new CompletableFuture<>();
+    private final ODataNettyServer server = new ODataNettyServer();
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testServesRequests() throws IOException {
+        for (boolean virtualThreads : new boolean[] {true, false}) {
+            configure("127.0.0.1", virtualThreads, true, 1000);
+            server.start();
+            server.start();
+            assertTrue(server.isRunning());
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://127.0.0.1:" + port() + "/odata.svc/Customers").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                assertEquals("http://127.0.0.1:" + port() + "/odata.svc/Customers",
+                        new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+
+            server.stop();
+            assertFalse(server.isRunning());
+        }
+    }
+
+    @Test
+    public void testRequestWithoutHost() throws IOException {
+        configure("127.0.0.1", false, true, 1000);
+        server.start();
+
+        try (Socket socket = new Socket("127.0.0.1", port())) {
+            socket.getOutputStream().write("GET /odata.svc/Customers HTTP/1.0\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(response.endsWith("http://127.0.0.1:" + port() + "/odata.svc/Customers"));
+        }
+    }
+
+    @Test
+    public void testStopClosesBusyConnectionsAfterDrainTimeout() throws Exception {
+        configure("", false, false, 100);
+        server.start();
+
+        try (Socket socket = new Socket("127.0.0.1", port())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /odata.svc/Busy HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+
+            server.stop();
+            assertFalse(server.isRunning());
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void testStartFailsWhenPortIsTaken() throws IOException {
+        try (ServerSocket taken = new ServerSocket(0)) {
+            configure("127.0.0.1", false, true, 1000);
+            ReflectionTestUtils.setField(server, "port", taken.getLocalPort());
+
+            assertThrows(Exception.class, server::start);
+            assertFalse(server.isRunning());
+        }
+    }
+
+    private void configure(String host, boolean virtualThreads, boolean compression, long drainTimeout) {
+        ReflectionTestUtils.setField(server, "oDataService", new TestService());
+        ReflectionTestUtils.setField(server, "host", host);
+        ReflectionTestUtils.setField(server, "port", 0);
+        ReflectionTestUtils.setField(server, "ioThreads", 1);
+        ReflectionTestUtils.setField(server, "maxContentLength", 1024);
+        ReflectionTestUtils.setField(server, "idleTimeout", compression ? 10000L : 0L);
+        ReflectionTestUtils.setField(server, "maxPipelined", 4);
+        ReflectionTestUtils.setField(server, "streamingVirtualThreads", virtualThreads);
+        ReflectionTestUtils.setField(server, "streamingPoolSize", 1);
+        ReflectionTestUtils.setField(server, "compressionEnabled", compression);
+        ReflectionTestUtils.setField(server, "compressionMinSize", 2048);
+        ReflectionTestUtils.setField(server, "compressionLevel", 6);
+        ReflectionTestUtils.setField(server, "drainTimeout", drainTimeout);
+    }
+
+    private int port() {
+        Channel serverChannel = (Channel) ReflectionTestUtils.getField(server, "serverChannel");
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * A service whose response body is the URI of the request; requests for {@code Busy} are never answered.
+     */
+    private final class TestService implements ODataService {
+        @Override
+        public ODataResponse handleRequest(ODataRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletionStage<ODataResponse> handleRequestAsync(ODataRequest request) {
+            if (request.getUri().endsWith("/Busy")) {
+                received.countDown();
+                return pending;
+            }
+            return CompletableFuture.completedFuture(new ODataResponse.Builder()
+                    .setStatus(ODataResponse.Status.OK)
+                    .setBody(request.getUri().getBytes(StandardCharsets.UTF_8))
+                    .build());
+        }
+    }
+}
@@ -22,28 +22,133 @@ import com.sdl.odata.api.parser.ODataUriParseException;
 import com.sdl.odata.api.parser.ResourcePath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import scala.Option;
 
 /**
  * OData parser implementation.
+ * <p>
+ * Parsed URIs are immutable, so they are cached and shared between requests for the same URI: up to
+ * {@code odata.parser.uri-cache-size} URIs are kept, for the entity data model instance they were parsed against; 0
+ * disables the cache. See {@link ODataUriCache}. A parser created with the no-argument constructor does not cache.
+ * <p>
+ * URIs are parsed by the grammar selected with {@code odata.parser.engine}: {@code descent} (the default) tries the
+ * hand-written {@link ODataUriDescentParser} first, and parses the URIs it does not cover, and invalid URIs, with the
+ * combinator grammar of {@link ODataUriParser}; {@code combinator} parses all URIs with the combinator grammar. Both
+ * produce the same result.
+ * <p>
+ * URIs longer than {@code odata.parser.max-uri-length} characters are rejected before they are parsed, and both
+ * grammars reject expressions and {@code $expand} options that exceed the {@link ParserLimits} configured with
+ * {@code odata.parser.max-expression-depth}, {@code odata.parser.max-expression-size} and
+ * {@code odata.parser.max-expand-depth} as soon as they get there.
  */
 @Component
 public class ODataParserImpl implements ODataParser {
     private static final Logger LOG = LoggerFactory.getLogger(ODataParserImpl.class);
 
+    private static final String DESCENT_ENGINE = "descent";
+    private static final String COMBINATOR_ENGINE = "combinator";
+
+    private static final int DEFAULT_MAX_URI_LENGTH = 8192;
+    private static final int DEFAULT_MAX_EXPRESSION_DEPTH = 100;
+    private static final int DEFAULT_MAX_EXPRESSION_SIZE = 1000;
+    private static final int DEFAULT_MAX_EXPAND_DEPTH = 10;
+
+    private final ODataUriCache uriCache;
+    private final boolean descent;
+    private final int maxUriLength;
+    private final ParserLimits limits;
+
+    /**
+     * Creates a parser without a cache, for parsing a few URIs only.
+     */
+    public ODataParserImpl() {
+        this(0);
+    }
+
+    public ODataParserImpl(int uriCacheSize) {
+        this(uriCacheSize, DESCENT_ENGINE, DEFAULT_MAX_URI_LENGTH, DEFAULT_MAX_EXPRESSION_DEPTH,
+                DEFAULT_MAX_EXPRESSION_SIZE, DEFAULT_MAX_EXPAND_DEPTH);
+    }
+
+    @Autowired
+    public ODataParserImpl(@Value("${odata.parser.uri-cache-size:4096}") int uriCacheSize,
+                           @Value("${odata.parser.engine:descent}") String engine,
+                           @Value("${odata.parser.max-uri-length:8192}") int maxUriLength,
+                           @Value("${odata.parser.max-expression-depth:100}") int maxExpressionDepth,
+                           @Value("${odata.parser.max-expression-size:1000}") int maxExpressionSize,
+                           @Value("${odata.parser.max-expand-depth:10}") int maxExpandDepth) {
+        this.maxUriLength = maxUriLength;
+        this.limits = new ParserLimits(maxExpressionDepth, maxExpressionSize, maxExpandDepth);
+        this.uriCache = uriCacheSize > 0 ? new ODataUriCache(uriCacheSize) : null;
+        if (DESCENT_ENGINE.equalsIgnoreCase(engine.trim())) {
+            this.descent = true;
+        } else if (COMBINATOR_ENGINE.equalsIgnoreCase(engine.trim())) {
+            this.descent = false;
+        } else {
+            throw new IllegalArgumentException("Unknown parser engine: " + engine + ", expected '" + DESCENT_ENGINE +
+                    "' or '" + COMBINATOR_ENGINE + "'");
+        }
+    }
+
     @Override
     public ODataUri parseUri(String uri, EntityDataModel entityDataModel) throws ODataUriParseException {
         LOG.debug("Parsing URI: {}", uri);
-        ODataUri parsedUri = new ODataUriParser(entityDataModel).parseUri(uri);
+        checkLength(uri);
+        ODataUri parsedUri = uriCache != null ?
+                uriCache.getOrParse(uri, entityDataModel, this::parse) :
+                parse(uri, entityDataModel);
         LOG.debug("Parse result: {}", parsedUri);
         return parsedUri;
     }
 
+    private void checkLength(String uri) throws ODataUriParseException {
+        if (uri.length() > maxUriLength) {
+            throw new ODataUriParseException("The URI is longer than " + maxUriLength + " characters");
+        }
+    }
+
+    private ODataUri parse(String uri, EntityDataModel entityDataModel) throws ODataUriParseException {
+        try {
+            if (descent) {
+                Option<ODataUri> parsedUri = new ODataUriDescentParser(entityDataModel, limits).parseUri(uri);
+                if (parsedUri.isDefined()) {
+                    return parsedUri.get();
+                }
+            }
+            return new ODataUriParser(entityDataModel, limits).parseUri(uri);
+        } catch (StackOverflowError e) {
+            // Paths are not limited, and the limits may be set too high for the stack of the thread
+            throw new ODataUriParseException("The URI is nested too deeply to be parsed", e);
+        }
+    }
+
+    /**
+     * The number of URIs which were found in the cache.
+     *
+     * @return The number of cache hits; 0 if the cache is disabled.
+     */
+    public long getUriCacheHits() {
+        return uriCache != null ? uriCache.getHits() : 0;
+    }
+
+    /**
+     * The number of URIs which were not found in the cache, and had to be parsed.
+     *
+     * @return The number of cache misses; 0 if the cache is disabled.
+     */
+    public long getUriCacheMisses() {
+        return uriCache != null ? uriCache.getMisses() : 0;
+    }
+
     @Override
     public ResourcePath parseResourcePath(String resourcePath, EntityDataModel entityDataModel)
             throws ODataUriParseException {
         LOG.debug("Parsing resource path: {}", resourcePath);
-        ResourcePath parsedResourcePath = new ODataUriParser(entityDataModel).parseResourcePath(resourcePath);
+        checkLength(resourcePath);
+        ResourcePath parsedResourcePath = new ODataUriParser(entityDataModel, limits).parseResourcePath(resourcePath);
         LOG.debug("Parse result: {}", parsedResourcePath);
         return parsedResourcePath;
     }
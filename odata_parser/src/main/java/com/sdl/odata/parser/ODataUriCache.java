@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser;
+
+import com.sdl.odata.api.edm.model.EntityDataModel;
+import com.sdl.odata.api.parser.ODataUri;
+import com.sdl.odata.api.parser.ODataUriParseException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of parsed URIs, by the URI as it was received.
+ * <p>
+ * A parsed URI depends on the entity data model it was parsed against, so the cache only holds the URIs parsed
+ * against one entity data model instance; when a URI is parsed against another instance, the cache is cleared. The
+ * cache is split in segments, each of which drops its least recently used URI when it is full. URIs which can not be
+ * parsed are not cached.
+ */
+final class ODataUriCache {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final int segmentSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile Generation generation;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries The maximum number of URIs to cache.
+     */
+    ODataUriCache(int maxEntries) {
+        this.segmentSize = Math.max(1, maxEntries / SEGMENT_COUNT);
+        this.generation = new Generation(null);
+    }
+
+    /**
+     * Returns the cached parse result of a URI, or parses it and caches the result.
+     *
+     * @param uri             The URI.
+     * @param entityDataModel The entity data model to parse the URI against.
+     * @param parser          Parses the URI.
+     * @return The parsed URI.
+     * @throws ODataUriParseException If the URI can not be parsed.
+     */
+    ODataUri getOrParse(String uri, EntityDataModel entityDataModel, UriParser parser) throws ODataUriParseException {
+        Generation current = generationOf(entityDataModel);
+        Segment segment = current.segments[(uri.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+
+        ODataUri parsedUri = segment.get(uri);
+        if (parsedUri != null) {
+            hits.incrementAndGet();
+            return parsedUri;
+        }
+
+        misses.incrementAndGet();
+        parsedUri = parser.parse(uri, entityDataModel);
+        segment.put(uri, parsedUri);
+        return parsedUri;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private Generation generationOf(EntityDataModel entityDataModel) {
+        Generation current = generation;
+        if (current.entityDataModel != entityDataModel) {
+            // Parse results of another entity data model are dropped as a whole; a request still using the other model
+            // in the meantime only costs a cache miss
+            current = new Generation(entityDataModel);
+            generation = current;
+        }
+        return current;
+    }
+
+    /**
+     * Parses a URI on a cache miss.
+     */
+    @FunctionalInterface
+    interface UriParser {
+        ODataUri parse(String uri, EntityDataModel entityDataModel) throws ODataUriParseException;
+    }
+
+    /**
+     * The URIs parsed against one entity data model.
+     */
+    private final class Generation {
+        private final EntityDataModel entityDataModel;
+        private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+        Generation(EntityDataModel entityDataModel) {
+            this.entityDataModel = entityDataModel;
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                segments[i] = new Segment(segmentSize);
+            }
+        }
+    }
+
+    /**
+     * A segment of the cache, in access order.
+     */
+    private static final class Segment {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final float LOAD_FACTOR = 0.75f;
+
+        private final Map<String, ODataUri> entries;
+
+        Segment(int maxSize) {
+            this.entries = new LinkedHashMap<String, ODataUri>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ODataUri> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized ODataUri get(String uri) {
+            return entries.get(uri);
+        }
+
+        synchronized void put(String uri, ODataUri parsedUri) {
+            entries.put(uri, parsedUri);
+        }
+    }
+}
@@ -20,7 +20,8 @@ import com.sdl.odata.api.parser._
 import scala.util.parsing.combinator.RegexParsers
 
 trait ExpressionsParser extends RegexParsers {
-  this: ResourcePathParser with QueryOptionsParser with NamesAndIdentifiersParser with LiteralsParser with EntityDataModelHelpers =>
+  this: ResourcePathParser with QueryOptionsParser with NamesAndIdentifiersParser with LiteralsParser with EntityDataModelHelpers
+    with ParserLimitsChecks =>
 
   def commonExpr(contextTypeName: String): Parser[Expression] = commonExprPart1(contextTypeName) into {
     left =>
@@ -38,9 +39,16 @@ trait ExpressionsParser extends RegexParsers {
       }
   }
 
-  def commonExprPart2(contextTypeName: String): Parser[Expression] = literalExpr | paramAliasExpr | jsonDataExpr |
-    rootExpr | functionExpr(contextTypeName) | negateExpr(contextTypeName) | methodCallExpr(contextTypeName) |
-    parenExpr(contextTypeName) | castExpr(contextTypeName) | firstMemberExpr(contextTypeName)
+  def commonExprPart2(contextTypeName: String): Parser[Expression] = counted(literalExpr | paramAliasExpr |
+    jsonDataExpr | rootExpr | functionExpr(contextTypeName) | negateExpr(contextTypeName) |
+    methodCallExpr(contextTypeName) | parenExpr(contextTypeName) | castExpr(contextTypeName) |
+    firstMemberExpr(contextTypeName))
+
+  // An expression nested in another one, counted against the maximum depth of the ParserLimits
+  def nested[T](p: => Parser[T]): Parser[T] = Parser(in => nestedExpression(p(in)))
+
+  // An expression counted against the maximum size of the ParserLimits, if it is produced
+  def counted[T](p: => Parser[T]): Parser[T] = Parser(in => countedExpression(p(in))(_.successful))
 
   def literalExpr: Parser[LiteralExpr] = primitiveLiteral ^^ LiteralExpr
 
@@ -66,7 +74,7 @@ trait ExpressionsParser extends RegexParsers {
 
   def boolCommonExprPart2(contextTypeName: String): Parser[BooleanExpr] =
     isofExpr(contextTypeName) | boolMethodCallExpr(contextTypeName) | notExpr(contextTypeName) |
-    (commonExpr(contextTypeName) into comparisonExpr(contextTypeName)) | boolParenExpr(contextTypeName)
+    counted(commonExpr(contextTypeName) into comparisonExpr(contextTypeName)) | boolParenExpr(contextTypeName)
 
   def rootExpr: Parser[RootExpr] = "$root/" ~> (entitySetRootExpr | singletonRootExpr)
 
@@ -263,7 +271,7 @@ trait ExpressionsParser extends RegexParsers {
   def aliasFunctionExprParam: Parser[AliasFunctionExprParam] = "@" ~> odataIdentifier ^^ AliasFunctionExprParam
 
   def expressionFunctionExprParam(contextTypeName: String): Parser[ExpressionFunctionExprParam] =
-    commonExpr(contextTypeName) ^^ ExpressionFunctionExprParam
+    nested(commonExpr(contextTypeName)) ^^ ExpressionFunctionExprParam
 
   def anyExpr(contextTypeName: String): Parser[AnyPathExpr] =
     """any\(\s*""".r ~> opt(lambdaVariableNameAndPredicate(contextTypeName)) <~ """\s*\)""".r ^^ AnyPathExpr
@@ -272,7 +280,7 @@ trait ExpressionsParser extends RegexParsers {
     """all\(\s*""".r ~> lambdaVariableNameAndPredicate(contextTypeName) <~ """\s*\)""".r ^^ AllPathExpr
 
   def lambdaVariableNameAndPredicate(contextTypeName: String): Parser[LambdaVariableAndPredicate] =
-    odataIdentifier ~ ("""\s*:\s*""".r ~> boolCommonExpr(contextTypeName)) ^^ {
+    odataIdentifier ~ ("""\s*:\s*""".r ~> nested(boolCommonExpr(contextTypeName))) ^^ {
       case variableName ~ predicate => LambdaVariableAndPredicate(variableName, predicate)
     }
 
@@ -303,26 +311,26 @@ trait ExpressionsParser extends RegexParsers {
 	}
 
   def methodCallArgs(contextTypeName: String): Parser[List[Expression]] =
-    """\(\s*""".r ~> repsep(commonExpr(contextTypeName), """\s*,\s*""".r) <~ """\s*\)""".r withFailureMessage "Invalid method call arguments"
+    """\(\s*""".r ~> repsep(nested(commonExpr(contextTypeName)), """\s*,\s*""".r) <~ """\s*\)""".r withFailureMessage "Invalid method call arguments"
 
-  def boolMethodCallExpr(contextTypeName: String): Parser[BooleanMethodCallExpr] =
-    boolMethodName ~ ("""\(\s*""".r ~> repsep(commonExpr(contextTypeName), """\s*,\s*""".r) <~ """\s*\)""".r) ^^ {
+  def boolMethodCallExpr(contextTypeName: String): Parser[BooleanMethodCallExpr] = counted(
+    boolMethodName ~ ("""\(\s*""".r ~> repsep(nested(commonExpr(contextTypeName)), """\s*,\s*""".r) <~ """\s*\)""".r) ^^ {
       case methodName ~ args => BooleanMethodCallExpr(methodName, args)
-    }
+    })
 
   def boolMethodName: Parser[String] = "contains" | "startswith" | "endswith" | "geo.intersects"
 
   def boolParenExpr(contextTypeName: String): Parser[BooleanExpr] =
-    """\(\s*""".r ~> boolCommonExpr(contextTypeName) <~ """\s*\)""".r
+    """\(\s*""".r ~> nested(boolCommonExpr(contextTypeName)) <~ """\s*\)""".r
 
   def parenExpr(contextTypeName: String): Parser[Expression] =
-    """\(\s*""".r ~> commonExpr(contextTypeName) <~ """\s*\)""".r
+    """\(\s*""".r ~> nested(commonExpr(contextTypeName)) <~ """\s*\)""".r
 
   def orExpr(contextTypeName: String, left: BooleanExpr): Parser[OrExpr] =
-    """\s+or\s+""".r ~> boolCommonExpr(contextTypeName) ^^ { case right => OrExpr(left, right) }
+    counted("""\s+or\s+""".r ~> boolCommonExpr(contextTypeName) ^^ { case right => OrExpr(left, right) })
 
   def andExpr(contextTypeName: String, left: BooleanExpr): Parser[AndExpr] =
-    """\s+and\s+""".r ~> boolCommonExprPart1(contextTypeName) ^^ { case right => AndExpr(left, right) }
+    counted("""\s+and\s+""".r ~> boolCommonExprPart1(contextTypeName) ^^ { case right => AndExpr(left, right) })
 
   def comparisonExpr(contextTypeName: String)(left: Expression): Parser[ComparisonExpr] =
     eqExpr(contextTypeName, left) | neExpr(contextTypeName, left) |
@@ -352,7 +360,7 @@ trait ExpressionsParser extends RegexParsers {
     """\s+has\s+""".r ~> commonExpr(contextTypeName) ^^ { case right => HasExpr(left, right) }
 
   def additiveExpr(contextTypeName: String, left: Expression): Parser[ArithmeticExpr] =
-    addExpr(contextTypeName, left) | subExpr(contextTypeName, left)
+    counted(addExpr(contextTypeName, left) | subExpr(contextTypeName, left))
 
   def addExpr(contextTypeName: String, left: Expression): Parser[AddExpr] =
     """\s+add\s+""".r ~> commonExpr(contextTypeName) ^^ { case right => AddExpr(left, right) }
@@ -361,7 +369,7 @@ trait ExpressionsParser extends RegexParsers {
     """\s+sub\s+""".r ~> commonExpr(contextTypeName) ^^ { case right => SubExpr(left, right) }
 
   def multiplicativeExpr(contextTypeName: String, left: Expression): Parser[ArithmeticExpr] =
-    mulExpr(contextTypeName, left) | divExpr(contextTypeName, left) | modExpr(contextTypeName, left)
+    counted(mulExpr(contextTypeName, left) | divExpr(contextTypeName, left) | modExpr(contextTypeName, left))
 
   def mulExpr(contextTypeName: String, left: Expression): Parser[MulExpr] =
     """\s+mul\s+""".r ~> commonExprPart1(contextTypeName) ^^ { case right => MulExpr(left, right) }
@@ -373,18 +381,18 @@ trait ExpressionsParser extends RegexParsers {
     """\s+mod\s+""".r ~> commonExprPart1(contextTypeName) ^^ { case right => ModExpr(left, right) }
 
   def negateExpr(contextTypeName: String): Parser[NegateExpr] =
-    """-\s*""".r ~> commonExprPart2(contextTypeName) ^^ NegateExpr
+    """-\s*""".r ~> nested(commonExprPart2(contextTypeName)) ^^ NegateExpr
 
   def notExpr(contextTypeName: String): Parser[NotExpr] =
-    """not\s+""".r ~> boolCommonExprPart2(contextTypeName) ^^ NotExpr
+    counted("""not\s+""".r ~> nested(boolCommonExprPart2(contextTypeName)) ^^ NotExpr)
 
-  def isofExpr(contextTypeName: String): Parser[IsOfExpr] =
-    """isof\(\s*""".r ~> opt(commonExpr(contextTypeName) <~ """\s*,\s*""".r) ~ qualifiedTypeName <~ """\s*\)""".r ^^ {
+  def isofExpr(contextTypeName: String): Parser[IsOfExpr] = counted(
+    """isof\(\s*""".r ~> opt(nested(commonExpr(contextTypeName)) <~ """\s*,\s*""".r) ~ qualifiedTypeName <~ """\s*\)""".r ^^ {
       case expression ~ typeName => IsOfExpr(expression, typeName)
-    }
+    })
 
   def castExpr(contextTypeName: String): Parser[CastExpr] =
-    """cast\(\s*""".r ~> opt(commonExpr(contextTypeName) <~ """\s*,\s*""".r) ~ qualifiedTypeName <~ """\s*\)""".r ^^ {
+    """cast\(\s*""".r ~> opt(nested(commonExpr(contextTypeName)) <~ """\s*,\s*""".r) ~ qualifiedTypeName <~ """\s*\)""".r ^^ {
       case expression ~ typeName => CastExpr(expression, typeName)
     }
 }
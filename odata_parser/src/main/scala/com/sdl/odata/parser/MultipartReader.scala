@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import java.io.{ByteArrayOutputStream, InputStream}
+import java.nio.charset.StandardCharsets.UTF_8
+
+import com.sdl.odata.api.parser.ODataBatchParseException
+
+/**
+ * Reads the parts of a multipart body (RFC 2046) from a stream, one part at a time, without reading the body as a
+ * whole: only a block of the stream is held in memory. The delimiters are found with the Boyer-Moore-Horspool
+ * algorithm, so most bytes of a part are skipped instead of compared.
+ *
+ * Lines may end with CRLF or with LF. The preamble before the first delimiter and the epilogue after the close
+ * delimiter are skipped.
+ *
+ * @param in The stream of the multipart body.
+ * @param boundary The boundary of the parts, without the leading "--".
+ */
+class MultipartReader(in: InputStream, boundary: String) {
+  import MultipartReader._
+
+  // A delimiter is a boundary at the start of a line; the CR of a CRLF in front of it is not part of the content
+  private val delimiter = ("\n--" + boundary).getBytes(UTF_8)
+
+  private val shifts = {
+    val shifts = Array.fill(ByteValues)(delimiter.length)
+    for (i <- 0 until delimiter.length - 1) shifts(delimiter(i) & ByteMask) = delimiter.length - 1 - i
+    shifts
+  }
+
+  // The bytes in buffer(start until end) are read from the stream, but not from the parts yet. The body is read as if
+  // it started with a line break, so that a delimiter at its very start is found too.
+  private val buffer = new Array[Byte](math.max(BufferSize, 2 * delimiter.length + 1))
+  buffer(0) = '\n'
+  private var start = 0
+  private var end = 1
+  private var endOfStream = false
+
+  // Where the delimiter that ends the current part is in the buffer, and where to look for it while it is not found
+  private var delimiterAt = -1
+  private var searchFrom = 0
+
+  private var currentPart: InputStream = new PartInputStream
+  private var closed = false
+
+  /**
+   * Skips the rest of the current part and returns the next one, which can be read until the delimiter that ends it.
+   *
+   * @return The next part, or `None` after the close delimiter.
+   */
+  def nextPart(): Option[InputStream] = if (closed) None else {
+    var skipped = partBytes()
+    while (skipped > 0) {
+      start += skipped
+      skipped = partBytes()
+    }
+    if (delimiterAt < 0) {
+      throw new ODataBatchParseException(s"The multipart body does not end with a close delimiter for '$boundary'")
+    }
+
+    start = delimiterAt + delimiter.length
+    delimiterAt = -1
+    val restOfLine = readRestOfLine()
+    searchFrom = start
+    if (restOfLine.startsWith("--")) {
+      closed = true
+      None
+    } else if (restOfLine.trim.isEmpty) {
+      currentPart = new PartInputStream
+      Some(currentPart)
+    } else {
+      throw new ODataBatchParseException(s"The multipart body contains an invalid delimiter: --$boundary$restOfLine")
+    }
+  }
+
+  // The number of bytes at the start of the buffer that belong to the current part; 0 at the end of the part
+  private def partBytes(): Int = {
+    var bytes = -1
+    while (bytes < 0) {
+      if (delimiterAt < 0) delimiterAt = indexOfDelimiter()
+      if (delimiterAt >= 0) {
+        val contentEnd = if (delimiterAt > start && buffer(delimiterAt - 1) == '\r') delimiterAt - 1 else delimiterAt
+        bytes = contentEnd - start
+        if (bytes == 0) start = delimiterAt
+      } else if (endOfStream) {
+        bytes = end - start
+      } else if (end - delimiter.length > start) {
+        // The last bytes could be the start of a delimiter (and the CR in front of it), so they are kept back
+        bytes = end - delimiter.length - start
+      } else {
+        fill()
+      }
+    }
+    bytes
+  }
+
+  private def indexOfDelimiter(): Int = {
+    val last = delimiter.length - 1
+    var i = math.max(searchFrom, start)
+    var found = -1
+    while (found < 0 && i + last < end) {
+      var j = last
+      while (j >= 0 && buffer(i + j) == delimiter(j)) j -= 1
+      if (j < 0) found = i else i += shifts(buffer(i + last) & ByteMask)
+    }
+    searchFrom = i
+    found
+  }
+
+  private def readRestOfLine(): String = {
+    val line = new ByteArrayOutputStream()
+    var endOfLine = false
+    while (!endOfLine) {
+      if (start < end) {
+        val b = buffer(start)
+        start += 1
+        if (b == '\n') endOfLine = true else if (b != '\r') line.write(b)
+      } else if (endOfStream) {
+        endOfLine = true
+      } else {
+        fill()
+      }
+    }
+    new String(line.toByteArray, UTF_8)
+  }
+
+  private def fill(): Unit = {
+    if (start > 0) {
+      System.arraycopy(buffer, start, buffer, 0, end - start)
+      end -= start
+      searchFrom = math.max(searchFrom - start, 0)
+      if (delimiterAt >= 0) delimiterAt -= start
+      start = 0
+    }
+    val count = in.read(buffer, end, buffer.length - end)
+    if (count < 0) endOfStream = true else end += count
+  }
+
+  private class PartInputStream extends InputStream {
+
+    override def read(): Int =
+      if (this.ne(currentPart) || partBytes() == 0) -1
+      else {
+        val b = buffer(start) & ByteMask
+        start += 1
+        b
+      }
+
+    override def read(b: Array[Byte], off: Int, len: Int): Int =
+      if (len == 0) 0
+      else if (this.ne(currentPart)) -1
+      else {
+        val count = math.min(len, partBytes())
+        if (count == 0) -1
+        else {
+          System.arraycopy(buffer, start, b, off, count)
+          start += count
+          count
+        }
+      }
+  }
+}
+
+object MultipartReader {
+  private val BufferSize = 8192
+  private val ByteValues = 256
+  private val ByteMask = 0xFF
+}
@@ -15,9 +15,12 @@
  */
 package com.sdl.odata.parser
 
+import java.io.{BufferedInputStream, ByteArrayInputStream, ByteArrayOutputStream, InputStream}
+import java.nio.charset.StandardCharsets.UTF_8
+
 import com.sdl.odata.api.parser.ODataBatchParseException
 
-import scala.util.parsing.combinator.RegexParsers
+import scala.collection.mutable.ListBuffer
 
 /**
  * ODataBatchRequestParser.
@@ -30,91 +33,129 @@ import scala.util.parsing.combinator.RegexParsers
  *       - ChangeSets
  *            - Headers
  *            - List<Individual Requests>
+ *
+ * The body is read as a stream, one part at a time, with a [[MultipartReader]]; the boundary of the batch is the one
+ * on its first line, and the boundary of a change set is the one in its Content-Type header. Lines that contain only
+ * whitespace count as empty lines.
  */
-class ODataBatchRequestParser extends RegexParsers {
-  // Note that the current implementation does not support the odata.continue-on-error preference
-  private val lineSeparator = sys.props("line.separator")
+class ODataBatchRequestParser {
+  import ODataBatchRequestParser._
 
-  override def skipWhitespace = false
+  // Note that the current implementation does not support the odata.continue-on-error preference
 
-  var contentIds: Set[Int] = Set[Int]()
+  var contentIds: Set[String] = Set[String]()
   var batchId: String = ""
   val ContentIdHeader = "Content-ID"
+  val ContentTypeHeader = "Content-Type"
   val ContentTransferEncodingHeader = "Content-Transfer-Encoding"
   val ContentTransferEncodingHeaderValue = "binary"
 
   // Main parser class for ODataBatchRequest
-  def parseBatch(input: String): ODataBatchRequestContent = parseAll(parseBatchRequest, trimRedundantTrailingSpaces(input)) match {
-    case Success(result, _) => result
-    case NoSuccess(msg, _) => throw new ODataBatchParseException(msg)
-  }
-
-  // Trim redundant trailing spaces and trailing request line separators
-  def trimRedundantTrailingSpaces(input: String): String = {
-    input.split(lineSeparator).map(_.trim).reverse.dropWhile(_.isEmpty).reverse.mkString(lineSeparator.toString)
-  }
-
-  def parseBatchRequest: Parser[ODataBatchRequestContent] = parseRequestContent ^^ {
-    case requestContent => ODataBatchRequestContent(requestContent)
-  }
-
-  // Step1: Parse the request content which can contain Individual requests for change sets
-  def parseRequestContent: Parser[List[ODataRequestComponent]] = rep(parseQueryOrChangeSet) <~ "--" + batchId + "--".r ^^ {
-    res => {
-      val requestComponents = res
-
-      if (requestComponents.isEmpty) throw new ODataBatchParseException("Batch request is empty.")
-      requestComponents
+  def parseBatch(input: String): ODataBatchRequestContent = parseBatch(new ByteArrayInputStream(input.getBytes(UTF_8)))
+
+  def parseBatch(input: InputStream): ODataBatchRequestContent = {
+    contentIds = Set[String]()
+    val body = new BufferedInputStream(input)
+    body.mark(MaxFirstLineLength)
+    batchId = parseBatchId(body)
+    body.reset()
+
+    val reader = new MultipartReader(body, batchId)
+    val requestComponents = ListBuffer[ODataRequestComponent]()
+    var part = reader.nextPart()
+    while (part.isDefined) {
+      requestComponents += parseQueryOrChangeSet(part.get)
+      part = reader.nextPart()
     }
+    if (requestComponents.isEmpty) throw new ODataBatchParseException("Batch request is empty.")
+    ODataBatchRequestContent(requestComponents.toList)
   }
 
-  // Step2: check if the request content is an individual query or changeset and parse accordingly
-  def parseQueryOrChangeSet: Parser[ODataRequestComponent] = parserBatchId ~> chooseRequest
-
-  def parserBatchId =  "--.+_.+\r*\n".r ^^ {
-    case parsedBatchId => {
-      batchId = parsedBatchId.replaceFirst("--","").trim
+  private def parseBatchId(body: InputStream): String = {
+    var line = readLine(body)
+    while (line != null && line.trim.isEmpty) line = readLine(body)
+    if (line == null || !line.startsWith("--")) {
+      throw new ODataBatchParseException("A batch request must start with a boundary delimiter line")
     }
-
+    line.substring(2).trim
   }
-  //application -> Query Request , multipart -> changeSet Request
-  def chooseRequest: Parser[ODataRequestComponent] =
-    ("Content-Type:\\s*application/.+\r*\n".r ~> parseIndividualBatchRequest) |
-      ("Content-Type:\\s*multipart/mixed;\\s*boundary=".r ~> parseChangeSetRequestComponent)
 
-  def parseIndividualBatchRequest: Parser[BatchRequestComponent] = parseRequestComponent ^^ {
-    case requestComponent => {
-      if (!requestComponent.getRequestDetails().get("RequestType").get.equals("GET")) throw new ODataBatchParseException("Only GET is supported in Individual requests of batch.")
-      requestComponent
+  // Check if the request content is an individual query or changeset and parse accordingly
+  // application -> Query Request , multipart -> changeSet Request
+  private def parseQueryOrChangeSet(part: InputStream): ODataRequestComponent = {
+    val headers = parseHeaders(part)
+    headers.getOrElse(ContentTypeHeader, "") match {
+      case contentType if contentType.startsWith("application/") =>
+        parseIndividualBatchRequest(headers - ContentTypeHeader, part)
+      case contentType if contentType.startsWith("multipart/mixed") =>
+        parseChangeSetRequestComponent(changeSetBoundary(contentType), headers - ContentTypeHeader, part)
+      case _ => throw new ODataBatchParseException("Each part of a batch request must have a Content-Type header " +
+        "with value application/http or multipart/mixed")
     }
   }
 
-  // Step2a: If the content is individual request, extract data to BatchRequestComponent
-  def parseRequestComponent: Parser[BatchRequestComponent] = parseIndividualRequestTopHeaders ~ getRequestURIComponents ~ parseQueryRequestHeaders into {
-    case headerMap ~ requestContent ~ queryRequestHeaders =>
-      (if (queryRequestHeaders.isEmpty) parseQueryBody else lineSeparator ~> parseQueryBody) ^^ {
-        case requestBody => BatchRequestComponent(BatchRequestHeaders(headerMap ++ queryRequestHeaders, IndividualRequestHeader), requestContent ++ requestBody)
+  private def parseIndividualBatchRequest(headers: Map[String, String], part: InputStream): BatchRequestComponent =
+    parseRequestComponent(headers, part) { requestType =>
+      if (requestType != "GET") {
+        throw new ODataBatchParseException("Only GET is supported in Individual requests of batch.")
       }
-  }
+    }
 
-  // Step2b: If the content is a change set, extract data to ChangeSetRequestContent
-  def parseChangeSetRequestComponent: Parser[ChangeSetRequestComponent] = parseChangeSetId ~ parseChangeSetHeader ~ parseChangeSetComponents <~ ("--.+_.+--" + lineSeparator).r ^^ {
-    case  changesetId ~ header ~ res => ChangeSetRequestComponent(BatchRequestHeaders(header, ChangeSetRequestHeader), res, changesetId)
+  private def parseChangeSetRequestComponent(changesetId: String, headers: Map[String, String],
+                                             part: InputStream): ChangeSetRequestComponent = {
+    val reader = new MultipartReader(part, changesetId)
+    val changeSetComponents = ListBuffer[BatchRequestComponent]()
+    var changeSetPart = reader.nextPart()
+    while (changeSetPart.isDefined) {
+      changeSetComponents += parseChangeSetComponent(changeSetPart.get)
+      changeSetPart = reader.nextPart()
+    }
+    ChangeSetRequestComponent(BatchRequestHeaders(headers, ChangeSetRequestHeader), changeSetComponents.toList,
+      changesetId)
   }
 
-  def parseChangeSetId: Parser[String] = ".+\r*\n".r ^^ { case changesetId => changesetId.trim}
+  private def parseChangeSetComponent(part: InputStream): BatchRequestComponent = {
+    val headers = parseHeaders(part)
+    parseRequestComponent(headers, part) { requestType =>
+      if (requestType == "GET") throw new ODataBatchParseException("ChangeSets must not contain GET requests.")
 
-  // Parse and validate top level headers of Individual Request
-  def parseIndividualRequestTopHeaders: Parser[Map[String, String]] = parseHeaders <~ lineSeparator ^^ {
-    case headerMap => {
-      if (headerMap.isEmpty || !headerMap.contains(ContentTransferEncodingHeader)) {
-        throw new ODataBatchParseException("An individual request of a batch request must contain Content-Transfer-Encoding header")
+      val contentID = headers.getOrElse(ContentIdHeader,
+        throw new ODataBatchParseException("Each request within a change set MUST specify a Content-ID header"))
+      if (contentIds.contains(contentID)) {
+        throw new ODataBatchParseException("Value of Content-ID header within a change set must be unique")
       }
+      contentIds += contentID
+    }
+  }
 
-      if (!headerMap.get(ContentTransferEncodingHeader).get.equals(ContentTransferEncodingHeaderValue))
-        throw new ODataBatchParseException("Each operation of a batch request must contain Content-Transfer-Encoding with value binary")
+  // Extract the request line, headers and body of a request to a BatchRequestComponent
+  private def parseRequestComponent(headers: Map[String, String], part: InputStream)
+                                   (checkRequestType: String => Unit): BatchRequestComponent = {
+    checkIndividualRequestTopHeaders(headers)
+    val requestLine = readLine(part)
+    if (requestLine == null) {
+      throw new ODataBatchParseException("A request of a batch request must contain a request line")
+    }
+    val requestDetails = getRequestURIComponents(requestLine)
+    checkRequestType(requestDetails("RequestType"))
+
+    // TODO: Validations
+    // Must not include authentication or authorization related HTTP headers and Expect, From, Max-Forwards, Range,
+    // or TE headers
+    val queryRequestHeaders = parseHeaders(part, "Request body must contain an empty line or entity data.")
+    BatchRequestComponent(BatchRequestHeaders(headers ++ queryRequestHeaders, IndividualRequestHeader),
+      requestDetails + ("RequestBody" -> parseQueryBody(part)))
+  }
 
-      headerMap
+  // Validate top level headers of Individual Request
+  private def checkIndividualRequestTopHeaders(headers: Map[String, String]): Unit = {
+    if (!headers.contains(ContentTransferEncodingHeader)) {
+      throw new ODataBatchParseException(
+        "An individual request of a batch request must contain Content-Transfer-Encoding header")
+    }
+    if (headers(ContentTransferEncodingHeader) != ContentTransferEncodingHeaderValue) {
+      throw new ODataBatchParseException(
+        "Each operation of a batch request must contain Content-Transfer-Encoding with value binary")
     }
   }
 
@@ -127,79 +168,101 @@ class ODataBatchRequestParser extends RegexParsers {
   //            Host: myserver.mydomain.org:1234
   // 3. Resource path relative to the batch request URI.
   //      Ex:   GET People(1) HTTP/1.1
-  def getRequestURIComponents: Parser[Map[String, String]] = ("GET " | "POST " | "PATCH " | "PUT " | "DELETE ") ~ getRequestURI ^^ {
-    case requestType ~ relativeURL => Map("RequestType" -> requestType.trim) ++ relativeURL
-  }
-
-  // TODO: Validations
-  // Must not include authentication or authorization related HTTP headers and Expect, From, Max-Forwards, Range, or TE headers
-  def parseQueryRequestHeaders: Parser[Map[String, String]] = parseHeaders
+  private def getRequestURIComponents(requestLine: String): Map[String, String] = {
+    val tokens = requestLine.trim.split("\\s+")
+    if (tokens.length < 2 || tokens.length > 3 || !RequestTypes.contains(tokens(0)) ||
+      (tokens.length == 3 && !HttpVersion.pattern.matcher(tokens(2)).matches())) {
+      throw new ODataBatchParseException(s"Invalid request line in batch request: $requestLine")
+    }
 
-  def parseQueryBody: Parser[Map[String, String]] = getEntityData ^^ {
-    case entityData => Map("RequestBody" -> entityData.trim)
+    var components = Map("RequestType" -> tokens(0))
+    var requestUri = tokens(1)
+    def component(name: String, pattern: scala.util.matching.Regex): Unit =
+      pattern.findPrefixOf(requestUri).foreach { value =>
+        components += (name -> value)
+        requestUri = requestUri.substring(value.length)
+      }
+    component("RequestHost", RequestHost)
+    component("RelativePath", RelativePath)
+    component("ContentId", ContentId)
+    if (requestUri.isEmpty) throw new ODataBatchParseException(s"Invalid request line in batch request: $requestLine")
+    components + ("RequestEntity" -> requestUri)
   }
 
-  def getEntityData: Parser[String] = ("<?xml" ~> parseAtom) | ("{" ~> parseJson) | (lineSeparator.withFailureMessage("Request body must contain an empty line or entity data.") ~> "")
-
-  def parseAtom: Parser[String] = """(?s)((.+?)(?=--|$))""".r ^^ { case data => "<?xml" + data}
-
-  def parseJson: Parser[String] = """(?s)((.+?)(?=--|$))""".r ^^ { case data => "{" + data}
-
-  // Parse and validate top level headers of Change set Request
-  def parseChangeSetHeader: Parser[Map[String, String]] = parseHeaders
+  private def parseQueryBody(part: InputStream): String = {
+    val body = new ByteArrayOutputStream()
+    val buffer = new Array[Byte](BufferSize)
+    var count = part.read(buffer)
+    while (count >= 0) {
+      body.write(buffer, 0, count)
+      count = part.read(buffer)
+    }
 
-  // Parse recursively Individual requests inside a change set
-  def parseChangeSetComponents: Parser[List[BatchRequestComponent]] = rep(parseChangeSetComponent) ^^ {
-    case res => res.toList
+    val entityData = new String(body.toByteArray, UTF_8)
+    if (entityData.isEmpty) entityData
+    else {
+      val trimmed = entityData.trim
+      if (!trimmed.startsWith("<?xml") && !trimmed.startsWith("{")) {
+        throw new ODataBatchParseException("Request body must contain an empty line or entity data.")
+      }
+      trimmed
+    }
   }
 
-  def parseChangeSetComponent: Parser[BatchRequestComponent] = ("--changeset_.+[^-]" + lineSeparator).r ~> parseRequestComponent ^^ {
-    case requestComponent => {
-      if (requestComponent.getRequestDetails().get("RequestType").get.equals("GET")) throw new ODataBatchParseException("ChangeSets must not contain GET requests.")
-      val changeSetRequestComponentHeaders = requestComponent.getHeaders().headers
-
-      if (!changeSetRequestComponentHeaders.contains(ContentIdHeader)) throw new ODataBatchParseException("Each request within a change set MUST specify a Content-ID header")
-
-      val contentID = changeSetRequestComponentHeaders.get(ContentIdHeader).get.toInt
-      if (contentIds.contains(contentID)) throw new ODataBatchParseException("Value of Content-ID header within a change set must be unique")
-      contentIds += contentID
-      requestComponent
+  private def changeSetBoundary(contentType: String): String = {
+    val boundaryStart = contentType.indexOf(BoundaryParameter)
+    if (boundaryStart < 0) {
+      throw new ODataBatchParseException("The Content-Type header of a change set must contain a boundary")
     }
+    val boundary = contentType.substring(boundaryStart + BoundaryParameter.length).takeWhile(_ != ';').trim
+    if (boundary.length > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+      boundary.substring(1, boundary.length - 1)
+    } else boundary
   }
 
-def getRequestURI: Parser[Map[String, String]] = opt("^(http|https):\\/\\/[^\\/]*[:\\d{0,5}]?".r) ~ opt("\\/.+\\/(?=[a-zA-Z])".r) ~ opt("\\$.d{0,5}\\/".r) ~
-    ("[^\\s]+".r <~ opt(" HTTP/\\d\\.\\d".r)) <~ lineSeparator ^^ {
-  case hostComponent ~ relativePath ~ contentId ~ reqUri => {
-      var components = Map("RequestEntity" -> reqUri)
-      relativePath match {
-        case Some(relPath) => components += ("RelativePath" -> relPath)
-        case None =>
-      }
-      hostComponent match {
-        case Some(host) => components += ("RequestHost" -> host)
-        case None =>
+  // Generic header parsing, parsed as name-value pairs up to an empty line
+  private def parseHeaders(part: InputStream,
+                           missingEmptyLineMessage: String = "Headers must be followed by an empty line"
+                          ): Map[String, String] = {
+    var headers = Map[String, String]()
+    var line = readLine(part)
+    while (line != null && !line.trim.isEmpty) {
+      val separator = line.indexOf(':')
+      val name = if (separator > 0) line.substring(0, separator) else ""
+      if (name.isEmpty || !name.forall(c => Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.')) {
+        throw new ODataBatchParseException(s"Invalid header in batch request: $line")
       }
-
-      contentId match {
-        case Some(id) => components += ("ContentId" -> id)
-        case None =>
-      }
-
-      components
+      headers += (name -> line.substring(separator + 1).trim)
+      line = readLine(part)
     }
-
-  }
-
-  def parseChangeSetRequestComponentHeader: Parser[Map[String, String]] = parseHeaders <~ lineSeparator
-
-  // Generic header parsing, parsed as name-value pairs
-  def parseHeaders: Parser[Map[String, String]] = repsep(requestHeaderNameValuePair, lineSeparator) <~ lineSeparator ^^ {
-    res => res.map(s => (s._1, s._2)).toMap
+    if (line == null) throw new ODataBatchParseException(missingEmptyLineMessage)
+    headers
   }
+}
 
-  def requestHeaderNameValuePair: Parser[(String, String)] = (("""(?s)[-\w.]*|\n""".r <~ ":") ~
-    (opt("\\s*".r) ~> """[\w\:\+/,_; \[\].\-\"\'\?=]*""".r)) ^^ {
-    case name ~ value => (name, value)
+object ODataBatchRequestParser {
+  private val BufferSize = 8192
+  private val MaxFirstLineLength = 8192
+  private val BoundaryParameter = "boundary="
+  private val RequestTypes = Set("GET", "POST", "PATCH", "PUT", "DELETE")
+  private val HttpVersion = """HTTP/\d\.\d""".r
+  private val RequestHost = """(?:http|https)://[^/]*""".r
+  private val RelativePath = """/.+/(?=[a-zA-Z])""".r
+  private val ContentId = """\$.d{0,5}/""".r
+
+  // Reads a line of a part, which ends with LF or CRLF; null at the end of the part
+  private def readLine(in: InputStream): String = {
+    val line = new ByteArrayOutputStream()
+    var b = in.read()
+    while (b >= 0 && b != '\n') {
+      line.write(b)
+      b = in.read()
+    }
+    if (b < 0 && line.size() == 0) null
+    else {
+      val bytes = line.toByteArray
+      val length = if (bytes.nonEmpty && bytes.last == '\r') bytes.length - 1 else bytes.length
+      new String(bytes, 0, length, UTF_8)
+    }
   }
-
 }
@@ -0,0 +1,1342 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import java.time.{LocalDate, LocalTime, ZonedDateTime}
+import java.util.UUID
+
+import com.sdl.odata.api.edm.model.{EntityDataModel, MetaType, StructuralProperty}
+import com.sdl.odata.api.parser._
+import com.sdl.odata.api.service.MediaType
+
+import scala.collection.mutable.ListBuffer
+import scala.util.control.{ControlThrowable, NonFatal}
+
+/**
+ * Hand-written recursive-descent parser for OData URIs.
+ *
+ * Every rule mirrors the rule of the same name in [[ODataUriParser]] and its traits: alternatives are tried in the same
+ * order, the first one that matches wins, and a rule that does not match leaves the input where it was, exactly like
+ * the combinators. So a URI that this parser accepts is parsed into the same `ODataUri`. The grammar is not tokenized
+ * up front, because what a token is depends on where it occurs (whitespace is significant in expressions, and
+ * `$skiptoken` or custom options allow characters that identifiers do not); instead the rules scan the decoded path
+ * and each decoded query option of the [[TokenizedUri]] in place, with a cursor.
+ *
+ * Only the URIs that make up almost all requests are covered: entity sets and singletons with key predicates and
+ * paths into them, `$metadata`, `$batch`, and the common query options and expressions. When the URI uses anything
+ * else - functions, actions, `$entity`, `$crossjoin`, `$all`, `$apply`, `$search`, `$root`, `isof`, `cast`, lambda
+ * operators, enum, binary, duration or geo literals - or when it does not parse, `parseUri` returns `None`; the URI
+ * must then be parsed by [[ODataUriParser]], which also produces the error message.
+ *
+ * An instance parses one URI at a time.
+ */
+class ODataUriDescentParser(val entityDataModel: EntityDataModel, val limits: ParserLimits)
+  extends EntityDataModelHelpers with ParserLimitsChecks {
+  import ODataUriDescentParser._
+
+  def this(entityDataModel: EntityDataModel) = this(entityDataModel, ParserLimits.Unlimited)
+
+  private var input: String = ""
+  private var pos: Int = 0
+
+  def parseUri(uri: String): Option[ODataUri] = try {
+    val tokenizedUri = new TokenizedUri(uri)
+    Option(parseQueryOptions(tokenizedUri)).orElse {
+      resetLimitsChecks()
+      Option(parse(tokenizedUri.decoded, odataUri()))
+    }
+  } catch {
+    case Unsupported => None
+    case e: ODataUriParseException => throw e
+    case NonFatal(_) => None
+  }
+
+  // Like ODataUriParser.parseQueryOptions, null instead of None
+  private def parseQueryOptions(uri: TokenizedUri): ODataUri = if (!uri.hasQuery) null else {
+    resetLimitsChecks()
+    parse(uri.path, odataUri()) match {
+      case ODataUri(serviceRoot, ResourcePathUri(resourcePath, Nil)) =>
+        val contextTypeName = resolveResourcePathTypeName(resourcePath)
+        val options = uri.queryOptions.map(option => parse(option.value, queryOption(contextTypeName)))
+        if (options.contains(null)) null else ODataUri(serviceRoot, ResourcePathUri(resourcePath, options.toList))
+      case _ => null
+    }
+  }
+
+  // The result of the rule if it matches all of the text, or null
+  private def parse[T <: AnyRef](text: String, rule: => T): T = {
+    input = text
+    pos = 0
+    val result = rule
+    if (pos == input.length) result else null.asInstanceOf[T]
+  }
+
+  // Everything up to the last ".svc" (case-insensitive) on the first line is the service root, like the regular
+  // expression in ODataUriParser.serviceRoot
+  private def serviceRootEnd(): Int = {
+    var lineEnd = 0
+    while (lineEnd < input.length && !isLineTerminator(input.charAt(lineEnd))) lineEnd += 1
+    var i = lineEnd - ".svc".length
+    while (i >= 0 && !(input.charAt(i) == '.' && matchesIgnoreCase(i + 1, "svc"))) i -= 1
+    if (i < 0) -1 else i + ".svc".length
+  }
+
+  private def odataUri(): ODataUri = {
+    val rootEnd = serviceRootEnd()
+    if (rootEnd < 0) null
+    else {
+      val serviceRoot = input.substring(0, rootEnd)
+      pos = rootEnd
+      accept('/')
+      val relativeUriStart = pos
+      val relativeUri = odataRelativeUri()
+      if (relativeUri != null) ODataUri(serviceRoot, relativeUri)
+      else {
+        pos = relativeUriStart
+        ODataUri(serviceRoot, ServiceRootUri(optionalFormat()))
+      }
+    }
+  }
+
+  private def odataRelativeUri(): RelativeUri =
+    if (accept("$batch")) BatchUri
+    else if (at("$entity")) throw Unsupported
+    else if (accept("$metadata")) {
+      accept('/')
+      val format = optionalFormat()
+      if (at("#")) throw Unsupported
+      MetadataUri(format, None)
+    }
+    else resourcePathUri()
+
+  private def optionalFormat(): Option[MediaType] = {
+    val start = pos
+    val format = if (accept('?')) formatMediaType() else null
+    if (format == null) { pos = start; None } else Some(format)
+  }
+
+  private def resourcePathUri(): ResourcePathUri = {
+    val resourcePath = this.resourcePath()
+    if (resourcePath == null) null
+    else {
+      val optionsStart = pos
+      val options = if (accept('?')) queryOptions(resolveResourcePathTypeName(resourcePath)) else null
+      if (options == null) {
+        pos = optionsStart
+        ResourcePathUri(resourcePath, List.empty)
+      } else ResourcePathUri(resourcePath, options)
+    }
+  }
+
+  // ----- Resource paths, see ResourcePathParser
+
+  private def resourcePath(): ResourcePath = {
+    val name = identifier()
+    if (name == null) {
+      if (at("$crossjoin(") || at("$all")) throw Unsupported
+      null
+    } else if (isEntitySet(name)) {
+      EntitySetPath(name, Option(collectionNavigation(getEntitySetTypeName(name).get)))
+    } else if (isSingleton(name)) {
+      SingletonPath(name, Option(singleNavigation(getSingletonTypeName(name).get)))
+    } else if (isActionImport(name) || isFunctionImport(name)) {
+      throw Unsupported
+    } else {
+      pos -= name.length
+      null
+    }
+  }
+
+  private def collectionNavigation(contextTypeName: String): EntityCollectionPath = {
+    val derivedTypeName = typeNameAfterSlash(MetaType.ENTITY)
+    val subPath = collectionNavPath(derivedTypeName.getOrElse(contextTypeName))
+    if (derivedTypeName.isEmpty && subPath == null) null
+    else EntityCollectionPath(derivedTypeName, Option(subPath))
+  }
+
+  private def collectionNavPath(contextTypeName: String): PathSegment = {
+    val keyPredicate = this.keyPredicate(contextTypeName)
+    if (keyPredicate != null) KeyPredicatePath(keyPredicate, Option(singleNavigation(contextTypeName)))
+    else {
+      val collectionPath = this.collectionPath(contextTypeName)
+      if (collectionPath != null) collectionPath
+      else if (accept("/$ref")) RefPath
+      else null
+    }
+  }
+
+  private def keyPredicate(contextTypeName: String): KeyPredicate = {
+    val start = pos
+    if (!accept('(')) null
+    else {
+      val value = primitiveLiteral()
+      if (value != null && accept(')')) SimpleKeyPredicate(value)
+      else {
+        pos = start + 1
+        val values = rep1sep(keyValuePair(), accept(','))
+        if (values != null && accept(')')) CompoundKeyPredicate(values.toMap)
+        else {
+          pos = start
+          null
+        }
+      }
+    }
+  }
+
+  // Key property names and key property aliases are both identifiers
+  private def keyValuePair(): (String, Literal) = {
+    val start = pos
+    val name = identifier()
+    val value = if (name != null && accept('=')) primitiveLiteral() else null
+    if (value != null) (name, value)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def singleNavigation(contextTypeName: String): EntityPath = {
+    val derivedTypeName = typeNameAfterSlash(MetaType.ENTITY)
+    val subPath = singleNavPath(derivedTypeName.getOrElse(contextTypeName))
+    if (derivedTypeName.isEmpty && subPath == null) null
+    else EntityPath(derivedTypeName, Option(subPath))
+  }
+
+  private def singleNavPath(contextTypeName: String): PathSegment = {
+    val propertyPath = if (at("/")) this.propertyPath(pos + 1, contextTypeName) else null
+    if (propertyPath != null) propertyPath
+    else {
+      if (at("/")) rejectOperationCall(pos + 1, isActionOrFunction)
+      if (accept("/$ref")) RefPath
+      else if (accept("/$value")) ValuePath
+      else null
+    }
+  }
+
+  private def propertyPath(from: Int, contextTypeName: String): PropertyPath = {
+    val start = pos
+    pos = from
+    val name = identifier()
+    val property = if (name != null) getStructuralProperty(contextTypeName, name).orNull else null
+    propertyKind(property) match {
+      case EntityProperty =>
+        PropertyPath(name, Option(singleNavigation(getSinglePropertyTypeName(contextTypeName, name).get)))
+      case EntityCollectionProperty =>
+        PropertyPath(name, Option(collectionNavigation(getPropertyElementTypeName(contextTypeName, name).get)))
+      case ComplexProperty =>
+        PropertyPath(name, Option(complexPath(getSinglePropertyTypeName(contextTypeName, name).get)))
+      case ComplexCollectionProperty =>
+        PropertyPath(name, Option(collectionPath(getPropertyElementTypeName(contextTypeName, name).get)))
+      case PrimitiveProperty =>
+        PropertyPath(name, Option(singlePath(getSinglePropertyTypeName(contextTypeName, name).get)))
+      case PrimitiveCollectionProperty =>
+        PropertyPath(name, Option(collectionPath(getPropertyElementTypeName(contextTypeName, name).get)))
+      case _ =>
+        pos = start
+        null
+    }
+  }
+
+  private def collectionPath(contextTypeName: String): PathSegment =
+    if (accept("/$count")) CountPath
+    else {
+      if (at("/")) rejectOperationCall(pos + 1, isActionOrFunction)
+      null
+    }
+
+  private def singlePath(contextTypeName: String): PathSegment =
+    if (accept("/$value")) ValuePath
+    else {
+      rejectOperationCall(pos, isActionOrFunction)
+      null
+    }
+
+  private def complexPath(contextTypeName: String): ComplexPath = {
+    val start = pos
+    val derivedTypeName = typeNameAfterSlash(MetaType.COMPLEX)
+    val complexTypeName = derivedTypeName.getOrElse(contextTypeName)
+    val subPath = if (at("/")) propertyPath(pos + 1, complexTypeName) else null
+    if (subPath != null) ComplexPath(derivedTypeName, Some(subPath))
+    else {
+      if (at("/")) rejectOperationCall(pos + 1, isActionOrFunction)
+      pos = start
+      null
+    }
+  }
+
+  // ----- Query options, see QueryOptionsParser
+
+  private def queryOptions(contextTypeName: String): List[QueryOption] =
+    rep1sep(queryOption(contextTypeName), accept('&'))
+
+  private def queryOption(contextTypeName: String): QueryOption = {
+    val systemQueryOption = this.systemQueryOption(contextTypeName)
+    if (systemQueryOption != null) systemQueryOption
+    else {
+      val aliasAndValue = this.aliasAndValue(contextTypeName)
+      if (aliasAndValue != null) aliasAndValue else customQueryOption()
+    }
+  }
+
+  // The system query options all start with a different "$name=", so at most one of them can match
+  private def systemQueryOption(contextTypeName: String): SystemQueryOption =
+    if (at("$expand=")) expand(contextTypeName)
+    else if (at("$filter=")) filter(contextTypeName)
+    else if (at("$format=")) format()
+    else if (at("$id=")) id()
+    else if (at("$count=")) inlinecount()
+    else if (at("$orderby=")) orderby(contextTypeName)
+    else if (at("$search=")) throw Unsupported
+    else if (at("$select=")) select(contextTypeName)
+    else if (at("$skip=")) skip()
+    else if (at("$skiptoken=")) skiptoken()
+    else if (at("$top=")) top()
+    else if (at("$apply=")) throw Unsupported
+    else null
+
+  private def expand(contextTypeName: String): ExpandOption = {
+    val start = pos
+    accept("$expand=")
+    val items = nestedExpand(rep1sep(expandItem(contextTypeName), accept(',')))
+    if (items != null) ExpandOption(items)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def expandItem(contextTypeName: String): ExpandItem =
+    if (accept("*/$ref")) AllRefExpandItem
+    else if (accept('*')) {
+      val start = pos
+      val levels = if (accept('(')) this.levels() else null
+      if (levels != null && accept(')')) AllExpandItem(List(levels))
+      else {
+        pos = start
+        AllExpandItem(List.empty)
+      }
+    }
+    else pathExpandItem(contextTypeName)
+
+  // The $ref, $count and plain path expand items share everything up to the "/$ref" or "/$count"
+  private def pathExpandItem(contextTypeName: String): ExpandItem = {
+    val start = pos
+    val derivedTypeName = typeNameBeforeSlash(MetaType.ENTITY)
+    val path = expandPathSegment(derivedTypeName.getOrElse(contextTypeName))
+    if (path == null) {
+      pos = start
+      null
+    } else if (accept("/$ref")) {
+      val pathTypeName = resolvePathTypeName(contextTypeName, path)
+      PathRefExpandItem(derivedTypeName, path, expandOptions(expandRefOption(pathTypeName)))
+    } else if (accept("/$count")) {
+      val pathTypeName = resolvePathTypeName(contextTypeName, path)
+      PathCountExpandItem(derivedTypeName, path, expandOptions(expandCountOption(pathTypeName)))
+    } else {
+      val pathTypeName = resolvePathTypeName(contextTypeName, path)
+      PathExpandItem(derivedTypeName, path, expandOptions(expandOption(pathTypeName)))
+    }
+  }
+
+  private def expandPathSegment(contextTypeName: String): ExpandPathSegment = {
+    val start = pos
+    val name = identifier()
+    val property = if (name != null) getStructuralProperty(contextTypeName, name).orNull else null
+    propertyKind(property) match {
+      case kind @ (ComplexProperty | ComplexCollectionProperty) if accept('/') =>
+        val derivedTypeName = typeNameBeforeSlash(MetaType.COMPLEX)
+        val subPathContextTypeName = derivedTypeName.orElse(
+          if (kind == ComplexProperty) getSinglePropertyTypeName(contextTypeName, name)
+          else getPropertyElementTypeName(contextTypeName, name)).get
+        val subPath = expandPathSegment(subPathContextTypeName)
+        if (subPath != null) ComplexPropertyExpandPathSegment(name, derivedTypeName, subPath)
+        else {
+          pos = start
+          null
+        }
+      case EntityProperty | EntityCollectionProperty =>
+        NavigationPropertyExpandPathSegment(name, typeNameAfterSlash(MetaType.ENTITY))
+      case _ =>
+        pos = start
+        null
+    }
+  }
+
+  // Options in parentheses after an expand item, or an empty list
+  private def expandOptions(option: => QueryOption): List[QueryOption] = {
+    val start = pos
+    val options = if (accept('(')) rep1sep(option, accept(';')) else null
+    if (options != null && accept(')')) options
+    else {
+      pos = start
+      List.empty
+    }
+  }
+
+  private def expandOption(contextTypeName: String): QueryOption = {
+    val expandRefOption = this.expandRefOption(contextTypeName)
+    if (expandRefOption != null) expandRefOption
+    else if (at("$select=")) select(contextTypeName)
+    else if (at("$apply=")) throw Unsupported
+    else if (at("$expand=")) expand(contextTypeName)
+    else if (at("$levels=")) levels()
+    else null
+  }
+
+  private def expandRefOption(contextTypeName: String): QueryOption = {
+    val expandCountOption = this.expandCountOption(contextTypeName)
+    if (expandCountOption != null) expandCountOption
+    else if (at("$orderby=")) orderby(contextTypeName)
+    else if (at("$skip=")) skip()
+    else if (at("$top=")) top()
+    else if (at("$count=")) inlinecount()
+    else null
+  }
+
+  private def expandCountOption(contextTypeName: String): QueryOption =
+    if (at("$filter=")) filter(contextTypeName)
+    else if (at("$search=")) throw Unsupported
+    else null
+
+  private def levels(): LevelsQueryOption = {
+    val start = pos
+    if (!accept("$levels=")) null
+    else {
+      val digitsEnd = digits(pos)
+      if (digitsEnd > pos) LevelsQueryOption(consumeTo(digitsEnd).toInt)
+      else if (accept("max")) LevelsQueryOption(Int.MaxValue)
+      else {
+        pos = start
+        null
+      }
+    }
+  }
+
+  private def filter(contextTypeName: String): FilterOption = {
+    val start = pos
+    accept("$filter=")
+    val expression = boolCommonExpr(contextTypeName)
+    if (expression != null) FilterOption(expression)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def orderby(contextTypeName: String): OrderByOption = {
+    val start = pos
+    accept("$orderby=")
+    val items = rep1sep(orderbyItem(contextTypeName), accept(','))
+    if (items != null) OrderByOption(items)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def orderbyItem(contextTypeName: String): OrderByItem = {
+    val expression = commonExpr(contextTypeName)
+    if (expression == null) null
+    else {
+      val start = pos
+      if (skipWhitespace() > 0 && accept("asc")) AscendingOrderByItem(expression)
+      else if (pos > start && accept("desc")) DescendingOrderByItem(expression)
+      else {
+        pos = start
+        AscendingOrderByItem(expression)
+      }
+    }
+  }
+
+  private def skip(): SkipOption = {
+    val value = digitsOption("$skip=")
+    if (value != null) SkipOption(value.toInt) else null
+  }
+
+  private def top(): TopOption = {
+    val value = digitsOption("$top=")
+    if (value != null) TopOption(value.toInt) else null
+  }
+
+  private def digitsOption(prefix: String): String = {
+    val start = pos
+    accept(prefix)
+    val digitsEnd = digits(pos)
+    if (digitsEnd > pos) consumeTo(digitsEnd)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def format(): FormatOption = {
+    val mediaType = formatMediaType()
+    if (mediaType != null) FormatOption(mediaType) else null
+  }
+
+  private def formatMediaType(): MediaType = {
+    val start = pos
+    if (!accept("$format=")) null
+    else if (acceptIgnoreCase("atom")) MediaType.ATOM_XML
+    else if (acceptIgnoreCase("json")) MediaType.JSON
+    else if (acceptIgnoreCase("xml")) MediaType.XML
+    else {
+      val typeEnd = scan(pos, MediaTypeCharacters)
+      if (typeEnd > pos && typeEnd < input.length && input.charAt(typeEnd) == '/') {
+        val subTypeEnd = scan(typeEnd + 1, MediaTypeCharacters)
+        if (subTypeEnd > typeEnd + 1) {
+          val mediaType = new MediaType(input.substring(pos, typeEnd), input.substring(typeEnd + 1, subTypeEnd))
+          pos = subTypeEnd
+          mediaType
+        } else {
+          pos = start
+          null
+        }
+      } else {
+        pos = start
+        null
+      }
+    }
+  }
+
+  private def id(): IdOption = {
+    val start = pos
+    accept("$id=")
+    val valueEnd = input.indexOf('&', pos) match {
+      case -1 => input.length
+      case ampersand => ampersand
+    }
+    if (valueEnd > pos) IdOption(consumeTo(valueEnd))
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def inlinecount(): CountOption = {
+    val start = pos
+    accept("$count=")
+    if (acceptIgnoreCase("true")) CountOption(true)
+    else if (acceptIgnoreCase("false")) CountOption(false)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def select(contextTypeName: String): SelectOption = {
+    val start = pos
+    accept("$select=")
+    val items = rep1sep(selectItem(contextTypeName), accept(','))
+    if (items != null) SelectOption(items)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  // Action and function select items are not supported by the grammar; they never match
+  private def selectItem(contextTypeName: String): SelectItem =
+    if (accept('*')) AllSelectItem
+    else {
+      val start = pos
+      val namespace = this.namespace()
+      if (namespace != null && accept('*')) SchemaAllSelectItem(namespace.substring(0, namespace.length - 1))
+      else {
+        pos = start
+        val derivedTypeName = typeNameBeforeSlash(MetaType.ENTITY)
+        val path = selectPathSegment(derivedTypeName.getOrElse(contextTypeName))
+        if (path != null) PathSelectItem(derivedTypeName, path)
+        else {
+          pos = start
+          null
+        }
+      }
+    }
+
+  private def selectPathSegment(contextTypeName: String): SelectPathSegment = {
+    val start = pos
+    val name = identifier()
+    val property = if (name != null) getStructuralProperty(contextTypeName, name).orNull else null
+    propertyKind(property) match {
+      case kind @ (ComplexProperty | ComplexCollectionProperty) =>
+        val derivedTypeName = typeNameAfterSlash(MetaType.COMPLEX)
+        val subPathContextTypeName = derivedTypeName.orElse(
+          if (kind == ComplexProperty) getSinglePropertyTypeName(contextTypeName, name)
+          else getPropertyElementTypeName(contextTypeName, name)).get
+        ComplexPropertySelectPathSegment(name, derivedTypeName, Option(selectPathSegment(subPathContextTypeName)))
+      case PrimitiveProperty | PrimitiveCollectionProperty | EntityProperty | EntityCollectionProperty =>
+        TerminalPropertySelectPathSegment(name)
+      case _ =>
+        pos = start
+        null
+    }
+  }
+
+  private def skiptoken(): SkipTokenOption = {
+    val start = pos
+    accept("$skiptoken=")
+    val tokenEnd = scan(pos, SkipTokenCharacters)
+    if (tokenEnd > pos) SkipTokenOption(consumeTo(tokenEnd))
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def aliasAndValue(contextTypeName: String): AliasAndValueOption = {
+    val start = pos
+    val alias = if (accept('@')) identifier() else null
+    val value = if (alias != null && accept('=')) commonExpr(contextTypeName) else null
+    if (value != null) AliasAndValueOption(alias, value)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def customQueryOption(): CustomOption =
+    if (pos >= input.length || !isAllowed(input.charAt(pos), CustomNameFirstCharacters)) null
+    else {
+      val name = consumeTo(scan(pos + 1, CustomNameCharacters))
+      val value = if (accept('=')) Some(consumeTo(scan(pos, CustomValueCharacters))) else None
+      CustomOption(name, value)
+    }
+
+  // ----- Expressions, see ExpressionsParser
+
+  private def commonExpr(contextTypeName: String): Expression = {
+    val left = commonExprPart1(contextTypeName)
+    if (left == null) null
+    else {
+      val start = pos
+      val additiveExpr = counted {
+        if (acceptOperator("add")) binary(left, commonExpr(contextTypeName), AddExpr)
+        else if (acceptOperator("sub")) binary(left, commonExpr(contextTypeName), SubExpr)
+        else null
+      }
+      if (additiveExpr != null) additiveExpr
+      else {
+        pos = start
+        left
+      }
+    }
+  }
+
+  private def commonExprPart1(contextTypeName: String): Expression = {
+    val left = commonExprPart2(contextTypeName)
+    if (left == null) null
+    else {
+      val start = pos
+      val multiplicativeExpr = counted {
+        if (acceptOperator("mul")) binary(left, commonExprPart1(contextTypeName), MulExpr)
+        else if (acceptOperator("div")) binary(left, commonExprPart1(contextTypeName), DivExpr)
+        else if (acceptOperator("mod")) binary(left, commonExprPart1(contextTypeName), ModExpr)
+        else null
+      }
+      if (multiplicativeExpr != null) multiplicativeExpr
+      else {
+        pos = start
+        left
+      }
+    }
+  }
+
+  private def binary[T <: Expression](left: Expression, right: Expression, expr: (Expression, Expression) => T): T =
+    if (right != null) expr(left, right) else null.asInstanceOf[T]
+
+  // An expression counted against the maximum size of the ParserLimits, if it is produced
+  private def counted[T <: AnyRef](expression: => T): T = countedExpression(expression)(_ != null)
+
+  private def commonExprPart2(contextTypeName: String): Expression = counted {
+    val literal = primitiveLiteral()
+    var expression: Expression = if (literal != null) LiteralExpr(literal) else paramAliasExpr()
+    if (expression == null) {
+      if (at("$root/")) throw Unsupported
+      rejectOperationCall(pos, isFunction)
+      expression = negateExpr(contextTypeName)
+    }
+    if (expression == null) expression = methodCallExpr(contextTypeName)
+    if (expression == null) expression = parenExpr(contextTypeName)
+    if (expression == null) {
+      if (at("cast(")) throw Unsupported
+      expression = firstMemberExpr(contextTypeName)
+    }
+    expression
+  }
+
+  private def paramAliasExpr(): ParameterAliasExpr = {
+    val start = pos
+    val alias = if (accept('@')) identifier() else null
+    if (alias != null) ParameterAliasExpr(alias)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def negateExpr(contextTypeName: String): NegateExpr = {
+    val start = pos
+    if (!accept('-')) null
+    else {
+      skipWhitespace()
+      val expression = nestedExpression(commonExprPart2(contextTypeName))
+      if (expression != null) NegateExpr(expression)
+      else {
+        pos = start
+        null
+      }
+    }
+  }
+
+  private def methodCallExpr(contextTypeName: String): MethodCallExpr = {
+    val start = pos
+    val methodName = firstPrefix(MethodNames)
+    val args = if (methodName != null) arguments(contextTypeName) else null
+    if (args != null) MethodCallExpr(methodName, args)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  // Arguments of a method call: "(", expressions separated by ",", ")", all with optional whitespace
+  private def arguments(contextTypeName: String): List[Expression] = {
+    val start = pos
+    if (!accept('(')) null
+    else {
+      skipWhitespace()
+      val args = repsep(nestedExpression(commonExpr(contextTypeName)), acceptSeparator(','))
+      if (acceptClosing(')')) args
+      else {
+        pos = start
+        null
+      }
+    }
+  }
+
+  private def parenExpr(contextTypeName: String): Expression = {
+    val start = pos
+    if (!accept('(')) null
+    else {
+      skipWhitespace()
+      val expression = nestedExpression(commonExpr(contextTypeName))
+      if (expression != null && acceptClosing(')')) expression
+      else {
+        pos = start
+        null
+      }
+    }
+  }
+
+  private def firstMemberExpr(contextTypeName: String): PathExpr = {
+    val memberExpr = this.memberExpr(contextTypeName)
+    if (memberExpr != null) memberExpr
+    else if (accept("$it")) ImplicitVariableExpr(Option(singleNavigationExpr(ImplicitVariableTypeName)))
+    else null
+  }
+
+  private def memberExpr(contextTypeName: String): EntityPathExpr = {
+    val start = pos
+    val derivedTypeName = typeNameBeforeSlash(MetaType.ENTITY)
+    val subPath = propertyPathExpr(derivedTypeName.getOrElse(contextTypeName))
+    if (subPath != null) EntityPathExpr(derivedTypeName, Some(subPath))
+    else {
+      rejectOperationCall(pos, isFunction)
+      pos = start
+      null
+    }
+  }
+
+  private def propertyPathExpr(contextTypeName: String): PropertyPathExpr = {
+    val start = pos
+    val name = identifier()
+    val property = if (name != null) getStructuralProperty(contextTypeName, name).orNull else null
+    propertyKind(property) match {
+      case EntityProperty =>
+        PropertyPathExpr(name, Option(singleNavigationExpr(getSinglePropertyTypeName(contextTypeName, name).get)))
+      case EntityCollectionProperty =>
+        PropertyPathExpr(name,
+          Option(collectionNavigationExpr(getPropertyElementTypeName(contextTypeName, name).get)))
+      case ComplexProperty =>
+        PropertyPathExpr(name, Option(complexPathExpr(getSinglePropertyTypeName(contextTypeName, name).get)))
+      case ComplexCollectionProperty =>
+        PropertyPathExpr(name, Option(collectionPathExpr(getPropertyElementTypeName(contextTypeName, name).get)))
+      case PrimitiveProperty =>
+        PropertyPathExpr(name, Option(singlePathExpr(getSinglePropertyTypeName(contextTypeName, name).get)))
+      case PrimitiveCollectionProperty =>
+        PropertyPathExpr(name, Option(collectionPathExpr(getPropertyElementTypeName(contextTypeName, name).get)))
+      case _ =>
+        pos = start
+        null
+    }
+  }
+
+  private def singleNavigationExpr(contextTypeName: String): EntityPathExpr = {
+    val start = pos
+    val memberExpr = if (accept('/')) this.memberExpr(contextTypeName) else null
+    if (memberExpr == null) pos = start
+    memberExpr
+  }
+
+  private def collectionNavigationExpr(contextTypeName: String): EntityCollectionPathExpr = {
+    val start = pos
+    val derivedTypeName = typeNameAfterSlash(MetaType.ENTITY)
+    val entityTypeName = derivedTypeName.getOrElse(contextTypeName)
+    val keyPredicate = this.keyPredicate(entityTypeName)
+    val subPath =
+      if (keyPredicate != null) KeyPredicatePathExpr(keyPredicate, Option(singleNavigationExpr(entityTypeName)))
+      else collectionPathExpr(entityTypeName)
+    if (subPath != null) EntityCollectionPathExpr(derivedTypeName, Some(subPath))
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def collectionPathExpr(contextTypeName: String): PathExpr =
+    if (accept("/$count")) CountPathExpr
+    else {
+      if (at("/")) {
+        rejectOperationCall(pos + 1, isFunction)
+        if (at("/any(") || at("/all(")) throw Unsupported
+      }
+      null
+    }
+
+  private def complexPathExpr(contextTypeName: String): ComplexPathExpr = {
+    val start = pos
+    if (!accept('/')) null
+    else {
+      val derivedTypeName = typeNameBeforeSlash(MetaType.COMPLEX)
+      val subPath = propertyPathExpr(derivedTypeName.getOrElse(contextTypeName))
+      if (subPath != null) ComplexPathExpr(derivedTypeName, Some(subPath))
+      else {
+        rejectOperationCall(pos, isFunction)
+        pos = start
+        null
+      }
+    }
+  }
+
+  private def singlePathExpr(contextTypeName: String): PathExpr = {
+    if (at("/")) rejectOperationCall(pos + 1, isFunction)
+    null
+  }
+
+  private def boolCommonExpr(contextTypeName: String): BooleanExpr = {
+    val left = boolCommonExprPart1(contextTypeName)
+    if (left == null) null
+    else {
+      val start = pos
+      val right = counted(if (acceptOperator("or")) boolCommonExpr(contextTypeName) else null)
+      if (right != null) OrExpr(left, right)
+      else {
+        pos = start
+        left
+      }
+    }
+  }
+
+  private def boolCommonExprPart1(contextTypeName: String): BooleanExpr = {
+    val left = boolCommonExprPart2(contextTypeName)
+    if (left == null) null
+    else {
+      val start = pos
+      val right = counted(if (acceptOperator("and")) boolCommonExprPart1(contextTypeName) else null)
+      if (right != null) AndExpr(left, right)
+      else {
+        pos = start
+        left
+      }
+    }
+  }
+
+  private def boolCommonExprPart2(contextTypeName: String): BooleanExpr = {
+    if (at("isof(")) throw Unsupported
+    var expression: BooleanExpr = boolMethodCallExpr(contextTypeName)
+    if (expression == null) expression = notExpr(contextTypeName)
+    if (expression == null) expression = comparisonExpr(contextTypeName)
+    if (expression == null) expression = boolParenExpr(contextTypeName)
+    expression
+  }
+
+  private def boolMethodCallExpr(contextTypeName: String): BooleanMethodCallExpr = counted {
+    val start = pos
+    val methodName = firstPrefix(BoolMethodNames)
+    val args = if (methodName != null) arguments(contextTypeName) else null
+    if (args != null) BooleanMethodCallExpr(methodName, args)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  private def notExpr(contextTypeName: String): NotExpr = counted {
+    val start = pos
+    val expression =
+      if (accept("not") && skipWhitespace() > 0) nestedExpression(boolCommonExprPart2(contextTypeName)) else null
+    if (expression != null) NotExpr(expression)
+    else {
+      pos = start
+      null
+    }
+  }
+
+  // A comparison operator has whitespace on both sides, so at most one of them can match
+  private def comparisonExpr(contextTypeName: String): ComparisonExpr = counted {
+    val start = pos
+    val left = commonExpr(contextTypeName)
+    val comparisonExpr = if (left == null) null
+      else if (acceptOperator("eq")) binary(left, commonExpr(contextTypeName), EqExpr)
+      else if (acceptOperator("ne")) binary(left, commonExpr(contextTypeName), NeExpr)
+      else if (acceptOperator("lt")) binary(left, commonExpr(contextTypeName), LtExpr)
+      else if (acceptOperator("le")) binary(left, commonExpr(contextTypeName), LeExpr)
+      else if (acceptOperator("gt")) binary(left, commonExpr(contextTypeName), GtExpr)
+      else if (acceptOperator("ge")) binary(left, commonExpr(contextTypeName), GeExpr)
+      else if (acceptOperator("has")) binary(left, commonExpr(contextTypeName), HasExpr)
+      else null
+    if (comparisonExpr == null) pos = start
+    comparisonExpr
+  }
+
+  private def boolParenExpr(contextTypeName: String): BooleanExpr = {
+    val start = pos
+    if (!accept('(')) null
+    else {
+      skipWhitespace()
+      val expression = nestedExpression(boolCommonExpr(contextTypeName))
+      if (expression != null && acceptClosing(')')) expression
+      else {
+        pos = start
+        null
+      }
+    }
+  }
+
+  // ----- Literals, see LiteralsParser
+
+  private def primitiveLiteral(): Literal =
+    if (accept("null")) NullLiteral
+    else if (acceptIgnoreCase("true")) TrueLiteral
+    else if (acceptIgnoreCase("false")) FalseLiteral
+    else {
+      var literal: Literal = guidLiteral()
+      if (literal == null) literal = dateOrTimeLiteral()
+      if (literal == null) literal = stringLiteral()
+      if (literal == null) {
+        val start = pos
+        val enumTypeName = qualifiedName(MetaType.ENUM)
+        pos = start
+        // LiteralsParser.binaryLiteral starts with the text "(?i)binary'", not with a regular expression
+        if (enumTypeName != null || atIgnoreCase("binary'") || at("(?i)binary'")) throw Unsupported
+        literal = numberLiteral()
+      }
+      if (literal == null && (atIgnoreCase("geography'") || atIgnoreCase("geometry'"))) throw Unsupported
+      literal
+    }
+
+  private def guidLiteral(): GuidLiteral =
+    if (matchesGuid(pos)) GuidLiteral(UUID.fromString(consumeTo(pos + GuidLength))) else null
+
+  private def matchesGuid(from: Int): Boolean = from + GuidLength <= input.length && {
+    var i = 0
+    var matches = true
+    while (matches && i < GuidLength) {
+      val c = input.charAt(from + i)
+      matches = if (i == 8 || i == 13 || i == 18 || i == 23) c == '-' else Character.digit(c, 16) >= 0 && c < 0x80
+      i += 1
+    }
+    matches
+  }
+
+  // In the order of LiteralsParser.dateOrTimeLiteral; the value must also be a valid date or time
+  private def dateOrTimeLiteral(): Literal = {
+    val dateTimeEnd = matchDateTime(pos)
+    val dateTime = if (dateTimeEnd > 0) parseOrNull(ZonedDateTime.parse(input.substring(pos, dateTimeEnd))) else null
+    if (dateTime != null) {
+      pos = dateTimeEnd
+      DateTimeLiteral(dateTime)
+    } else {
+      val dateEnd = matchDate(pos)
+      val date = if (dateEnd > 0) parseOrNull(LocalDate.parse(input.substring(pos, dateEnd))) else null
+      if (date != null) {
+        pos = dateEnd
+        LocalDateLiteral(date)
+      } else {
+        val timeEnd = matchTime(pos)
+        val time = if (timeEnd > 0) parseOrNull(LocalTime.parse(input.substring(pos, timeEnd))) else null
+        if (time != null) {
+          pos = timeEnd
+          LocalTimeLiteral(time)
+        } else {
+          if (atIgnoreCase("duration'")) throw Unsupported
+          null
+        }
+      }
+    }
+  }
+
+  private def parseOrNull[T <: AnyRef](value: => T): T = try value catch {
+    case NonFatal(_) => null.asInstanceOf[T]
+  }
+
+  // \d{4}-\d{2}-\d{2}
+  private def matchDate(from: Int): Int =
+    if (digitsAt(from, 4) && charAt(from + 4) == '-' && digitsAt(from + 5, 2) && charAt(from + 7) == '-' &&
+      digitsAt(from + 8, 2)) from + 10
+    else -1
+
+  // \d{2}:\d{2}(:\d{2}(\.\d{1,9})?)?
+  private def matchTime(from: Int): Int =
+    if (digitsAt(from, 2) && charAt(from + 2) == ':' && digitsAt(from + 3, 2)) {
+      if (charAt(from + 5) == ':' && digitsAt(from + 6, 2)) {
+        val fractionEnd = if (charAt(from + 8) == '.') digits(from + 9) else from + 9
+        if (fractionEnd > from + 9) math.min(fractionEnd, from + 9 + MaxFractionDigits) else from + 8
+      } else from + 5
+    } else -1
+
+  // \d{4}-\d{2}-\d{2}T\d{2}:\d{2}(:\d{2}(\.d{1,9})?)?(Z|((\+|-)\d{2}:\d{2})), literally, including the "\.d{1,9}"
+  private def matchDateTime(from: Int): Int =
+    if (matchDate(from) < 0 || charAt(from + 10) != 'T' || !digitsAt(from + 11, 2) || charAt(from + 13) != ':' ||
+      !digitsAt(from + 14, 2)) -1
+    else {
+      val minutesEnd = from + 16
+      val offsetEnd = if (charAt(minutesEnd) == ':' && digitsAt(minutesEnd + 1, 2)) {
+        val secondsEnd = minutesEnd + 3
+        var ds = 0
+        if (charAt(secondsEnd) == '.') while (ds < MaxFractionDigits && charAt(secondsEnd + 1 + ds) == 'd') ds += 1
+        val withFraction = if (ds > 0) matchOffset(secondsEnd + 1 + ds) else -1
+        if (withFraction > 0) withFraction else matchOffset(secondsEnd)
+      } else -1
+      if (offsetEnd > 0) offsetEnd else matchOffset(minutesEnd)
+    }
+
+  private def matchOffset(from: Int): Int =
+    if (charAt(from) == 'Z') from + 1
+    else if ((charAt(from) == '+' || charAt(from) == '-') && digitsAt(from + 1, 2) && charAt(from + 3) == ':' &&
+      digitsAt(from + 4, 2)) from + 6
+    else -1
+
+  private def stringLiteral(): StringLiteral =
+    if (!at("'")) null
+    else {
+      // [^']*(?:''[^']*)* between the quotes
+      var end = pos + 1
+      var more = true
+      while (more) {
+        while (end < input.length && input.charAt(end) != '\'') end += 1
+        more = end + 1 < input.length && input.charAt(end + 1) == '\''
+        if (more) end += 2
+      }
+      if (end < input.length) {
+        val value = input.substring(pos + 1, end).replace("''", "'")
+        pos = end + 1
+        StringLiteral(value)
+      } else null
+    }
+
+  // (\+|-)?\d+(\.\d+)?(e(\+|-)?\d+)?
+  private def numberLiteral(): NumberLiteral = {
+    val signEnd = if (charAt(pos) == '+' || charAt(pos) == '-') pos + 1 else pos
+    var end = digits(signEnd)
+    if (end == signEnd) null
+    else {
+      if (charAt(end) == '.' && digits(end + 1) > end + 1) end = digits(end + 1)
+      if (charAt(end) == 'e') {
+        val exponentSignEnd = if (charAt(end + 1) == '+' || charAt(end + 1) == '-') end + 2 else end + 1
+        val exponentEnd = digits(exponentSignEnd)
+        if (exponentEnd > exponentSignEnd) end = exponentEnd
+      }
+      NumberLiteral(BigDecimal(consumeTo(end)))
+    }
+  }
+
+  // ----- Names and identifiers, see NamesAndIdentifiersParser
+
+  private def identifierEnd(from: Int): Int = {
+    var end = from
+    if (end < input.length && isIdentifierStart(input.charAt(end))) {
+      end += 1
+      while (end < input.length && isIdentifierPart(input.charAt(end))) end += 1
+    }
+    // The regular expression matches code points, this scanner matches chars; leave supplementary characters to it
+    if (end < input.length && Character.isSurrogate(input.charAt(end))) throw Unsupported
+    end
+  }
+
+  private def identifier(): String = {
+    val end = identifierEnd(pos)
+    if (end > pos) consumeTo(end) else null
+  }
+
+  // One or more identifiers, each followed by a "."
+  private def namespace(): String = {
+    var end = pos
+    var next = identifierEnd(end)
+    while (next > end && charAt(next) == '.') {
+      end = next + 1
+      next = identifierEnd(end)
+    }
+    if (end > pos) consumeTo(end) else null
+  }
+
+  // A namespace-qualified name of a type of the given kind
+  private def qualifiedName(metaType: MetaType): String = {
+    val start = pos
+    val namespace = this.namespace()
+    val name = if (namespace != null) identifier() else null
+    if (name != null && getType(namespace + name).exists(_.getMetaType == metaType)) namespace + name
+    else {
+      pos = start
+      null
+    }
+  }
+
+  // opt("/" ~> qualifiedName)
+  private def typeNameAfterSlash(metaType: MetaType): Option[String] = {
+    val start = pos
+    val name = if (accept('/')) qualifiedName(metaType) else null
+    if (name != null) Some(name)
+    else {
+      pos = start
+      None
+    }
+  }
+
+  // opt(qualifiedName <~ "/")
+  private def typeNameBeforeSlash(metaType: MetaType): Option[String] = {
+    val start = pos
+    val name = qualifiedName(metaType)
+    if (name != null && accept('/')) Some(name)
+    else {
+      pos = start
+      None
+    }
+  }
+
+  private def propertyKind(property: StructuralProperty): Int =
+    if (property == null) NoProperty
+    else if (isEntitySingleNavigationProperty(property)) EntityProperty
+    else if (isEntityCollectionNavigationProperty(property)) EntityCollectionProperty
+    else if (isComplexSingleProperty(property)) ComplexProperty
+    else if (isComplexCollectionProperty(property)) ComplexCollectionProperty
+    else if (isPrimitiveSingleProperty(property)) PrimitiveProperty
+    else if (isPrimitiveCollectionProperty(property)) PrimitiveCollectionProperty
+    else NoProperty
+
+  private def isActionOrFunction(name: String): Boolean = isAction(name) || isFunction(name)
+
+  // Calls of actions and functions are not supported; bail out where the grammar would match one
+  private def rejectOperationCall(from: Int, isOperation: String => Boolean): Unit = {
+    val start = pos
+    pos = from
+    val name = if (namespace() != null) identifier() else null
+    pos = start
+    if (name != null && isOperation(name)) throw Unsupported
+  }
+
+  // ----- Scanning
+
+  private def charAt(index: Int): Char = if (index < input.length) input.charAt(index) else EndOfInput
+
+  private def at(s: String): Boolean = input.startsWith(s, pos)
+
+  private def accept(s: String): Boolean =
+    if (input.startsWith(s, pos)) {
+      pos += s.length
+      true
+    } else false
+
+  private def accept(c: Char): Boolean =
+    if (pos < input.length && input.charAt(pos) == c) {
+      pos += 1
+      true
+    } else false
+
+  // Like "(?i)" in a regular expression, which only ignores the case of ASCII letters; s must be in lower case
+  private def matchesIgnoreCase(from: Int, s: String): Boolean = from + s.length <= input.length && {
+    var i = 0
+    while (i < s.length && equalsIgnoreCase(input.charAt(from + i), s.charAt(i))) i += 1
+    i == s.length
+  }
+
+  private def atIgnoreCase(s: String): Boolean = matchesIgnoreCase(pos, s)
+
+  private def acceptIgnoreCase(s: String): Boolean =
+    if (matchesIgnoreCase(pos, s)) {
+      pos += s.length
+      true
+    } else false
+
+  // """\s+operator\s+"""
+  private def acceptOperator(operator: String): Boolean = {
+    val start = pos
+    if (skipWhitespace() > 0 && accept(operator) && skipWhitespace() > 0) true
+    else {
+      pos = start
+      false
+    }
+  }
+
+  // """\s*c\s*"""
+  private def acceptSeparator(c: Char): Boolean =
+    if (acceptClosing(c)) {
+      skipWhitespace()
+      true
+    } else false
+
+  // """\s*c"""
+  private def acceptClosing(c: Char): Boolean = {
+    val start = pos
+    skipWhitespace()
+    if (accept(c)) true
+    else {
+      pos = start
+      false
+    }
+  }
+
+  private def skipWhitespace(): Int = {
+    val start = pos
+    while (pos < input.length && isWhitespace(input.charAt(pos))) pos += 1
+    pos - start
+  }
+
+  private def firstPrefix(names: Array[String]): String = {
+    var i = 0
+    while (i < names.length && !input.startsWith(names(i), pos)) i += 1
+    if (i < names.length) {
+      pos += names(i).length
+      names(i)
+    } else null
+  }
+
+  private def digits(from: Int): Int = {
+    var end = from
+    while (end < input.length && isDigit(input.charAt(end))) end += 1
+    end
+  }
+
+  private def digitsAt(from: Int, count: Int): Boolean = digits(from) - from >= count
+
+  private def scan(from: Int, allowed: String): Int = {
+    var end = from
+    while (end < input.length && isAllowed(input.charAt(end), allowed)) end += 1
+    end
+  }
+
+  private def consumeTo(end: Int): String = {
+    val s = input.substring(pos, end)
+    pos = end
+    s
+  }
+
+  private def rep1sep[T <: AnyRef](item: => T, separator: => Boolean): List[T] = {
+    val first = item
+    if (first == null) null
+    else {
+      val items = ListBuffer(first)
+      var more = true
+      while (more) {
+        val start = pos
+        val next = if (separator) item else null.asInstanceOf[T]
+        if (next != null) items += next
+        else {
+          pos = start
+          more = false
+        }
+      }
+      items.toList
+    }
+  }
+
+  private def repsep[T <: AnyRef](item: => T, separator: => Boolean): List[T] = {
+    val items = rep1sep(item, separator)
+    if (items != null) items else List.empty
+  }
+}
+
+object ODataUriDescentParser {
+
+  // Thrown where the URI uses something this parser does not cover
+  private object Unsupported extends ControlThrowable
+
+  private val EndOfInput = Char.MaxValue
+
+  private val VerticalTab = 0x0b.toChar
+  private val NextLine = 0x85.toChar
+  private val LineSeparator = 0x2028.toChar
+  private val ParagraphSeparator = 0x2029.toChar
+
+  private val GuidLength = 36
+
+  private val MaxFractionDigits = 9
+
+  // ExpressionsParser.implicitVariableExpr does not know the type of $it either
+  private val ImplicitVariableTypeName = "TODO.TODO"
+
+  private val MethodNames = Array("length", "indexof", "substring", "tolower", "toupper", "trim", "concat",
+    "year", "month", "day", "hour", "minute", "second", "fractionalseconds", "totalseconds", "date", "time",
+    "totaloffsetminutes", "mindatetime", "maxdatetime", "now", "round", "floor", "ceiling", "geo.distance",
+    "geo.length")
+
+  private val BoolMethodNames = Array("contains", "startswith", "endswith", "geo.intersects")
+
+  // Characters allowed besides ASCII letters and digits, see QueryOptionsParser
+  private val MediaTypeCharacters = "-._~:@$&'=!()*+,;"
+  private val SkipTokenCharacters = "-._~!()*+,;:@/?$'="
+  private val CustomNameFirstCharacters = "-._~!()*+,;:/?'"
+  private val CustomNameCharacters = "-._~!()*+,;:@/?$'"
+  private val CustomValueCharacters = "-._~!()*+,;:@/?$'="
+
+  private val NoProperty = 0
+  private val EntityProperty = 1
+  private val EntityCollectionProperty = 2
+  private val ComplexProperty = 3
+  private val ComplexCollectionProperty = 4
+  private val PrimitiveProperty = 5
+  private val PrimitiveCollectionProperty = 6
+
+  // Unicode categories of [\p{L}\p{Nl}_] and [\p{L}\p{Nl}\p{Nd}\p{Mn}\p{Mc}\p{Pc}\p{Cf}]
+  private val IdentifierStartCategories = categories(Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER,
+    Character.TITLECASE_LETTER, Character.MODIFIER_LETTER, Character.OTHER_LETTER, Character.LETTER_NUMBER)
+  private val IdentifierPartCategories = IdentifierStartCategories | categories(Character.DECIMAL_DIGIT_NUMBER,
+    Character.NON_SPACING_MARK, Character.COMBINING_SPACING_MARK, Character.CONNECTOR_PUNCTUATION, Character.FORMAT)
+
+  private def categories(types: Byte*): Long = types.foldLeft(0L)((mask, t) => mask | (1L << t))
+
+  private def isIdentifierStart(c: Char): Boolean =
+    c == '_' || (IdentifierStartCategories & (1L << Character.getType(c))) != 0
+
+  private def isIdentifierPart(c: Char): Boolean = (IdentifierPartCategories & (1L << Character.getType(c))) != 0
+
+  private def equalsIgnoreCase(c: Char, lowerCase: Char): Boolean =
+    c == lowerCase || (lowerCase >= 'a' && lowerCase <= 'z' && c == (lowerCase - ('a' - 'A')).toChar)
+
+  // \d and \s in a regular expression
+  private def isDigit(c: Char): Boolean = c >= '0' && c <= '9'
+
+  private def isWhitespace(c: Char): Boolean =
+    c == ' ' || c == '\t' || c == '\n' || c == VerticalTab || c == '\f' || c == '\r'
+
+  // What "." in a regular expression does not match
+  private def isLineTerminator(c: Char): Boolean =
+    c == '\n' || c == '\r' || c == NextLine || c == LineSeparator || c == ParagraphSeparator
+
+  private def isAllowed(c: Char, allowed: String): Boolean =
+    (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || allowed.indexOf(c) >= 0
+}
@@ -18,25 +18,49 @@ package com.sdl.odata.parser
 import scala.util.parsing.combinator.RegexParsers
 import com.sdl.odata.api.edm.model.EntityDataModel
 import com.sdl.odata.api.parser._
-import java.net.URLDecoder
 
-class ODataUriParser(val entityDataModel: EntityDataModel) extends RegexParsers
+class ODataUriParser(val entityDataModel: EntityDataModel, val limits: ParserLimits) extends RegexParsers
   with ResourcePathParser
   with QueryOptionsParser
   with ContextFragmentParser
   with ExpressionsParser
   with NamesAndIdentifiersParser
   with LiteralsParser
-  with EntityDataModelHelpers {
+  with EntityDataModelHelpers
+  with ParserLimitsChecks {
+
+  def this(entityDataModel: EntityDataModel) = this(entityDataModel, ParserLimits.Unlimited)
+
+  def parseUri(input: String): ODataUri = {
+    val uri = new TokenizedUri(input)
+    parseQueryOptions(uri).getOrElse {
+      resetLimitsChecks()
+      parseAll(odataUri, uri.decoded) match {
+        case Success(result, _) => result
+        case NoSuccess(msg, _) => throw new ODataUriParseException(msg.concat(". uri: ").concat(input))
+      }
+    }
+  }
 
-  def parseUri(input: String): ODataUri = parseAll(odataUri, URLDecoder.decode(input, "UTF-8")) match {
-    case Success(result, _) => result
-    case NoSuccess(msg, _) => throw new ODataUriParseException(msg.concat(". uri: ").concat(input))
+  // Parses a resource path URI with each of its query options on its own; None for other URIs, and if it does not parse
+  def parseQueryOptions(uri: TokenizedUri): Option[ODataUri] = if (!uri.hasQuery) None else {
+    resetLimitsChecks()
+    parseAll(odataUri, uri.path) match {
+      case Success(ODataUri(serviceRoot, ResourcePathUri(resourcePath, Nil)), _) =>
+        val contextTypeName = resolveResourcePathTypeName(resourcePath)
+        val options = uri.queryOptions.map(option => parseAll(queryOption(contextTypeName), option.value))
+        if (!options.forall(_.successful)) None
+        else Some(ODataUri(serviceRoot, ResourcePathUri(resourcePath, options.map(_.get).toList)))
+      case _ => None
+    }
   }
 
-  def parseResourcePath(input: String): ResourcePath = parseAll(resourcePath, URLDecoder.decode(input, "UTF-8")) match {
-    case Success(result, _) => result
-    case NoSuccess(msg, _) => throw new ODataUriParseException(msg.concat(". uri: ").concat(input))
+  def parseResourcePath(input: String): ResourcePath = {
+    resetLimitsChecks()
+    parseAll(resourcePath, TokenizedUri.decode(input, 0, input.length, formEncoded = false)) match {
+      case Success(result, _) => result
+      case NoSuccess(msg, _) => throw new ODataUriParseException(msg.concat(". uri: ").concat(input))
+    }
   }
 
   override val skipWhitespace = false
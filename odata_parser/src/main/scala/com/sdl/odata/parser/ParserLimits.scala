@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import com.sdl.odata.api.parser.ODataUriParseException
+
+/**
+ * Limits on the expressions and expand options of a URI, which keep a pathological URI from exhausting the stack or
+ * the CPU of the parser. They are checked while the URI is parsed, so a URI is rejected as soon as it exceeds one.
+ *
+ * @param maxExpressionDepth How deeply expressions may nest: the expression in parentheses, every argument of a
+ *                           method or function, the operand of `not` and `-`, the expression of `cast` and `isof` and
+ *                           the predicate of a lambda are one level deeper than the expression they are part of. The
+ *                           operands of a chain of binary operators such as `or` are not.
+ * @param maxExpressionSize How many expressions the parser may produce for one URI: every operand, operator, method
+ *                          call and parenthesized expression counts, alternatives that the grammar tries and rejects do
+ *                          not. This limits the length of operator chains too.
+ * @param maxExpandDepth How deeply `$expand` options may nest.
+ */
+case class ParserLimits(maxExpressionDepth: Int, maxExpressionSize: Int, maxExpandDepth: Int)
+
+object ParserLimits {
+  val Unlimited = ParserLimits(Int.MaxValue, Int.MaxValue, Int.MaxValue)
+}
+
+/**
+ * Keeps track of the nesting and the number of expressions and the nesting of expand options while a URI is parsed,
+ * and throws an `ODataUriParseException` when they exceed the limits.
+ */
+trait ParserLimitsChecks {
+
+  def limits: ParserLimits
+
+  private var expressionDepth = 0
+  private var expressionSize = 0
+  private var expandDepth = 0
+
+  def resetLimitsChecks(): Unit = {
+    expressionDepth = 0
+    expressionSize = 0
+    expandDepth = 0
+  }
+
+  def nestedExpression[T](expression: => T): T = {
+    if (expressionDepth >= limits.maxExpressionDepth) {
+      throw new ODataUriParseException(
+        s"The URI contains an expression nested more than ${limits.maxExpressionDepth} levels deep")
+    }
+    expressionDepth += 1
+    try expression finally expressionDepth -= 1
+  }
+
+  /**
+   * Counts an expression if it is produced, and forgets the expressions it contains if it is not, so that only the
+   * expressions of the alternatives that the grammar accepts count.
+   *
+   * @param expression The expression to parse.
+   * @param produced Whether the result of parsing is an expression.
+   * @return The result of parsing.
+   */
+  def countedExpression[T](expression: => T)(produced: T => Boolean): T = {
+    val size = expressionSize
+    val result = expression
+    if (!produced(result)) {
+      expressionSize = size
+    } else if (expressionSize >= limits.maxExpressionSize) {
+      throw new ODataUriParseException(s"The URI contains more than ${limits.maxExpressionSize} expressions")
+    } else {
+      expressionSize += 1
+    }
+    result
+  }
+
+  def nestedExpand[T](expand: => T): T = {
+    if (expandDepth >= limits.maxExpandDepth) {
+      throw new ODataUriParseException(
+        s"The URI contains $$expand options nested more than ${limits.maxExpandDepth} levels deep")
+    }
+    expandDepth += 1
+    try expand finally expandDepth -= 1
+  }
+}
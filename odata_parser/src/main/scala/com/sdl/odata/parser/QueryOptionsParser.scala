@@ -21,7 +21,8 @@ import com.sdl.odata.api.service.MediaType
 import scala.util.parsing.combinator.RegexParsers
 
 trait QueryOptionsParser extends RegexParsers {
-  this: ExpressionsParser with NamesAndIdentifiersParser with LiteralsParser with EntityDataModelHelpers =>
+  this: ExpressionsParser with NamesAndIdentifiersParser with LiteralsParser with EntityDataModelHelpers
+    with ParserLimitsChecks =>
 
   def queryOptions(contextTypeName: String): Parser[List[QueryOption]] =
     rep1sep(queryOption(contextTypeName), "&")
@@ -55,7 +56,7 @@ trait QueryOptionsParser extends RegexParsers {
     search(contextTypeName) | select(contextTypeName) | skip | skiptoken | top | apply(contextTypeName)
 
   def expand(contextTypeName: String): Parser[ExpandOption] =
-    "$expand=" ~> rep1sep(expandItem(contextTypeName), ",") ^^ ExpandOption
+    "$expand=" ~> Parser(in => nestedExpand(rep1sep(expandItem(contextTypeName), ",")(in))) ^^ ExpandOption
 
   def expandItem(contextTypeName: String): Parser[ExpandItem] = allRefExpandItem | allExpandItem |
     (pathRefExpandItem(contextTypeName) | pathCountExpandItem(contextTypeName) | pathExpandItem(contextTypeName))
@@ -131,19 +132,6 @@ trait QueryOptionsParser extends RegexParsers {
     }
 
 
-  private def resolvePathTypeName(contextTypeName: String, path: ExpandPathSegment): String = {
-    val subPathContextTypeName = path.derivedTypeName
-      .orElse(getSinglePropertyTypeName(contextTypeName, path.propertyName))
-      .orElse(getPropertyElementTypeName(contextTypeName, path.propertyName))
-      .get
-
-    path match {
-      case ComplexPropertyExpandPathSegment(_, _, subPath) => resolvePathTypeName(subPathContextTypeName, subPath)
-      case NavigationPropertyExpandPathSegment(_, _) => subPathContextTypeName
-    }
-  }
-
-
   def expandOption(contextTypeName: String): Parser[QueryOption] =
     expandRefOption(contextTypeName) | select(contextTypeName) | apply(contextTypeName) |
       expand(contextTypeName) | levels
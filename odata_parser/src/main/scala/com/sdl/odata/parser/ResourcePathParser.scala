@@ -272,71 +272,4 @@ trait ResourcePathParser extends RegexParsers {
 
   // All resource path
   def all: Parser[AllPath.type] = "$all" ^^^ AllPath
-
-
-
-  // Determine the type that a resource path resolves to
-  def resolveResourcePathTypeName(resourcePath: ResourcePath): String = resourcePath match {
-    case EntitySetPath(entitySetName, subPath) =>
-      resolvePathSegmentTypeName(getEntitySetTypeName(entitySetName).get, subPath)
-
-    case SingletonPath(singletonName, subPath) =>
-      resolvePathSegmentTypeName(getSingletonTypeName(singletonName).get, subPath)
-
-    case ActionImportCall(actionName) =>
-      // Note: Determine the type that the action resolves to
-      "UNKNOWN.UNKNOWN"
-
-    case FunctionImportCall(functionName, args, subPath) =>
-      // Note: Determine the type that the function resolves to
-      resolvePathSegmentTypeName("UNKNOWN.UNKNOWN", subPath)
-
-    case CrossJoinPath(entitySetNames) =>
-      // Note: This is hard, because this doesn't resolve to a type name. Instead, query options must address types by
-      // starting with one of the entity set names mentioned in the crossjoin. Like this:
-      //
-      //    http://host/service/$crossjoin(Products,Sales)?$filter=Products/ID eq Sales/ProductID
-      //
-      // See OData Version 4.0 Part 2: URL Conventions paragraph 4.11
-      // NOTE: This syntax is not in the OData ABNF syntax! That seems to be an error in the ABNF specification.
-      "UNKNOWN.UNKNOWN"
-
-    case AllPath =>
-      // Note: Similar problem as with CrossJoinPath.
-      "UNKNOWN.UNKNOWN"
-  }
-
-  def resolvePathSegmentTypeName(contextTypeName: String, pathSegment: Option[PathSegment]): String =
-    pathSegment match {
-      case Some(EntityCollectionPath(derivedTypeName, subPath)) =>
-        resolvePathSegmentTypeName(derivedTypeName.getOrElse(contextTypeName), subPath)
-
-      case Some(KeyPredicatePath(_, subPath)) =>
-        resolvePathSegmentTypeName(contextTypeName, subPath)
-
-      case Some(EntityPath(derivedTypeName, subPath)) =>
-        resolvePathSegmentTypeName(derivedTypeName.getOrElse(contextTypeName), subPath)
-
-      case Some(ComplexPath(derivedTypeName, subPath)) =>
-        resolvePathSegmentTypeName(derivedTypeName.getOrElse(contextTypeName), subPath)
-
-      case Some(PropertyPath(propertyName, subPath)) =>
-        val subPathContextTypeName = getSinglePropertyTypeName(contextTypeName, propertyName)
-          .orElse(getPropertyElementTypeName(contextTypeName, propertyName)).get
-        resolvePathSegmentTypeName(subPathContextTypeName, subPath)
-
-      case Some(CountPath) => contextTypeName
-      case Some(RefPath) => contextTypeName
-      case Some(ValuePath) => contextTypeName
-
-      case Some(BoundActionCallPath(actionName)) =>
-        // Note: Determine the type that the action resolves to
-        "UNKNOWN.UNKNOWN"
-
-      case Some(BoundFunctionCallPath(functionName, args, subPath)) =>
-        // Note: Determine the type that the function resolves to
-        resolvePathSegmentTypeName("UNKNOWN.UNKNOWN", subPath)
-
-      case None => contextTypeName
-    }
 }
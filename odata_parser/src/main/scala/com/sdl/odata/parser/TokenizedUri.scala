@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import java.nio.charset.StandardCharsets
+
+import com.sdl.odata.api.parser.ODataUriParseException
+
+/**
+ * A URI split, in one pass, at the "?" and at the "&"s of the query, so that the part before the query and every query
+ * option can be parsed on their own. A part is decoded only when it is parsed, and decoding returns the part as it is
+ * when it contains no escapes. The delimiters are found before decoding, so an escaped "&" (`%26`) stays in the value
+ * of its query option. A "+" is a space in the query, which browsers and HTML forms encode as form data, but an
+ * ordinary character in the part before it.
+ *
+ * @param uri The URI as it was received.
+ */
+class TokenizedUri(val uri: String) {
+  import TokenizedUri._
+
+  private val queryStart = uri.indexOf('?')
+
+  def hasQuery: Boolean = queryStart >= 0
+
+  lazy val path: String =
+    if (hasQuery) decode(uri, 0, queryStart, formEncoded = false)
+    else {
+      // A query that is escaped as a whole, "?" included, is still form encoded
+      val escapedQueryStart = Seq(uri.indexOf("%3F"), uri.indexOf("%3f")).filter(_ >= 0)
+      if (escapedQueryStart.isEmpty) decode(uri, 0, uri.length, formEncoded = false)
+      else decode(uri, 0, escapedQueryStart.min, formEncoded = false) +
+        decode(uri, escapedQueryStart.min, uri.length, formEncoded = true)
+    }
+
+  val queryOptions: IndexedSeq[QueryOptionSlice] =
+    if (!hasQuery) IndexedSeq.empty
+    else {
+      val options = IndexedSeq.newBuilder[QueryOptionSlice]
+      var start = queryStart + 1
+      var end = uri.indexOf('&', start)
+      while (end >= 0) {
+        options += new QueryOptionSlice(uri, start, end)
+        start = end + 1
+        end = uri.indexOf('&', start)
+      }
+      options += new QueryOptionSlice(uri, start, uri.length)
+      options.result()
+    }
+
+  // The whole URI decoded, for the parts of the grammar that do not parse query options on their own
+  lazy val decoded: String =
+    if (hasQuery) queryOptions.iterator.map(_.value).mkString(path + "?", "&", "") else path
+}
+
+/**
+ * A query option of a [[TokenizedUri]], decoded when its value is first needed.
+ */
+class QueryOptionSlice(uri: String, start: Int, end: Int) {
+  lazy val value: String = TokenizedUri.decode(uri, start, end, formEncoded = true)
+}
+
+object TokenizedUri {
+
+  private val EscapeLength = 3
+  private val HexRadix = 16
+
+  /**
+   * Decodes a part of a URI: consecutive `%xx` escapes are the bytes of UTF-8 characters and, if the part is form
+   * encoded, "+" is a space, like `URLDecoder.decode(part, "UTF-8")` does.
+   */
+  def decode(s: String, from: Int, to: Int, formEncoded: Boolean): String = {
+    var i = from
+    while (i < to && s.charAt(i) != '%' && !(formEncoded && s.charAt(i) == '+')) i += 1
+    if (i == to) s.substring(from, to)
+    else {
+      val decoded = new java.lang.StringBuilder(to - from)
+      decoded.append(s, from, i)
+      while (i < to) {
+        s.charAt(i) match {
+          case '+' if formEncoded =>
+            decoded.append(' ')
+            i += 1
+          case '%' =>
+            var escapesEnd = i
+            while (escapesEnd < to && s.charAt(escapesEnd) == '%') escapesEnd += EscapeLength
+            val bytes = new Array[Byte]((escapesEnd - i) / EscapeLength)
+            for (b <- bytes.indices) bytes(b) = escapedByte(s, i + b * EscapeLength, to).toByte
+            decoded.append(new String(bytes, StandardCharsets.UTF_8))
+            i = escapesEnd
+          case c =>
+            decoded.append(c)
+            i += 1
+        }
+      }
+      decoded.toString
+    }
+  }
+
+  private def escapedByte(s: String, escape: Int, to: Int): Int = {
+    val high = if (escape + 1 < to) Character.digit(s.charAt(escape + 1), HexRadix) else -1
+    val low = if (escape + 2 < to) Character.digit(s.charAt(escape + 2), HexRadix) else -1
+    if (high < 0 || low < 0) {
+      throw new ODataUriParseException(
+        s"The URI contains an invalid escape sequence: ${s.substring(escape, math.min(escape + EscapeLength, to))}")
+    }
+    high * HexRadix + low
+  }
+}
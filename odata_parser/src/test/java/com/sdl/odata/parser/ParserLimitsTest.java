@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser;
+
+import com.sdl.odata.api.ODataException;
+import com.sdl.odata.api.parser.ODataUri;
+import com.sdl.odata.api.parser.ODataUriParseException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parser Limits Test.
+ */
+public class ParserLimitsTest extends ParserTestSuite {
+    private static final String CUSTOMERS = SERVICE_ROOT + "Customers";
+
+    private final ODataParserImpl descentParser = new ODataParserImpl(0, "descent", 200, 3, 20, 2);
+    private final ODataParserImpl combinatorParser = new ODataParserImpl(0, "combinator", 200, 3, 20, 2);
+
+    @Test
+    public void testUrisWithinLimits() throws ODataException {
+        String[] uris = {
+                CUSTOMERS + "?$filter=id eq 1 or id eq 2 or id eq 3 or id eq 4",
+                CUSTOMERS + "?$filter=((id eq 1)) and ((id eq 2)) and ((id eq 3))",
+                CUSTOMERS + "?$filter=(((id eq 1 add 2 mul 3)))",
+                CUSTOMERS + "?$orderby=" + String.join(",", Collections.nCopies(10, "length(name)")),
+                CUSTOMERS + "?$filter=length(concat(name, 'x')) eq 5",
+                CUSTOMERS + "?$expand=Orders($expand=customer)"
+        };
+        for (String uri : uris) {
+            assertEquals(parser.parseUri(uri, model), descentParser.parseUri(uri, model));
+            assertEquals(parser.parseUri(uri, model), combinatorParser.parseUri(uri, model));
+        }
+    }
+
+    @Test
+    public void testUriTooLong() {
+        String uri = CUSTOMERS + "?$filter=name eq '" + String.join("", Collections.nCopies(200, "x")) + "'";
+
+        assertRejected(uri, "The URI is longer than 200 characters");
+    }
+
+    @Test
+    public void testExpressionTooDeep() {
+        assertRejected(CUSTOMERS + "?$filter=((((id eq 1))))",
+                "The URI contains an expression nested more than 3 levels deep");
+        assertRejected(CUSTOMERS + "?$filter=not not not not (id eq 1)",
+                "The URI contains an expression nested more than 3 levels deep");
+        assertRejected(CUSTOMERS + "?$orderby=length(concat(concat(concat(name, 'x'), 'y'), 'z'))",
+                "The URI contains an expression nested more than 3 levels deep");
+    }
+
+    @Test
+    public void testExpressionTooLarge() {
+        assertRejected(CUSTOMERS + "?$orderby=" + String.join(",", Collections.nCopies(11, "length(name)")),
+                "The URI contains more than 20 expressions");
+        assertRejected(CUSTOMERS + "?$filter=" + String.join(" or ", Collections.nCopies(6, "id eq 1")),
+                "The URI contains more than 20 expressions");
+    }
+
+    @Test
+    public void testLongChainWithDefaultLimits() throws ODataException {
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            terms.add("id eq " + i);
+        }
+        String uri = CUSTOMERS + "?$filter=" + String.join(" or ", terms);
+
+        ODataUri parsedUri = parser.parseUri(uri, model);
+        assertEquals(parsedUri, new ODataUriParser(model).parseUri(uri));
+    }
+
+    @Test
+    public void testExpandTooDeep() {
+        assertRejected(CUSTOMERS + "?$expand=Orders($expand=customer($expand=Orders))",
+                "The URI contains $expand options nested more than 2 levels deep");
+    }
+
+    private void assertRejected(String uri, String message) {
+        assertEquals(message, assertThrows(ODataUriParseException.class,
+                () -> descentParser.parseUri(uri, model)).getMessage());
+        assertEquals(message, assertThrows(ODataUriParseException.class,
+                () -> combinatorParser.parseUri(uri, model)).getMessage());
+    }
+}
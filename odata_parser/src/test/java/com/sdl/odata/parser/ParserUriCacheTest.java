@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser;
+
+import com.sdl.odata.api.ODataException;
+import com.sdl.odata.api.edm.model.EntityDataModel;
+import com.sdl.odata.api.parser.ODataUri;
+import com.sdl.odata.api.parser.ODataUriParseException;
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory;
+import com.sdl.odata.test.model.Customer;
+import com.sdl.odata.test.model.Order;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parser URI Cache Test.
+ */
+public class ParserUriCacheTest extends ParserTestSuite {
+    private static final String CUSTOMERS = SERVICE_ROOT + "Customers?$filter=id eq 20&$top=5";
+
+    private final ODataParserImpl cachingParser = new ODataParserImpl(16);
+
+    @Test
+    public void testRepeatedUriIsParsedOnce() throws ODataException {
+        ODataUri first = cachingParser.parseUri(CUSTOMERS, model);
+        ODataUri second = cachingParser.parseUri(CUSTOMERS, model);
+
+        assertSame(first, second);
+        assertEquals(parser.parseUri(CUSTOMERS, model), first);
+        assertEquals(1, cachingParser.getUriCacheMisses());
+        assertEquals(1, cachingParser.getUriCacheHits());
+    }
+
+    @Test
+    public void testOtherEntityDataModelInvalidatesCache() throws ODataException {
+        ODataUri first = cachingParser.parseUri(CUSTOMERS, model);
+        ODataUri second = cachingParser.parseUri(CUSTOMERS, otherModel());
+
+        assertNotSame(first, second);
+        assertEquals(2, cachingParser.getUriCacheMisses());
+        assertEquals(0, cachingParser.getUriCacheHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedUrisAreDropped() throws ODataException {
+        ODataUri first = cachingParser.parseUri(CUSTOMERS, model);
+        for (int i = 0; i < 100; i++) {
+            cachingParser.parseUri(SERVICE_ROOT + "Customers?$top=" + i, model);
+        }
+
+        assertNotSame(first, cachingParser.parseUri(CUSTOMERS, model));
+    }
+
+    @Test
+    public void testInvalidUriIsNotCached() {
+        String uri = SERVICE_ROOT + "Customers?$filter=id eq";
+
+        assertThrows(ODataUriParseException.class, () -> cachingParser.parseUri(uri, model));
+        assertThrows(ODataUriParseException.class, () -> cachingParser.parseUri(uri, model));
+        assertEquals(2, cachingParser.getUriCacheMisses());
+    }
+
+    @Test
+    public void testCacheDisabled() throws ODataException {
+        ODataParserImpl nonCachingParser = new ODataParserImpl(0);
+
+        assertNotSame(nonCachingParser.parseUri(CUSTOMERS, model), nonCachingParser.parseUri(CUSTOMERS, model));
+        assertEquals(0, nonCachingParser.getUriCacheMisses());
+    }
+
+    private static EntityDataModel otherModel() throws ODataException {
+        AnnotationEntityDataModelFactory factory = new AnnotationEntityDataModelFactory();
+        factory.addClass(Customer.class);
+        factory.addClass(Order.class);
+        return factory.buildEntityDataModel();
+    }
+}
@@ -33,11 +33,9 @@ class ExpressionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("length method call with comparison expr") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://server/test.svc"
     val relativeUri = "/Customers?$filter=length(name) eq 19"
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri("http://server/test.svc",
         ResourcePathUri(EntitySetPath("Customers", None), List(
           FilterOption(
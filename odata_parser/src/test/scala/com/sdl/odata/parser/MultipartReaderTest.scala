@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import java.io.{ByteArrayInputStream, InputStream}
+import java.nio.charset.StandardCharsets.UTF_8
+
+import com.sdl.odata.api.parser.ODataBatchParseException
+import org.scalatest.FunSuite
+
+import scala.io.Source
+
+class MultipartReaderTest extends FunSuite {
+
+  // Returns at most the given number of bytes per read, to split the body at every possible position
+  class SlowInputStream(bytes: Array[Byte], readSize: Int) extends ByteArrayInputStream(bytes) {
+    override def read(b: Array[Byte], off: Int, len: Int): Int = super.read(b, off, math.min(len, readSize))
+  }
+
+  def parts(body: String, boundary: String, readSize: Int = Int.MaxValue): List[String] = {
+    val reader = new MultipartReader(new SlowInputStream(body.getBytes(UTF_8), readSize), boundary)
+    Iterator.continually(reader.nextPart()).takeWhile(_.isDefined)
+      .map(part => Source.fromInputStream(part.get, "UTF-8").mkString).toList
+  }
+
+  test("parts") {
+    val body = "preamble\r\n--b\r\nfirst\r\n--b  \r\n\r\nsecond\nline\n--b\n--bb\n--b--\r\nepilogue\r\n--b\r\n"
+    for (readSize <- Seq(1, 2, 3, 7, Int.MaxValue)) {
+      assert(parts(body, "b", readSize) === List("first", "\r\nsecond\nline", "--bb"), readSize)
+    }
+    assert(parts("--b--", "b") === Nil)
+    assert(parts("--b\n\n--b--", "b") === List(""))
+  }
+
+  test("large parts") {
+    val part = "x-" * 10000 + "\n--\n-" * 1000 + "é"
+    val body = s"--boundary_1\n$part\n--boundary_1\r\n$part\r\n--boundary_1--"
+    for (readSize <- Seq(5, 1000, Int.MaxValue)) {
+      assert(parts(body, "boundary_1", readSize) === List(part, part), readSize)
+    }
+  }
+
+  test("reading a part") {
+    val reader = new MultipartReader(new ByteArrayInputStream("--b\nab\n--b\ncd\n--b--".getBytes(UTF_8)), "b")
+    val first: InputStream = reader.nextPart().get
+    assert(first.read() === 'a')
+    val second = reader.nextPart().get
+    assert(first.read() === -1)
+    assert(second.read(new Array[Byte](10), 0, 10) === 2)
+    assert(second.read() === -1)
+    assert(reader.nextPart() === None)
+    assert(reader.nextPart() === None)
+  }
+
+  test("invalid multipart bodies") {
+    intercept[ODataBatchParseException](parts("--b\nno close delimiter\n", "b"))
+    intercept[ODataBatchParseException](parts("no delimiter at all", "b"))
+    intercept[ODataBatchParseException](parts("--b\nfirst\n--bc\nsecond\n--b--", "b"))
+  }
+}
@@ -321,18 +321,28 @@ class ODataBatchRequestParserTest extends FunSuite {
     assert(indvRequestComponent.getHeaders().headers.get("Host").get == "http://localhost:8082/discovery-service/odata.svc")
   }
 
-  test("Input whitespace trimming") {
+  test("Batch request with whitespace at the end of the lines") {
     val requestBodyWithTrailingWhitespaces = "--batch_36522ad7-fc75-4b56-8c71-56071383e77b   " + newLine +
-      "headers and batch content   " + newLine +
+      "Content-Type: application/http   " + newLine +
+      "Content-Transfer-Encoding:binary  " + newLine +
       "   " + newLine +
-      "--batch_36522ad7-fc75-4b56-8c71-56071383e77b--   "
+      "GET Customers('ALFKI') HTTP/1.1   " + newLine +
+      "Host: localhost   " + newLine +
+      "   " + newLine +
+      newLine +
+      "--batch_36522ad7-fc75-4b56-8c71-56071383e77b--   " + newLine + "   "
     val requestBodyWithoutTrailingWhitespaces = "--batch_36522ad7-fc75-4b56-8c71-56071383e77b" + newLine +
-      "headers and batch content" + newLine +
+      "Content-Type: application/http" + newLine +
+      "Content-Transfer-Encoding:binary" + newLine +
+      newLine +
+      "GET Customers('ALFKI') HTTP/1.1" + newLine +
+      "Host: localhost" + newLine +
+      newLine +
       newLine +
       "--batch_36522ad7-fc75-4b56-8c71-56071383e77b--"
 
-    assert(batchRequestParser.trimRedundantTrailingSpaces(requestBodyWithTrailingWhitespaces) ==
-      requestBodyWithoutTrailingWhitespaces)
+    assert(batchRequestParser.parseBatch(requestBodyWithTrailingWhitespaces) ==
+      batchRequestParser.parseBatch(requestBodyWithoutTrailingWhitespaces))
   }
 
   test("Batch request with no host defined with resource path only") {
@@ -433,8 +443,8 @@ class ODataBatchRequestParserTest extends FunSuite {
       "{\"@odata.type\":\"#Example.Application.Platform.Entity\",\"id\":\"Website2_RootWebApp\",\"ContextURL\":\"/\",\"BaseURLs@odata.type\":\"#Collection(Example.Application.Platform.Entity)\",\"BaseURLs\":[{\"@odata.type\":\"#Example.Application.Platform.Entity\",\"Protocol\":\"http\",\"Host\":\"localhost\",\"Port\":\"8080\"}],\"ExtensionProperties@odata.type\":\"#Collection(Example.Application.Platform.Entity)\",\"ExtensionProperties\":[],\"WebCapability@odata.bind\":\"http://localhost:8082/odata.svc/WebCapabilities('DefaultWeb')\"}\n \n--changeset_05118c88-8f0b-43da-be4d-c326e0133670--\n--batch_7aa6777a-f7f2-4a45-89ee-a3b72464f51d--\n" +
       "\n"
 
-    val whiteSpacesResult = batchRequestParser.trimRedundantTrailingSpaces(whiteSpacesBatchSource)
-    val noWhiteSpacesResult = batchRequestParser.trimRedundantTrailingSpaces(noWhiteSpacesBatchSource)
+    val whiteSpacesResult = batchRequestParser.parseBatch(whiteSpacesBatchSource)
+    val noWhiteSpacesResult = batchRequestParser.parseBatch(noWhiteSpacesBatchSource)
 
     assert(whiteSpacesResult != null)
     assert(noWhiteSpacesResult != null)
@@ -492,4 +502,67 @@ class ODataBatchRequestParserTest extends FunSuite {
     assert(changeSetOperation1.requestDetails.get("RequestHost").get == "https://secure-host")
     assert(changeSetOperation1.requestDetails.get("RequestBody").get == "{ \"some\" : \"content\" }")
   }
+
+  test("Batch request with CRLF line breaks and a body that contains dashes") {
+    val testBatchRequestBody = "--batch_1\r\n" +
+      "Content-Type: multipart/mixed; boundary=changeset_1\r\n" +
+      "\r\n" +
+      "--changeset_1\r\n" +
+      "Content-Type: application/http\r\n" +
+      "Content-Transfer-Encoding: binary\r\n" +
+      "Content-ID: 1\r\n" +
+      "\r\n" +
+      "POST Customers HTTP/1.1\r\n" +
+      "Content-Type: application/json\r\n" +
+      "\r\n" +
+      "{\"name\":\"--changeset_2 -- and --batch_1\"}\r\n" +
+      "--changeset_1--\r\n" +
+      "--batch_1\r\n" +
+      "Content-Type: application/http\r\n" +
+      "Content-Transfer-Encoding: binary\r\n" +
+      "\r\n" +
+      "GET Customers(1) HTTP/1.1\r\n" +
+      "Accept: application/json\r\n" +
+      "\r\n" +
+      "\r\n" +
+      "--batch_1--\r\n"
+
+    val parsedContent = batchRequestParser.parseBatch(testBatchRequestBody)
+
+    assert(parsedContent.requestComponents.size == 2)
+    val changeSet = parsedContent.requestComponents(0).asInstanceOf[ChangeSetRequestComponent]
+    assert(changeSet.getChangeSetId() == "changeset_1")
+    assert(changeSet.changesetRequests.size == 1)
+    assert(changeSet.changesetRequests(0).requestDetails("RequestBody") == "{\"name\":\"--changeset_2 -- and --batch_1\"}")
+    assert(changeSet.changesetRequests(0).requestComponentHeaders.headers("Content-Type") == "application/json")
+
+    val query = parsedContent.requestComponents(1).asInstanceOf[BatchRequestComponent]
+    assert(query.requestDetails == Map("RequestType" -> "GET", "RequestEntity" -> "Customers(1)", "RequestBody" -> ""))
+    assert(query.requestComponentHeaders.headers ==
+      Map("Content-Transfer-Encoding" -> "binary", "Accept" -> "application/json"))
+  }
+
+  test("Change set parts are delimited by the boundary in the Content-Type header of the change set") {
+    val fileContents = Source.fromURL(getClass.getResource("/BatchRequestSample1.txt")).mkString
+    val parsedContent = batchRequestParser.parseBatch(fileContents)
+
+    // The parts of the second change set start with --changeset_ instead of its boundary --cs_
+    val changeSet = parsedContent.requestComponents(3).asInstanceOf[ChangeSetRequestComponent]
+    assert(changeSet.getChangeSetId() == "cs_77162fcd-b8da-41ac-a9f8-9357efbbda")
+    assert(changeSet.changesetRequests.isEmpty)
+  }
+
+  test("Batch request without a close delimiter") {
+    val testBatchRequestBody = "--batch_1" + newLine +
+      "Content-Type: application/http" + newLine +
+      "Content-Transfer-Encoding:binary" + newLine +
+      newLine +
+      "GET Customers HTTP/1.1" + newLine +
+      newLine
+
+    val exception = intercept[ODataBatchParseException] {
+      batchRequestParser.parseBatch(testBatchRequestBody)
+    }
+    assert(exception.getMessage == "The multipart body does not end with a close delimiter for 'batch_1'")
+  }
 }
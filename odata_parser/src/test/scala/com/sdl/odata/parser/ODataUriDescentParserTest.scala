@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import com.sdl.odata.api.parser.ODataUri
+import org.scalatest.FunSuite
+
+import scala.util.Try
+
+class ODataUriDescentParserTest extends FunSuite with ParserTestHelpers {
+
+  val serviceRoot = "http://localhost:8080/odata.svc"
+
+  def combinatorResult(uri: String): Option[ODataUri] = Try(parser.parseUri(uri)).toOption
+
+  def testSameResult(uri: String) {
+    val expected = combinatorResult(uri)
+    assert(expected.isDefined, s"combinator parser rejected $uri")
+    assert(descentParser.parseUri(uri) === expected, uri)
+  }
+
+  def testFallback(uri: String) {
+    assert(descentParser.parseUri(uri) === None, uri)
+  }
+
+  test("resource paths") {
+    Seq(
+      "", "/", "?$format=json", "/$metadata", "/$metadata?$format=xml", "/$batch",
+      "/Customers", "/Customers/$count", "/Customers(1)", "/Customers(111)", "/Customers('test123')",
+      "/Customers(id=1)", "/Customers(1)/name", "/Customers(1)/name/$value", "/Customers(1)/address",
+      "/Customers(1)/Phone", "/Customers(1)/Orders", "/Customers(1)/Orders/$count", "/Customers(1)/Orders/$ref",
+      "/Customers(1)/Orders(123)", "/Customers(1)/Orders(123)/orderLines(5)", "/Customers(1)/Orders(2)/orderLines",
+      "/Customers(1)/ODataDemo.VIPCustomer", "/Customers(1)/ODataDemo.VIPCustomer/vip_id",
+      "/Customers(1)/ODataDemo.VIPCustomer/vip_address/Street", "/Customers/ODataDemo.VIPCustomer",
+      "/Customers/ODataDemo.VIPCustomer(1)", "/Customers/ODataDemo.VIPCustomer(1)/vip_id",
+      "/Customers('ALFKI')/address", "/Customers('test123')/Orders?$format=json",
+      "/SingletonSample", "/SingletonSample/id", "/SingletonSample/$ref", "/SingletonWithName/id",
+      "/Orders(1)", "/Products?$count=true"
+    ).foreach(path => testSameResult(serviceRoot + path))
+
+    testSameResult("http://some.com/xyz.svc")
+    testSameResult("http://localhost:8082/discovery-service/odata.svc")
+  }
+
+  test("system query options") {
+    Seq(
+      "$format=json", "$format=xml", "$format=atom", "$format=application/json", "$top=10", "$skip=3",
+      "$top=10&$skip=20", "$count=true", "$count=false", "$select=name", "$select=name,address",
+      "$select=*", "$select=Phone", "$select=address", "$select=com.sdl.example.*",
+      "$orderby=name", "$orderby=name asc", "$orderby=name desc,id",
+      "$orderby=$it", "$expand=*", "$expand=*/$ref,Orders", "$expand=Orders", "$expand=Orders/$ref",
+      "$expand=Orders/$count", "$expand=ODataDemo.Customer/Orders", "$expand=Orders($levels=10)",
+      "$expand=Orders($select=id)", "$expand=Orders&$skip=1&$orderby=$it&$top=1",
+      "$skiptoken=abc", "@name=$it", "custom=value"
+    ).foreach(option => testSameResult(s"$serviceRoot/Customers?$option"))
+
+    Seq(
+      "?$filter=name%20eq%20'a%26b'&$top=1", "?$filter=name eq 'my.svc'", "%3F%24top%3D1%26%24skip%3D2",
+      "?%24filter%3Dname+eq+%27x%27%26%24top%3D1"
+    ).foreach(query => testSameResult(s"$serviceRoot/Customers$query"))
+  }
+
+  test("filter expressions") {
+    Seq(
+      "id eq 1", "id ne 1", "id gt 10 and name eq 'Computer' or id le 20", "id le 20 or id gt 10 and name eq 'Computer'",
+      "not (id eq 1)", "(id add 1) mul 2 gt 3", "-id lt 0", "id mod 2 eq 0", "id div 2 sub 1 ge 5",
+      "name eq null", "name eq 'O''Neil'", "length(name) eq 19", "indexof(name, 'lfreds') eq 1",
+      "contains(name, 'a')", "startswith(name, 'A') and endswith(name, 'z')", "tolower(name) eq 'x'",
+      "substring(name, 1, 2) eq 'ab'", "concat(name, 'x') eq 'nx'", "trim(name) eq 'x'",
+      "year(date) eq 2014", "date gt 2014-01-01T10:00:00Z",
+      "date(date) eq 2014-01-01", "round(id) eq 1", "floor(id) eq 1", "ceiling(id) eq 1",
+      "id eq 1.5", "id eq 1.5e3", "id eq 12345678901", "now() gt date",
+      "name eq 'a' and (id eq 1 or id eq 2)"
+    ).foreach(filter => testSameResult(s"$serviceRoot/Customers?$$filter=$filter"))
+  }
+
+  test("constructs the descent parser leaves to the combinator parser") {
+    Seq(
+      "/$all", "/$crossjoin(Customers)", "/$entity?$id=test", "/$entity/ODataDemo.Customer?$id=test",
+      "/Customers(1)/ODataDemo.ODataDemoAction", "/Customers(2)/ODataDemo.ODataDemoFunction()",
+      "/Customers/ODataDemo.ODataDemoFunction", "/ODataDemoActionImport", "/ODataDemoFunctionImport(par1=1,par2=5)",
+      "/ComplexKeySamples(id=15,name='ComplexKey',period=duration'P3Y30M30D')",
+      "/Customers(ODataSample.EnumSample'VALUE1')", "/Customers?$filter=Phone eq $root/Customers('A1245')/Phone",
+      "/Products?$apply=groupby((id, name), aggregate($count as ProductCount))"
+    ).foreach(path => testFallback(serviceRoot + path))
+  }
+
+  test("invalid URIs are left to the combinator parser") {
+    Seq(
+      "/$BATCH", "/Customers?$format=text", "/Customers(", "/Customers(1", "/Customers?$top=x",
+      "/Customers?$filter=id eq", "/Customers?$filter=id eq 'x", "/Customers?$filter=date lt 2014-01-01T10:00:00.123Z",
+      "/Unknown", "/Customers(1)/unknown",
+      "/Customers?$orderby=name sideways", "/Customers?$expand=Orders($levels=)"
+    ).foreach { path =>
+      assert(combinatorResult(serviceRoot + path) === None, path)
+      testFallback(serviceRoot + path)
+    }
+    testFallback("http://localhost:8080/odata")
+  }
+}
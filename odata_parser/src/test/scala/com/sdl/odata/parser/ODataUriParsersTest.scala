@@ -22,20 +22,16 @@ import com.sdl.odata.api.service.MediaType
 class ODataUriParsersTest extends FunSuite with ParserTestHelpers {
 
   test("odataUri => ServiceRootUri") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://localhost:8080/odata.svc"
-    testSuccess(serviceRoot, ODataUri(serviceRoot, ServiceRootUri(None)))
-    testSuccess(serviceRoot + "/", ODataUri(serviceRoot, ServiceRootUri(None)))
-    testSuccess(serviceRoot + "?$format=json", ODataUri(serviceRoot, ServiceRootUri(Some(MediaType.JSON))))
-    testSuccess(serviceRoot + "/?$format=xml", ODataUri(serviceRoot, ServiceRootUri(Some(MediaType.XML))))
+    testUriSuccess(serviceRoot, ODataUri(serviceRoot, ServiceRootUri(None)))
+    testUriSuccess(serviceRoot + "/", ODataUri(serviceRoot, ServiceRootUri(None)))
+    testUriSuccess(serviceRoot + "?$format=json", ODataUri(serviceRoot, ServiceRootUri(Some(MediaType.JSON))))
+    testUriSuccess(serviceRoot + "/?$format=xml", ODataUri(serviceRoot, ServiceRootUri(Some(MediaType.XML))))
   }
 
   test("odataUri => BatchUri") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://somewhere.com/xyz.svc"
-    testSuccess(serviceRoot + "/$batch", ODataUri(serviceRoot, BatchUri))
+    testUriSuccess(serviceRoot + "/$batch", ODataUri(serviceRoot, BatchUri))
   }
 
 
@@ -47,26 +43,22 @@ class ODataUriParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("odataUri => EntityUri") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://somewhere.com/xyz.svc"
-    testSuccess(serviceRoot + "/$entity?$id=test", ODataUri(serviceRoot, EntityUri(None, List(IdOption("test")))))
-    testSuccess(serviceRoot + "/$entity/ODataDemo.Customer?$id=test",
+    testUriSuccess(serviceRoot + "/$entity?$id=test", ODataUri(serviceRoot, EntityUri(None, List(IdOption("test")))))
+    testUriSuccess(serviceRoot + "/$entity/ODataDemo.Customer?$id=test",
       ODataUri(serviceRoot, EntityUri(Some("ODataDemo.Customer"), List(IdOption("test")))))
 
-    testNoSuccess(serviceRoot + "/$entity/ODataDemo.NonExistent?$id=test",
+    testUriNoSuccess(serviceRoot + "/$entity/ODataDemo.NonExistent?$id=test",
       "Parsing should fail when name is not a valid entity type name")
   }
 
   test("odataUri => ActionImport uri") {
-    implicit val p = parser.odataUri
-    testSuccess("http://some.com/xyz.svc/ODataDemoActionImport", ODataUri("http://some.com/xyz.svc",
+    testUriSuccess("http://some.com/xyz.svc/ODataDemoActionImport", ODataUri("http://some.com/xyz.svc",
       ResourcePathUri(ActionImportCall("ODataDemoActionImport"),List())))
   }
 
   test("odataUri => Bound Action uri") {
-    implicit val p = parser.odataUri
-    testSuccess("http://some.com/xyz.svc/Customers(2)/ODataDemo.ODataDemoAction", ODataUri("http://some.com/xyz.svc",
+    testUriSuccess("http://some.com/xyz.svc/Customers(2)/ODataDemo.ODataDemoAction", ODataUri("http://some.com/xyz.svc",
       ResourcePathUri(EntitySetPath("Customers",
         Some(EntityCollectionPath(None,
           Some(KeyPredicatePath(SimpleKeyPredicate(NumberLiteral(2)),
@@ -75,23 +67,19 @@ class ODataUriParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("odataUri => MetadataUri") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://somewhere.com/xyz.svc"
-    testSuccess(serviceRoot + "$metadata", ODataUri(serviceRoot, MetadataUri(None, None)))
-    testSuccess(serviceRoot + "/$metadata", ODataUri(serviceRoot, MetadataUri(None, None)))
-    testSuccess(serviceRoot + "$metadata/", ODataUri(serviceRoot, MetadataUri(None, None)))
-    testSuccess(serviceRoot + "/$metadata?$format=xml", ODataUri(serviceRoot, MetadataUri(Some(MediaType.XML), None)))
+    testUriSuccess(serviceRoot + "$metadata", ODataUri(serviceRoot, MetadataUri(None, None)))
+    testUriSuccess(serviceRoot + "/$metadata", ODataUri(serviceRoot, MetadataUri(None, None)))
+    testUriSuccess(serviceRoot + "$metadata/", ODataUri(serviceRoot, MetadataUri(None, None)))
+    testUriSuccess(serviceRoot + "/$metadata?$format=xml", ODataUri(serviceRoot, MetadataUri(Some(MediaType.XML), None)))
   }
 
   test("odataUri => ResourcePathUri") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://somewhere.com/xyz.svc"
-    testSuccess(serviceRoot + "/Customers",
+    testUriSuccess(serviceRoot + "/Customers",
       ODataUri(serviceRoot, ResourcePathUri(EntitySetPath("Customers", None), List())))
 
-    testSuccess(serviceRoot + "/Customers('xyz')?$format=json",
+    testUriSuccess(serviceRoot + "/Customers('xyz')?$format=json",
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", Some(
@@ -99,4 +87,17 @@ class ODataUriParsersTest extends FunSuite with ParserTestHelpers {
               KeyPredicatePath(SimpleKeyPredicate(StringLiteral("xyz")), None))))),
           List(FormatOption(MediaType.JSON)))))
   }
+
+  test("parseUri => query options are decoded on their own") {
+    val serviceRoot = "http://somewhere.com/xyz.svc"
+    def nameFilter(name: String) = ODataUri(serviceRoot, ResourcePathUri(EntitySetPath("Customers", None), List(
+      FilterOption(EqExpr(EntityPathExpr(None, Some(PropertyPathExpr("name", None))), LiteralExpr(StringLiteral(name)))),
+      TopOption(1))))
+
+    assert(parser.parseUri(serviceRoot + "/Customers?$filter=name%20eq%20'a%26b'&$top=1") === nameFilter("a&b"))
+    assert(parser.parseUri(serviceRoot + "/Customers?$filter=name eq 'my.svc'&$top=1") === nameFilter("my.svc"))
+    // A query string that is escaped as a whole is still parsed
+    assert(parser.parseUri(serviceRoot + "/Customers%3F%24filter%3Dname+eq+%27x%27%26%24top%3D1") === nameFilter("x"))
+    intercept[ODataUriParseException](parser.parseUri(serviceRoot + "/Customers?$filter=name eq '%zz'"))
+  }
 }
@@ -15,10 +15,13 @@
  */
 package com.sdl.odata.parser
 
+import com.sdl.odata.api.parser.ODataUri
 import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
 import org.scalatest.FunSuite
 import com.sdl.odata.test.model._
 
+import scala.util.Try
+
 trait ParserTestHelpers {
   this: FunSuite =>
 
@@ -50,6 +53,26 @@ trait ParserTestHelpers {
     new ODataUriParser(factory.buildEntityDataModel())
   }
 
+  lazy val descentParser = new ODataUriDescentParser(parser.entityDataModel)
+
+  /**
+   * Parses a whole URI with both engines. The hand-written parser either leaves the URI to the combinator grammar,
+   * or parses it into the same result as the grammar does.
+   */
+  def testUriSuccess(input: String, expected: ODataUri) {
+    testSuccess(input, expected)(parser.odataUri)
+    testDescentResult(input)
+  }
+
+  def testUriNoSuccess(input: String, message: String = "") {
+    testNoSuccess(input, message)(parser.odataUri)
+    testDescentResult(input)
+  }
+
+  private def testDescentResult(input: String) {
+    descentParser.parseUri(input).foreach(result => assert(Try(parser.parseUri(input)).toOption.contains(result), input))
+  }
+
   def testSuccess[T](input: String, expected: T)(implicit p: parser.Parser[_]) {
     parser.parseAll(p, input) match {
       case result: parser.Success[_] => assert(result.get == expected)
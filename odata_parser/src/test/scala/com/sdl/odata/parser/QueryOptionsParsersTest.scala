@@ -41,12 +41,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("andExpr") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://localhost:8080/odata.svc"
     val relativeUri = "/Products?$filter=id le 20 and id eq 15"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot, ResourcePathUri(
         EntitySetPath("Products", None), List(FilterOption(
           AndExpr(
@@ -59,15 +57,13 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("Multiple and/or expressions") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://localhost:8080/odata.svc"
     val relativeUri1 = "/Products?$filter=id le 20 or id gt 10 and name eq 'Computer'"
     val relativeUri2 = "/Products?$filter=id gt 10 and name eq 'Computer' or id le 20"
 
     // Shows that 'and' has precedence above 'or'
 
-    testSuccess(serviceRoot + relativeUri1,
+    testUriSuccess(serviceRoot + relativeUri1,
       ODataUri(
         serviceRoot,
         ResourcePathUri(
@@ -87,7 +83,7 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
       )
     )
 
-    testSuccess(serviceRoot + relativeUri2,
+    testUriSuccess(serviceRoot + relativeUri2,
       ODataUri(
         serviceRoot,
         ResourcePathUri(
@@ -135,12 +131,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("selectAddress") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$select=address"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -157,12 +151,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$expand Orders") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$expand=Orders"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -173,12 +165,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$expand *") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$expand=*"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(EntitySetPath("Customers", None),
           List(ExpandOption(List(
@@ -186,12 +176,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$expand & $level=10") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$expand=Orders($levels=10)"
 
-    testSuccess(serviceRoot + relativeUri, ODataUri(serviceRoot,
+    testUriSuccess(serviceRoot + relativeUri, ODataUri(serviceRoot,
       ResourcePathUri(EntitySetPath("Customers", None),
         List(ExpandOption(List(PathExpandItem(None,
           NavigationPropertyExpandPathSegment("Orders", None), List(
@@ -199,12 +187,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$expand & $apply") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers(1)?$expand=Orders($apply=groupby((id), aggregate($count as OrderCount)))"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(EntitySetPath("Customers",
           Some(EntityCollectionPath(None,
@@ -218,12 +204,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$expand + $ref") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$expand=Orders/$ref"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -235,12 +219,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$expand + all refs expand item") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$expand=*/$ref,Orders"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -253,12 +235,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
 
 
   test("$expand custom options") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$expand=Orders&$skip=1&$orderby=$it&$top=1"
 
-    testSuccess(serviceRoot + relativeUri, ODataUri(
+    testUriSuccess(serviceRoot + relativeUri, ODataUri(
       serviceRoot,
       ResourcePathUri(EntitySetPath("Customers", None),
         List(ExpandOption(
@@ -271,12 +251,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$select terminal property") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$select=Phone"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -288,12 +266,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$select + function") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$select=com.sdl.example.*"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -304,27 +280,23 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("multiple expands") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val multiExpandUri = "/Customers?$select=SomeCategory,Orders&$expand=id"
     // not supported for now
-    testNoSuccess(serviceRoot + multiExpandUri)
+    testUriNoSuccess(serviceRoot + multiExpandUri)
 
     val includedExpandUri = "/Customers?$expand=Orders($select=SomeOrderLine)"
     // not supported for now
-    testNoSuccess(serviceRoot + includedExpandUri)
+    testUriNoSuccess(serviceRoot + includedExpandUri)
 
   }
 
   test("complex expands") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     // looks illogical but we have only Customer model to check this url
     val relativeUri = "/Customers?$expand=ODataDemo.Customer/Orders"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -335,12 +307,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("$skip check") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?$skip=3"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -350,12 +320,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
   }
 
   test("alias + implicit value") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://hello/odata.svc"
     val relativeUri = "/Customers?@name=$it"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot,
         ResourcePathUri(
           EntitySetPath("Customers", None),
@@ -372,12 +340,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
 
   // apply option test
   test("apply option") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://localhost:8080/odata.svc"
     val relativeUri = "/Products?$apply=groupby((id, name), aggregate($count as ProductCount))"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot, ResourcePathUri(
         EntitySetPath("Products", None),
         List(ApplyOption(
@@ -390,12 +356,10 @@ class QueryOptionsParsersTest extends FunSuite with ParserTestHelpers {
 
   // count option test
   test("count option") {
-    implicit val p = parser.odataUri
-
     val serviceRoot = "http://localhost:8080/odata.svc"
     val relativeUri = "/Products?$count=true"
 
-    testSuccess(serviceRoot + relativeUri,
+    testUriSuccess(serviceRoot + relativeUri,
       ODataUri(serviceRoot, ResourcePathUri(
         EntitySetPath("Products", None),
         List(CountOption(true)))))
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.parser
+
+import com.sdl.odata.api.parser.ODataUriParseException
+import org.scalatest.FunSuite
+
+class TokenizedUriTest extends FunSuite {
+
+  test("split at the query and the query options") {
+    val uri = new TokenizedUri("http://localhost/odata.svc/Customers?$top=1&$filter=name%20eq%20'a%26b'&x=y")
+    assert(uri.hasQuery)
+    assert(uri.path === "http://localhost/odata.svc/Customers")
+    assert(uri.queryOptions.map(_.value) === Seq("$top=1", "$filter=name eq 'a&b'", "x=y"))
+    assert(uri.decoded === "http://localhost/odata.svc/Customers?$top=1&$filter=name eq 'a&b'&x=y")
+
+    val noQuery = new TokenizedUri("http://localhost/odata.svc/Customers%3F%24top%3D1")
+    assert(!noQuery.hasQuery)
+    assert(noQuery.queryOptions.isEmpty)
+    assert(noQuery.decoded === "http://localhost/odata.svc/Customers?$top=1")
+
+    // A "+" is a space in the query only
+    val plus = new TokenizedUri("http://localhost/odata.svc/Customers('a+b')?$filter=name+eq+'a%2Bb'")
+    assert(plus.path === "http://localhost/odata.svc/Customers('a+b')")
+    assert(plus.queryOptions.map(_.value) === Seq("$filter=name eq 'a+b'"))
+    val escapedPlus = new TokenizedUri("http://localhost/odata.svc/Customers('a+b')%3f%24filter%3Dname+eq+'a%2Bb'")
+    assert(escapedPlus.decoded === "http://localhost/odata.svc/Customers('a+b')?$filter=name eq 'a+b'")
+
+    assert(new TokenizedUri("http://localhost/odata.svc/Customers?").queryOptions.map(_.value) === Seq(""))
+  }
+
+  test("decode") {
+    assert(TokenizedUri.decode("$top=1", 0, 6, formEncoded = true) === "$top=1")
+    assert(TokenizedUri.decode("x'a+b%20c'x", 1, 10, formEncoded = true) === "'a b c'")
+    assert(TokenizedUri.decode("%C3%A9t%C3%A9", 0, 13, formEncoded = true) === "été")
+    assert(TokenizedUri.decode("%e2%82%ac", 0, 9, formEncoded = true) === "€")
+    assert(TokenizedUri.decode("x'a+b%20c%2B'x", 1, 13, formEncoded = false) === "'a+b c+'")
+
+    Seq("%", "%2", "a%zz", "%2%41").foreach { s =>
+      intercept[ODataUriParseException](TokenizedUri.decode(s, 0, s.length, formEncoded = true))
+    }
+    // Only the given part is decoded, even when an escape runs past its end
+    intercept[ODataUriParseException](TokenizedUri.decode("a%20", 0, 3, formEncoded = true))
+  }
+}
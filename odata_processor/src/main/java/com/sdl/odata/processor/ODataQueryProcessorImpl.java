@@ -19,6 +19,8 @@ import com.sdl.odata.api.ODataBadRequestException;
 import com.sdl.odata.api.ODataException;
 import com.sdl.odata.api.ODataNotImplementedException;
 import com.sdl.odata.api.edm.model.EntityDataModel;
+import com.sdl.odata.api.edm.model.EntityType;
+import com.sdl.odata.api.edm.model.Type;
 import com.sdl.odata.api.parser.MetadataUri;
 import com.sdl.odata.api.parser.ODataUri;
 import com.sdl.odata.api.parser.ODataUriUtil;
@@ -33,16 +35,24 @@ import com.sdl.odata.api.processor.datasource.factory.DataSourceFactory;
 import com.sdl.odata.api.processor.query.ODataQuery;
 import com.sdl.odata.api.processor.query.QueryResult;
 import com.sdl.odata.api.processor.query.strategy.QueryOperationStrategy;
+import com.sdl.odata.api.service.ODataRequest;
 import com.sdl.odata.api.service.ODataRequestContext;
+import com.sdl.odata.util.edm.ETagUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import scala.Option;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
+import static com.sdl.odata.api.service.HeaderNames.ETAG;
+import static com.sdl.odata.api.service.HeaderNames.IF_NONE_MATCH;
+import static com.sdl.odata.api.service.ODataResponse.Status.NOT_MODIFIED;
 import static com.sdl.odata.api.service.ODataResponse.Status.OK;
+import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
 
 /**
  * Implementation of {@code ODataQueryProcessor}.
@@ -85,6 +95,14 @@ public class ODataQueryProcessorImpl implements ODataQueryProcessor {
                     requestContext.getRequest().getUri());
         }
 
+        // Don't hit the data source for a request which has already timed out
+        requestContext.getDeadline().checkNotExpired();
+
+        Optional<ProcessorResult> notModified = checkNotModified(requestContext, targetType, strategy);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+
         QueryResult result;
 
         try {
@@ -118,6 +136,39 @@ public class ODataQueryProcessorImpl implements ODataQueryProcessor {
         }
     }
 
+    /**
+     * Answers a conditional GET for a single entity from the version of the entity alone, when the strategy can look
+     * it up without materializing the entity. The version is that of the declared type of the entity, which is what
+     * the ETag of the rendered entity is computed from too; shaped results do not get an ETag at all.
+     */
+    private Optional<ProcessorResult> checkNotModified(ODataRequestContext requestContext, TargetType targetType,
+                                                       QueryOperationStrategy strategy) throws ODataException {
+        ODataRequest request = requestContext.getRequest();
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if (isNullOrEmpty(ifNoneMatch) || request.getMethod() != ODataRequest.Method.GET || targetType.isCollection()
+                || ODataUriUtil.hasShapingOptions(requestContext.getUri())) {
+            return Optional.empty();
+        }
+
+        Type type = requestContext.getEntityDataModel().getType(targetType.typeName());
+        if (!(type instanceof EntityType) || ((EntityType) type).getConcurrencyPropertyNames().isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<List<?>> version = strategy.executeVersion();
+        if (!version.isPresent()) {
+            return Optional.empty();
+        }
+
+        String eTag = ETagUtil.formatETag(version.get());
+        if (!ETagUtil.matches(ifNoneMatch, eTag)) {
+            return Optional.empty();
+        }
+
+        LOG.debug("Entity not modified, ETag: {}", eTag);
+        return Optional.of(new ProcessorResult(NOT_MODIFIED, Collections.singletonMap(ETAG, eTag)));
+    }
+
     private boolean isMetadataUri(RelativeUri relativeUri) {
         return relativeUri instanceof MetadataUri;
     }
@@ -17,6 +17,7 @@ package com.sdl.odata.processor;
 
 import com.sdl.odata.api.ODataException;
 import com.sdl.odata.api.parser.ODataUriUtil;
+import com.sdl.odata.api.processor.ODataWriteListener;
 import com.sdl.odata.api.processor.ODataWriteProcessor;
 import com.sdl.odata.api.processor.ProcessorResult;
 import com.sdl.odata.api.processor.datasource.factory.DataSourceFactory;
@@ -33,6 +34,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.List;
+
 import static com.sdl.odata.api.service.ODataResponse.Status.METHOD_NOT_ALLOWED;
 
 
@@ -46,6 +50,9 @@ public class ODataWriteProcessorImpl implements ODataWriteProcessor {
     @Autowired
     private DataSourceFactory dataSourceFactory;
 
+    @Autowired(required = false)
+    private List<ODataWriteListener> writeListeners = Collections.emptyList();
+
     @Override
     public ProcessorResult write(ODataRequestContext requestContext, Object entity) throws ODataException {
         try {
@@ -53,7 +60,9 @@ public class ODataWriteProcessorImpl implements ODataWriteProcessor {
             if (methodHandler == null) {
                 return new ProcessorResult(METHOD_NOT_ALLOWED);
             }
-            return methodHandler.handleWrite(entity);
+            ProcessorResult result = methodHandler.handleWrite(entity);
+            writeListeners.forEach(listener -> listener.written(requestContext));
+            return result;
         } catch (Exception e) {
             LOG.error("Couldn't persist or delete given entity '" + entity + "'", e);
             throw e;
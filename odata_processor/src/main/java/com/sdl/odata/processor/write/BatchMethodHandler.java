@@ -24,6 +24,7 @@ import com.sdl.odata.api.edm.model.Type;
 import com.sdl.odata.api.parser.ODataUri;
 import com.sdl.odata.api.parser.ODataUriUtil;
 import com.sdl.odata.api.parser.TargetType;
+import com.sdl.odata.api.processor.ODataWriteListener;
 import com.sdl.odata.api.processor.ProcessorResult;
 import com.sdl.odata.api.processor.datasource.DataSource;
 import com.sdl.odata.api.processor.datasource.ODataTargetTypeException;
@@ -39,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import scala.Option;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,27 +53,36 @@ import static com.sdl.odata.api.processor.query.QueryResult.from;
 public class BatchMethodHandler {
     private static final Logger LOG = LoggerFactory.getLogger(BatchMethodHandler.class);
 
-    private final List<ChangeSetEntity> changeSetEntities;
+    private final Iterable<ChangeSetEntity> changeSetEntities;
     private final EntityDataModel entityDataModel;
     private final DataSourceFactory dataSourceFactory;
+    private final List<ODataWriteListener> writeListeners;
 
     private final Map<String, TransactionalDataSource> dataSourceMap = new HashMap<>();
 
     public BatchMethodHandler(ODataRequestContext requestContext, DataSourceFactory dataSourceFactory,
-                              List<ChangeSetEntity> changeSetEntries) {
+                              Iterable<ChangeSetEntity> changeSetEntries) {
+        this(requestContext, dataSourceFactory, changeSetEntries, Collections.emptyList());
+    }
+
+    public BatchMethodHandler(ODataRequestContext requestContext, DataSourceFactory dataSourceFactory,
+                              Iterable<ChangeSetEntity> changeSetEntries, List<ODataWriteListener> writeListeners) {
         this.changeSetEntities = changeSetEntries;
         this.entityDataModel = requestContext.getEntityDataModel();
         this.dataSourceFactory = dataSourceFactory;
+        this.writeListeners = writeListeners;
     }
 
     /**
-     * Handles transactional operations for each parsed odata request.
+     * Handles transactional operations for each parsed odata request. The change set entities are iterated once, so
+     * each of them can be created just before it is written.
      *
      * @return processor results
      */
     public List<ProcessorResult> handleWrite() throws ODataException {
-        LOG.info("Handling transactional operations per each odata request.");
+        LOG.debug("Handling transactional operations per each odata request.");
         List<ProcessorResult> resultList = new ArrayList<>();
+        List<ODataRequestContext> writtenRequests = new ArrayList<>();
 
         try {
             for (ChangeSetEntity changeSetEntity : changeSetEntities) {
@@ -88,10 +99,14 @@ public class BatchMethodHandler {
                     result = handleDelete(odataRequestContext, requestUri, changeSetEntity);
                 }
                 resultList.add(result);
+                writtenRequests.add(odataRequestContext);
             }
 
             commitTransactions();
-        } catch (ODataException e) {
+            for (ODataRequestContext writtenRequest : writtenRequests) {
+                writeListeners.forEach(listener -> listener.written(writtenRequest));
+            }
+        } catch (ODataException | RuntimeException e) {
             LOG.error("Transaction could not be processed, rolling back", e);
             rollbackTransactions();
             throw e;
@@ -183,12 +198,12 @@ public class BatchMethodHandler {
     }
 
     private void commitTransactions() {
-        LOG.info("Committing batch transactions");
+        LOG.debug("Committing batch transactions");
         dataSourceMap.values().forEach(TransactionalDataSource::commit);
     }
 
     private void rollbackTransactions() {
-        LOG.info("Rolling back batch transactions");
+        LOG.debug("Rolling back batch transactions");
         dataSourceMap.values().forEach(TransactionalDataSource::rollback);
     }
 
@@ -16,11 +16,11 @@
 package com.sdl.odata.renderer.atom;
 
 import com.sdl.odata.api.ODataException;
-import com.sdl.odata.api.ODataSystemException;
 import com.sdl.odata.api.processor.query.QueryResult;
 import com.sdl.odata.api.renderer.ChunkedActionRenderResult;
 import com.sdl.odata.api.service.ODataRequestContext;
 import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataResponseBody;
 import com.sdl.odata.renderer.AbstractAtomRenderer;
 import com.sdl.odata.renderer.atom.writer.AtomWriter;
 import com.sdl.odata.renderer.atom.writer.ODataV4AtomNSConfigurationProvider;
@@ -29,8 +29,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.List;
 
@@ -76,7 +74,9 @@ public class AtomRenderer extends AbstractAtomRenderer {
 
         AtomWriter atomWriter = initAtomWriter(requestContext);
 
-        atomWriter.startDocument();
+        // The XML is written straight into the body of the response, without an intermediate String
+        ODataResponseBody body = new ODataResponseBody();
+        atomWriter.startDocument(body.getOutputStream());
         if (result.getType() == COLLECTION) {
             atomWriter.writeFeed((List<?>) result.getData(), buildContextURL(requestContext, result.getData()),
                     result.getMeta());
@@ -84,17 +84,12 @@ public class AtomRenderer extends AbstractAtomRenderer {
             atomWriter.writeEntry(result.getData(), buildContextURL(requestContext, result.getData()));
         }
         atomWriter.endDocument();
-        String renderedData = atomWriter.getXml();
 
         if (responseBuilder != null) {
-            try {
-                responseBuilder
-                        .setContentType(ATOM_XML)
-                        .setHeader("OData-Version", ODATA_VERSION_HEADER)
-                        .setBodyText(renderedData, StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException e) {
-                throw new ODataSystemException(e);
-            }
+            responseBuilder
+                    .setContentType(ATOM_XML)
+                    .setHeader("OData-Version", ODATA_VERSION_HEADER)
+                    .setBody(body);
         }
 
         LOG.debug("End rendering entity(es) for request: {}", requestContext);
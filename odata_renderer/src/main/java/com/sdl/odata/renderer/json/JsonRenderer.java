@@ -22,6 +22,7 @@ import com.sdl.odata.api.renderer.ChunkedActionRenderResult;
 import com.sdl.odata.api.service.MediaType;
 import com.sdl.odata.api.service.ODataRequestContext;
 import com.sdl.odata.api.service.ODataResponse;
+import com.sdl.odata.api.service.ODataResponseBody;
 import com.sdl.odata.renderer.AbstractJsonRenderer;
 import com.sdl.odata.renderer.json.writer.JsonWriter;
 import org.slf4j.Logger;
@@ -29,7 +30,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -69,23 +70,25 @@ public final class JsonRenderer extends AbstractJsonRenderer {
         JsonWriter writer = new JsonWriter(requestContext.getUri(), requestContext.getEntityDataModel());
 
         String contextUrl = buildContextURL(requestContext, result.getData());
-        String json;
+        // The JSON is written straight into the body of the response, without an intermediate String
+        ODataResponseBody body = new ODataResponseBody();
         if (result.getType() == COLLECTION) {
-            json = writer.writeFeed((List<?>) result.getData(), contextUrl, result.getMeta());
+            writer.writeFeed((List<?>) result.getData(), contextUrl, result.getMeta(), body.getOutputStream());
         } else if (result.getType() == RAW_JSON) {
-            json = writer.writeRawJson(result.getData().toString(), contextUrl);
-        } else {
-            json = writer.writeEntry(result.getData(), contextUrl);
-        }
-        if (responseBuilder != null) {
             try {
-                responseBuilder
-                        .setContentType(MediaType.JSON)
-                        .setHeader("OData-Version", ODATA_VERSION_HEADER)
-                        .setBodyText(json, StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException e) {
+                body.getOutputStream().write(
+                        writer.writeRawJson(result.getData().toString(), contextUrl).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
                 throw new ODataSystemException(e);
             }
+        } else {
+            writer.writeEntry(result.getData(), contextUrl, body.getOutputStream());
+        }
+        if (responseBuilder != null) {
+            responseBuilder
+                    .setContentType(MediaType.JSON)
+                    .setHeader("OData-Version", ODATA_VERSION_HEADER)
+                    .setBody(body);
         }
 
         LOG.debug("End rendering entity(es) for request: {}", requestContext);
@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -103,10 +104,26 @@ public class JsonWriter {
      */
     public String writeFeed(List<?> entities, String contextUrl, Map<String, Object> meta)
             throws ODataRenderException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeFeed(entities, contextUrl, meta, stream);
+        return toUtf8String(stream);
+    }
+
+    /**
+     * Write a list of entities (feed) to the given stream.
+     *
+     * @param entities     The list of entities to fill in the JSON stream.
+     * @param contextUrl   The 'Context URL' to write.
+     * @param meta         Additional metadata for the writer.
+     * @param outputStream The stream to write the feed to.
+     * @throws ODataRenderException In case it is not possible to write to the JSON stream.
+     */
+    public void writeFeed(List<?> entities, String contextUrl, Map<String, Object> meta, OutputStream outputStream)
+            throws ODataRenderException {
         this.contextURL = checkNotNull(contextUrl);
 
         try {
-            return writeJson(entities, meta);
+            writeJson(entities, meta, outputStream);
         } catch (IOException | IllegalAccessException | NoSuchFieldException
                 | ODataEdmException | ODataRenderException e) {
             LOG.error("Not possible to marshall feed stream JSON");
@@ -123,11 +140,25 @@ public class JsonWriter {
      * @throws ODataRenderException In case it is not possible to write to the JSON stream.
      */
     public String writeEntry(Object entity, String contextUrl) throws ODataRenderException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeEntry(entity, contextUrl, stream);
+        return toUtf8String(stream);
+    }
+
+    /**
+     * Write a single entity (entry) to the given stream.
+     *
+     * @param entity       The entity to fill in the JSON stream. It can not be {@code null}.
+     * @param contextUrl   The 'Context URL' to write. It can not be {@code null}.
+     * @param outputStream The stream to write the entry to.
+     * @throws ODataRenderException In case it is not possible to write to the JSON stream.
+     */
+    public void writeEntry(Object entity, String contextUrl, OutputStream outputStream) throws ODataRenderException {
 
         this.contextURL = checkNotNull(contextUrl);
 
         try {
-            return writeJson(entity, null);
+            writeJson(entity, null, outputStream);
         } catch (IOException | IllegalAccessException | NoSuchFieldException |
                 ODataEdmException | ODataRenderException e) {
             LOG.error("Not possible to marshall single entity stream JSON");
@@ -160,15 +191,14 @@ public class JsonWriter {
      * Write the given data to the JSON stream. The data to write will be either a single entity or a feed depending on
      * whether it is a single object or list.
      *
-     * @param data The given data.
-     * @param meta Additional values to write.
-     * @return The written JSON stream.
+     * @param data   The given data.
+     * @param meta   Additional values to write.
+     * @param stream The stream to write to.
      * @throws ODataRenderException if unable to render
      */
-    private String writeJson(Object data, Map<String, Object> meta) throws IOException, NoSuchFieldException,
-            IllegalAccessException, ODataEdmException, ODataRenderException {
+    private void writeJson(Object data, Map<String, Object> meta, OutputStream stream) throws IOException,
+            NoSuchFieldException, IllegalAccessException, ODataEdmException, ODataRenderException {
 
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
         jsonGenerator = JSON_FACTORY.createGenerator(stream, JsonEncoding.UTF8);
 
         jsonGenerator.writeStartObject();
@@ -210,8 +240,10 @@ public class JsonWriter {
 
         jsonGenerator.writeEndObject();
         jsonGenerator.close();
+    }
 
-        return stream.toString(StandardCharsets.UTF_8.name());
+    private static String toUtf8String(ByteArrayOutputStream stream) {
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
     }
 
     private void marshallEntities(List<?> entities) throws IOException,
@@ -35,6 +35,9 @@ import org.slf4j.LoggerFactory;
 import scala.Option;
 import scala.collection.immutable.List$;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -45,7 +48,6 @@ import java.util.Set;
 import static com.sdl.odata.ODataRendererUtils.checkNotNull;
 import static com.sdl.odata.api.parser.ODataUriUtil.extractEntityWithKeys;
 import static com.sdl.odata.api.service.ODataRequest.Method.GET;
-import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
@@ -54,6 +56,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public abstract class AbstractParser {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractParser.class);
+    private static final int BUFFER_SIZE = 8192;
 
     private final EntityDataModel entityDataModel;
     private final ODataRequest request;
@@ -74,10 +77,12 @@ public abstract class AbstractParser {
      * @throws ODataException In case of a parsing or validation error
      */
     public Object getODataEntity() throws ODataException {
-        final String bodyText = getBodyText();
-        LOG.trace("Text of the body is {}", bodyText);
-        if (!isNullOrEmpty(bodyText)) {
-            return processEntity(bodyText);
+        if (hasBody()) {
+            try (InputStream body = getBodyStream()) {
+                return processEntity(body);
+            } catch (IOException e) {
+                throw new ODataSystemException(e);
+            }
         } else {
             throw new ODataUnmarshallingException("Payload is empty. Expected an entry.");
         }
@@ -90,15 +95,43 @@ public abstract class AbstractParser {
      * @throws ODataException In case of a parsing or validation error
      */
     public List<?> getODataEntities() throws ODataException {
-        final String bodyText = getBodyText();
-        LOG.trace("Text of the body is {}", bodyText);
-        if (!isNullOrEmpty(bodyText)) {
-            return processEntities(bodyText);
+        if (hasBody()) {
+            try (InputStream body = getBodyStream()) {
+                return processEntities(body);
+            } catch (IOException e) {
+                throw new ODataSystemException(e);
+            }
         } else {
             throw new ODataUnmarshallingException("Payload is empty. Expected a feed.");
         }
     }
 
+    /**
+     * Process entity by given payload. Parsers which can read the payload incrementally override this method; by
+     * default the payload is read as text and handed to {@link #processEntity(String)}.
+     *
+     * @param body The stream of the payload, which is not empty.
+     * @return Object that represents entity by unmarshalling.
+     * @throws ODataException in case of invalid payload.
+     * @throws IOException If unable to read the payload.
+     */
+    protected Object processEntity(InputStream body) throws ODataException, IOException {
+        return processEntity(readBodyText(body));
+    }
+
+    /**
+     * Process the entities (feed) contained by the given payload. Parsers which can read the payload incrementally
+     * override this method; by default the payload is read as text and handed to {@link #processEntities(String)}.
+     *
+     * @param body The stream of the payload, which is not empty.
+     * @return The process entities.
+     * @throws ODataException If unable to process entities
+     * @throws IOException If unable to read the payload.
+     */
+    protected List<?> processEntities(InputStream body) throws ODataException, IOException {
+        return processEntities(readBodyText(body));
+    }
+
     /**
      * Process entity by given text.
      *
@@ -125,6 +158,40 @@ public abstract class AbstractParser {
         }
     }
 
+    /**
+     * Opens a stream which reads the payload of the request, without holding it in memory as a whole.
+     *
+     * @return The stream; the caller must close it.
+     * @throws IOException If unable to read the payload.
+     */
+    protected InputStream getBodyStream() throws IOException {
+        return request.getBodyStream();
+    }
+
+    private boolean hasBody() {
+        try {
+            if (request.getRequestBody().isPresent()) {
+                return request.getRequestBody().get().getLength() > 0;
+            }
+        } catch (IOException e) {
+            throw new ODataSystemException(e);
+        }
+        byte[] body = request.getBody();
+        return body != null && body.length > 0;
+    }
+
+    private static String readBodyText(InputStream body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = body.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        String bodyText = new String(out.toByteArray(), UTF_8);
+        LOG.trace("Text of the body is {}", bodyText);
+        return bodyText;
+    }
+
     protected Type getType(String entityName) {
         return entityDataModel.getType(entityName);
     }
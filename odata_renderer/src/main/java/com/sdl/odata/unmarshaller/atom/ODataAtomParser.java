@@ -47,6 +47,9 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -88,6 +91,7 @@ import static com.sdl.odata.AtomConstants.TITLE;
 import static com.sdl.odata.AtomConstants.TYPE;
 import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
 import static com.sdl.odata.util.edm.EntityDataModelUtil.getStructuralProperty;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * The OData Atom Parser.
@@ -124,6 +128,26 @@ public class ODataAtomParser extends AbstractParser {
         return processEntities(parseXML(bodyText).getDocumentElement());
     }
 
+    @Override
+    protected Object processEntity(InputStream body) throws ODataException {
+        return processEntity(parseXML(new InputStreamReader(body, UTF_8)).getDocumentElement());
+    }
+
+    @Override
+    protected List<?> processEntities(InputStream body) throws ODataException {
+        return processEntities(parseXML(new InputStreamReader(body, UTF_8)).getDocumentElement());
+    }
+
+    private Document parseXML(Reader body) throws ODataUnmarshallingException {
+        try {
+            return DOCBUILDER_FACTORY.newDocumentBuilder().parse(new InputSource(body));
+        } catch (SAXException e) {
+            throw new ODataUnmarshallingException("Error while parsing XML", e);
+        } catch (IOException | ParserConfigurationException e) {
+            throw new ODataSystemException(e);
+        }
+    }
+
     private Document parseXML(String xml) throws ODataUnmarshallingException {
         try {
             return DOCBUILDER_FACTORY.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
@@ -216,7 +240,7 @@ public class ODataAtomParser extends AbstractParser {
 
                 return (EntityType) type;
             }
-            LOG.debug("Found a <category> element with an unexpected 'scheme' attribute: " + scheme);
+            LOG.debug("Found a <category> element with an unexpected 'scheme' attribute: {}", scheme);
         }
 
         throw new ODataUnmarshallingException("No <category> element found with attribute scheme=\""
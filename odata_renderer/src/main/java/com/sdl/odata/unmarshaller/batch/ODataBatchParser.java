@@ -22,6 +22,8 @@ import com.sdl.odata.api.service.ODataRequestContext;
 import com.sdl.odata.parser.ODataBatchRequestParser;
 import com.sdl.odata.unmarshaller.AbstractParser;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -33,6 +35,19 @@ public class ODataBatchParser extends AbstractParser {
         super(request, uriParser);
     }
 
+    /**
+     * Actually here processed not an entity but a multipart/mixed batch request body, which is read one part at a
+     * time.
+     * @param body represents batch request body
+     * @return parsed ODataBatchRequestContent
+     * @throws ODataException If unable to parse entity
+     * @throws IOException If unable to read the body
+     */
+    @Override
+    protected Object processEntity(InputStream body) throws ODataException, IOException {
+        return new ODataBatchRequestParser().parseBatch(body);
+    }
+
     /**
      * Actually here processed not an entity but a multipart/mixed batch request body.
      * @param bodyText represents batch request body
@@ -34,10 +34,13 @@ import com.sdl.odata.unmarshaller.json.core.JsonPropertyExpander;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
 
 import static com.sdl.odata.util.ReferenceUtil.isNullOrEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * The OData Json Parser.
@@ -60,7 +63,7 @@ public class ODataJsonParser extends AbstractParser {
      * @throws ODataUnmarshallingException If unable to initialize processor
      */
     private void initializeProcessor(JsonProcessor processor) throws ODataUnmarshallingException {
-        LOG.info("Trying to initialize processor: {}", processor.getClass().getSimpleName());
+        LOG.debug("Trying to initialize processor: {}", processor.getClass().getSimpleName());
         processor.initialize();
 
         fields = processor.getValues();
@@ -70,7 +73,16 @@ public class ODataJsonParser extends AbstractParser {
 
     @Override
     protected Object processEntity(String bodyText) throws ODataException {
-        initializeProcessor(new JsonProcessor(bodyText));
+        return processEntity(new JsonProcessor(bodyText));
+    }
+
+    @Override
+    protected Object processEntity(InputStream body) throws ODataException {
+        return processEntity(new JsonProcessor(new InputStreamReader(body, UTF_8)));
+    }
+
+    private Object processEntity(JsonProcessor processor) throws ODataException {
+        initializeProcessor(processor);
 
         JsonPropertyExpander expander = new JsonPropertyExpander(getEntityDataModel());
 
@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -53,7 +55,7 @@ public class JsonProcessor {
      * SVC Extension.
      */
     public static final String SVC_EXTENSION = ".svc/";
-    private final String inputJson;
+    private final Reader inputJson;
 
     private Map<String, String> odataValues = new HashMap<>();
     private Map<String, Object> values = new HashMap<>();
@@ -63,7 +65,19 @@ public class JsonProcessor {
         if (bodyText == null) {
             throw new IllegalArgumentException();
         }
-        this.inputJson = bodyText;
+        this.inputJson = new StringReader(bodyText);
+    }
+
+    /**
+     * Creates a processor which reads the JSON incrementally from the given reader.
+     *
+     * @param body The reader of the JSON.
+     */
+    public JsonProcessor(Reader body) {
+        if (body == null) {
+            throw new IllegalArgumentException();
+        }
+        this.inputJson = body;
     }
 
     /**
@@ -71,7 +85,7 @@ public class JsonProcessor {
      * @throws ODataUnmarshallingException If unable to initialize
      */
     public void initialize() throws ODataUnmarshallingException {
-        LOG.info("Parser is initializing");
+        LOG.debug("Parser is initializing");
         try {
             JsonParser jsonParser = JSON_FACTORY.createParser(inputJson);
 
@@ -101,7 +115,7 @@ public class JsonProcessor {
      */
     private void process(JsonParser jsonParser) throws IOException, ODataUnmarshallingException {
         if (jsonParser.getCurrentToken() == JsonToken.FIELD_NAME) {
-            LOG.info("Starting to parse {} token", jsonParser.getCurrentName());
+            LOG.debug("Starting to parse {} token", jsonParser.getCurrentName());
             String key = jsonParser.getCurrentName();
             jsonParser.nextToken();
 
@@ -131,7 +145,7 @@ public class JsonProcessor {
      * @throws IOException If unable to read input parser
      */
     private List<Object> getCollectionValue(JsonParser jsonParser) throws IOException {
-        LOG.info("Start parsing {} array", jsonParser.getCurrentName());
+        LOG.debug("Start parsing {} array", jsonParser.getCurrentName());
         List<Object> list = new ArrayList<>();
         while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
             if (jsonParser.getCurrentToken() == JsonToken.START_OBJECT) {
@@ -141,7 +155,7 @@ public class JsonProcessor {
             if (!"}".equals(jsonParser.getText())) {
                 list.add(jsonParser.getText());
             } else {
-                LOG.info("Array is over.");
+                LOG.debug("Array is over.");
             }
         }
         return list;
@@ -155,7 +169,7 @@ public class JsonProcessor {
      * @throws IOException If unable to read input parser
      */
     private Object getEmbeddedObject(JsonParser jsonParser) throws IOException {
-        LOG.info("Start parsing an embedded object.");
+        LOG.debug("Start parsing an embedded object.");
         Map<String, Object> embeddedMap = new HashMap<>();
         while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
             String key = jsonParser.getText();
@@ -186,7 +200,7 @@ public class JsonProcessor {
      * @throws IOException If unable to read input parser
      */
     private void processSpecialTags(JsonParser jsonParser) throws IOException {
-        LOG.info("@odata tags found - start parsing");
+        LOG.debug("@odata tags found - start parsing");
         String key = jsonParser.getCurrentName();
         jsonParser.nextToken();
         String value = jsonParser.getText();
@@ -201,7 +215,7 @@ public class JsonProcessor {
      */
     private void processLinks(JsonParser jsonParser) throws IOException {
 
-        LOG.info("@odata.bind tag found - start parsing");
+        LOG.debug("@odata.bind tag found - start parsing");
 
         final String fullLinkFieldName = jsonParser.getText();
         final String key = fullLinkFieldName.substring(0, fullLinkFieldName.indexOf(ODATA_BIND));
@@ -19,20 +19,43 @@ import akka.actor.ActorContext;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
+import akka.dispatch.Dispatchers;
+import akka.routing.RoundRobinPool;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * The ActorProducer is responsible for creating Akka actors that are using Spring dependency injection.
+ * <p>
+ * The dispatcher that runs the actors of a stage of the pipeline is configured by the
+ * {@code odata.service.dispatcher.<stage>} property, where the stage is derived from the name of the actor, e.g.
+ * {@code query-processor} for the {@code ODataQueryProcessorActor}. The dispatcher is either {@code default},
+ * {@code blocking} for a bounded pool of threads for stages that block, {@code virtual} for virtual threads, or the id
+ * of a dispatcher in the Akka configuration.
  */
 @Component
 public class ActorProducer {
+    private static final String DISPATCHER_PROPERTY_PREFIX = "odata.service.dispatcher.";
+    private static final String DEFAULT_DISPATCHER = "default";
+    private static final String BLOCKING_DISPATCHER = "blocking";
+    private static final String VIRTUAL_THREAD_DISPATCHER = "virtual";
+
     @Autowired
     private AkkaSpringExtension akkaSpringExtension;
 
     @Autowired
     private ActorSystem actorSystem;
 
+    @Autowired
+    private Environment environment;
+
+    private final Map<String, String> dispatcherIds = new ConcurrentHashMap<>();
+
     public void tell(String actorId, Object message) {
         Props props = create(actorId);
         actorSystem.actorOf(props).tell(message, null);
@@ -54,7 +77,48 @@ public class ActorProducer {
         return context.actorOf(create(actorId));
     }
 
+    /**
+     * Creates a round-robin pool of long-lived actors of the given type.
+     *
+     * @param actorId  The bean name of the actor.
+     * @param poolSize The number of actors in the pool.
+     * @return The reference to the pool, messages sent to it are distributed over the pooled actors.
+     */
+    public ActorRef pooledActorRef(String actorId, int poolSize) {
+        return actorSystem.actorOf(new RoundRobinPool(poolSize).props(create(actorId)), actorId + "Pool");
+    }
+
     public Props create(String actorId) {
-        return akkaSpringExtension.get(actorSystem).props(actorId);
+        return akkaSpringExtension.get(actorSystem).props(actorId).withDispatcher(dispatcherId(actorId));
+    }
+
+    private String dispatcherId(String actorId) {
+        return dispatcherIds.computeIfAbsent(actorId, id -> {
+            String dispatcher = environment.getProperty(DISPATCHER_PROPERTY_PREFIX + stageName(id),
+                    DEFAULT_DISPATCHER).trim();
+            String dispatcherId;
+            switch (dispatcher) {
+                case DEFAULT_DISPATCHER:
+                    dispatcherId = Dispatchers.DefaultDispatcherId();
+                    break;
+                case BLOCKING_DISPATCHER:
+                    dispatcherId = "odata.blocking-dispatcher";
+                    break;
+                case VIRTUAL_THREAD_DISPATCHER:
+                    dispatcherId = "odata.virtual-thread-dispatcher";
+                    break;
+                default:
+                    dispatcherId = dispatcher;
+            }
+            if (!actorSystem.dispatchers().hasDispatcher(dispatcherId)) {
+                throw new IllegalArgumentException("Unknown dispatcher '" + dispatcher + "' configured for " + id);
+            }
+            return dispatcherId;
+        });
+    }
+
+    private static String stageName(String actorId) {
+        String name = actorId.replaceFirst("^OData", "").replaceFirst("Actor$", "");
+        return name.replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.spring;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Selects the implementation of the OData service that handles requests, as configured by the
+ * {@code odata.service.engine} property: {@code actor} (the default) passes requests through the actor pipeline,
+ * {@code direct} runs the stages of the pipeline on the calling thread.
+ */
+public abstract class ODataServiceEngineCondition implements Condition {
+
+    private static final String ENGINE_PROPERTY = "odata.service.engine";
+    private static final String ACTOR_ENGINE = "actor";
+    private static final String DIRECT_ENGINE = "direct";
+
+    private final String engine;
+
+    protected ODataServiceEngineCondition(String engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return engine.equalsIgnoreCase(context.getEnvironment().getProperty(ENGINE_PROPERTY, ACTOR_ENGINE).trim());
+    }
+
+    /**
+     * Matches when requests are passed through the actor pipeline.
+     */
+    public static class ActorEngine extends ODataServiceEngineCondition {
+        public ActorEngine() {
+            super(ACTOR_ENGINE);
+        }
+    }
+
+    /**
+     * Matches when requests are handled on the calling thread.
+     */
+    public static class DirectEngine extends ODataServiceEngineCondition {
+        public DirectEngine() {
+            super(DIRECT_ENGINE);
+        }
+    }
+}
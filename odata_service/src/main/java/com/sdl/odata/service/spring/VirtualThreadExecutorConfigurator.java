@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.spring;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import com.sdl.odata.service.util.ExecutorUtil;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Option;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configures the executor of an Akka dispatcher to run every task on a new virtual thread, so that actors which block,
+ * for example on JDBC calls of a data source, do not hold on to a platform thread.
+ * <p>
+ * Virtual threads need Java 21 or later. On an older JVM the dispatcher runs on a fixed pool of
+ * {@code virtual-thread-executor.fallback-pool-size} threads instead.
+ */
+public class VirtualThreadExecutorConfigurator extends ExecutorServiceConfigurator {
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadExecutorConfigurator.class);
+
+    private final int fallbackPoolSize;
+
+    public VirtualThreadExecutorConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        this.fallbackPoolSize = config.getInt("virtual-thread-executor.fallback-pool-size");
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        return () -> {
+            Option<ExecutorService> virtualThreadExecutor = ExecutorUtil.virtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor.isDefined()) {
+                return virtualThreadExecutor.get();
+            }
+            LOG.warn("Virtual threads are not supported by this JVM, running dispatcher {} on {} threads instead",
+                    id, fallbackPoolSize);
+            return Executors.newFixedThreadPool(fallbackPoolSize, threadFactory);
+        };
+    }
+}
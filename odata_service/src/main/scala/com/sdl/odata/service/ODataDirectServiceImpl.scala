@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service
+
+import java.util.Optional
+import java.util.concurrent.{CompletableFuture, CompletionException, CompletionStage, ExecutorService}
+import java.util.function.{BiConsumer, Supplier}
+
+import com.sdl.odata.api.edm.registry.ODataEdmRegistry
+import com.sdl.odata.api.processor.ProcessorResult
+import com.sdl.odata.api.service.ODataRequestContextUtil._
+import com.sdl.odata.api.service._
+import com.sdl.odata.parser.ODataBatchRequestContent
+import com.sdl.odata.service.admission.ODataAdmissionController
+import com.sdl.odata.service.log.ODataRequestLog
+import com.sdl.odata.service.pipeline.{ODataBatchOperationProcessor, ODataPipeline, StageTimings}
+import com.sdl.odata.service.spring.ODataServiceEngineCondition.DirectEngine
+import com.sdl.odata.service.util.ExecutorUtil
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.context.annotation.Conditional
+import org.springframework.stereotype.Component
+
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success, Try}
+
+/**
+ * OData Service Implementation which runs the stages of the request pipeline directly on the calling thread, instead
+ * of passing the request from actor to actor. For small requests the hand-offs between actors cost more than the work
+ * itself.
+ *
+ * Selected with `odata.service.engine: direct`. The stages, and the mapping of errors to responses, are the same as
+ * those of the actor pipeline, but the routes registered with the `MessageHandlerRegistry` are not used.
+ *
+ * Requests handled asynchronously run on a virtual thread when the JVM supports them and
+ * `odata.service.direct.virtual-threads` is enabled, or else on a pool of `odata.service.direct.pool-size` threads.
+ * A deadline is checked between stages, as a running stage can not be interrupted.
+ *
+ * Requests which the [[ODataAdmissionController]] does not admit are rejected before they are queued for a thread.
+ * A sample of the requests is logged by the [[ODataRequestLog]].
+ *
+ * The stages are timed and recorded with the [[ODataRequestMetrics]] bean, if there is one, as in the actor pipeline.
+ */
+@Component
+@Conditional(Array(classOf[DirectEngine]))
+class ODataDirectServiceImpl @Autowired()(serviceRegistry: ODataEdmRegistry, pipeline: ODataPipeline,
+                                          batchOperationProcessor: ODataBatchOperationProcessor,
+                                          admissionController: ODataAdmissionController,
+                                          requestLog: ODataRequestLog,
+                                          @Value("${odata.service.request-timeout:0}") requestTimeout: Long,
+                                          @Value("${odata.service.direct.virtual-threads:true}") virtualThreads: Boolean,
+                                          @Value("${odata.service.direct.pool-size:64}") poolSize: Int,
+                                          metrics: Optional[ODataRequestMetrics])
+  extends ODataService with DisposableBean {
+  import com.sdl.odata.service.ODataDirectServiceImpl._
+
+  private val executor: ExecutorService = {
+    val virtualThreadExecutor = if (virtualThreads) ExecutorUtil.virtualThreadPerTaskExecutor() else None
+    virtualThreadExecutor.getOrElse {
+      LOG.info("Creating pool of {} threads for asynchronous requests", poolSize)
+      ExecutorUtil.fixedThreadPool("odata-direct", poolSize)
+    }
+  }
+
+  override def handleRequest(request: ODataRequest): ODataResponse = {
+    val sample = requestLog.sample(request)
+    val response = admissionController.tryAdmit(request) match {
+      case Some(permit) =>
+        val response = Try(handleAdmittedRequest(request))
+        permit.release(response)
+        response
+      case None =>
+        Success(admissionController.rejectedResponse())
+    }
+    if (sample.isDefined) {
+      sample.get.complete(response)
+    }
+    response.get
+  }
+
+  override def handleRequestAsync(request: ODataRequest): CompletionStage[ODataResponse] = {
+    val sample = requestLog.sample(request)
+    val response = handleAdmittedRequestAsync(request)
+    if (sample.isDefined) {
+      // Log the request before the caller gets to write, and thereby release, the response
+      response.whenComplete(new BiConsumer[ODataResponse, Throwable] {
+        override def accept(result: ODataResponse, failure: Throwable): Unit =
+          sample.get.complete(if (failure == null) Success(result) else Failure(unwrap(failure)))
+      })
+    } else {
+      response
+    }
+  }
+
+  private def handleAdmittedRequestAsync(request: ODataRequest): CompletionStage[ODataResponse] = {
+    admissionController.tryAdmit(request) match {
+      case Some(permit) =>
+        val response = try {
+          CompletableFuture.supplyAsync(new Supplier[ODataResponse] {
+            override def get(): ODataResponse = handleAdmittedRequest(request)
+          }, executor)
+        } catch {
+          case NonFatal(e) =>
+            permit.release(Failure(e))
+            throw e
+        }
+        response.whenComplete(new BiConsumer[ODataResponse, Throwable] {
+          override def accept(result: ODataResponse, failure: Throwable): Unit =
+            permit.release(if (failure == null) Success(result) else Failure(failure))
+        })
+      case None =>
+        CompletableFuture.completedFuture(admissionController.rejectedResponse())
+    }
+  }
+
+  override def destroy(): Unit = {
+    executor.shutdown()
+  }
+
+  private def handleAdmittedRequest(request: ODataRequest): ODataResponse = {
+    LOG.debug("Handling request: {}", request)
+
+    val start = System.currentTimeMillis()
+    val requestContext = new ODataRequestContext(request, null, serviceRegistry.getEntityDataModel,
+      ODataRequestDeadline.forRequest(request, requestTimeout))
+
+    val timings = StageTimings.start(metrics)
+    var respondedRequestContext = requestContext
+
+    val response = try {
+      timings.enter(requestContext, Some(ODataPipelineStage.PARSE))
+      respondedRequestContext = requestContext.withUri(pipeline.parse(requestContext))
+      process(respondedRequestContext, timings)
+    } catch {
+      case NonFatal(e) =>
+        timings.enter(requestContext, Some(ODataPipelineStage.RENDER))
+        pipeline.renderFailure(requestContext, e)
+    }
+    timings.complete(respondedRequestContext, response.getStatus)
+
+    if (LOG.isDebugEnabled) {
+      LOG.debug("Request completed in {} ms", System.currentTimeMillis() - start)
+    }
+    response
+  }
+
+  private def process(requestContext: ODataRequestContext, timings: StageTimings): ODataResponse = {
+    val deadline = requestContext.getDeadline
+
+    // Note: Check if there is at least one format specified but none of the ones specified are supported
+    // In such case the framework should do an early return with a status code 415 unsupported media type
+    checkSupportedType(requestContext)
+    deadline.checkNotExpired()
+
+    if (isReadOperation(requestContext)) {
+      // No need to unmarshall if we are only reading
+      timings.enter(requestContext, Some(ODataPipelineStage.QUERY))
+      render(requestContext, pipeline.read(requestContext, None), timings)
+    } else {
+      timings.enter(requestContext, Some(ODataPipelineStage.UNMARSHALL))
+      processBody(requestContext, pipeline.unmarshall(requestContext), timings)
+    }
+  }
+
+  private def processBody(requestContext: ODataRequestContext, data: Option[AnyRef],
+                          timings: StageTimings): ODataResponse = {
+    val deadline = requestContext.getDeadline
+    deadline.checkNotExpired()
+
+    if (isBatchOperation(requestContext)) {
+      timings.enter(requestContext, Some(ODataPipelineStage.BATCH))
+      val results = batchOperationProcessor.process(requestContext, data.get.asInstanceOf[ODataBatchRequestContent])
+      deadline.checkNotExpired()
+      timings.enter(requestContext, Some(ODataPipelineStage.RENDER))
+      pipeline.renderBatch(requestContext, results)
+    } else if (isWriteOperation(requestContext)) {
+      timings.enter(requestContext, Some(ODataPipelineStage.WRITE))
+      render(requestContext, pipeline.write(requestContext, data), timings)
+    } else {
+      val method = requestContext.getRequest.getMethod
+      LOG.warn("Given http method {} is not supported", method)
+      throw new UnsupportedOperationException(s"Given http method $method is not supported")
+    }
+  }
+
+  private def render(requestContext: ODataRequestContext, result: ProcessorResult,
+                     timings: StageTimings): ODataResponse = {
+    requestContext.getDeadline.checkNotExpired()
+    timings.enter(requestContext, Some(ODataPipelineStage.RENDER))
+    pipeline.render(requestContext, result)
+  }
+}
+
+object ODataDirectServiceImpl {
+  private val LOG = LoggerFactory.getLogger(classOf[ODataDirectServiceImpl])
+
+  private def unwrap(failure: Throwable): Throwable = failure match {
+    case e: CompletionException if e.getCause != null => e.getCause
+    case e => e
+  }
+}
@@ -15,54 +15,123 @@
  */
 package com.sdl.odata.service
 
+import java.util.concurrent.{CompletionStage, Executor}
 import java.util.concurrent.TimeUnit.MILLISECONDS
 
-import akka.actor.PoisonPill
+import akka.actor.{ActorRef, PoisonPill}
 import akka.pattern.ask
 import akka.util.Timeout
-import com.sdl.odata.api.service.{ODataRequest, ODataResponse, ODataService}
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestDeadline, ODataResponse, ODataService}
 import com.sdl.odata.service.actor.ODataMessageRouter
+import com.sdl.odata.service.admission.ODataAdmissionController
+import com.sdl.odata.service.log.ODataRequestLog
 import com.sdl.odata.service.protocol.{InitialServiceRequest, ServiceResponse}
 import com.sdl.odata.service.spring.ActorProducer
+import com.sdl.odata.service.spring.ODataServiceEngineCondition.ActorEngine
 import org.slf4j.LoggerFactory
-import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.context.annotation.Conditional
 import org.springframework.stereotype.Component
 
-import scala.concurrent.Await
+import scala.compat.java8.FutureConverters._
 import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, ExecutionContext, Future}
+import scala.util.Try
 
 /**
  * The OData Service Implementation
  *
  * ODataServiceImpl is the service which manages the lifecycle of ODataRequest.
  * First, it is responsible for handling ODataRequest, waiting for it's result and response back.
+ * Requests can also be handled asynchronously, in which case the caller is handed the pending response instead.
  *
+ * Requests are handed to a pool of long-lived message routers, the size of which is configured by
+ * `odata.service.router.pool-size`. A pool size of 0 creates a new message router for every request instead.
+ *
+ * Every request gets a deadline of `odata.service.request-timeout` milliseconds (0 means no deadline), which a client
+ * can shorten, but not extend, with the `X-Odata-Request-Timeout` header.
+ *
+ * Requests which the [[ODataAdmissionController]] does not admit are rejected before they reach a message router.
+ * A sample of the requests is logged by the [[ODataRequestLog]].
+ *
+ * This is the default implementation; `odata.service.engine: direct` selects [[ODataDirectServiceImpl]] instead.
  */
 @Component
-class ODataServiceImpl @Autowired() (producer: ActorProducer) extends ODataService {
+@Conditional(Array(classOf[ActorEngine]))
+class ODataServiceImpl @Autowired() (producer: ActorProducer, admissionController: ODataAdmissionController,
+                                     requestLog: ODataRequestLog,
+                                     @Value("${odata.service.router.pool-size:8}") routerPoolSize: Int,
+                                     @Value("${odata.service.request-timeout:0}") requestTimeout: Long)
+  extends ODataService {
   import com.sdl.odata.service.ODataServiceImpl._
 
+  private lazy val messageRouterPool: ActorRef = {
+    LOG.info("Creating pool of {} message routers", routerPoolSize)
+    producer.pooledActorRef(MessageRouterName, routerPoolSize)
+  }
+
   override def handleRequest(request: ODataRequest): ODataResponse = {
-    LOG.debug("Handling request: {}", request)
+    Await.result(dispatch(request), Duration.Inf)
+  }
 
-    implicit val timeout = new Timeout(1000000000l, MILLISECONDS)
+  override def handleRequestAsync(request: ODataRequest): CompletionStage[ODataResponse] = {
+    dispatch(request).toJava
+  }
 
-    val start = System.currentTimeMillis()
-    val messageRouter = producer.actorRef(classOf[ODataMessageRouter].getSimpleName)
-    val fut = ask(messageRouter, InitialServiceRequest(request)).mapTo[ServiceResponse]
-    val serviceResponse = Await.result(fut, Duration.Inf)
+  private def dispatch(request: ODataRequest): Future[ODataResponse] = {
+    val sample = requestLog.sample(request)
+    val response = admissionController.tryAdmit(request) match {
+      case Some(permit) =>
+        // A request which fails before it is dispatched must release its permit too
+        Future.fromTry(Try(dispatchAdmitted(request))).flatten.andThen {
+          case result => permit.release(result)
+        }(SameThreadExecutionContext)
+      case None =>
+        Future.successful(admissionController.rejectedResponse())
+    }
+    if (sample.isDefined) {
+      // Log the request before the caller gets to write, and thereby release, the response
+      response.andThen {
+        case result => sample.get.complete(result)
+      }(SameThreadExecutionContext)
+    } else {
+      response
+    }
+  }
 
-    //kill the message router
-    messageRouter.tell(PoisonPill, null)
+  private def dispatchAdmitted(request: ODataRequest): Future[ODataResponse] = {
+    LOG.debug("Handling request: {}", request)
 
-    val stop = System.currentTimeMillis()
+    implicit val timeout = new Timeout(1000000000l, MILLISECONDS)
 
-    LOG.debug("Request completed in " + (stop - start))
+    val start = System.currentTimeMillis()
+    val initialRequest = InitialServiceRequest(request, ODataRequestDeadline.forRequest(request, requestTimeout))
+    val serviceResponse = if (routerPoolSize > 0) {
+      ask(messageRouterPool, initialRequest).mapTo[ServiceResponse]
+    } else {
+      val messageRouter = producer.actorRef(MessageRouterName)
+      ask(messageRouter, initialRequest).mapTo[ServiceResponse].andThen {
+        //kill the message router
+        case _ => messageRouter.tell(PoisonPill, null)
+      }(SameThreadExecutionContext)
+    }
 
-    serviceResponse.response
+    serviceResponse.map { response =>
+      if (LOG.isDebugEnabled) {
+        LOG.debug("Request completed in {} ms", System.currentTimeMillis() - start)
+      }
+      response.response
+    }(SameThreadExecutionContext)
   }
 }
 
 object ODataServiceImpl {
   val LOG = LoggerFactory.getLogger(classOf[ODataServiceImpl])
+
+  private val MessageRouterName = classOf[ODataMessageRouter].getSimpleName
+
+  // Runs the (cheap) callbacks on the response future on whichever thread completes it
+  private val SameThreadExecutionContext = ExecutionContext.fromExecutor(new Executor {
+    override def execute(command: Runnable): Unit = command.run()
+  })
 }
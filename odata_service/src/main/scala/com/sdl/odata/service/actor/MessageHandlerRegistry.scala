@@ -15,26 +15,42 @@
  */
 package com.sdl.odata.service.actor
 
+import akka.actor.Props
 import com.sdl.odata.service.protocol.ODataActorMessage
 
+/**
+ * The routing table of the actor pipeline: the actors that handle each type of message.
+ *
+ * Routes are registered during startup, after which the table does not change anymore. The table is immutable and
+ * replaced as a whole when a route is registered, so routing a message is a single lookup without locking. The props
+ * of the actors are resolved once, when their route is registered.
+ */
 object MessageHandlerRegistry {
-  private val registry = scala.collection.concurrent.TrieMap[Class[_ <: ODataActorMessage], Set[String]]()
 
-  def contains(messageType: Class[_ <: ODataActorMessage]): Boolean = registry.contains(messageType)
+  /**
+   * A route to an actor.
+   *
+   * @param beanName The bean name of the actor.
+   * @param props The props to create the actor with.
+   */
+  case class Route(beanName: String, props: Props)
 
-  def get(messageType: Class[_ <: ODataActorMessage]): Set[String] = registry(messageType)
+  @volatile private var routingTable = Map[Class[_ <: ODataActorMessage], Vector[Route]]()
 
-  def add(messageType: Class[_ <: ODataActorMessage], beanName: String): Unit = {
-    if (!registry.contains(messageType)) {
-      registry(messageType) = Set[String]()
-    }
+  def contains(messageType: Class[_ <: ODataActorMessage]): Boolean = routingTable.contains(messageType)
+
+  def get(messageType: Class[_ <: ODataActorMessage]): Set[String] = routingTable(messageType).map(_.beanName).toSet
+
+  def routes(messageType: Class[_ <: ODataActorMessage]): Vector[Route] = routingTable.getOrElse(messageType, Vector())
 
-    registry(messageType) = registry(messageType) + beanName
+  def add(messageType: Class[_ <: ODataActorMessage], beanName: String, props: Props): Unit = synchronized {
+    val routes = routingTable.getOrElse(messageType, Vector()).filterNot(_.beanName == beanName)
+    routingTable = routingTable.updated(messageType, routes :+ Route(beanName, props))
   }
 
-  def remove(messageType: Class[_ <: ODataActorMessage], beanName: String): Unit = {
-    if (registry.contains(messageType)) {
-      registry(messageType) = registry(messageType) - beanName
+  def remove(messageType: Class[_ <: ODataActorMessage], beanName: String): Unit = synchronized {
+    if (routingTable.contains(messageType)) {
+      routingTable = routingTable.updated(messageType, routingTable(messageType).filterNot(_.beanName == beanName))
     }
   }
 }
@@ -15,31 +15,23 @@
  */
 package com.sdl.odata.service.actor
 
-import com.sdl.odata.api.processor.query.QueryResult
-import com.sdl.odata.api.service.ODataResponse
-import com.sdl.odata.renderer.batch.ODataBatchRequestRenderer
+import com.sdl.odata.service.pipeline.ODataPipeline
 import com.sdl.odata.service.protocol.{BatchOperationResult, ServiceResponse}
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.context.annotation.Scope
 import org.springframework.stereotype.Component
 
-import scala.collection.JavaConverters._
-
 /**
  * Renderer class for preparing the Batch Request Response.
  */
 @Component
 @Scope("prototype")
-class ODataBatchRendererActor @Autowired()(batchRequestRenderer: ODataBatchRequestRenderer) extends ODataActor  {
+class ODataBatchRendererActor @Autowired()(pipeline: ODataPipeline) extends ODataActor  {
 
   def receive = {
     case BatchOperationResult(actorContext, resultList) =>
-      val responseBuilder = new ODataResponse.Builder()
-      if (resultList != null) {
-        batchRequestRenderer.render(actorContext.requestContext, QueryResult.from(resultList.asJava), responseBuilder)
-      }
-      responseBuilder.setStatus(ODataResponse.Status.OK)
-      actorContext.origin ! ServiceResponse(actorContext, responseBuilder.build())
+      actorContext.origin ! ServiceResponse(actorContext,
+        pipeline.renderBatch(actorContext.requestContext, resultList))
   }
 
 }
@@ -15,10 +15,15 @@
  */
 package com.sdl.odata.service.actor
 
+import java.util.Optional
+import java.util.concurrent.atomic.AtomicLong
+
 import akka.actor.SupervisorStrategy.{Resume, Stop}
 import akka.actor._
+import com.sdl.odata.api.ODataRequestTimeoutException
 import com.sdl.odata.api.edm.registry.ODataEdmRegistry
-import com.sdl.odata.api.service.ODataRequestContext
+import com.sdl.odata.api.service.{ODataRequestContext, ODataRequestDeadline, ODataRequestMetrics}
+import com.sdl.odata.service.pipeline.StageTimings
 import com.sdl.odata.service.protocol._
 import com.sdl.odata.service.spring.ActorProducer
 import com.sdl.odata.service.util.AkkaUtil
@@ -27,31 +32,46 @@ import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.context.annotation.Scope
 import org.springframework.stereotype.Component
 
+import scala.collection.mutable
+import scala.concurrent.duration.Duration
+import scala.util.{Failure, Success, Try}
+
 /**
  * ODataMessageRouter is responsible for creating a routing logic and execute the logic sequentially.
  *
  * It acts as an event bus where events can be submitted in a generic manner,
  * which then gets picked up by the interested actors.
+ *
+ * A router can handle any number of requests at the same time; every request gets its own id, which is carried in
+ * the [[ODataActorContext]] so that failures and the final response can be correlated to the request they belong to.
+ * The response of a request is sent back through the router, which then stops the actors created for the request.
+ *
+ * When the deadline of a request expires before its response is available, the router cancels the request and
+ * responds with an [[ODataRequestTimeoutException]] error instead.
+ *
+ * If there is an [[ODataRequestMetrics]] bean, the time a request spends in each stage of the pipeline is recorded
+ * with it once the response of the request is available.
  */
 @Component("ODataMessageRouter")
 @Scope(value = "prototype")
-class ODataMessageRouter @Autowired()(serviceRegistry: ODataEdmRegistry, actorProducer: ActorProducer) extends ODataActor {
+class ODataMessageRouter @Autowired()(serviceRegistry: ODataEdmRegistry, actorProducer: ActorProducer,
+                                      metrics: Optional[ODataRequestMetrics]) extends ODataActor {
   import com.sdl.odata.service.actor.MessageHandlerRegistry._
   import com.sdl.odata.service.actor.ODataMessageRouter._
   import AkkaUtil._
 
-  var origin: Option[ActorRef] = None
-  var requestContext: Option[ODataRequestContext] = None
+  private val inFlightRequests = mutable.Map[Long, InFlightRequest]()
+  private val requestIdsByActor = mutable.Map[ActorRef, Long]()
 
   //The main supervisor strategy, all child actors escalate to this strategy
   override def supervisorStrategy: SupervisorStrategy = OneForOneStrategy(loggingEnabled = false) {
     case exp: Exception =>
       LOG.debug("Sending error message for exception:", exp)
-      routeMessage(actorProducer, context, ErrorMessage(ODataActorContext(requestContext.get, origin.get), exp))
+      routeError(sender, exp)
       Resume
     case error: Error =>
       LOG.error("Runtime Exception occurred. Shutting down the Actor System", error)
-      routeMessage(actorProducer, context, ErrorMessage(ODataActorContext(requestContext.get, origin.get), error))
+      routeError(sender, error)
       Stop
   }
 
@@ -61,28 +81,119 @@ class ODataMessageRouter @Autowired()(serviceRegistry: ODataEdmRegistry, actorPr
     case UnregisterMessageHandler(messageType, beanName) => unregisterMessageHandler(messageType, beanName)
 
     case msg: InitialServiceRequest => handleInitialServiceRequest(msg)
+
+    case msg: ServiceResponse => handleServiceResponse(msg)
+
+    case RequestTimeout(requestId) => handleRequestTimeout(requestId)
   }
 
   def registerMessageHandler(messageType: Class[_ <: ODataActorMessage], beanName: String) = {
-    log.debug(s"Registering handler for message type: $messageType => $sender")
-    add(messageType, beanName)
+    log.debug("Registering handler for message type: {} => {}", messageType, sender)
+    add(messageType, beanName, actorProducer.create(beanName))
   }
 
   def unregisterMessageHandler(messageType: Class[_ <: ODataActorMessage], beanName: String) = {
-    log.debug(s"Unregistering handler for message type: $messageType => $sender")
+    log.debug("Unregistering handler for message type: {} => {}", messageType, sender)
     remove(messageType, beanName)
   }
 
   def handleInitialServiceRequest(serviceRequest: InitialServiceRequest) {
     log.debug("Handling initial service request")
 
-    origin = Some(sender)
+    val deadline = serviceRequest.deadline
+    Try(new ODataRequestContext(serviceRequest.request, null, serviceRegistry.getEntityDataModel, deadline)) match {
+      case Success(requestContext) =>
+        val requestId = RequestIds.incrementAndGet()
+        val timings = StageTimings.start(metrics)
+        val inFlightRequest = InFlightRequest(requestContext, sender, Set.empty, None, timings)
+        inFlightRequests(requestId) = inFlightRequest
+        Try(scheduleTimeout(requestId, deadline)) match {
+          case Success(timeout) =>
+            inFlightRequests(requestId) = inFlightRequest.copy(timeout = timeout)
+            // The deadline can already have expired, for a very short timeout or when the router is backed up; this
+            // fails the request, and must not escape to restart the router with all its requests in flight
+            Try(route(requestId, ServiceRequest(ODataActorContext(requestContext, self, requestId, timings)))) match {
+              case Failure(e) => fail(requestId, inFlightRequests(requestId), e)
+              case Success(_) =>
+            }
+          case Failure(e) =>
+            LOG.warn("Unable to schedule the timeout of request: {}", Array[AnyRef](requestContext, e): _*)
+            fail(requestId, inFlightRequest,
+              new ODataRequestTimeoutException("The timeout of the request is too long to be scheduled"))
+        }
+      case Failure(e) =>
+        LOG.error("Unable to create the request context", e)
+        sender ! Status.Failure(e)
+    }
+  }
 
-    requestContext = Some(new ODataRequestContext(serviceRequest.request, serviceRegistry.getEntityDataModel))
-    routeMessage(actorProducer, context, ServiceRequest(ODataActorContext(requestContext.get, sender)))
+  private def scheduleTimeout(requestId: Long, deadline: ODataRequestDeadline): Option[Cancellable] =
+    if (deadline.isBounded) {
+      val remaining = Duration.fromNanos(deadline.getRemaining.get.toNanos)
+      Some(context.system.scheduler.scheduleOnce(remaining, self, RequestTimeout(requestId))(context.dispatcher))
+    } else {
+      None
+    }
+
+  def handleServiceResponse(serviceResponse: ServiceResponse) {
+    val requestId = serviceResponse.actorContext.requestId
+    inFlightRequests.remove(requestId) match {
+      case Some(inFlightRequest) =>
+        inFlightRequest.timeout.foreach(_.cancel())
+        inFlightRequest.actors.foreach { actor =>
+          requestIdsByActor -= actor
+          context.stop(actor)
+        }
+        inFlightRequest.timings.complete(serviceResponse.actorContext.requestContext,
+          serviceResponse.response.getStatus)
+        inFlightRequest.origin ! serviceResponse
+      case None =>
+        LOG.debug("Dropping response for request which has already completed: {}", requestId)
+    }
+  }
+
+  def handleRequestTimeout(requestId: Long) {
+    inFlightRequests.get(requestId) match {
+      case Some(inFlightRequest) if !inFlightRequest.failed =>
+        LOG.warn("Request timed out: {}", inFlightRequest.requestContext)
+        // Let the stages which are still busy know that their work is no longer needed
+        inFlightRequest.requestContext.getDeadline.cancel()
+        fail(requestId, inFlightRequest, new ODataRequestTimeoutException("The request could not be completed in time"))
+      case _ =>
+    }
+  }
+
+  private def routeError(failedActor: ActorRef, error: Throwable) {
+    requestIdsByActor.get(failedActor).flatMap(requestId => inFlightRequests.get(requestId).map((requestId, _))) match {
+      case Some((requestId, inFlightRequest)) =>
+        fail(requestId, inFlightRequest, error)
+      case None =>
+        LOG.debug("Ignoring failure of {} for a request which has already completed",
+          Array[AnyRef](failedActor, error): _*)
+    }
+  }
+
+  private def fail(requestId: Long, inFlightRequest: InFlightRequest, error: Throwable) {
+    inFlightRequests(requestId) = inFlightRequest.copy(failed = true)
+    route(requestId, ErrorMessage(ODataActorContext(inFlightRequest.requestContext, self, requestId,
+      inFlightRequest.timings), error))
+  }
+
+  private def route(requestId: Long, message: ODataActorMessage) {
+    val actors = routeMessage(actorProducer, context, message)
+    actors.foreach(actor => requestIdsByActor(actor) = requestId)
+    inFlightRequests.get(requestId).foreach { inFlightRequest =>
+      inFlightRequests(requestId) = inFlightRequest.copy(actors = inFlightRequest.actors ++ actors)
+    }
   }
 }
 
 object ODataMessageRouter {
   private val LOG: Logger = LoggerFactory.getLogger(classOf[ODataMessageRouter])
+
+  private val RequestIds = new AtomicLong()
+
+  private case class InFlightRequest(requestContext: ODataRequestContext, origin: ActorRef, actors: Set[ActorRef],
+                                     timeout: Option[Cancellable], timings: StageTimings,
+                                     failed: Boolean = false)
 }
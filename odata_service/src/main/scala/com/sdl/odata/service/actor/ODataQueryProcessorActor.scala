@@ -15,8 +15,7 @@
  */
 package com.sdl.odata.service.actor
 
-import com.sdl.odata.api.parser.ODataUriUtil.isFunctionCallUri
-import com.sdl.odata.api.processor.{ODataFunctionProcessor, ODataQueryProcessor}
+import com.sdl.odata.service.pipeline.ODataPipeline
 import com.sdl.odata.service.protocol.{ReadOperation, Render}
 import com.sdl.odata.service.spring.ActorProducer
 import com.sdl.odata.service.util.AkkaUtil._
@@ -26,16 +25,13 @@ import org.springframework.stereotype.Component
 
 @Component
 @Scope("prototype")
-class ODataQueryProcessorActor @Autowired()(actorProducer: ActorProducer, queryProcessor: ODataQueryProcessor,
-                                            oDataFunctionProcessor: ODataFunctionProcessor) extends ODataActor {
+class ODataQueryProcessorActor @Autowired()(actorProducer: ActorProducer, pipeline: ODataPipeline) extends ODataActor {
 
     def receive = {
     case ReadOperation(actorContext, data) =>
       log.debug("ODataQueryProcessor found and submitting for query result")
 
-      val result = if (isFunctionCallUri(actorContext.requestContext.getUri))
-        oDataFunctionProcessor.doFunction(actorContext.requestContext) else
-        queryProcessor.query(actorContext.requestContext, data.orNull)
+      val result = pipeline.read(actorContext.requestContext, data)
       log.debug("Execution completed, submitting result to event bus")
 
       routeMessage(actorProducer, context, Render(actorContext, result))
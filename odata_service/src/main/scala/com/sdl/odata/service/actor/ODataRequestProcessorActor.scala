@@ -37,7 +37,7 @@ class ODataRequestProcessorActor @Autowired()(actorProducer: ActorProducer) exte
     case ParseResult(actorContext, uri) =>
       // Add URI to request context
       val newRequestContext = actorContext.requestContext.withUri(uri)
-      val newActorContext = ODataActorContext(newRequestContext, actorContext.origin)
+      val newActorContext = actorContext.copy(requestContext = newRequestContext)
 
       // Note: Check if there is at least one format specified but none of the ones specified are supported
       // In such case the framework should do an early return with a status code 415 unsupported media type
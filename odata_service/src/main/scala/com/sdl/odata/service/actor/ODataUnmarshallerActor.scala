@@ -15,9 +15,8 @@
  */
 package com.sdl.odata.service.actor
 
-import com.sdl.odata.api.ODataSystemException
-import com.sdl.odata.api.unmarshaller.{ODataUnmarshaller, UnmarshallerFactory}
-import com.sdl.odata.service.protocol.{ODataActorContext, Unmarshall, UnmarshallResult}
+import com.sdl.odata.service.pipeline.ODataPipeline
+import com.sdl.odata.service.protocol.{Unmarshall, UnmarshallResult}
 import com.sdl.odata.service.spring.ActorProducer
 import com.sdl.odata.service.util.AkkaUtil._
 import org.springframework.beans.factory.annotation.Autowired
@@ -26,31 +25,13 @@ import org.springframework.stereotype.Component
 
 @Component
 @Scope("prototype")
-class ODataUnmarshallerActor @Autowired() (actorProducer: ActorProducer, unmarshallerFactory : UnmarshallerFactory) extends ODataActor {
+class ODataUnmarshallerActor @Autowired() (actorProducer: ActorProducer, pipeline: ODataPipeline) extends ODataActor {
 
   def receive = {
     case Unmarshall(actorContext) =>
-      getUnmarshaller(actorContext) match {
-        case Some(unmarshaller) =>
-          log.debug("Selected unmarshaller: " + unmarshaller.getClass.getName)
-          val data = unmarshaller.unmarshall(actorContext.requestContext)
-          log.debug("Request unmarshalled, letting event bus know about it")
+      val data = pipeline.unmarshall(actorContext.requestContext)
+      log.debug("Request unmarshalled, letting event bus know about it")
 
-          routeMessage(actorProducer, context, UnmarshallResult(actorContext, Option(data)))
-        case None =>
-          throw new ODataSystemException("No unmarshaller available")
-      }
-  }
-
-  private def getUnmarshaller(actorContext: ODataActorContext): Option[ODataUnmarshaller] = {
-    import scala.collection.JavaConverters._
-
-    val u = unmarshallerFactory.getUnmarshallers
-
-    u.asScala.map(unmarshaller => (unmarshaller.score(actorContext.requestContext), unmarshaller))
-      .filter({ case (score, _) => score > 0 })
-      .sortBy({ case (score, _) => -score })
-      .map({ case (_, unmarshaller) => unmarshaller })
-      .headOption
+      routeMessage(actorProducer, context, UnmarshallResult(actorContext, data))
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.admission
+
+/**
+ * A concurrency limit which adapts to the latency of the requests, in the manner of a gradient limit: while the
+ * latency of a request is close to the long term average latency the limit grows, and when it rises above it the limit
+ * shrinks in proportion. A request which was dropped, for example because its deadline expired, halves the distance
+ * to the minimum limit.
+ *
+ * The limit starts at the maximum, so that a node which is not under pressure never rejects requests.
+ *
+ * @param minLimit The lowest the limit can go.
+ * @param maxLimit The highest the limit can go.
+ */
+class AdaptiveConcurrencyLimit(minLimit: Int, maxLimit: Int) {
+  import AdaptiveConcurrencyLimit._
+
+  require(minLimit > 0 && minLimit <= maxLimit, s"Invalid concurrency limits: $minLimit - $maxLimit")
+
+  private var limit: Double = maxLimit
+  private var averageLatency: Double = 0
+
+  @volatile private var currentLimit: Int = maxLimit
+
+  /**
+   * The number of requests which can currently be in flight.
+   */
+  def current: Int = currentLimit
+
+  /**
+   * Adjusts the limit to the outcome of a request.
+   *
+   * @param latencyNanos The time it took to handle the request.
+   * @param inFlight The number of requests which were in flight when the request completed.
+   * @param dropped Whether the request was dropped instead of handled.
+   */
+  def update(latencyNanos: Long, inFlight: Int, dropped: Boolean): Unit = synchronized {
+    if (dropped) {
+      limit = minLimit + (limit - minLimit) * DropBackoff
+    } else {
+      val latency = math.max(latencyNanos, 1L).toDouble
+      averageLatency = if (averageLatency == 0) {
+        latency
+      } else if (averageLatency > latency * 2) {
+        // The load went down; forget the latency of the busy period quicker
+        averageLatency * RecoveryDecay + latency * (1 - RecoveryDecay)
+      } else {
+        averageLatency * (1 - AverageWeight) + latency * AverageWeight
+      }
+
+      // When the limit is hardly used, the latency says nothing about what the node can handle
+      if (inFlight * 2 >= limit) {
+        val gradient = math.max(MinGradient, math.min(1.0, averageLatency / latency))
+        val newLimit = limit * gradient + math.sqrt(limit)
+        limit = limit * (1 - Smoothing) + newLimit * Smoothing
+      }
+    }
+
+    limit = math.max(minLimit, math.min(maxLimit, limit))
+    currentLimit = limit.toInt
+  }
+}
+
+object AdaptiveConcurrencyLimit {
+  private val AverageWeight = 0.05
+  private val RecoveryDecay = 0.9
+  private val MinGradient = 0.5
+  private val Smoothing = 0.2
+  private val DropBackoff = 0.5
+}
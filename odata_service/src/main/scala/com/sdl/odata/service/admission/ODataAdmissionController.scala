@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.admission
+
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit.{MILLISECONDS, NANOSECONDS}
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.sdl.odata.api.service.ODataResponse.Status.SERVICE_UNAVAILABLE
+import com.sdl.odata.api.service.{HeaderNames, MediaType, ODataRequest, ODataResponse}
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.stereotype.Component
+
+import scala.annotation.tailrec
+import scala.util.Try
+
+/**
+ * Decides whether the OData service takes on a request, before any work is done for it. When a backing store slows
+ * down, requests which are not admitted are rejected straight away with `SERVICE_UNAVAILABLE`, instead of piling up
+ * in front of the pipeline.
+ *
+ * The number of requests in flight is limited by:
+ *
+ *  - `odata.service.admission.max-in-flight`: the limit for all requests together; 0 means no limit.
+ *  - `odata.service.admission.min-in-flight`: when `odata.service.admission.adaptive` is enabled, the limit adapts to
+ *    the latency of the requests between this minimum and the maximum above (see [[AdaptiveConcurrencyLimit]]).
+ *  - `odata.service.admission.max-in-flight-per-entity-set`: the limit for the requests to a single entity set, so
+ *    that a slow entity set can not take up all of the capacity; 0 means no limit. The entity set is taken from the
+ *    first segment of the resource path, as the request is not parsed yet.
+ *
+ * When the service shuts down it is [[drain drained]]: new requests are rejected, while the requests in flight are
+ * given time to complete.
+ *
+ * A permit is released when the response to its request completes. This is not always when the work for the request
+ * has finished: the stages of a request which timed out keep running until they return, and a streamed response is
+ * still being written after it completed. Neither is counted against the limits, so under a burst of time-outs or
+ * large streamed responses more work can be going on than the limits allow.
+ */
+@Component
+class ODataAdmissionController @Autowired()(
+    @Value("${odata.service.admission.max-in-flight:0}") maxInFlight: Int,
+    @Value("${odata.service.admission.min-in-flight:8}") minInFlight: Int,
+    @Value("${odata.service.admission.adaptive:true}") adaptive: Boolean,
+    @Value("${odata.service.admission.max-in-flight-per-entity-set:0}") maxInFlightPerEntitySet: Int) {
+  import ODataAdmissionController._
+
+  private val limit: Option[AdaptiveConcurrencyLimit] = if (maxInFlight > 0) {
+    Some(new AdaptiveConcurrencyLimit(if (adaptive) math.min(minInFlight, maxInFlight) else maxInFlight, maxInFlight))
+  } else {
+    None
+  }
+
+  private val inFlight = new AtomicInteger()
+  private val inFlightPerEntitySet = new ConcurrentHashMap[String, Integer]()
+
+  // All admitted requests, whether they are limited or not; waited for by a drain
+  private val admitted = new AtomicInteger()
+  private val drainLock = new Object
+  @volatile private var draining = false
+
+  private val unlimited: Permit = new UnlimitedPermit(this)
+
+  /**
+   * Admits a request, if there is room for it.
+   *
+   * @param request The request.
+   * @return The permit for the request, which must be released when the request completes; or `None` if the request
+   *         must be rejected.
+   */
+  def tryAdmit(request: ODataRequest): Option[Permit] = {
+    // Counted before draining is checked, so that a drain which has started either waits for the request or rejects it
+    admitted.incrementAndGet()
+    val permit = if (draining) {
+      LOG.debug("Rejecting request, the service is shutting down: {}", request)
+      None
+    } else {
+      tryAdmitLimited(request)
+    }
+    if (permit.isEmpty) {
+      unadmit()
+    }
+    permit
+  }
+
+  private def tryAdmitLimited(request: ODataRequest): Option[Permit] = {
+    if (limit.isEmpty && maxInFlightPerEntitySet <= 0) {
+      Some(unlimited)
+    } else if (!acquire()) {
+      LOG.debug("Rejecting request, too many requests in flight: {}", request)
+      None
+    } else {
+      val entitySet = if (maxInFlightPerEntitySet > 0) resourceName(request.getUri) else None
+      if (entitySet.forall(acquireEntitySet)) {
+        Some(new LimitedPermit(this, entitySet))
+      } else {
+        LOG.debug("Rejecting request, too many requests in flight for its entity set: {}", request)
+        inFlight.decrementAndGet()
+        None
+      }
+    }
+  }
+
+  /**
+   * The response to a request which was not admitted.
+   *
+   * @return The response.
+   */
+  def rejectedResponse(): ODataResponse = new ODataResponse.Builder()
+    .setStatus(SERVICE_UNAVAILABLE)
+    .setHeader(HeaderNames.RETRY_AFTER, RetryAfterSeconds)
+    .setContentType(MediaType.TEXT)
+    .setBodyText(if (draining) ShuttingDownMessage else RejectedMessage, UTF_8.name())
+    .build()
+
+  /**
+   * Stops admitting requests, and waits for the requests in flight to complete.
+   *
+   * @param timeout The maximum number of milliseconds to wait.
+   * @return Whether all requests in flight have completed.
+   */
+  def drain(timeout: Long): Boolean = {
+    draining = true
+    val deadline = System.nanoTime() + MILLISECONDS.toNanos(timeout)
+    drainLock.synchronized {
+      var remaining = deadline - System.nanoTime()
+      while (admitted.get > 0 && remaining > 0) {
+        NANOSECONDS.timedWait(drainLock, remaining)
+        remaining = deadline - System.nanoTime()
+      }
+    }
+    admitted.get == 0
+  }
+
+  /**
+   * Admits requests again after a [[drain]].
+   */
+  def resume(): Unit = {
+    draining = false
+  }
+
+  /**
+   * The number of requests in flight.
+   */
+  def admittedCount: Int = admitted.get
+
+  private[admission] def unadmit(): Unit = {
+    if (admitted.decrementAndGet() == 0 && draining) {
+      drainLock.synchronized {
+        drainLock.notifyAll()
+      }
+    }
+  }
+
+  private def acquire(): Boolean = {
+    val maxInFlight = limit.fold(Int.MaxValue)(_.current)
+    @tailrec def increment(): Boolean = {
+      val current = inFlight.get()
+      current < maxInFlight && (inFlight.compareAndSet(current, current + 1) || increment())
+    }
+    increment()
+  }
+
+  private def acquireEntitySet(entitySet: String): Boolean = {
+    var acquired = false
+    inFlightPerEntitySet.compute(entitySet, (_: String, count: Integer) => {
+      val current = if (count == null) 0 else count.intValue
+      acquired = current < maxInFlightPerEntitySet
+      if (acquired) current + 1 else count
+    })
+    acquired
+  }
+
+  // Only called for an entity set which was acquired, so there is a count for it
+  private def releaseEntitySet(entitySet: String): Unit =
+    inFlightPerEntitySet.compute(entitySet, (_: String, count: Integer) => if (count.intValue > 1) count - 1 else null)
+
+  private[admission] def release(entitySet: Option[String], admittedAt: Long, result: Try[ODataResponse]): Unit = {
+    unadmit()
+    val stillInFlight = inFlight.decrementAndGet()
+    entitySet.foreach(releaseEntitySet)
+
+    val dropped = result.map(_.getStatus eq SERVICE_UNAVAILABLE).getOrElse(true)
+    limit.foreach(_.update(System.nanoTime() - admittedAt, stillInFlight + 1, dropped))
+  }
+}
+
+object ODataAdmissionController {
+  private val LOG = LoggerFactory.getLogger(classOf[ODataAdmissionController])
+
+  /**
+   * The permit of an admitted request.
+   */
+  trait Permit {
+
+    /**
+     * Releases the room the request took up.
+     *
+     * @param result The response to the request, or the failure it ended with.
+     */
+    def release(result: Try[ODataResponse]): Unit
+  }
+
+  private class UnlimitedPermit(controller: ODataAdmissionController) extends Permit {
+    override def release(result: Try[ODataResponse]): Unit = controller.unadmit()
+  }
+
+  private class LimitedPermit(controller: ODataAdmissionController, entitySet: Option[String]) extends Permit {
+    private val admittedAt = System.nanoTime()
+
+    override def release(result: Try[ODataResponse]): Unit = controller.release(entitySet, admittedAt, result)
+  }
+
+  private val RetryAfterSeconds = "1"
+  private val RejectedMessage = "The service is too busy to handle the request, please try again later"
+  private val ShuttingDownMessage = "The service is shutting down, please try again later"
+
+  private val ServiceRoot = """(?i)^(?:.*?\.svc)+/?""".r
+
+  /**
+   * The name of the entity set, singleton or other resource a request addresses, without parsing the request.
+   *
+   * @param uri The URI of the request.
+   * @return The first segment of the resource path, or `None` if the URI addresses the service root.
+   */
+  def resourceName(uri: String): Option[String] = {
+    val resourcePath = ServiceRoot.findPrefixMatchOf(uri).map(root => uri.substring(root.end)).getOrElse(uri)
+    val end = resourcePath.indexWhere(c => c == '(' || c == '/' || c == '?' || c == '#')
+    Some(if (end < 0) resourcePath else resourcePath.substring(0, end)).filter(_.nonEmpty)
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.lifecycle
+
+import java.util.Collections
+
+import com.sdl.odata.api.edm.model.{EntityDataModel, EntityType}
+import com.sdl.odata.api.edm.registry.ODataEdmRegistry
+import com.sdl.odata.api.processor.ProcessorResult
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.service.ODataResponse.Status.OK
+import com.sdl.odata.api.service.{MediaType, ODataRequest, ODataRequestContext, ODataResponse}
+import com.sdl.odata.service.admission.ODataAdmissionController
+import com.sdl.odata.service.pipeline.ODataPipeline
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.context.SmartLifecycle
+import org.springframework.stereotype.Component
+
+import scala.collection.JavaConverters._
+import scala.util.control.NonFatal
+
+/**
+ * Warms up the OData service when the application starts, and drains it when the application stops.
+ *
+ * The lifecycle runs in an earlier phase than the web server, so the server only starts to listen, and the application
+ * only reports that it is ready, once the service has been warmed up; and the server has stopped before the service is
+ * drained.
+ *
+ * The warm-up builds the entity data model, and then runs `odata.service.warm-up.iterations` rounds of requests
+ * against it: the service document and the metadata document are queried and rendered, and for every entity set a
+ * number of URIs with query options are parsed and an empty result is rendered as JSON and as Atom, without going to a
+ * data source. The requests go through the stages of the [[ODataPipeline]] only, so that their cold-start latencies do
+ * not feed into the admission control, the request log or the metrics of the service. Failing warm-up requests are
+ * ignored. `odata.service.warm-up.enabled` switches the warm-up off.
+ *
+ * The drain stops the [[ODataAdmissionController]] from admitting new requests, and waits at most
+ * `odata.service.drain-timeout` milliseconds for the requests in flight to complete.
+ */
+@Component
+class ODataServiceLifecycle @Autowired()(edmRegistry: ODataEdmRegistry, pipeline: ODataPipeline,
+                                         admissionController: ODataAdmissionController,
+                                         @Value("${odata.service.warm-up.enabled:true}") warmUpEnabled: Boolean,
+                                         @Value("${odata.service.warm-up.iterations:20}") warmUpIterations: Int,
+                                         @Value("${odata.service.drain-timeout:30000}") drainTimeout: Long)
+  extends SmartLifecycle {
+  import ODataServiceLifecycle._
+
+  @volatile private var running = false
+
+  override def start(): Unit = {
+    admissionController.resume()
+    if (warmUpEnabled) {
+      warmUp()
+    }
+    running = true
+  }
+
+  override def stop(): Unit = {
+    running = false
+    val start = System.currentTimeMillis()
+    if (admissionController.drain(drainTimeout)) {
+      LOG.info("Drained OData service in {} ms", System.currentTimeMillis() - start)
+    } else {
+      LOG.warn("Stopping OData service with {} requests still in flight after {} ms",
+        admissionController.admittedCount, drainTimeout)
+    }
+  }
+
+  override def isRunning: Boolean = running
+
+  override def getPhase: Int = Phase
+
+  private def warmUp(): Unit = {
+    val start = System.currentTimeMillis()
+    val entityDataModel = try {
+      edmRegistry.getEntityDataModel
+    } catch {
+      case NonFatal(e) =>
+        LOG.warn("Skipping warm-up, the entity data model can not be built", e)
+        return
+    }
+
+    val uris = entitySetUris(entityDataModel)
+    for (_ <- 0 until warmUpIterations) {
+      ServiceUris.foreach(uri => warmUpService(entityDataModel, uri))
+      uris.foreach(uri => warmUpPipeline(entityDataModel, uri))
+    }
+    LOG.info("Warmed up OData service in {} ms", System.currentTimeMillis() - start)
+  }
+
+  private def warmUpService(entityDataModel: EntityDataModel, uri: String): Unit = try {
+    val requestContext = new ODataRequestContext(warmUpRequest(uri, MediaType.JSON), entityDataModel)
+    val parsedRequestContext = requestContext.withUri(pipeline.parse(requestContext))
+    release(pipeline.render(parsedRequestContext, pipeline.read(parsedRequestContext, None)))
+  } catch {
+    case NonFatal(e) => LOG.debug("Warm-up request failed: {}", Array[AnyRef](uri, e): _*)
+  }
+
+  private def warmUpPipeline(entityDataModel: EntityDataModel, uri: String): Unit = {
+    for (mediaType <- RenderedMediaTypes) try {
+      val requestContext = new ODataRequestContext(warmUpRequest(uri, mediaType), entityDataModel)
+      val parsedRequestContext = requestContext.withUri(pipeline.parse(requestContext))
+      release(pipeline.render(parsedRequestContext,
+        new ProcessorResult(OK, QueryResult.from(Collections.emptyList()))))
+    } catch {
+      case NonFatal(e) => LOG.debug("Warm-up request failed: {}", Array[AnyRef](uri, e): _*)
+    }
+  }
+
+  private def release(response: ODataResponse): Unit = {
+    if (response.getResponseBody.isPresent) {
+      response.getResponseBody.get.release()
+    }
+  }
+}
+
+object ODataServiceLifecycle {
+  private val LOG = LoggerFactory.getLogger(classOf[ODataServiceLifecycle])
+
+  // Before Spring Boot starts the web server, in phase Integer.MAX_VALUE - 1
+  private val Phase = Int.MaxValue / 2
+
+  private val ServiceRoot = "http://localhost/odata.svc/"
+  private val ServiceUris = Seq("", "$metadata")
+  private val RenderedMediaTypes = Seq(MediaType.JSON, MediaType.ATOM_XML)
+
+  private def warmUpRequest(uri: String, mediaType: MediaType): ODataRequest = new ODataRequest.Builder()
+    .setMethod(ODataRequest.Method.GET)
+    .setUri(ServiceRoot + uri)
+    .setAccept(mediaType)
+    .build()
+
+  /**
+   * Representative URIs for every entity set in an entity data model.
+   */
+  private def entitySetUris(entityDataModel: EntityDataModel): Seq[String] =
+    entityDataModel.getEntityContainer.getEntitySets.asScala.flatMap { entitySet =>
+      val name = entitySet.getName
+      val key = entityDataModel.getType(entitySet.getTypeName) match {
+        case entityType: EntityType =>
+          Option(entityType.getKey).flatMap(_.getPropertyRefs.asScala.headOption).map(_.getPath)
+        case _ => None
+      }
+      Seq(name, s"$name?$$top=10&$$skip=10&$$count=true") ++ key.toSeq.flatMap { keyName =>
+        Seq(s"$name?$$filter=$keyName%20ne%20null&$$orderby=$keyName%20desc", s"$name?$$select=$keyName")
+      }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.log
+
+import java.io.{IOException, OutputStream, StringWriter}
+import java.nio.charset.StandardCharsets.UTF_8
+import java.time.Instant
+import java.util.Arrays
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.{ArrayBlockingQueue, ThreadLocalRandom}
+
+import com.fasterxml.jackson.core.{JsonFactory, JsonGenerator}
+import com.sdl.odata.api.service.{ODataRequest, ODataResponse}
+import com.sdl.odata.service.log.ODataRequestLog._
+import org.slf4j.{Logger, LoggerFactory}
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.stereotype.Component
+
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success, Try}
+
+/**
+ * Logs a random sample of the requests the service handles, so that the traffic of a busy node can be looked into
+ * without the cost of logging every request.
+ *
+ * `odata.service.request-log.sample-percentage` percent of the requests are picked. Each of them is logged as one
+ * line of JSON, with the method, URI, status, duration and the sizes of the request and the response, and their
+ * bodies cut off after `odata.service.request-log.max-body-length` bytes, without a character that would be cut in
+ * half; the length of a streamed response is not known, and logged as -1. The body of a request which was never
+ * read, for example because the request was rejected before it got that far, is not read for the log either; it is
+ * logged with a length of -1 and `requestBodyRead` set to false. The lines are written at INFO level to the
+ * `com.sdl.odata.service.RequestLog` logger.
+ *
+ * Entries are handed to a background thread which writes them, so that a slow appender does not slow down the
+ * requests. When more than `odata.service.request-log.queue-size` entries are waiting, further entries are dropped;
+ * the number of dropped entries is included in the next entry which is written.
+ *
+ * With the default percentage of 0 the log costs a single comparison per request.
+ */
+@Component
+class ODataRequestLog @Autowired()(@Value("${odata.service.request-log.sample-percentage:0}") samplePercentage: Double,
+                                   @Value("${odata.service.request-log.max-body-length:1024}") maxBodyLength: Int,
+                                   @Value("${odata.service.request-log.queue-size:1024}") queueSize: Int)
+  extends DisposableBean {
+
+  private val queue = new ArrayBlockingQueue[Entry](math.max(queueSize, 1))
+  private val dropped = new AtomicLong()
+
+  private val writer: Option[Thread] = if (samplePercentage > 0) {
+    LOG.info("Logging {}% of the requests", samplePercentage)
+    val thread = new Thread(new Runnable {
+      override def run(): Unit = writeEntries()
+    }, "odata-request-log")
+    thread.setDaemon(true)
+    thread.start()
+    Some(thread)
+  } else {
+    None
+  }
+
+  /**
+   * Decides whether a request is logged.
+   *
+   * @param request The request.
+   * @return The sample to complete once the response is known, or `None` if the request is not logged.
+   */
+  def sample(request: ODataRequest): Option[Sample] =
+    if (samplePercentage > 0 && ThreadLocalRandom.current().nextDouble(100) < samplePercentage) {
+      Some(new Sample(request))
+    } else {
+      None
+    }
+
+  override def destroy(): Unit = writer.foreach(_.interrupt())
+
+  private def writeEntries(): Unit = {
+    try {
+      while (!Thread.currentThread().isInterrupted) {
+        val entry = queue.take()
+        try {
+          write(format(entry, dropped.getAndSet(0)))
+        } catch {
+          case NonFatal(e) => LOG.warn("Unable to write request log entry", e)
+        }
+      }
+    } catch {
+      case _: InterruptedException => // Shutting down
+    }
+  }
+
+  private[log] def write(line: String): Unit = RequestLogger.info(line)
+
+  private def format(entry: Entry, droppedEntries: Long): String = {
+    val out = new StringWriter()
+    val json = Json.createGenerator(out)
+    json.writeStartObject()
+    json.writeStringField("time", Instant.ofEpochMilli(entry.timestamp).toString)
+    json.writeStringField("method", entry.method)
+    json.writeStringField("uri", entry.uri)
+    entry.status.foreach(status => json.writeNumberField("status", status))
+    entry.error.foreach(error => json.writeStringField("error", error))
+    json.writeNumberField("durationMicros", entry.durationMicros)
+    writeBody(json, "request", entry.requestBody)
+    writeBody(json, "response", entry.responseBody)
+    if (droppedEntries > 0) {
+      json.writeNumberField("dropped", droppedEntries)
+    }
+    json.writeEndObject()
+    json.close()
+    out.toString
+  }
+
+  private def writeBody(json: JsonGenerator, name: String, body: Body): Unit = {
+    json.writeNumberField(name + "Length", body.length)
+    if (body eq NotRead) {
+      json.writeBooleanField(name + "BodyRead", false)
+    }
+    if (body.prefix.nonEmpty) {
+      if (body.prefix.length < body.length) {
+        json.writeStringField(name + "Body", new String(body.prefix, 0, completeLength(body.prefix), UTF_8))
+        json.writeBooleanField(name + "BodyTruncated", true)
+      } else {
+        json.writeStringField(name + "Body", new String(body.prefix, UTF_8))
+      }
+    }
+  }
+
+  /**
+   * A request which is logged.
+   */
+  class Sample private[ODataRequestLog](request: ODataRequest) {
+    private val timestamp = System.currentTimeMillis()
+    private val startedAt = System.nanoTime()
+
+    /**
+     * Queues the entry of the request for the log. The bodies are captured on the calling thread, as they can not be
+     * read anymore once the response has been written.
+     *
+     * @param response The response, or the failure of the request.
+     */
+    def complete(response: Try[ODataResponse]): Unit = try {
+      val durationMicros = (System.nanoTime() - startedAt) / NanosPerMicro
+      val entry = response match {
+        case Success(r) => Entry(timestamp, request.getMethod.name, request.getUri, Some(r.getStatus.getCode), None,
+          durationMicros, requestBody, responseBody(r))
+        case Failure(e) => Entry(timestamp, request.getMethod.name, request.getUri, None, Some(e.toString),
+          durationMicros, requestBody, NoBody)
+      }
+      if (!queue.offer(entry)) {
+        dropped.incrementAndGet()
+      }
+    } catch {
+      case NonFatal(e) => LOG.warn("Unable to log sampled request: {}", Array[AnyRef](request, e): _*)
+    }
+
+    // Reading a lazy body here would wait for the whole upload of the client
+    private def requestBody: Body =
+      if (request.getRequestBody.isPresent && !request.getRequestBody.get.isLoaded) NotRead else loadedRequestBody
+
+    private def loadedRequestBody: Body = try {
+      val prefix = new Array[Byte](maxBodyLength)
+      val in = request.getBodyStream
+      try {
+        var count = 0
+        var read = 0
+        while (read >= 0 && count < prefix.length) {
+          read = in.read(prefix, count, prefix.length - count)
+          count += math.max(read, 0)
+        }
+        val length = if (request.getRequestBody.isPresent) request.getRequestBody.get.getLength else {
+          Option(request.getBody).map(_.length.toLong).getOrElse(0L)
+        }
+        Body(Arrays.copyOf(prefix, count), length)
+      } finally {
+        in.close()
+      }
+    } catch {
+      case e: IOException =>
+        LOG.debug("Unable to read the body of sampled request: {}", Array[AnyRef](request, e): _*)
+        NoBody
+    }
+
+    private def responseBody(response: ODataResponse): Body =
+      if (response.getResponseBody.isPresent) {
+        val body = response.getResponseBody.get
+        val prefix = new PrefixOutputStream(maxBodyLength)
+        body.writeTo(prefix)
+        Body(prefix.toByteArray, body.getLength)
+      } else if (response.getStreamingContent != null) {
+        // Streamed content is only produced while it is written out
+        Body(Array.emptyByteArray, -1)
+      } else {
+        Option(response.getBody).map { body =>
+          Body(Arrays.copyOf(body, math.min(body.length, maxBodyLength)), body.length)
+        }.getOrElse(NoBody)
+      }
+  }
+}
+
+object ODataRequestLog {
+  private val LOG = LoggerFactory.getLogger(classOf[ODataRequestLog])
+  private val RequestLogger: Logger = LoggerFactory.getLogger("com.sdl.odata.service.RequestLog")
+
+  private val Json = new JsonFactory()
+  private val NanosPerMicro = 1000L
+  private val MaxCharLength = 4
+
+  private case class Body(prefix: Array[Byte], length: Long)
+
+  private val NoBody = Body(Array.emptyByteArray, 0)
+  private val NotRead = Body(Array.emptyByteArray, -1)
+
+  private case class Entry(timestamp: Long, method: String, uri: String, status: Option[Int], error: Option[String],
+                           durationMicros: Long, requestBody: Body, responseBody: Body)
+
+  /**
+   * The length of a cut off UTF-8 text without the last character, if that character is cut off as well.
+   */
+  private def completeLength(bytes: Array[Byte]): Int = {
+    // The last byte which is not a continuation byte starts the last character
+    val lastStart = (bytes.length - 1 to math.max(bytes.length - MaxCharLength, 0) by -1)
+      .find(i => (bytes(i) & 0xC0) != 0x80)
+    lastStart.map { start =>
+      val lead = bytes(start) & 0xFF
+      val charLength = if (lead < 0x80) 1 else if (lead < 0xE0) 2 else if (lead < 0xF0) 3 else MaxCharLength
+      if (start + charLength > bytes.length) start else bytes.length
+    }.getOrElse(bytes.length)
+  }
+
+  /**
+   * Keeps the first bytes written to it, and discards the rest.
+   */
+  private class PrefixOutputStream(limit: Int) extends OutputStream {
+    private val bytes = new Array[Byte](limit)
+    private var count = 0
+
+    override def write(b: Int): Unit = if (count < limit) {
+      bytes(count) = b.toByte
+      count += 1
+    }
+
+    override def write(b: Array[Byte], off: Int, len: Int): Unit = {
+      val n = math.min(len, limit - count)
+      if (n > 0) {
+        System.arraycopy(b, off, bytes, count, n)
+        count += n
+      }
+    }
+
+    def toByteArray: Array[Byte] = Arrays.copyOf(bytes, count)
+  }
+}
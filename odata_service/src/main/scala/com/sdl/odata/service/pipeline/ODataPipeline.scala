@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.nio.charset.StandardCharsets.UTF_8
+
+import com.sdl.odata.api.ODataErrorCode.UNKNOWN_ERROR
+import com.sdl.odata.api._
+import com.sdl.odata.api.parser.{ODataParser, ODataUri}
+import com.sdl.odata.api.parser.ODataUriUtil.{hasShapingOptions, isFunctionCallUri, resolveTargetType}
+import com.sdl.odata.api.processor.datasource.{ODataDataSourceException, ODataEntityNotFoundException}
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.processor.query.QueryResult.ResultType
+import com.sdl.odata.api.processor.{ODataFunctionProcessor, ODataQueryProcessor, ODataWriteProcessor, ProcessorResult}
+import com.sdl.odata.api.renderer.{ODataRenderer, RendererFactory}
+import com.sdl.odata.api.service.HeaderNames.{ETAG, IF_NONE_MATCH}
+import com.sdl.odata.api.service.ODataResponse.Status._
+import com.sdl.odata.api.service.{ODataContentStreamer, ODataRequest, ODataRequestContext, ODataResponse}
+import com.sdl.odata.api.unmarshaller.{ODataUnmarshaller, UnmarshallerFactory}
+import com.sdl.odata.renderer.batch.ODataBatchRequestRenderer
+import com.sdl.odata.util.edm.ETagUtil
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.stereotype.Component
+
+import scala.collection.JavaConverters._
+
+/**
+ * The stages of the request pipeline.
+ *
+ * Each stage does the work of one of the actors of the request pipeline, so that the actors and the direct service,
+ * which runs the stages on the calling thread, handle requests in exactly the same way.
+ *
+ * The selection of renderers is cached, up to `odata.service.renderer-cache-size` entries; see [[ODataRendererSelector]].
+ */
+@Component
+class ODataPipeline @Autowired()(parser: ODataParser, unmarshallerFactory: UnmarshallerFactory,
+                                 queryProcessor: ODataQueryProcessor, functionProcessor: ODataFunctionProcessor,
+                                 writeProcessor: ODataWriteProcessor, rendererFactory: RendererFactory,
+                                 batchRequestRenderer: ODataBatchRequestRenderer, queryCache: ODataQueryCache,
+                                 @Value("${odata.service.renderer-cache-size:1024}") rendererCacheSize: Int) {
+  import ODataPipeline._
+
+  private val rendererSelector = new ODataRendererSelector(rendererFactory, rendererCacheSize)
+
+  /**
+   * Parse the URI of a request.
+   *
+   * @param requestContext The request context.
+   * @return The parsed URI.
+   */
+  def parse(requestContext: ODataRequestContext): ODataUri = {
+    parser.parseUri(requestContext.getRequest.getUri, requestContext.getEntityDataModel)
+  }
+
+  /**
+   * Unmarshall the body of a request, with the unmarshaller that has the highest score for the request.
+   *
+   * @param requestContext The request context.
+   * @return The unmarshalled body.
+   */
+  def unmarshall(requestContext: ODataRequestContext): Option[AnyRef] = {
+    getUnmarshaller(requestContext) match {
+      case Some(unmarshaller) =>
+        LOG.debug("Selected unmarshaller: {}", unmarshaller.getClass.getName)
+        Option(unmarshaller.unmarshall(requestContext))
+      case None =>
+        throw new ODataSystemException("No unmarshaller available")
+    }
+  }
+
+  /**
+   * Execute a query or a function call. The results of queries are cached when the query cache is enabled; see
+   * [[ODataQueryCache]].
+   *
+   * @param requestContext The request context.
+   * @param data The unmarshalled body of the request, if any.
+   * @return The result of the query.
+   */
+  def read(requestContext: ODataRequestContext, data: Option[AnyRef]): ProcessorResult = {
+    if (isFunctionCallUri(requestContext.getUri)) {
+      functionProcessor.doFunction(requestContext)
+    } else {
+      queryCache.getOrQuery(requestContext)(queryProcessor.query(requestContext, data.orNull))
+    }
+  }
+
+  /**
+   * Execute a write operation.
+   *
+   * @param requestContext The request context.
+   * @param data The unmarshalled body of the request, if any.
+   * @return The result of the write operation.
+   */
+  def write(requestContext: ODataRequestContext, data: Option[AnyRef]): ProcessorResult = {
+    writeProcessor.write(requestContext, data.orNull)
+  }
+
+  /**
+   * Render the result of an operation.
+   *
+   * Results of entities of which the entity type has concurrency properties get an ETag. A GET request of which the
+   * `If-None-Match` header matches the ETag is answered with `304 Not Modified`, without rendering the result. The ETag
+   * covers the versions of the entities only, so results shaped by `$expand`, `$select` or `$count` do not get one.
+   *
+   * @param requestContext The request context.
+   * @param result The result to render.
+   * @return The response.
+   */
+  def render(requestContext: ODataRequestContext, result: ProcessorResult): ODataResponse = {
+    val eTag = getETag(requestContext, result)
+    if (eTag.exists(isNotModified(requestContext, _))) {
+      LOG.debug("Result not modified, ETag: {}", eTag.get)
+      return new ODataResponse.Builder().setStatus(NOT_MODIFIED).setHeader(ETAG, eTag.get).build()
+    }
+
+    val responseBuilder = new ODataResponse.Builder()
+    Option(result.getQueryResult) match {
+      case Some(queryResult) => queryResult.getType match {
+        case ResultType.STREAM =>
+          getRenderer(requestContext, result.getQueryResult) match {
+            case Some(renderer) =>
+              responseBuilder.setODataContent(
+                new ODataContentStreamer(renderer, requestContext, result.getQueryResult))
+            case None => renderError(requestContext,
+              new ODataServerException(UNKNOWN_ERROR, "No renderer available"), responseBuilder)
+          }
+        case _ => if (result.getData != null) {
+          renderResult(requestContext, result, responseBuilder)
+        }
+      }
+      case None => if (result.getData != null) {
+        renderResult(requestContext, result, responseBuilder)
+      }
+    }
+
+    responseBuilder.setStatus(result.getStatus)
+    eTag.foreach(responseBuilder.setHeader(ETAG, _))
+    if (result.getHeaders.size() > 0) {
+      responseBuilder.setHeaders(result.getHeaders)
+    }
+    responseBuilder.build()
+  }
+
+  /**
+   * Render the results of a batch operation.
+   *
+   * @param requestContext The request context.
+   * @param results The results of the requests in the batch.
+   * @return The response.
+   */
+  def renderBatch(requestContext: ODataRequestContext, results: List[ProcessorResult]): ODataResponse = {
+    val responseBuilder = new ODataResponse.Builder()
+    if (results != null) {
+      batchRequestRenderer.render(requestContext, QueryResult.from(results.asJava), responseBuilder)
+    }
+    responseBuilder.setStatus(ODataResponse.Status.OK)
+    responseBuilder.build()
+  }
+
+  /**
+   * Render the error a request failed with, mapping the error to the status of the response.
+   *
+   * @param requestContext The request context.
+   * @param e The error.
+   * @return The response.
+   */
+  def renderFailure(requestContext: ODataRequestContext, e: Throwable): ODataResponse = {
+    val responseBuilder = new ODataResponse.Builder()
+    e match {
+      case clientException: ODataUnsupportedMediaTypeException =>
+        LOG.error(s"Invalid request: '${e.getMessage}'", e)
+        renderError(requestContext, clientException, responseBuilder)
+        setStatus(requestContext, responseBuilder, UNSUPPORTED_MEDIA_TYPE)
+      case clientException: ODataEntityNotFoundException =>
+        LOG.warn(s"Entity not found: '${e.getMessage}'")
+        renderError(requestContext, clientException, responseBuilder)
+        setStatus(requestContext, responseBuilder, NOT_FOUND)
+      case clientException: ODataClientException =>
+        LOG.error(s"Invalid request - ${e.getClass.getName}: '${e.getMessage}'", e)
+        renderError(requestContext, clientException, responseBuilder)
+        setStatus(requestContext, responseBuilder, BAD_REQUEST)
+      case serverException: ODataDataSourceException =>
+        LOG.error(s"Error during datasource access: '${e.getMessage}'", e)
+        renderError(requestContext, serverException, responseBuilder)
+        setStatus(requestContext, responseBuilder, BAD_REQUEST)
+      case timeoutException: ODataRequestTimeoutException =>
+        LOG.warn(s"Request timed out: '${e.getMessage}'")
+        renderError(requestContext, timeoutException, responseBuilder)
+        setStatus(requestContext, responseBuilder, SERVICE_UNAVAILABLE)
+      case serverException: ODataServerException =>
+        LOG.error(s"Exception during response rendering - ${e.getClass.getName}: '${e.getMessage}'", e)
+        renderError(requestContext, serverException, responseBuilder)
+        setStatus(requestContext, responseBuilder, INTERNAL_SERVER_ERROR)
+      case knownException: ODataException =>
+        LOG.error(s"Exception during response rendering - ${e.getClass.getName}: '${e.getMessage}'", e)
+        renderError(requestContext, knownException, responseBuilder)
+        setStatus(requestContext, responseBuilder, INTERNAL_SERVER_ERROR)
+      case _ =>
+        LOG.error(s"Unexpected exception during response rendering - ${e.getClass.getName}: '${e.getMessage}'", e)
+        renderError(requestContext, new ODataServerException(UNKNOWN_ERROR, s"${e.getClass.getName}: ${e.getMessage}"),
+          responseBuilder)
+        setStatus(requestContext, responseBuilder, INTERNAL_SERVER_ERROR)
+    }
+    responseBuilder.build()
+  }
+
+  /**
+    * Temporary solution for catching batch requests within ODataRenderActor.
+    * If it's batch request we should set OK status even if we catch an error.
+    *
+    * @param requestContext  requestContext
+    * @param responseBuilder responseBuilder
+    * @param status          response status
+    */
+  def setStatus(requestContext: ODataRequestContext, responseBuilder: ODataResponse.Builder,
+                status: ODataResponse.Status) {
+    if (requestContext.getRequest.getUri.contains("$batch"))
+      responseBuilder.setStatus(ODataResponse.Status.OK)
+    else
+      responseBuilder.setStatus(status)
+  }
+
+  /**
+    * Render an error.
+    *
+    * @param requestContext  The request context.
+    * @param exception       The source exception to use to render the error.
+    * @param responseBuilder The response builder.
+    */
+  def renderError(requestContext: ODataRequestContext, exception: ODataException,
+                  responseBuilder: ODataResponse.Builder) {
+    val exceptionResult = QueryResult.from(exception)
+    getRenderer(requestContext, exceptionResult) match {
+      case Some(renderer) =>
+        renderer.render(requestContext, exceptionResult, responseBuilder)
+
+      case None =>
+        renderErrorAsText(exception, responseBuilder)
+    }
+  }
+
+  /**
+    * Render the result from the processed operation.
+    *
+    * @param requestContext  The request context.
+    * @param result          The result to render.
+    * @param responseBuilder The response builder.
+    */
+  def renderResult(requestContext: ODataRequestContext, result: ProcessorResult,
+                   responseBuilder: ODataResponse.Builder) {
+    getRenderer(requestContext, result.getQueryResult) match {
+      case Some(renderer) =>
+        renderer.render(requestContext, result.getQueryResult, responseBuilder)
+      case None =>
+        renderError(requestContext, new ODataServerException(UNKNOWN_ERROR, "No renderer available"), responseBuilder)
+    }
+  }
+
+  /**
+    * Render an error as plain text.
+    *
+    * @param ex              The source exception to use to render the error.
+    * @param responseBuilder The response builder.
+    */
+  def renderErrorAsText(ex: Exception, responseBuilder: ODataResponse.Builder) {
+    responseBuilder.setBodyText(Option(ex.getMessage).getOrElse("Unknown error"), UTF_8.name())
+    responseBuilder.setStatus(INTERNAL_SERVER_ERROR)
+  }
+
+  private def getETag(requestContext: ODataRequestContext, result: ProcessorResult): Option[String] = {
+    Option(result.getQueryResult) match {
+      case Some(queryResult) if (result.getStatus eq OK) && (queryResult.getType ne ResultType.STREAM) &&
+        queryResult.getData != null && !hasShapingOptions(requestContext.getUri) =>
+        // Use the declared type, as the query processor does when it answers a conditional GET from the version alone
+        val entityDataModel = requestContext.getEntityDataModel
+        resolveTargetType(requestContext.getUri, entityDataModel).flatMap(targetType =>
+          Option(ETagUtil.getETag(entityDataModel, targetType.typeName, queryResult.getData).orElse(null)))
+      case _ => None
+    }
+  }
+
+  private def isNotModified(requestContext: ODataRequestContext, eTag: String): Boolean = {
+    val request = requestContext.getRequest
+    (request.getMethod eq ODataRequest.Method.GET) && ETagUtil.matches(request.getHeader(IF_NONE_MATCH), eTag)
+  }
+
+  private def getUnmarshaller(requestContext: ODataRequestContext): Option[ODataUnmarshaller] = {
+    unmarshallerFactory.getUnmarshallers.asScala
+      .map(unmarshaller => (unmarshaller.score(requestContext), unmarshaller))
+      .filter(_._1 > 0)
+      .sortBy(-_._1)
+      .map(_._2)
+      .headOption
+  }
+
+  private def getRenderer(requestContext: ODataRequestContext, data: QueryResult): Option[ODataRenderer] =
+    rendererSelector.select(requestContext, data)
+}
+
+object ODataPipeline {
+  private val LOG = LoggerFactory.getLogger(classOf[ODataPipeline])
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.{Function => JFunction}
+
+import com.sdl.odata.api.parser.ODataUriUtil._
+import com.sdl.odata.api.parser.{EntityUri, FormatOption, QueryOption, ResourcePathUri}
+import com.sdl.odata.api.processor.{ODataWriteListener, ProcessorResult}
+import com.sdl.odata.api.processor.query.QueryResult.ResultType
+import com.sdl.odata.api.service.ODataResponse.Status.OK
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext}
+import com.sdl.odata.util.edm.EntityDataModelUtil.getEntitySetByEntityTypeName
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.{Autowired, Value}
+import org.springframework.stereotype.Component
+
+import scala.util.Try
+
+/**
+ * Caches the results of queries, so that GET requests which are repeated are answered without going to the data
+ * source. The cache is switched off unless `odata.service.query-cache.enabled` is set; it should only be used when
+ * the data that the data sources return does not depend on anything else than the URI, such as the user making the
+ * request.
+ *
+ * Results are cached by the parsed URI, regardless of the order of the query options. The `$format` option is left
+ * out, and the result is rendered for every request, so that one result serves every media type it is asked for in.
+ * Up to `odata.service.query-cache.max-entries` results are kept, the least recently used are dropped first, and
+ * each result is kept for at most `odata.service.query-cache.ttl` milliseconds.
+ *
+ * Results are invalidated per entity set, as soon as a write to the entity set has been committed. Results of
+ * queries which expand navigation properties depend on more than one entity set, and are invalidated by any write.
+ */
+@Component
+class ODataQueryCache @Autowired()(
+    @Value("${odata.service.query-cache.enabled:false}") enabled: Boolean,
+    @Value("${odata.service.query-cache.max-entries:1024}") maxEntries: Int,
+    @Value("${odata.service.query-cache.ttl:60000}") ttl: Long) extends ODataWriteListener {
+  import ODataQueryCache._
+
+  private val ttlNanos = MILLISECONDS.toNanos(ttl)
+  private val segments = Array.fill(SegmentCount)(new Segment(math.max(1, maxEntries / SegmentCount)))
+
+  // Generations of the entity sets, counting the writes to them, so that a result is not cached when the entity sets
+  // it depends on are written to while it is being queried
+  private val generations = new ConcurrentHashMap[String, AtomicLong]()
+  private val anyEntitySetGeneration = new AtomicLong()
+  private val totalGeneration = new AtomicLong()
+
+  /**
+   * Returns the cached result of the query of a request, or queries it and caches the result.
+   *
+   * @param requestContext The request context.
+   * @param query Queries the result.
+   * @return The result.
+   */
+  def getOrQuery(requestContext: ODataRequestContext)(query: => ProcessorResult): ProcessorResult = {
+    cacheKey(requestContext) match {
+      case Some(key) =>
+        val segment = segments(math.abs(key.hashCode % SegmentCount))
+        segment.get(key, System.nanoTime()).getOrElse {
+          val dependencies = readDependencies(requestContext)
+          val generation = generationOf(dependencies)
+          val result = query
+          if (isCacheable(result)) {
+            segment.putIf(key, new CacheEntry(result, dependencies, System.nanoTime() + ttlNanos),
+              generationOf(dependencies) == generation)
+          }
+          result
+        }
+      case None => query
+    }
+  }
+
+  override def written(requestContext: ODataRequestContext): Unit = if (enabled) {
+    writeDependencies(requestContext) match {
+      case AnyEntitySet =>
+        anyEntitySetGeneration.incrementAndGet()
+        totalGeneration.incrementAndGet()
+        segments.foreach(_.clear())
+      case dependencies: EntitySets =>
+        dependencies.names.foreach(generation(_).incrementAndGet())
+        totalGeneration.incrementAndGet()
+        segments.foreach(_.invalidate(dependencies))
+    }
+  }
+
+  private def cacheKey(requestContext: ODataRequestContext): Option[CacheKey] = {
+    val uri = requestContext.getUri
+    if (!enabled || uri == null || (requestContext.getRequest.getMethod ne ODataRequest.Method.GET) ||
+      isFunctionCallUri(uri) || isActionCallUri(uri)) {
+      None
+    } else {
+      uri.relativeUri match {
+        case ResourcePathUri(resourcePath, options) =>
+          Some((uri.serviceRoot, resourcePath, normalize(options)))
+        case EntityUri(derivedTypeName, options) =>
+          Some((uri.serviceRoot, derivedTypeName, normalize(options)))
+        case _ => None
+      }
+    }
+  }
+
+  private def readDependencies(requestContext: ODataRequestContext): Dependencies = {
+    val uri = requestContext.getUri
+    if (getExpandOptions(uri).nonEmpty) AnyEntitySet else entitySets(requestContext)
+  }
+
+  private def writeDependencies(requestContext: ODataRequestContext): Dependencies = {
+    val uri = requestContext.getUri
+    if (uri == null || isActionCallUri(uri)) AnyEntitySet else entitySets(requestContext)
+  }
+
+  /**
+   * The entity set named in the URI, and the entity set of the type it targets, which differ for navigation paths.
+   */
+  private def entitySets(requestContext: ODataRequestContext): Dependencies = {
+    val uri = requestContext.getUri
+    val entityDataModel = requestContext.getEntityDataModel
+    val targetEntitySet = Try(resolveTargetType(uri, entityDataModel)
+      .flatMap(targetType => Option(getEntitySetByEntityTypeName(entityDataModel, targetType.typeName)))
+      .map(_.getName)).toOption.flatten
+    val names = getEntitySetName(uri).toSet ++ targetEntitySet
+    if (names.isEmpty) AnyEntitySet else new EntitySets(names)
+  }
+
+  private def generationOf(dependencies: Dependencies): Long = dependencies match {
+    case AnyEntitySet => totalGeneration.get
+    case entitySets: EntitySets => entitySets.names.iterator.map(generation(_).get).sum + anyEntitySetGeneration.get
+  }
+
+  private def generation(entitySetName: String): AtomicLong =
+    generations.computeIfAbsent(entitySetName, NewGeneration)
+}
+
+object ODataQueryCache {
+  private val LOG = LoggerFactory.getLogger(classOf[ODataQueryCache])
+
+  private val SegmentCount = 16
+
+  private val NewGeneration: JFunction[String, AtomicLong] = new JFunction[String, AtomicLong] {
+    override def apply(entitySetName: String): AtomicLong = new AtomicLong()
+  }
+
+  // The service root, the resource path or the derived type name, and the query options
+  private type CacheKey = (String, Any, Set[QueryOption])
+
+  private class CacheEntry(val result: ProcessorResult, val dependencies: Dependencies, val expiresAt: Long)
+
+  private sealed trait Dependencies
+  private object AnyEntitySet extends Dependencies
+  private class EntitySets(val names: Set[String]) extends Dependencies
+
+  private def normalize(options: List[QueryOption]): Set[QueryOption] =
+    options.filterNot(_.isInstanceOf[FormatOption]).toSet
+
+  private def isCacheable(result: ProcessorResult): Boolean =
+    (result.getStatus eq OK) && Option(result.getQueryResult).exists(queryResult =>
+      (queryResult.getType ne ResultType.STREAM) && (queryResult.getType ne ResultType.EXCEPTION))
+
+  /**
+   * Entries in access order, dropping the least recently used entry once there are more than `maxEntries`.
+   */
+  private class LeastRecentlyUsed(maxEntries: Int)
+    extends java.util.LinkedHashMap[CacheKey, CacheEntry](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[CacheKey, CacheEntry]): Boolean =
+      size() > maxEntries
+  }
+
+  /**
+   * A part of the cache, holding the most recently used entries. Entries are spread over segments so that requests
+   * for different URIs do not all wait for the same lock.
+   */
+  private class Segment(maxEntries: Int) {
+    private val entries = new LeastRecentlyUsed(maxEntries)
+
+    def get(key: CacheKey, now: Long): Option[ProcessorResult] = synchronized {
+      Option(entries.get(key)) match {
+        case Some(entry) if entry.expiresAt - now > 0 => Some(entry.result)
+        case Some(_) =>
+          entries.remove(key)
+          None
+        case None => None
+      }
+    }
+
+    // The condition is checked under the lock, so that an invalidation can not slip in between it and the put
+    def putIf(key: CacheKey, entry: CacheEntry, condition: => Boolean): Unit = synchronized {
+      if (condition) {
+        entries.put(key, entry)
+      } else {
+        LOG.debug("Not caching result, the entity sets it depends on were written to: {}", key)
+      }
+    }
+
+    def invalidate(written: EntitySets): Unit = synchronized {
+      entries.values().removeIf(entry => entry.dependencies match {
+        case AnyEntitySet => true
+        case entitySets: EntitySets => entitySets.names.exists(written.names.contains)
+      })
+    }
+
+    def clear(): Unit = synchronized {
+      entries.clear()
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.util.concurrent.ConcurrentHashMap
+
+import com.sdl.odata.api.edm.model.MetaType
+import com.sdl.odata.api.parser.ODataUriUtil._
+import com.sdl.odata.api.parser.{FormatOption, ODataUri}
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.processor.query.QueryResult.ResultType
+import com.sdl.odata.api.renderer.{ODataRenderer, RendererFactory}
+import com.sdl.odata.api.service.{MediaType, ODataRequestContext}
+
+import scala.util.Try
+
+/**
+ * Selects the renderer with the highest score for a result; of renderers with the same score, the first one wins.
+ *
+ * The inputs that decide the winner are bounded, so the selection is remembered for the combination of the '$format'
+ * option, the media types of the 'Accept' and 'Content-Type' headers, the type of the result and the shape of the URI.
+ * The headers are keyed on their parsed media types, so spellings which only differ in whitespace or in the order of
+ * parameters share a selection. Renderers that are not [[ODataRenderer#isScoreCacheable cacheable]] are scored every
+ * time, and compete with the remembered winner.
+ *
+ * @param rendererFactory The renderer factory.
+ * @param cacheSize The maximum number of selections to remember; 0 disables the cache.
+ */
+class ODataRendererSelector(rendererFactory: RendererFactory, cacheSize: Int) {
+  import ODataRendererSelector._
+
+  @volatile private var state: State = new State(java.util.Collections.emptyList(), Array.empty)
+
+  def select(requestContext: ODataRequestContext, data: QueryResult): Option[ODataRenderer] = {
+    val renderers = rendererFactory.getRenderers
+
+    if (cacheSize <= 0) {
+      select(renderers, requestContext, data, 0 until renderers.size)
+    } else {
+      selectionKey(requestContext, data) match {
+        case Some(key) =>
+          val current = currentState(renderers)
+          val cached = Option(current.selections.get(key)).getOrElse {
+            if (current.selections.size >= cacheSize) {
+              current.selections.clear()
+            }
+            val selection = best(renderers, requestContext, data,
+              (0 until renderers.size).filter(i => renderers.get(i).isScoreCacheable))
+            current.selections.put(key, selection)
+            selection
+          }
+
+          val uncached = best(renderers, requestContext, data, current.uncacheable)
+          (cached ++ uncached).reduceOption(better).map(candidate => renderers.get(candidate.index))
+        case None =>
+          select(renderers, requestContext, data, 0 until renderers.size)
+      }
+    }
+  }
+
+  private def currentState(renderers: java.util.List[ODataRenderer]): State = {
+    val current = state
+    if (current.renderers eq renderers) {
+      current
+    } else {
+      val uncacheable = (0 until renderers.size).filterNot(i => renderers.get(i).isScoreCacheable).toArray
+      val newState = new State(renderers, uncacheable)
+      state = newState
+      newState
+    }
+  }
+
+  private def select(renderers: java.util.List[ODataRenderer], requestContext: ODataRequestContext, data: QueryResult,
+                     indices: Seq[Int]): Option[ODataRenderer] =
+    best(renderers, requestContext, data, indices).map(candidate => renderers.get(candidate.index))
+
+  private def best(renderers: java.util.List[ODataRenderer], requestContext: ODataRequestContext, data: QueryResult,
+                   indices: Seq[Int]): Option[Candidate] =
+    indices.iterator
+      .map(i => new Candidate(renderers.get(i).score(requestContext, data), i))
+      .filter(_.score > 0)
+      .reduceOption(better)
+}
+
+object ODataRendererSelector {
+
+  private class Candidate(val score: Int, val index: Int)
+
+  // The kind of URI, the meta type of its target, and whether it calls an operation or is a $value or $count path
+  private type UriShape = (Class[_], Option[MetaType], Boolean, Boolean)
+
+  // The $format option, the Accept and Content-Type media types, the type and class of the result, and the URI shape
+  private type SelectionKey = (Option[FormatOption], java.util.List[MediaType], Option[MediaType], Option[ResultType],
+    Option[Class[_]], Option[UriShape])
+
+  private class State(val renderers: java.util.List[ODataRenderer], val uncacheable: Array[Int]) {
+    val selections = new ConcurrentHashMap[SelectionKey, Option[Candidate]]()
+  }
+
+  private def better(a: Candidate, b: Candidate): Candidate =
+    if (b.score > a.score || (b.score == a.score && b.index < a.index)) b else a
+
+  /**
+   * The inputs the renderers base their scores on. Empty if the shape of the URI can not be determined, in which case
+   * the renderers are scored without caching.
+   */
+  private def selectionKey(requestContext: ODataRequestContext, data: QueryResult): Option[SelectionKey] = Try {
+    val request = requestContext.getRequest
+    val uri = Option(requestContext.getUri)
+    (
+      uri.flatMap(getFormatOption),
+      request.getAccept,
+      Option(request.getContentType),
+      Option(data).map(_.getType),
+      Option(data).flatMap(d => Option(d.getData)).map(_.getClass),
+      uri.map(uriShape(_, requestContext)))
+  }.toOption
+
+  private def uriShape(uri: ODataUri, requestContext: ODataRequestContext): UriShape = {
+    val entityDataModel = requestContext.getEntityDataModel
+    val targetMetaType = resolveTargetType(uri, entityDataModel)
+      .flatMap(targetType => Option(entityDataModel.getType(targetType.typeName)))
+      .map(_.getMetaType)
+    (uri.relativeUri.getClass, targetMetaType, isFunctionCallUri(uri) || isActionCallUri(uri),
+      isValuePathUri(uri) || isCountPathUri(uri))
+  }
+}
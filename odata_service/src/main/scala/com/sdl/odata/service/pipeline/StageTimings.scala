@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.util.Optional
+
+import com.sdl.odata.api.parser.ODataUriUtil.getEntitySetName
+import com.sdl.odata.api.service.{ODataPipelineStage, ODataRequestContext, ODataRequestMetrics, ODataResponse}
+
+/**
+ * Times the stages of the request pipeline a single request passes through, and records them with the
+ * [[ODataRequestMetrics]] once the status of the response is known.
+ *
+ * The stages of a request are entered one after another, but not necessarily on the same thread.
+ */
+class StageTimings private (metrics: ODataRequestMetrics) {
+  private val startedAt = System.nanoTime()
+  private var stage: Option[ODataPipelineStage] = None
+  private var stageStartedAt = startedAt
+  private var durations = List[(ODataPipelineStage, Long)]()
+  private var parsedRequestContext: Option[ODataRequestContext] = None
+  private var completed = false
+
+  /**
+   * Ends the current stage, if any, and enters the next one.
+   *
+   * @param requestContext The request context as it is handed over; its URI, once parsed, determines the entity set
+   *                       the timings are recorded for.
+   * @param next The stage the request is handed to; `None` if the request is handed to something that is not a stage.
+   */
+  def enter(requestContext: ODataRequestContext, next: Option[ODataPipelineStage]): Unit = synchronized {
+    if (!completed) {
+      val now = System.nanoTime()
+      stage.foreach(current => durations ::= (current, now - stageStartedAt))
+      stage = next
+      stageStartedAt = now
+      if (requestContext.getUri != null) {
+        parsedRequestContext = Some(requestContext)
+      }
+    }
+  }
+
+  /**
+   * Ends the current stage, and records the stages and the duration of the request. Only the first call has effect.
+   *
+   * @param requestContext The request context the response was rendered for.
+   * @param status The status of the response.
+   */
+  def complete(requestContext: ODataRequestContext, status: ODataResponse.Status): Unit = {
+    val completedStages = synchronized {
+      if (completed) {
+        None
+      } else {
+        enter(requestContext, None)
+        completed = true
+        Some(durations.reverse)
+      }
+    }
+
+    // Neither the stages nor the parsed request context change once completed
+    completedStages.foreach { stages =>
+      val context = parsedRequestContext.getOrElse(requestContext)
+      val entitySet = Option(context.getUri).flatMap(getEntitySetName).orNull
+      val method = context.getRequest.getMethod
+      stages.foreach(stage => metrics.recordStage(stage._1, entitySet, method, status, stage._2))
+      metrics.recordRequest(entitySet, method, status, System.nanoTime() - startedAt)
+    }
+  }
+}
+
+object StageTimings {
+
+  /**
+   * Timings which are not recorded, for when there is no [[ODataRequestMetrics]] bean.
+   */
+  val Disabled: StageTimings = new StageTimings(null) {
+    override def enter(requestContext: ODataRequestContext, next: Option[ODataPipelineStage]): Unit = {}
+
+    override def complete(requestContext: ODataRequestContext, status: ODataResponse.Status): Unit = {}
+  }
+
+  /**
+   * Starts timing a request.
+   *
+   * @param metrics The metrics to record the timings with, if any.
+   * @return The timings of the request.
+   */
+  def start(metrics: Optional[ODataRequestMetrics]): StageTimings =
+    if (metrics.isPresent) new StageTimings(metrics.get) else Disabled
+}
@@ -18,13 +18,31 @@ package com.sdl.odata.service.protocol
 import akka.actor.ActorRef
 import com.sdl.odata.api.parser.ODataUri
 import com.sdl.odata.api.processor.ProcessorResult
-import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext, ODataResponse}
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext, ODataRequestDeadline, ODataResponse}
 import com.sdl.odata.parser.ODataBatchRequestContent
+import com.sdl.odata.service.pipeline.StageTimings
 
-case class ODataActorContext(requestContext: ODataRequestContext, origin: ActorRef)
+/**
+ * The context carried along with every message of a single request through the actor pipeline.
+ *
+ * @param requestContext The OData request context.
+ * @param origin         The actor to which the final response must be sent.
+ * @param requestId      The identifier which correlates the messages of a request within its message router.
+ * @param timings        The timings of the pipeline stages the request passes through.
+ */
+case class ODataActorContext(requestContext: ODataRequestContext, origin: ActorRef, requestId: Long,
+                             timings: StageTimings)
 
 sealed trait ODataActorMessage
 
+// A message which hands a request over from one stage of the pipeline to the next; its string form names only the
+// request, not the parsed URI, entity, query result or rendered body it carries
+sealed trait ODataPipelineMessage extends ODataActorMessage {
+  def actorContext: ODataActorContext
+
+  override def toString: String = getClass.getSimpleName + "(" + actorContext.requestContext + ")"
+}
+
 // Register an actor to handle a specified type of message
 case class RegisterMessageHandler(messageType: Class[_ <: ODataActorMessage], beanName: String) extends ODataActorMessage
 
@@ -34,28 +52,31 @@ case class UnregisterMessageHandler(messageType: Class[_ <: ODataActorMessage],
 case class ErrorMessage(actorContext: ODataActorContext, ex: Throwable) extends ODataActorMessage
 
 // Initial request sent by ODataServiceImpl to ODataMessageRouter
-case class InitialServiceRequest(request: ODataRequest) extends ODataActorMessage
+case class InitialServiceRequest(request: ODataRequest, deadline: ODataRequestDeadline) extends ODataActorMessage
+
+// Sent by ODataMessageRouter to itself when the deadline of a request expires
+case class RequestTimeout(requestId: Long) extends ODataActorMessage
 
-case class ServiceRequest(actorContext: ODataActorContext) extends ODataActorMessage
+case class ServiceRequest(actorContext: ODataActorContext) extends ODataPipelineMessage
 
-case class ParseUri(actorContext: ODataActorContext) extends ODataActorMessage
+case class ParseUri(actorContext: ODataActorContext) extends ODataPipelineMessage
 
-case class ParseResult(actorContext: ODataActorContext, uri: ODataUri) extends ODataActorMessage
+case class ParseResult(actorContext: ODataActorContext, uri: ODataUri) extends ODataPipelineMessage
 
-case class Unmarshall(actorContext: ODataActorContext) extends ODataActorMessage
+case class Unmarshall(actorContext: ODataActorContext) extends ODataPipelineMessage
 
-case class UnmarshallResult(actorContext: ODataActorContext, data: Option[AnyRef]) extends ODataActorMessage
+case class UnmarshallResult(actorContext: ODataActorContext, data: Option[AnyRef]) extends ODataPipelineMessage
 
-case class ReadOperation(actorContext: ODataActorContext, data: Option[AnyRef]) extends ODataActorMessage
+case class ReadOperation(actorContext: ODataActorContext, data: Option[AnyRef]) extends ODataPipelineMessage
 
-case class WriteOperation(actorContext: ODataActorContext, data: Option[AnyRef]) extends ODataActorMessage
+case class WriteOperation(actorContext: ODataActorContext, data: Option[AnyRef]) extends ODataPipelineMessage
 
-case class OperationResult(actorContext: ODataActorContext, result: ProcessorResult) extends ODataActorMessage
+case class OperationResult(actorContext: ODataActorContext, result: ProcessorResult) extends ODataPipelineMessage
 
-case class Render(actorContext: ODataActorContext, result: ProcessorResult) extends ODataActorMessage
+case class Render(actorContext: ODataActorContext, result: ProcessorResult) extends ODataPipelineMessage
 
 case class ServiceResponse(actorContext: ODataActorContext, response: ODataResponse) extends ODataActorMessage
 
-case class BatchOperation(actorContext: ODataActorContext, data: Option[ODataBatchRequestContent]) extends ODataActorMessage
+case class BatchOperation(actorContext: ODataActorContext, data: Option[ODataBatchRequestContent]) extends ODataPipelineMessage
 
-case class BatchOperationResult(actorContext: ODataActorContext, result: List[ProcessorResult]) extends ODataActorMessage
+case class BatchOperationResult(actorContext: ODataActorContext, result: List[ProcessorResult]) extends ODataPipelineMessage
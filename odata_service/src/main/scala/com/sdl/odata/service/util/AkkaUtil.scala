@@ -16,9 +16,9 @@
 package com.sdl.odata.service.util
 
 import akka.actor.{Actor, ActorContext, ActorRef}
-import com.sdl.odata.service.actor.MessageHandlerRegistry._
-import com.sdl.odata.service.actor.ODataMessageRouter
-import com.sdl.odata.service.protocol.{ODataActorMessage, RegisterMessageHandler}
+import com.sdl.odata.api.service.ODataPipelineStage
+import com.sdl.odata.service.actor.MessageHandlerRegistry
+import com.sdl.odata.service.protocol._
 import com.sdl.odata.service.spring.ActorProducer
 import org.slf4j.{Logger, LoggerFactory}
 
@@ -29,30 +29,59 @@ import org.slf4j.{Logger, LoggerFactory}
 object AkkaUtil {
   private val logger: Logger = LoggerFactory.getLogger("AkkaUtil")
 
+  /**
+   * Registers an actor to handle a type of message. The route is in place when this method returns.
+   */
   def registerRoute(messageType: Class[_ <: ODataActorMessage], actorType: Class[_ <: Actor])(implicit producer: ActorProducer) {
-    messageRouter().tell(RegisterMessageHandler(messageType, actorType.getSimpleName), null)
+    val beanName = actorType.getSimpleName
+    MessageHandlerRegistry.add(messageType, beanName, producer.create(beanName))
   }
 
-  private def messageRouter()(implicit producer : ActorProducer): ActorRef =
-    actorRef(classOf[ODataMessageRouter])
+  /**
+   * Routes a message to a new instance of every actor registered for its type.
+   *
+   * A request is not handed over to its next stage once its deadline has expired; instead an
+   * [[com.sdl.odata.api.ODataRequestTimeoutException]] is thrown, which fails the request. Otherwise the stage the
+   * message hands the request over to is entered in the timings of the request.
+   *
+   * @return The actors the message was sent to.
+   */
+  def routeMessage(actorProducer: ActorProducer, context: ActorContext, message: ODataActorMessage): Set[ActorRef] = {
+    logger.debug("Routing message: {}", message)
 
-  private def actorRef(actorType: Class[_ <: Actor])(implicit producer: ActorProducer): ActorRef = {
-    producer.actorRef(actorType.getSimpleName)
-  }
-
-  def routeMessage(actorProducer: ActorProducer, context: ActorContext, message: ODataActorMessage) {
-    logger.debug(s"Routing message: $message")
+    message match {
+      case pipelineMessage: ODataPipelineMessage =>
+        val actorContext = pipelineMessage.actorContext
+        actorContext.requestContext.getDeadline.checkNotExpired()
+        actorContext.timings.enter(actorContext.requestContext, stageOf(pipelineMessage))
+      case ErrorMessage(actorContext, _) =>
+        actorContext.timings.enter(actorContext.requestContext, Some(ODataPipelineStage.RENDER))
+      case _ =>
+    }
 
-    val messageType = message.getClass
-    if (contains(messageType)) {
-      get(messageType).foreach {
-        beanName =>
-          logger.debug(s"Sending message to: $beanName")
+    val routes = MessageHandlerRegistry.routes(message.getClass)
+    if (routes.nonEmpty) {
+      routes.map {
+        route =>
+          logger.debug("Sending message to: {}", route.beanName)
 
-          actorProducer.tell(beanName, message, context.self, context)
-      }
+          val actor = context.actorOf(route.props)
+          actor.tell(message, context.self)
+          actor
+      }.toSet
     } else {
-      logger.warn(s"No handler registered for message type: $messageType")
+      logger.warn(s"No handler registered for message type: ${message.getClass}")
+      Set.empty
     }
   }
+
+  private def stageOf(message: ODataPipelineMessage): Option[ODataPipelineStage] = message match {
+    case _: ServiceRequest | _: ParseUri => Some(ODataPipelineStage.PARSE)
+    case _: Unmarshall => Some(ODataPipelineStage.UNMARSHALL)
+    case _: ReadOperation => Some(ODataPipelineStage.QUERY)
+    case _: WriteOperation => Some(ODataPipelineStage.WRITE)
+    case _: BatchOperation => Some(ODataPipelineStage.BATCH)
+    case _: Render | _: BatchOperationResult => Some(ODataPipelineStage.RENDER)
+    case _: ParseResult | _: UnmarshallResult | _: OperationResult => None
+  }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.util
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{ExecutorService, Executors, ThreadFactory}
+
+import scala.util.Try
+
+object ExecutorUtil {
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task. Virtual threads are only available from
+   * Java 21 onwards, so the executor is looked up reflectively.
+   *
+   * @return The executor, or `None` if the running JVM does not support virtual threads.
+   */
+  def virtualThreadPerTaskExecutor(): Option[ExecutorService] =
+    Try(classOf[Executors].getMethod("newVirtualThreadPerTaskExecutor").invoke(null).asInstanceOf[ExecutorService])
+      .toOption
+
+  /**
+   * Creates a fixed pool of daemon threads.
+   *
+   * @param name The prefix of the names of the threads.
+   * @param size The number of threads.
+   * @return The executor.
+   */
+  def fixedThreadPool(name: String, size: Int): ExecutorService = {
+    val threadCount = new AtomicInteger()
+    Executors.newFixedThreadPool(size, new ThreadFactory {
+      override def newThread(runnable: Runnable): Thread = {
+        val thread = new Thread(runnable, s"$name-${threadCount.incrementAndGet()}")
+        thread.setDaemon(true)
+        thread
+      }
+    })
+  }
+}
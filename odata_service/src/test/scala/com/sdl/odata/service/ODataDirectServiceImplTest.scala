@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service
+
+import java.io.OutputStream
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.Collections.singletonList
+import java.util.Optional
+import java.util.concurrent.TimeUnit.SECONDS
+
+import com.sdl.odata.api.edm.model.EntityDataModel
+import com.sdl.odata.api.edm.registry.ODataEdmRegistry
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.processor.{ODataQueryProcessor, ProcessorResult}
+import com.sdl.odata.api.renderer.{ChunkedActionRenderResult, ODataRenderer, RendererFactory}
+import com.sdl.odata.api.service.ODataPipelineStage.{PARSE, QUERY, RENDER}
+import com.sdl.odata.api.service.ODataRequest.Method
+import com.sdl.odata.api.service.ODataResponse.Status.{BAD_REQUEST, OK}
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext, ODataResponse}
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser.ODataParserImpl
+import com.sdl.odata.service.admission.ODataAdmissionController
+import com.sdl.odata.service.log.ODataRequestLog
+import com.sdl.odata.service.pipeline._
+import org.scalatest.FunSuite
+
+class ODataDirectServiceImplTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  val serviceRegistry = new ODataEdmRegistry {
+    override def registerClasses(classes: java.util.List[Class[_]]): Unit = {}
+
+    override def getEntityDataModel: EntityDataModel = entityDataModel
+  }
+
+  val queryProcessor = new ODataQueryProcessor {
+    override def query(requestContext: ODataRequestContext, data: AnyRef): ProcessorResult =
+      new ProcessorResult(OK, QueryResult.from(new VersionedItem(1, 1, null)))
+  }
+
+  val renderer = new ODataRenderer {
+    override def score(requestContext: ODataRequestContext, data: QueryResult): Int = 1
+
+    override def render(requestContext: ODataRequestContext, data: QueryResult,
+                        responseBuilder: ODataResponse.Builder): Unit =
+      responseBuilder.setBodyText("rendered", UTF_8.name())
+
+    override def renderStart(requestContext: ODataRequestContext, result: QueryResult,
+                             outputStream: OutputStream): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderBody(requestContext: ODataRequestContext, result: QueryResult,
+                            previousResult: ChunkedActionRenderResult): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderEnd(requestContext: ODataRequestContext, result: QueryResult,
+                           previousResult: ChunkedActionRenderResult): Unit =
+      throw new UnsupportedOperationException
+  }
+
+  val rendererFactory = new RendererFactory {
+    override def getRenderers: java.util.List[ODataRenderer] = singletonList(renderer)
+  }
+
+  val pipeline = new ODataPipeline(new ODataParserImpl, null, queryProcessor, null, null, rendererFactory, null,
+    new ODataQueryCache(false, 16, 60000), 16)
+
+  def withService(test: (ODataDirectServiceImpl, RecordingRequestMetrics) => Unit): Unit = {
+    val metrics = new RecordingRequestMetrics
+    val service = new ODataDirectServiceImpl(serviceRegistry, pipeline, null,
+      new ODataAdmissionController(0, 8, true, 0), new ODataRequestLog(0, 1024, 16), 0, false, 2, Optional.of(metrics))
+    try {
+      test(service, metrics)
+    } finally {
+      service.destroy()
+    }
+  }
+
+  def request(path: String): ODataRequest = new ODataRequest.Builder()
+    .setMethod(Method.GET)
+    .setUri("http://localhost:8080/odata.svc/" + path)
+    .build()
+
+  test("the stages of a request are recorded in order, and the request once") {
+    withService { (service, metrics) =>
+      assert(service.handleRequest(request("VersionedItems")).getBodyText(UTF_8.name()) == "rendered")
+      assert(metrics.stages.map(_.stage) == Seq(PARSE, QUERY, RENDER))
+      assert(metrics.stages.forall(_.entitySet == "VersionedItems"))
+      assert(metrics.requests == Seq(("VersionedItems", Method.GET, OK)))
+    }
+  }
+
+  test("the stages of an asynchronous request are recorded in order, and the request once") {
+    withService { (service, metrics) =>
+      val response = service.handleRequestAsync(request("VersionedItems")).toCompletableFuture.get(10, SECONDS)
+      assert(response.getStatus == OK)
+      assert(metrics.stages.map(_.stage) == Seq(PARSE, QUERY, RENDER))
+      assert(metrics.requests == Seq(("VersionedItems", Method.GET, OK)))
+    }
+  }
+
+  test("a request which fails is recorded once, with the stage its failure is rendered in") {
+    withService { (service, metrics) =>
+      assert(service.handleRequest(request("UnknownItems")).getStatus == BAD_REQUEST)
+      assert(metrics.stages.map(_.stage) == Seq(PARSE, RENDER))
+      assert(metrics.requests == Seq((null, Method.GET, BAD_REQUEST)))
+    }
+  }
+}
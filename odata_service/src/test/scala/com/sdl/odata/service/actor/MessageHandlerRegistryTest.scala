@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.actor
+
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
+
+import akka.actor.{Actor, ActorSystem, Props}
+import akka.testkit.{ImplicitSender, TestKit, TestProbe}
+import com.sdl.odata.service.StopSystemAfterAll
+import com.sdl.odata.service.protocol.{BatchOperationResult, ODataActorMessage, RequestTimeout, UnmarshallResult}
+import com.sdl.odata.service.util.AkkaUtil.routeMessage
+import org.scalatest.FunSuiteLike
+
+class MessageHandlerRegistryTest extends TestKit(ActorSystem("MessageHandlerRegistryTest")) with ImplicitSender
+  with FunSuiteLike with StopSystemAfterAll {
+
+  val handler = TestProbe()
+
+  def forwarder: Props = Props(new Forwarder(handler.ref))
+
+  test("routes are looked up in the order in which they are registered") {
+    val messageType = classOf[UnmarshallResult]
+    assert(!MessageHandlerRegistry.contains(messageType))
+    assert(MessageHandlerRegistry.routes(messageType).isEmpty)
+
+    MessageHandlerRegistry.add(messageType, "FirstHandler", forwarder)
+    MessageHandlerRegistry.add(messageType, "SecondHandler", forwarder)
+    assert(MessageHandlerRegistry.contains(messageType))
+    assert(MessageHandlerRegistry.routes(messageType).map(_.beanName) == Vector("FirstHandler", "SecondHandler"))
+    assert(MessageHandlerRegistry.get(messageType) == Set("FirstHandler", "SecondHandler"))
+
+    // Registering a bean again replaces its route
+    val replacement = forwarder
+    MessageHandlerRegistry.add(messageType, "FirstHandler", replacement)
+    assert(MessageHandlerRegistry.routes(messageType).map(_.beanName) == Vector("SecondHandler", "FirstHandler"))
+    assert(MessageHandlerRegistry.routes(messageType).last.props eq replacement)
+
+    MessageHandlerRegistry.remove(messageType, "FirstHandler")
+    MessageHandlerRegistry.remove(messageType, "UnknownHandler")
+    assert(MessageHandlerRegistry.get(messageType) == Set("SecondHandler"))
+    MessageHandlerRegistry.remove(messageType, "SecondHandler")
+    assert(MessageHandlerRegistry.routes(messageType).isEmpty)
+  }
+
+  test("removing a route of a type without routes does not register the type") {
+    MessageHandlerRegistry.remove(classOf[BatchOperationResult], "UnknownHandler")
+    assert(!MessageHandlerRegistry.contains(classOf[BatchOperationResult]))
+  }
+
+  test("messages are routed to a consistent set of routes while routes are registered concurrently") {
+    val messageType = classOf[RequestTimeout]
+    val threads = 4
+    val routesPerThread = 25
+    val beanNames = for (thread <- 0 until threads; route <- 0 until routesPerThread) yield s"Handler-$thread-$route"
+    val dispatcher = system.actorOf(Props(new Dispatcher))
+
+    val executor = Executors.newFixedThreadPool(threads)
+    val start = new CountDownLatch(1)
+    try {
+      for (thread <- 0 until threads) {
+        executor.execute(() => {
+          start.await()
+          for (route <- 0 until routesPerThread) {
+            MessageHandlerRegistry.add(messageType, s"Handler-$thread-$route", forwarder)
+          }
+        })
+      }
+      executor.shutdown()
+      start.countDown()
+
+      // Every message reaches exactly the routes of one version of the table, and no table loses a route
+      var routed = 0
+      var requestId = 0L
+      do {
+        requestId += 1
+        dispatcher ! RequestTimeout(requestId)
+        val count = expectMsgType[Int]
+        assert(count >= routed)
+        routed = count
+
+        val routes = MessageHandlerRegistry.routes(messageType).map(_.beanName)
+        assert(routes.distinct == routes)
+        handler.receiveN(count).foreach(message => assert(message == RequestTimeout(requestId)))
+      } while (!executor.isTerminated)
+      assert(executor.awaitTermination(10, TimeUnit.SECONDS))
+
+      assert(MessageHandlerRegistry.get(messageType) == beanNames.toSet)
+      dispatcher ! RequestTimeout(0)
+      assert(expectMsgType[Int] == beanNames.size)
+      handler.receiveN(beanNames.size)
+    } finally {
+      executor.shutdownNow()
+      beanNames.foreach(MessageHandlerRegistry.remove(messageType, _))
+    }
+    assert(MessageHandlerRegistry.routes(messageType).isEmpty)
+  }
+}
+
+/**
+ * Routes every message it receives, and replies with the number of actors it was routed to.
+ */
+class Dispatcher extends Actor {
+  override def receive: Receive = {
+    case message: ODataActorMessage => sender() ! routeMessage(null, context, message).size
+  }
+}
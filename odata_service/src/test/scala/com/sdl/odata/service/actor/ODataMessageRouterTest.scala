@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.actor
+
+import java.time.Duration
+import java.util.Optional
+
+import akka.actor.{Actor, ActorRef, ActorSystem, Props}
+import akka.testkit.{ImplicitSender, TestKit, TestProbe}
+import com.sdl.odata.api.ODataRequestTimeoutException
+import com.sdl.odata.api.edm.model.EntityDataModel
+import com.sdl.odata.api.edm.registry.ODataEdmRegistry
+import com.sdl.odata.api.processor.ProcessorResult
+import com.sdl.odata.api.service.ODataPipelineStage.{PARSE, QUERY, RENDER}
+import com.sdl.odata.api.service.ODataResponse.Status.OK
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestDeadline, ODataRequestMetrics, ODataResponse}
+import com.sdl.odata.service.StopSystemAfterAll
+import com.sdl.odata.service.pipeline.RecordingRequestMetrics
+import com.sdl.odata.service.protocol._
+import com.sdl.odata.service.util.AkkaUtil.routeMessage
+import org.scalatest.{BeforeAndAfterEach, FunSuiteLike}
+
+class ODataMessageRouterTest extends TestKit(ActorSystem("ODataMessageRouterTest")) with ImplicitSender
+  with FunSuiteLike with BeforeAndAfterEach with StopSystemAfterAll {
+
+  val serviceRegistry = new ODataEdmRegistry {
+    override def registerClasses(classes: java.util.List[Class[_]]): Unit = {}
+
+    override def getEntityDataModel: EntityDataModel = null
+  }
+
+  // The stages of the pipeline are stood in for by probes, so that the test decides when they respond
+  val requestHandler = TestProbe()
+  val errorHandler = TestProbe()
+
+  override protected def beforeEach(): Unit = {
+    MessageHandlerRegistry.add(classOf[ServiceRequest], "TestRequestHandler", Props(new Forwarder(requestHandler.ref)))
+    MessageHandlerRegistry.add(classOf[ErrorMessage], "TestErrorHandler", Props(new Forwarder(errorHandler.ref)))
+  }
+
+  override protected def afterEach(): Unit = {
+    MessageHandlerRegistry.remove(classOf[ServiceRequest], "TestRequestHandler")
+    MessageHandlerRegistry.remove(classOf[ErrorMessage], "TestErrorHandler")
+  }
+
+  def router(metrics: Optional[ODataRequestMetrics] = Optional.empty()): ActorRef =
+    system.actorOf(Props(new ODataMessageRouter(serviceRegistry, null, metrics)))
+
+  def request(path: String): ODataRequest = new ODataRequest.Builder()
+    .setMethod(ODataRequest.Method.GET)
+    .setUri("http://localhost:8080/odata.svc/" + path)
+    .build()
+
+  def response(): ODataResponse = new ODataResponse.Builder().setStatus(OK).build()
+
+  test("a response is sent back to the origin of the request") {
+    val messageRouter = router()
+    messageRouter ! InitialServiceRequest(request("Customers"), ODataRequestDeadline.none())
+
+    val serviceRequest = requestHandler.expectMsgType[ServiceRequest]
+    requestHandler.reply(ServiceResponse(serviceRequest.actorContext, response()))
+    assert(expectMsgType[ServiceResponse].response.getStatus == OK)
+  }
+
+  test("an expired deadline fails only its own request") {
+    val messageRouter = router()
+    messageRouter ! InitialServiceRequest(request("Customers"), ODataRequestDeadline.none())
+    val inFlight = requestHandler.expectMsgType[ServiceRequest]
+    val inFlightRouter = requestHandler.lastSender
+
+    messageRouter ! InitialServiceRequest(request("Orders"), ODataRequestDeadline.after(Duration.ZERO))
+    val error = errorHandler.expectMsgType[ErrorMessage]
+    assert(error.ex.isInstanceOf[ODataRequestTimeoutException])
+    assert(error.actorContext.requestContext.getRequest.getUri.endsWith("Orders"))
+    errorHandler.reply(ServiceResponse(error.actorContext, response()))
+    assert(expectMsgType[ServiceResponse].actorContext.requestId == error.actorContext.requestId)
+    requestHandler.expectNoMessage()
+
+    // The router still knows the request which was in flight
+    requestHandler.send(inFlightRouter, ServiceResponse(inFlight.actorContext, response()))
+    assert(expectMsgType[ServiceResponse].actorContext.requestId == inFlight.actorContext.requestId)
+  }
+
+  test("the stages a request passes through are recorded in order, and the request once") {
+    val metrics = new RecordingRequestMetrics
+    val messageRouter = router(Optional.of(metrics))
+
+    // Stages which hand the request over to the next one as the pipeline does, up to a renderer which responds
+    MessageHandlerRegistry.remove(classOf[ServiceRequest], "TestRequestHandler")
+    MessageHandlerRegistry.add(classOf[ServiceRequest], "TestParser",
+      Props(new Stage(ReadOperation(_, None))))
+    MessageHandlerRegistry.add(classOf[ReadOperation], "TestQueryProcessor",
+      Props(new Stage(Render(_, new ProcessorResult(OK)))))
+    MessageHandlerRegistry.add(classOf[Render], "TestRenderer", Props(new Forwarder(requestHandler.ref)))
+    try {
+      messageRouter ! InitialServiceRequest(request("Customers"), ODataRequestDeadline.none())
+      val render = requestHandler.expectMsgType[Render]
+      assert(metrics.requests.isEmpty)
+
+      requestHandler.send(render.actorContext.origin, ServiceResponse(render.actorContext, response()))
+      expectMsgType[ServiceResponse]
+      assert(metrics.stages.map(_.stage) == Seq(PARSE, QUERY, RENDER))
+      assert(metrics.requests.map(_._3) == Seq(OK))
+
+      // A second response to the same request is dropped, and not recorded again
+      requestHandler.send(render.actorContext.origin, ServiceResponse(render.actorContext, response()))
+      expectNoMessage()
+      assert(metrics.requests.size == 1)
+    } finally {
+      MessageHandlerRegistry.remove(classOf[ServiceRequest], "TestParser")
+      MessageHandlerRegistry.remove(classOf[ReadOperation], "TestQueryProcessor")
+      MessageHandlerRegistry.remove(classOf[Render], "TestRenderer")
+      MessageHandlerRegistry.add(classOf[ServiceRequest], "TestRequestHandler",
+        Props(new Forwarder(requestHandler.ref)))
+    }
+  }
+
+  test("a request which fails is recorded once, with the stage its failure is rendered in") {
+    val metrics = new RecordingRequestMetrics
+    val messageRouter = router(Optional.of(metrics))
+    messageRouter ! InitialServiceRequest(request("Orders"), ODataRequestDeadline.after(Duration.ZERO))
+
+    val error = errorHandler.expectMsgType[ErrorMessage]
+    errorHandler.reply(ServiceResponse(error.actorContext, response()))
+    expectMsgType[ServiceResponse]
+    assert(metrics.stages.map(_.stage) == Seq(RENDER))
+    assert(metrics.requests.size == 1)
+  }
+}
+
+/**
+ * A stage of the pipeline, which hands the request over to the next stage with the message made by `next`.
+ */
+class Stage(next: ODataActorContext => ODataActorMessage) extends Actor {
+  override def receive: Receive = {
+    case message: ODataPipelineMessage => routeMessage(null, context, next(message.actorContext))
+  }
+}
+
+class Forwarder(target: ActorRef) extends Actor {
+  override def receive: Receive = {
+    case message => target forward message
+  }
+}
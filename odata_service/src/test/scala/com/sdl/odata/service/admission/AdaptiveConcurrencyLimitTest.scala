@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.admission
+
+import org.scalatest.FunSuite
+
+class AdaptiveConcurrencyLimitTest extends FunSuite {
+
+  val Millisecond = 1000000L
+
+  test("starts at the maximum") {
+    assert(new AdaptiveConcurrencyLimit(2, 100).current == 100)
+  }
+
+  test("invalid limits") {
+    intercept[IllegalArgumentException](new AdaptiveConcurrencyLimit(0, 100))
+    intercept[IllegalArgumentException](new AdaptiveConcurrencyLimit(10, 5))
+  }
+
+  test("dropped requests shrink the limit towards the minimum") {
+    val limit = new AdaptiveConcurrencyLimit(2, 100)
+    limit.update(Millisecond, 100, dropped = true)
+    assert(limit.current == 51)
+    (1 to 20).foreach(_ => limit.update(Millisecond, 100, dropped = true))
+    assert(limit.current == 2)
+  }
+
+  test("rising latency shrinks the limit") {
+    val limit = new AdaptiveConcurrencyLimit(2, 100)
+    (1 to 50).foreach(_ => limit.update(Millisecond, limit.current, dropped = false))
+    assert(limit.current == 100)
+
+    (1 to 50).foreach(_ => limit.update(20 * Millisecond, limit.current, dropped = false))
+    assert(limit.current < 50)
+    assert(limit.current >= 2)
+  }
+
+  test("the limit grows back while the latency is steady") {
+    val limit = new AdaptiveConcurrencyLimit(2, 100)
+    (1 to 10).foreach(_ => limit.update(Millisecond, 100, dropped = true))
+    val shrunk = limit.current
+    assert(shrunk < 10)
+
+    (1 to 500).foreach(_ => limit.update(Millisecond, limit.current, dropped = false))
+    assert(limit.current == 100)
+  }
+
+  test("the limit grows back quicker once the latency drops") {
+    val limit = new AdaptiveConcurrencyLimit(2, 100)
+    (1 to 50).foreach(_ => limit.update(Millisecond, limit.current, dropped = false))
+    (1 to 50).foreach(_ => limit.update(20 * Millisecond, limit.current, dropped = false))
+    val shrunk = limit.current
+
+    (1 to 20).foreach(_ => limit.update(Millisecond, limit.current, dropped = false))
+    assert(limit.current > shrunk)
+  }
+
+  test("the latency of a hardly used limit is ignored") {
+    val limit = new AdaptiveConcurrencyLimit(2, 100)
+    limit.update(Millisecond, 100, dropped = false)
+    (1 to 50).foreach(_ => limit.update(100 * Millisecond, 1, dropped = false))
+    assert(limit.current == 100)
+  }
+}
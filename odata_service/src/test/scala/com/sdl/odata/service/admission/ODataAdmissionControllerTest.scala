@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.admission
+
+import com.sdl.odata.api.service.ODataResponse.Status.{OK, SERVICE_UNAVAILABLE}
+import com.sdl.odata.api.service.{ODataRequest, ODataResponse}
+import org.scalatest.FunSuite
+
+import scala.util.{Failure, Success}
+
+class ODataAdmissionControllerTest extends FunSuite {
+
+  def request(path: String): ODataRequest = new ODataRequest.Builder()
+    .setMethod(ODataRequest.Method.GET)
+    .setUri("http://localhost:8080/odata.svc/" + path)
+    .build()
+
+  val ok: Success[ODataResponse] = Success(new ODataResponse.Builder().setStatus(OK).build())
+
+  test("unlimited") {
+    val controller = new ODataAdmissionController(0, 8, true, 0)
+    val permits = (1 to 100).map(_ => controller.tryAdmit(request("Customers")))
+    assert(permits.forall(_.isDefined))
+    assert(controller.admittedCount == 100)
+    permits.foreach(_.get.release(ok))
+    assert(controller.admittedCount == 0)
+  }
+
+  test("global limit") {
+    val controller = new ODataAdmissionController(2, 8, false, 0)
+    val first = controller.tryAdmit(request("Customers"))
+    val second = controller.tryAdmit(request("Orders"))
+    assert(first.isDefined && second.isDefined)
+    assert(controller.tryAdmit(request("Products")).isEmpty)
+    assert(controller.admittedCount == 2)
+
+    first.get.release(ok)
+    assert(controller.tryAdmit(request("Products")).isDefined)
+  }
+
+  test("entity set limit") {
+    val controller = new ODataAdmissionController(0, 8, false, 1)
+    val customers = controller.tryAdmit(request("Customers(1)/Orders"))
+    assert(customers.isDefined)
+    assert(controller.tryAdmit(request("Customers?$top=1")).isEmpty)
+    assert(controller.tryAdmit(request("Orders")).isDefined)
+
+    customers.get.release(ok)
+    assert(controller.tryAdmit(request("Customers")).isDefined)
+  }
+
+  test("a rejected response counts as a dropped request") {
+    val controller = new ODataAdmissionController(16, 1, true, 0)
+    (1 to 16).map(_ => controller.tryAdmit(request("Customers")))
+      .foreach(_.get.release(Success(controller.rejectedResponse())))
+    assert(controller.tryAdmit(request("Customers")).isDefined)
+    assert(controller.tryAdmit(request("Customers")).isEmpty)
+  }
+
+  test("a failed request releases its permit") {
+    val controller = new ODataAdmissionController(1, 1, false, 1)
+    val permit = controller.tryAdmit(request("Customers"))
+    assert(controller.tryAdmit(request("Customers")).isEmpty)
+
+    permit.get.release(Failure(new IllegalStateException("failed")))
+    assert(controller.admittedCount == 0)
+    assert(controller.tryAdmit(request("Customers")).isDefined)
+  }
+
+  test("rejected response") {
+    val response = new ODataAdmissionController(1, 1, false, 0).rejectedResponse()
+    assert(response.getStatus == SERVICE_UNAVAILABLE)
+    assert(response.getHeader("Retry-After") == "1")
+  }
+
+  test("drain and resume") {
+    val controller = new ODataAdmissionController(0, 8, true, 0)
+    val permit = controller.tryAdmit(request("Customers"))
+
+    assert(!controller.drain(10))
+    assert(controller.tryAdmit(request("Customers")).isEmpty)
+    assert(controller.rejectedResponse().getBodyText("UTF-8").contains("shutting down"))
+
+    val releaser = new Thread(new Runnable {
+      override def run(): Unit = {
+        Thread.sleep(100)
+        permit.get.release(ok)
+      }
+    })
+    releaser.start()
+    assert(controller.drain(10000))
+    releaser.join()
+    assert(controller.admittedCount == 0)
+
+    controller.resume()
+    assert(controller.tryAdmit(request("Customers")).isDefined)
+  }
+
+  test("resource name") {
+    import ODataAdmissionController.resourceName
+    assert(resourceName("http://localhost:8080/odata.svc/Customers(1)/Orders") === Some("Customers"))
+    assert(resourceName("http://localhost:8080/odata.svc/Customers?$top=1") === Some("Customers"))
+    assert(resourceName("http://localhost:8080/odata.svc/$metadata") === Some("$metadata"))
+    assert(resourceName("http://localhost:8080/odata.svc") === None)
+    assert(resourceName("http://localhost:8080/odata.svc/") === None)
+    assert(resourceName("http://localhost:8080/odata.svc/Customers#top") === Some("Customers"))
+    assert(resourceName("Customers(1)") === Some("Customers"))
+  }
+}
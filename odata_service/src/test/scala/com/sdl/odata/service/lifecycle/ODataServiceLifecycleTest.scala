@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.lifecycle
+
+import java.io.OutputStream
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.Collections.singletonList
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.sdl.odata.api.ODataSystemException
+import com.sdl.odata.api.edm.model.{ComplexType, EntityContainer, EntityDataModel, EntitySet}
+import com.sdl.odata.api.edm.registry.ODataEdmRegistry
+import com.sdl.odata.api.parser.ODataUri
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.processor.{ODataQueryProcessor, ProcessorResult}
+import com.sdl.odata.api.renderer.{ChunkedActionRenderResult, ODataRenderer, RendererFactory}
+import com.sdl.odata.api.service.ODataResponse.Status.{OK, SERVICE_UNAVAILABLE}
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext, ODataResponse, ODataResponseBody}
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser.ODataParserImpl
+import com.sdl.odata.service.admission.ODataAdmissionController
+import com.sdl.odata.service.pipeline.{ItemPart, ODataPipeline, ODataQueryCache, VersionedItem}
+import org.mockito.Mockito.{mock, when}
+import org.scalatest.FunSuite
+
+import scala.util.Success
+
+class ODataServiceLifecycleTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  def edmRegistry(model: => EntityDataModel): ODataEdmRegistry = new ODataEdmRegistry {
+    override def registerClasses(classes: java.util.List[Class[_]]): Unit = {}
+
+    override def getEntityDataModel: EntityDataModel = model
+  }
+
+  val queried = new AtomicInteger()
+  val rendered = new AtomicInteger()
+
+  def writeBody(requestContext: ODataRequestContext, responseBuilder: ODataResponse.Builder): Unit = {
+    val body = new ODataResponseBody
+    body.getOutputStream.write("rendered".getBytes(UTF_8))
+    responseBuilder.setBody(body)
+  }
+
+  @volatile var renderResponse: (ODataRequestContext, ODataResponse.Builder) => Unit = writeBody
+
+  val queryProcessor = new ODataQueryProcessor {
+    override def query(requestContext: ODataRequestContext, data: AnyRef): ProcessorResult = {
+      queried.incrementAndGet()
+      new ProcessorResult(OK, QueryResult.from(requestContext.getUri.toString))
+    }
+  }
+
+  val renderer = new ODataRenderer {
+    override def score(requestContext: ODataRequestContext, data: QueryResult): Int = 1
+
+    override def render(requestContext: ODataRequestContext, data: QueryResult,
+                        responseBuilder: ODataResponse.Builder): Unit = {
+      rendered.incrementAndGet()
+      renderResponse(requestContext, responseBuilder)
+    }
+
+    override def renderStart(requestContext: ODataRequestContext, result: QueryResult,
+                             outputStream: OutputStream): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderBody(requestContext: ODataRequestContext, result: QueryResult,
+                            previousResult: ChunkedActionRenderResult): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderEnd(requestContext: ODataRequestContext, result: QueryResult,
+                           previousResult: ChunkedActionRenderResult): Unit =
+      throw new UnsupportedOperationException
+  }
+
+  val rendererFactory = new RendererFactory {
+    override def getRenderers: java.util.List[ODataRenderer] = singletonList(renderer)
+  }
+
+  val pipeline = new ODataPipeline(new ODataParserImpl, null, queryProcessor, null, null, rendererFactory, null,
+    new ODataQueryCache(false, 16, 60000), 16)
+
+  def request(): ODataRequest = new ODataRequest.Builder()
+    .setMethod(ODataRequest.Method.GET)
+    .setUri("http://localhost:8080/odata.svc/VersionedItems")
+    .build()
+
+  def lifecycle(admissionController: ODataAdmissionController, warmUpEnabled: Boolean = false,
+                model: => EntityDataModel = entityDataModel, drainTimeout: Long = 10000): ODataServiceLifecycle =
+    new ODataServiceLifecycle(edmRegistry(model), pipeline, admissionController, warmUpEnabled, 2, drainTimeout)
+
+  test("the warm-up runs requests through the pipeline, outside the admission control") {
+    queried.set(0)
+    rendered.set(0)
+    val admissionController = new ODataAdmissionController(1, 1, true, 0)
+    val serviceLifecycle = lifecycle(admissionController, warmUpEnabled = true)
+    serviceLifecycle.start()
+    assert(serviceLifecycle.isRunning)
+
+    // Per round, the service and metadata documents, and for both entity sets and both media types four URIs
+    assert(queried.get == 2 * 2)
+    assert(rendered.get == 2 * (2 + 2 * 2 * 4))
+    assert(admissionController.admittedCount == 0)
+    val permit = admissionController.tryAdmit(request())
+    assert(permit.isDefined)
+    permit.get.release(Success(new ODataResponse.Builder().setStatus(OK).build()))
+  }
+
+  test("the warm-up can be switched off, and is skipped when the model can not be built") {
+    rendered.set(0)
+    val disabled = lifecycle(new ODataAdmissionController(0, 0, false, 0))
+    disabled.start()
+    assert(disabled.isRunning)
+
+    val failing = lifecycle(new ODataAdmissionController(0, 0, false, 0), warmUpEnabled = true,
+      model = throw new ODataSystemException("Invalid model"))
+    failing.start()
+    assert(failing.isRunning)
+    assert(rendered.get == 0)
+  }
+
+  test("a drain rejects new requests and waits for the requests in flight") {
+    val admissionController = new ODataAdmissionController(0, 0, false, 0)
+    val serviceLifecycle = lifecycle(admissionController)
+    serviceLifecycle.start()
+    val permit = admissionController.tryAdmit(request()).get
+
+    val stopping = new Thread(new Runnable {
+      override def run(): Unit = serviceLifecycle.stop()
+    })
+    stopping.start()
+    var admitted = admissionController.tryAdmit(request())
+    while (admitted.isDefined) {
+      // Admitted before the drain started
+      admitted.get.release(Success(new ODataResponse.Builder().setStatus(OK).build()))
+      Thread.sleep(1)
+      admitted = admissionController.tryAdmit(request())
+    }
+    assert(!serviceLifecycle.isRunning)
+    val rejected = admissionController.rejectedResponse()
+    assert(rejected.getStatus == SERVICE_UNAVAILABLE)
+    assert(rejected.getBodyText(UTF_8.name()).contains("shutting down"))
+    assert(stopping.isAlive)
+
+    permit.release(Success(new ODataResponse.Builder().setStatus(OK).build()))
+    stopping.join(10000)
+    assert(!stopping.isAlive)
+    assert(admissionController.admittedCount == 0)
+
+    // Started again, requests are admitted again
+    serviceLifecycle.start()
+    assert(admissionController.tryAdmit(request()).isDefined)
+  }
+
+  test("a drain gives up after the drain timeout") {
+    val admissionController = new ODataAdmissionController(0, 0, false, 0)
+    val serviceLifecycle = lifecycle(admissionController, drainTimeout = 100)
+    serviceLifecycle.start()
+    admissionController.tryAdmit(request()).get
+
+    val start = System.nanoTime()
+    serviceLifecycle.stop()
+    assert(System.nanoTime() - start >= 100 * 1000000L)
+    assert(admissionController.admittedCount == 1)
+    assert(admissionController.tryAdmit(request()).isEmpty)
+  }
+
+  test("failing warm-up requests are ignored, and fatal errors are not") {
+    def isServiceDocument(requestContext: ODataRequestContext): Boolean = {
+      val uri = requestContext.getRequest.getUri
+      Seq("", "$metadata").contains(uri.substring(uri.lastIndexOf('/') + 1))
+    }
+
+    try {
+      renderResponse = (_, _) => throw new IllegalStateException("Rendering failed")
+      rendered.set(0)
+      val failing = lifecycle(new ODataAdmissionController(0, 0, false, 0), warmUpEnabled = true)
+      failing.start()
+      assert(failing.isRunning)
+      assert(rendered.get == 2 * (2 + 2 * 2 * 4))
+
+      // A body which is not pooled
+      renderResponse = (_, responseBuilder) => responseBuilder.setBodyText("rendered", UTF_8.name())
+      lifecycle(new ODataAdmissionController(0, 0, false, 0), warmUpEnabled = true).start()
+
+      renderResponse = (requestContext, _) => if (isServiceDocument(requestContext)) throw new InterruptedException
+      assertThrows[InterruptedException] {
+        lifecycle(new ODataAdmissionController(0, 0, false, 0), warmUpEnabled = true).start()
+      }
+      renderResponse = (requestContext, _) => if (!isServiceDocument(requestContext)) throw new InterruptedException
+      assertThrows[InterruptedException] {
+        lifecycle(new ODataAdmissionController(0, 0, false, 0), warmUpEnabled = true).start()
+      }
+      assertThrows[InterruptedException] {
+        lifecycle(new ODataAdmissionController(0, 0, false, 0), warmUpEnabled = true,
+          model = throw new InterruptedException).start()
+      }
+    } finally {
+      renderResponse = writeBody
+    }
+  }
+
+  test("the warm-up has no key URIs for an entity set without an entity type") {
+    val entitySet = mock(classOf[EntitySet])
+    when(entitySet.getName).thenReturn("Parts")
+    when(entitySet.getTypeName).thenReturn("Test.Part")
+    val entityContainer = mock(classOf[EntityContainer])
+    when(entityContainer.getEntitySets).thenReturn(singletonList(entitySet))
+    val model = mock(classOf[EntityDataModel])
+    when(model.getEntityContainer).thenReturn(entityContainer)
+    val complexType = mock(classOf[ComplexType])
+    when(model.getType("Test.Part")).thenReturn(complexType)
+
+    val parsed = new AtomicInteger()
+    val countingPipeline = new ODataPipeline(new ODataParserImpl {
+      override def parseUri(uri: String, entityDataModel: EntityDataModel): ODataUri = {
+        parsed.incrementAndGet()
+        super.parseUri(uri, entityDataModel)
+      }
+    }, null, queryProcessor, null, null, rendererFactory, null, new ODataQueryCache(false, 16, 60000), 16)
+    new ODataServiceLifecycle(edmRegistry(model), countingPipeline, new ODataAdmissionController(0, 0, false, 0),
+      true, 1, 10000).start()
+
+    // The service and metadata documents, and for both media types the two URIs without a key
+    assert(parsed.get == 2 + 2 * 2)
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.log
+
+import java.io.ByteArrayInputStream
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.concurrent.TimeUnit.SECONDS
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.{CountDownLatch, LinkedBlockingQueue}
+
+import com.fasterxml.jackson.databind.{JsonNode, ObjectMapper}
+import com.sdl.odata.api.service.ODataResponse.Status.OK
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestBody, ODataResponse}
+import org.scalatest.FunSuite
+
+import scala.util.{Failure, Success}
+
+class ODataRequestLogTest extends FunSuite {
+
+  val lines = new LinkedBlockingQueue[String]()
+  val mapper = new ObjectMapper()
+
+  def requestLog(samplePercentage: Double, maxBodyLength: Int = 1024, queueSize: Int = 16): ODataRequestLog =
+    new ODataRequestLog(samplePercentage, maxBodyLength, queueSize) {
+      override private[log] def write(line: String): Unit = lines.put(line)
+    }
+
+  def request(body: String): ODataRequest = new ODataRequest.Builder()
+    .setMethod(ODataRequest.Method.POST)
+    .setUri("http://localhost:8080/odata.svc/Customers")
+    .setBodyText(body, UTF_8.name())
+    .build()
+
+  def response(body: String): ODataResponse = new ODataResponse.Builder()
+    .setStatus(OK)
+    .setBodyText(body, UTF_8.name())
+    .build()
+
+  def nextEntry(): JsonNode = {
+    val line = lines.poll(10, SECONDS)
+    assert(line != null)
+    mapper.readTree(line)
+  }
+
+  test("requests are sampled by the percentage") {
+    val none = requestLog(0)
+    assert((1 to 1000).forall(_ => none.sample(request("")).isEmpty))
+
+    val all = requestLog(100)
+    assert((1 to 1000).forall(_ => all.sample(request("")).isDefined))
+    all.destroy()
+
+    val half = requestLog(50)
+    val sampled = (1 to 10000).count(_ => half.sample(request("")).isDefined)
+    assert(sampled > 4000 && sampled < 6000)
+    half.destroy()
+  }
+
+  test("an entry describes the request and the response") {
+    val log = requestLog(100)
+    log.sample(request("{\"id\":1}")).get.complete(Success(response("created")))
+
+    val entry = nextEntry()
+    assert(entry.get("method").asText == "POST")
+    assert(entry.get("uri").asText == "http://localhost:8080/odata.svc/Customers")
+    assert(entry.get("status").asInt == 200)
+    assert(entry.get("requestLength").asLong == 8)
+    assert(entry.get("requestBody").asText == "{\"id\":1}")
+    assert(entry.get("responseLength").asLong == 7)
+    assert(entry.get("responseBody").asText == "created")
+    assert(!entry.has("requestBodyTruncated"))
+    assert(!entry.has("dropped"))
+
+    log.sample(request("")).get.complete(Failure(new IllegalStateException("failed")))
+    val failed = nextEntry()
+    assert(!failed.has("status"))
+    assert(failed.get("error").asText == "java.lang.IllegalStateException: failed")
+    log.destroy()
+  }
+
+  test("bodies are cut off after the maximum length") {
+    val log = requestLog(100, maxBodyLength = 8)
+    log.sample(request("abcdefghij")).get.complete(Success(response("abcdefgh")))
+
+    val entry = nextEntry()
+    assert(entry.get("requestLength").asLong == 10)
+    assert(entry.get("requestBody").asText == "abcdefgh")
+    assert(entry.get("requestBodyTruncated").asBoolean)
+    assert(entry.get("responseBody").asText == "abcdefgh")
+    assert(!entry.has("responseBodyTruncated"))
+    log.destroy()
+  }
+
+  test("a character which is cut in half is left out") {
+    val log = requestLog(100, maxBodyLength = 8)
+    // The eighth byte is the first of two, and the seventh and eighth are the first two of three
+    log.sample(request("abcdefgé")).get.complete(Success(response("abcdef€")))
+
+    val entry = nextEntry()
+    assert(entry.get("requestLength").asLong == 9)
+    assert(entry.get("requestBody").asText == "abcdefg")
+    assert(entry.get("requestBodyTruncated").asBoolean)
+    assert(entry.get("responseLength").asLong == 9)
+    assert(entry.get("responseBody").asText == "abcdef")
+
+    // A character which ends at the cut is kept
+    log.sample(request("abcdeféh")).get.complete(Success(response("")))
+    assert(nextEntry().get("requestBody").asText == "abcdefé")
+    log.destroy()
+  }
+
+  test("a lazy body is only logged once it has been read") {
+    val log = requestLog(100)
+    val sourceRead = new AtomicBoolean()
+    def lazyRequest(): ODataRequest = {
+      val source = new ByteArrayInputStream("{\"id\":1}".getBytes(UTF_8)) {
+        override def read(b: Array[Byte], off: Int, len: Int): Int = {
+          sourceRead.set(true)
+          super.read(b, off, len)
+        }
+      }
+      val body: ODataRequestBody = ODataRequestBody.fromStream(source, 1024)
+      new ODataRequest.Builder()
+        .setMethod(ODataRequest.Method.POST)
+        .setUri("http://localhost:8080/odata.svc/Customers")
+        .setBody(body)
+        .build()
+    }
+
+    // For example a request which was rejected before its body was unmarshalled
+    log.sample(lazyRequest()).get.complete(Success(response("")))
+    val notRead = nextEntry()
+    assert(!sourceRead.get)
+    assert(notRead.get("requestLength").asLong == -1)
+    assert(!notRead.get("requestBodyRead").asBoolean)
+    assert(!notRead.has("requestBody"))
+
+    val unmarshalled = lazyRequest()
+    val sample = log.sample(unmarshalled).get
+    assert(unmarshalled.getBodyText(UTF_8.name()) == "{\"id\":1}")
+    sample.complete(Success(response("")))
+    val loaded = nextEntry()
+    assert(loaded.get("requestLength").asLong == 8)
+    assert(loaded.get("requestBody").asText == "{\"id\":1}")
+    assert(!loaded.has("requestBodyRead"))
+    log.destroy()
+  }
+
+  test("dropped entries are counted in the next entry") {
+    val writing = new CountDownLatch(1)
+    val release = new CountDownLatch(1)
+    val log = new ODataRequestLog(100, 1024, 1) {
+      override private[log] def write(line: String): Unit = {
+        writing.countDown()
+        release.await()
+        lines.put(line)
+      }
+    }
+
+    log.sample(request("")).get.complete(Success(response("first")))
+    assert(writing.await(10, SECONDS))
+    // The writer is busy with the first entry; the second fills the queue, and the rest are dropped
+    for (body <- Seq("second", "third", "fourth")) {
+      log.sample(request("")).get.complete(Success(response(body)))
+    }
+    release.countDown()
+
+    val first = nextEntry()
+    assert(first.get("responseBody").asText == "first")
+    assert(!first.has("dropped"))
+    val second = nextEntry()
+    assert(second.get("responseBody").asText == "second")
+    assert(second.get("dropped").asLong == 2)
+    log.destroy()
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.util.Collections.singletonList
+
+import com.sdl.odata.api.ODataBadRequestException
+import com.sdl.odata.api.edm.model.EntityDataModel
+import com.sdl.odata.api.parser.{ODataBatchParseException, ODataUri, TargetType}
+import com.sdl.odata.api.processor.datasource.factory.DataSourceFactory
+import com.sdl.odata.api.processor.datasource.{DataSource, TransactionalDataSource}
+import com.sdl.odata.api.processor.link.ODataLink
+import com.sdl.odata.api.processor.query.strategy.QueryOperationStrategy
+import com.sdl.odata.api.processor.query.{QueryOperation, QueryResult}
+import com.sdl.odata.api.processor.{ODataQueryProcessor, ODataWriteListener, ProcessorResult}
+import com.sdl.odata.api.service.ODataRequest.Method
+import com.sdl.odata.api.service.ODataResponse.Status.{CREATED, NO_CONTENT, OK}
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext}
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser._
+import org.scalatest.FunSuite
+
+class ODataBatchOperationProcessorTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  val parser = new ODataParserImpl
+
+  /**
+   * A data source which keeps what is written to it.
+   */
+  class RecordingDataSource extends TransactionalDataSource {
+    @volatile var created: Seq[AnyRef] = Vector()
+    @volatile var deleted: Seq[ODataUri] = Vector()
+    @volatile var committed = false
+
+    override def create(uri: ODataUri, entity: AnyRef, entityDataModel: EntityDataModel): AnyRef = {
+      created :+= entity
+      entity
+    }
+
+    override def update(uri: ODataUri, entity: AnyRef, entityDataModel: EntityDataModel): AnyRef = entity
+
+    override def delete(uri: ODataUri, entityDataModel: EntityDataModel): Unit = deleted :+= uri
+
+    override def createLink(uri: ODataUri, link: ODataLink, entityDataModel: EntityDataModel): Unit = {}
+
+    override def deleteLink(uri: ODataUri, link: ODataLink, entityDataModel: EntityDataModel): Unit = {}
+
+    override def startTransaction(): TransactionalDataSource = this
+
+    override def commit(): Boolean = {
+      committed = true
+      true
+    }
+
+    override def rollback(): Unit = {}
+
+    override def isActive: Boolean = !committed
+  }
+
+  val dataSource = new RecordingDataSource
+
+  val dataSourceFactory = new DataSourceFactory {
+    override def getDataSource(requestContext: ODataRequestContext, entityType: String): DataSource = dataSource
+
+    override def getStrategy(requestContext: ODataRequestContext, operation: QueryOperation,
+                             expectedODataEntityType: TargetType): QueryOperationStrategy = null
+  }
+
+  @volatile var queried: Seq[ODataRequestContext] = Vector()
+
+  val queryProcessor = new ODataQueryProcessor {
+    override def query(requestContext: ODataRequestContext, data: AnyRef): ProcessorResult = {
+      queried :+= requestContext
+      new ProcessorResult(OK, QueryResult.from(new VersionedItem(1, 1, null)))
+    }
+  }
+
+  @volatile var written: Seq[ODataRequestContext] = Vector()
+
+  val writeListener = new ODataWriteListener {
+    override def written(requestContext: ODataRequestContext): Unit =
+      ODataBatchOperationProcessorTest.this.written :+= requestContext
+  }
+
+  val processor = new ODataBatchOperationProcessor(dataSourceFactory, queryProcessor, parser,
+    singletonList(writeListener))
+
+  def batchRequestContext(contentType: Option[String] = Some("multipart/mixed; boundary=batch_1"),
+                          host: String = "localhost:8080"): ODataRequestContext = {
+    val builder = new ODataRequest.Builder()
+      .setMethod(Method.POST)
+      .setUri("http://localhost:8080/odata.svc/$batch")
+      .setHeader("Host", host)
+    contentType.foreach(builder.setHeader("Content-Type", _))
+    val request = builder.build()
+    new ODataRequestContext(request, parser.parseUri(request.getUri, entityDataModel), entityDataModel)
+  }
+
+  val noHeaders = BatchRequestHeaders(Map(), IndividualRequestHeader)
+
+  def query(path: String, details: (String, String)*): BatchRequestComponent =
+    BatchRequestComponent(noHeaders, Map("RequestType" -> "GET", "RelativePath" -> path) ++ details)
+
+  test("the Content-Type of a batch request must be multipart/mixed with a boundary") {
+    for (contentType <- Seq(None, Some("application/json"), Some("multipart/mixed"), Some("text/plain; boundary=b"),
+      Some("multipart/mixed; charset=UTF-8"))) {
+      assertThrows[ODataBatchParseException] {
+        processor.process(batchRequestContext(contentType), ODataBatchRequestContent(List(query("VersionedItems"))))
+      }
+    }
+  }
+
+  test("the queries of a batch are executed one by one") {
+    queried = Vector()
+    val results = processor.process(batchRequestContext(), ODataBatchRequestContent(List(
+      query("VersionedItems(1)"),
+      query("/VersionedItems(2)", "Content-Type" -> "application/json"),
+      query("VersionedItems", "RequestEntity" -> "(3)", "RequestHost" -> "http://other:8080/odata.svc"),
+      BatchRequestComponent(BatchRequestHeaders(Map("Host" -> "http://batch:8080/odata.svc"), IndividualRequestHeader),
+        Map("RequestType" -> "GET", "RelativePath" -> "ItemParts")))))
+
+    assert(results.map(_.getStatus) == List(OK, OK, OK, OK))
+    assert(results.map(_.getRequestContext) == queried)
+    assert(queried.map(_.getRequest.getUri) == Seq(
+      "http://localhost:8080/odata.svc/VersionedItems(1)",
+      "http://localhost:8080/odata.svc/VersionedItems(2)",
+      "http://other:8080/odata.svc/VersionedItems(3)",
+      "http://batch:8080/odata.svc/ItemParts"))
+    assert(queried(1).getRequest.getHeader("Accept") == "application/json")
+    assert(queried.forall(_.getUri != null))
+
+    // A Host header that names the service is used as the service root
+    val proxied = processor.process(batchRequestContext(host = "http://proxy/odata.svc"),
+      ODataBatchRequestContent(List(query("VersionedItems(1)"))))
+    assert(proxied.head.getRequestContext.getRequest.getUri == "http://proxy/odata.svc/VersionedItems(1)")
+  }
+
+  test("a request in a batch needs a method and a URI") {
+    assertThrows[ODataBadRequestException] {
+      processor.process(batchRequestContext(), ODataBatchRequestContent(List(
+        BatchRequestComponent(noHeaders, Map("RelativePath" -> "VersionedItems")))))
+    }
+    assertThrows[ODataBadRequestException] {
+      processor.process(batchRequestContext(), ODataBatchRequestContent(List(
+        BatchRequestComponent(noHeaders, Map("RequestType" -> "GET")))))
+    }
+  }
+
+  test("the requests of a change set are written as a unit") {
+    written = Vector()
+    val json = "{\"@odata.context\":\"http://localhost:8080/odata.svc/$metadata#ItemParts/$entity\"," +
+      "\"id\":1,\"name\":\"json\"}"
+    val atom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+      "<entry xmlns=\"http://www.w3.org/2005/Atom\" xmlns:metadata=\"http://docs.oasis-open.org/odata/ns/metadata\"" +
+      " xmlns:data=\"http://docs.oasis-open.org/odata/ns/data\" xml:base=\"http://localhost:8080/odata.svc\">" +
+      "<id>http://localhost:8080/odata.svc/ItemParts(2)</id>" +
+      "<category scheme=\"http://docs.oasis-open.org/odata/ns/scheme\" term=\"#ODataPipelineTest.ItemPart\"/>" +
+      "<content type=\"application/xml\"><metadata:properties>" +
+      "<data:id metadata:type=\"Int64\">2</data:id><data:name>atom</data:name>" +
+      "</metadata:properties></content></entry>"
+    def write(method: String, path: String, details: (String, String)*): BatchRequestComponent =
+      BatchRequestComponent(BatchRequestHeaders(Map("Content-ID" -> path), IndividualRequestHeader),
+        Map("RequestType" -> method, "RelativePath" -> path) ++ details)
+
+    val results = processor.process(batchRequestContext(), ODataBatchRequestContent(List(
+      ChangeSetRequestComponent(BatchRequestHeaders(Map(), ChangeSetRequestHeader), List(
+        write("POST", "ItemParts", "Content-Type" -> "application/json", "RequestBody" -> json),
+        write("POST", "ItemParts", "Content-Type" -> "application/atom+xml", "RequestBody" -> atom),
+        write("DELETE", "ItemParts(3)")), "changeset_1"))))
+
+    assert(results.map(_.getStatus) == List(CREATED, CREATED, NO_CONTENT))
+    assert(results.forall(_.getHeaders.get("changeSetId") == "changeset_1"))
+    assert(dataSource.created.map(_.asInstanceOf[ItemPart].name) == Seq("json", "atom"))
+    assert(dataSource.deleted.size == 1)
+    assert(dataSource.committed)
+    assert(written.map(_.getRequest.getMethod) == Seq(Method.POST, Method.POST, Method.DELETE))
+
+    // The body of a write must be JSON or Atom
+    assertThrows[ODataBatchParseException] {
+      processor.process(batchRequestContext(), ODataBatchRequestContent(List(
+        ChangeSetRequestComponent(BatchRequestHeaders(Map(), ChangeSetRequestHeader), List(
+          write("POST", "ItemParts", "Content-Type" -> "text/plain", "RequestBody" -> "name")), "changeset_2"))))
+    }
+  }
+}
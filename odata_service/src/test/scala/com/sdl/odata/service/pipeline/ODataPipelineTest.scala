@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.io.OutputStream
+import java.nio.charset.StandardCharsets.UTF_8
+import java.util.Arrays.asList
+import java.util.Collections.{singletonList, singletonMap}
+import java.util.stream.Stream
+
+import com.sdl.odata.api.ODataErrorCode.UNKNOWN_ERROR
+import com.sdl.odata.api._
+import com.sdl.odata.api.edm.annotations.{EdmEntity, EdmEntitySet, EdmNavigationProperty, EdmProperty}
+import com.sdl.odata.api.parser.{FunctionImportCall, ODataUri, ResourcePathUri}
+import com.sdl.odata.api.processor.datasource.{ODataDataSourceException, ODataEntityNotFoundException}
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.processor.query.QueryResult.ResultType
+import com.sdl.odata.api.processor.{ODataFunctionProcessor, ODataQueryProcessor, ODataWriteProcessor, ProcessorResult}
+import com.sdl.odata.api.renderer.{ChunkedActionRenderResult, ODataRenderer, RendererFactory}
+import com.sdl.odata.api.service.HeaderNames.{ETAG, IF_NONE_MATCH}
+import com.sdl.odata.api.service.ODataRequest.Method
+import com.sdl.odata.api.service.ODataResponse.Status._
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext, ODataResponse}
+import com.sdl.odata.api.unmarshaller.{ODataUnmarshaller, UnmarshallerFactory}
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser.ODataParserImpl
+import com.sdl.odata.renderer.batch.ODataBatchRequestRenderer
+import org.scalatest.FunSuite
+
+import scala.annotation.meta.field
+
+class ODataPipelineTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  // The data source: the version of the item does not change when one of its parts does
+  var item = new VersionedItem(1, 7, singletonList(new ItemPart(1, "first")))
+
+  val queryProcessor = new ODataQueryProcessor {
+    override def query(requestContext: ODataRequestContext, data: AnyRef): ProcessorResult =
+      new ProcessorResult(OK, QueryResult.from(item))
+  }
+
+  val renderer = new ODataRenderer {
+    override def score(requestContext: ODataRequestContext, data: QueryResult): Int = 1
+
+    override def render(requestContext: ODataRequestContext, data: QueryResult,
+                        responseBuilder: ODataResponse.Builder): Unit = {
+      val rendered = data.getData.asInstanceOf[VersionedItem]
+      responseBuilder.setBodyText(s"${rendered.id} ${rendered.parts.get(0).name}", UTF_8.name())
+    }
+
+    override def renderStart(requestContext: ODataRequestContext, result: QueryResult,
+                             outputStream: OutputStream): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderBody(requestContext: ODataRequestContext, result: QueryResult,
+                            previousResult: ChunkedActionRenderResult): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderEnd(requestContext: ODataRequestContext, result: QueryResult,
+                           previousResult: ChunkedActionRenderResult): Unit =
+      throw new UnsupportedOperationException
+  }
+
+  // Renders errors as their message
+  val errorRenderer = new ODataRenderer {
+    override def score(requestContext: ODataRequestContext, data: QueryResult): Int =
+      if (data.getType == ResultType.EXCEPTION) 2 else 0
+
+    override def render(requestContext: ODataRequestContext, data: QueryResult,
+                        responseBuilder: ODataResponse.Builder): Unit =
+      responseBuilder.setBodyText(data.getData.asInstanceOf[ODataException].getMessage, UTF_8.name())
+
+    override def renderStart(requestContext: ODataRequestContext, result: QueryResult,
+                             outputStream: OutputStream): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderBody(requestContext: ODataRequestContext, result: QueryResult,
+                            previousResult: ChunkedActionRenderResult): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderEnd(requestContext: ODataRequestContext, result: QueryResult,
+                           previousResult: ChunkedActionRenderResult): Unit =
+      throw new UnsupportedOperationException
+  }
+
+  val functionProcessor = new ODataFunctionProcessor {
+    override def doFunction(requestContext: ODataRequestContext): ProcessorResult =
+      new ProcessorResult(OK, QueryResult.from("function"))
+  }
+
+  val writeProcessor = new ODataWriteProcessor {
+    override def write(requestContext: ODataRequestContext, data: AnyRef): ProcessorResult =
+      new ProcessorResult(CREATED, QueryResult.from(data))
+  }
+
+  val batchRequestRenderer = new ODataBatchRequestRenderer {
+    override def render(requestContext: ODataRequestContext, data: QueryResult,
+                        responseBuilder: ODataResponse.Builder): Unit =
+      responseBuilder.setBodyText(s"${data.getData.asInstanceOf[java.util.List[_]].size} results", UTF_8.name())
+  }
+
+  def unmarshaller(unmarshallerScore: Int, data: AnyRef): ODataUnmarshaller = new ODataUnmarshaller {
+    override def score(requestContext: ODataRequestContext): Int = unmarshallerScore
+
+    override def unmarshall(requestContext: ODataRequestContext): AnyRef = data
+  }
+
+  def pipelineWith(renderers: Seq[ODataRenderer], unmarshallers: Seq[ODataUnmarshaller] = Nil): ODataPipeline =
+    new ODataPipeline(new ODataParserImpl, new UnmarshallerFactory {
+      override def getUnmarshallers: java.util.List[ODataUnmarshaller] = asList(unmarshallers: _*)
+    }, queryProcessor, functionProcessor, writeProcessor, new RendererFactory {
+      override def getRenderers: java.util.List[ODataRenderer] = asList(renderers: _*)
+    }, batchRequestRenderer, new ODataQueryCache(false, 16, 60000), 16)
+
+  val pipeline = pipelineWith(Seq(renderer, errorRenderer))
+
+  def requestContext(method: Method, path: String): ODataRequestContext = {
+    val request = new ODataRequest.Builder()
+      .setMethod(method)
+      .setUri("http://localhost:8080/odata.svc/" + path)
+      .build()
+    val requestContext = new ODataRequestContext(request, entityDataModel)
+    requestContext.withUri(pipeline.parse(requestContext))
+  }
+
+  def get(path: String, ifNoneMatch: Option[String]): ODataResponse = {
+    val builder = new ODataRequest.Builder()
+      .setMethod(ODataRequest.Method.GET)
+      .setUri("http://localhost:8080/odata.svc/" + path)
+    ifNoneMatch.foreach(builder.setHeader(IF_NONE_MATCH, _))
+    val request = builder.build()
+    val requestContext = new ODataRequestContext(request, entityDataModel)
+    val uriContext = new ODataRequestContext(request, pipeline.parse(requestContext), entityDataModel)
+    pipeline.render(uriContext, pipeline.read(uriContext, None))
+  }
+
+  test("a matching If-None-Match header is answered with 304") {
+    val response = get("VersionedItems(1)", None)
+    assert(response.getStatus == OK)
+    val eTag = response.getHeader(ETAG)
+    assert(eTag != null)
+
+    val notModified = get("VersionedItems(1)", Some(eTag))
+    assert(notModified.getStatus == NOT_MODIFIED)
+    assert(notModified.getHeader(ETAG) == eTag)
+
+    item = new VersionedItem(1, 8, item.parts)
+    assert(get("VersionedItems(1)", Some(eTag)).getStatus == OK)
+  }
+
+  test("results shaped by $expand, $select or $count do not get an ETag") {
+    val eTag = get("VersionedItems(1)", None).getHeader(ETAG)
+    item = new VersionedItem(item.id, item.version, singletonList(new ItemPart(1, "changed")))
+
+    val expanded = get("VersionedItems(1)?$expand=parts", Some(eTag))
+    assert(expanded.getStatus == OK)
+    assert(expanded.getHeader(ETAG) == null)
+    assert(expanded.getBodyText(UTF_8.name()) == "1 changed")
+
+    assert(get("VersionedItems(1)?$select=id", Some(eTag)).getStatus == OK)
+    assert(get("VersionedItems(1)", Some(eTag)).getStatus == NOT_MODIFIED)
+  }
+
+  test("the unmarshaller with the highest score unmarshalls the body") {
+    val context = requestContext(Method.POST, "VersionedItems")
+    val unmarshallers = Seq(unmarshaller(0, "none"), unmarshaller(2, "best"), unmarshaller(1, "other"))
+    assert(pipelineWith(Nil, unmarshallers).unmarshall(context).contains("best"))
+    assert(pipelineWith(Nil, Seq(unmarshaller(1, null))).unmarshall(context).isEmpty)
+    assertThrows[ODataSystemException] {
+      pipelineWith(Nil, Seq(unmarshaller(0, "none"))).unmarshall(context)
+    }
+  }
+
+  test("function calls go to the function processor, and writes to the write processor") {
+    val request = new ODataRequest.Builder().setMethod(Method.GET).setUri("http://localhost:8080/odata.svc/Items()")
+      .build()
+    val functionCall = new ODataRequestContext(request,
+      ODataUri("http://localhost:8080/odata.svc", ResourcePathUri(FunctionImportCall("Items", None, None), Nil)),
+      entityDataModel)
+    assert(pipeline.read(functionCall, None).getData == "function")
+
+    val written = pipeline.write(requestContext(Method.POST, "VersionedItems"), Some(item))
+    assert(written.getStatus == CREATED)
+    assert(written.getData eq item)
+  }
+
+  test("a result is rendered with its status and headers, and a streamed result is streamed") {
+    val context = requestContext(Method.GET, "VersionedItems(1)")
+    val item = new VersionedItem(1, 1, singletonList(new ItemPart(1, "first")))
+    val response = pipeline.render(context, new ProcessorResult(OK, QueryResult.from(item),
+      singletonMap("OData-Version", "4.0")))
+    assert(response.getBodyText(UTF_8.name()) == "1 first")
+    assert(response.getHeader("OData-Version") == "4.0")
+    assert(response.getHeader(ETAG) != null)
+
+    val streamed = pipeline.render(context, new ProcessorResult(OK, QueryResult.from(Stream.empty())))
+    assert(streamed.getStreamingContent != null)
+    assert(streamed.getHeader(ETAG) == null)
+
+    val nothing = pipeline.render(context, new ProcessorResult(NO_CONTENT))
+    assert(nothing.getStatus == NO_CONTENT)
+    assert(nothing.getBody == null)
+    assert(pipeline.render(context, new ProcessorResult(OK, QueryResult.from(null))).getBody == null)
+    assert(pipeline.render(context, new ProcessorResult(NOT_FOUND, QueryResult.from(item))).getHeader(ETAG) == null)
+  }
+
+  test("an If-None-Match header only applies to GET requests") {
+    val eTag = get("VersionedItems(1)", None).getHeader(ETAG)
+    val request = new ODataRequest.Builder()
+      .setMethod(Method.PUT)
+      .setUri("http://localhost:8080/odata.svc/VersionedItems(1)")
+      .setHeader(IF_NONE_MATCH, eTag)
+      .build()
+    val requestContext = new ODataRequestContext(request, entityDataModel)
+    val response = pipeline.render(requestContext.withUri(pipeline.parse(requestContext)),
+      new ProcessorResult(OK, QueryResult.from(item)))
+    assert(response.getStatus == OK)
+  }
+
+  test("without a renderer, an error is rendered, or the error is rendered as text") {
+    val context = requestContext(Method.GET, "VersionedItems(1)")
+    val errorOnly = pipelineWith(Seq(errorRenderer))
+    val response = errorOnly.render(context, new ProcessorResult(OK, QueryResult.from(item)))
+    assert(response.getBodyText(UTF_8.name()) == "No renderer available")
+    val streamed = errorOnly.render(context, new ProcessorResult(OK, QueryResult.from(Stream.empty())))
+    assert(streamed.getBodyText(UTF_8.name()) == "No renderer available")
+
+    val failure = pipelineWith(Nil).renderFailure(context, new ODataSystemException("Failed"))
+    assert(failure.getStatus == INTERNAL_SERVER_ERROR)
+    assert(failure.getBodyText(UTF_8.name()) == "com.sdl.odata.api.ODataSystemException: Failed")
+    val builder = new ODataResponse.Builder()
+    pipeline.renderErrorAsText(new IllegalStateException(), builder)
+    assert(builder.build().getBodyText(UTF_8.name()) == "Unknown error")
+  }
+
+  test("a failure is rendered with the status of its kind") {
+    val context = requestContext(Method.GET, "VersionedItems(1)")
+    val failures = Seq(
+      new ODataUnsupportedMediaTypeException("Unsupported") -> UNSUPPORTED_MEDIA_TYPE,
+      new ODataEntityNotFoundException("Not found") -> NOT_FOUND,
+      new ODataBadRequestException("Bad request") -> BAD_REQUEST,
+      new ODataDataSourceException("Data source") -> BAD_REQUEST,
+      new ODataRequestTimeoutException("Timed out") -> SERVICE_UNAVAILABLE,
+      new ODataNotImplementedException("Not implemented") -> INTERNAL_SERVER_ERROR,
+      new ODataException(UNKNOWN_ERROR, "Other") {} -> INTERNAL_SERVER_ERROR)
+    for ((e, status) <- failures) {
+      val response = pipeline.renderFailure(context, e)
+      assert(response.getStatus == status)
+      assert(response.getBodyText(UTF_8.name()) == e.getMessage)
+    }
+
+    // A request in a batch is answered with 200
+    val batchRequest = new ODataRequest.Builder().setMethod(Method.POST)
+      .setUri("http://localhost:8080/odata.svc/$batch").build()
+    val batchResponse = pipeline.renderFailure(new ODataRequestContext(batchRequest, entityDataModel),
+      new ODataBadRequestException("Bad request"))
+    assert(batchResponse.getStatus == OK)
+  }
+
+  test("the results of a batch are rendered by the batch renderer") {
+    val batchRequest = new ODataRequest.Builder().setMethod(Method.POST)
+      .setUri("http://localhost:8080/odata.svc/$batch").build()
+    val context = new ODataRequestContext(batchRequest, entityDataModel)
+    val response = pipeline.renderBatch(context, List(new ProcessorResult(OK), new ProcessorResult(CREATED)))
+    assert(response.getStatus == OK)
+    assert(response.getBodyText(UTF_8.name()) == "2 results")
+    assert(pipeline.renderBatch(context, null).getBody == null)
+  }
+
+}
+
+@EdmEntity(namespace = "ODataPipelineTest", key = Array("id"), concurrency = Array("version"))
+@EdmEntitySet
+class VersionedItem(@(EdmProperty @field)(nullable = false) val id: Long,
+                    @(EdmProperty @field)(nullable = false) val version: Long,
+                    @(EdmNavigationProperty @field) val parts: java.util.List[ItemPart]) {
+  def this() = this(0, 0, null)
+}
+
+@EdmEntity(namespace = "ODataPipelineTest", key = Array("id"))
+@EdmEntitySet
+class ItemPart(@(EdmProperty @field)(nullable = false) val id: Long,
+               @(EdmProperty @field) val name: String) {
+  def this() = this(0, null)
+}
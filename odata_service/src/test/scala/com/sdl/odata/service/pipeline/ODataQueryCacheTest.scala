@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.util.stream.Stream
+
+import com.sdl.odata.api.ODataErrorCode.UNKNOWN_ERROR
+import com.sdl.odata.api.ODataServerException
+import com.sdl.odata.api.parser._
+import com.sdl.odata.api.processor.ProcessorResult
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.service.ODataRequest.Method
+import com.sdl.odata.api.service.ODataResponse.Status.{CREATED, NOT_FOUND, OK}
+import com.sdl.odata.api.service.{ODataRequest, ODataRequestContext}
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser.ODataParserImpl
+import org.scalatest.FunSuite
+
+class ODataQueryCacheTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  val parser = new ODataParserImpl
+
+  def requestContext(method: Method, path: String): ODataRequestContext = {
+    val uri = "http://localhost:8080/odata.svc/" + path
+    val request = new ODataRequest.Builder().setMethod(method).setUri(uri).build()
+    new ODataRequestContext(request, parser.parseUri(uri, entityDataModel), entityDataModel)
+  }
+
+  /**
+   * Gets a result through the cache, and tells whether it was queried.
+   */
+  def queried(cache: ODataQueryCache, path: String)(whileQuerying: => Unit = ()): Boolean =
+    queried(cache, requestContext(Method.GET, path),
+      new ProcessorResult(OK, QueryResult.from(new VersionedItem(1, 1, null))))(whileQuerying)
+
+  /**
+   * Gets a result through the cache for a request context, and tells whether it was queried.
+   */
+
+  def queried(cache: ODataQueryCache, context: ODataRequestContext, result: => ProcessorResult)
+             (whileQuerying: => Unit): Boolean = {
+    var queried = false
+    cache.getOrQuery(context) {
+      queried = true
+      whileQuerying
+      result
+    }
+    queried
+  }
+
+  def write(cache: ODataQueryCache, path: String): Unit = cache.written(requestContext(Method.POST, path))
+
+  def requestContext(method: Method, relativeUri: RelativeUri): ODataRequestContext = {
+    val request = new ODataRequest.Builder().setMethod(method).setUri("http://localhost:8080/odata.svc/").build()
+    new ODataRequestContext(request, ODataUri("http://localhost:8080/odata.svc", relativeUri), entityDataModel)
+  }
+
+  test("repeated queries are answered from the cache") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(!queried(cache, "VersionedItems(1)")())
+    assert(queried(cache, "VersionedItems(2)")())
+  }
+
+  test("the cache is not used when it is disabled, or for other requests than GET") {
+    val disabled = new ODataQueryCache(false, 1024, 60000)
+    assert(queried(disabled, "VersionedItems(1)")())
+    assert(queried(disabled, "VersionedItems(1)")())
+
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    def post(): Boolean = {
+      var queried = false
+      cache.getOrQuery(requestContext(Method.POST, "VersionedItems")) {
+        queried = true
+        new ProcessorResult(CREATED)
+      }
+      queried
+    }
+    assert(post())
+    assert(post())
+  }
+
+  test("$format and the order of the query options do not matter") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    assert(queried(cache, "VersionedItems?$top=1&$skip=1&$format=json")())
+    assert(!queried(cache, "VersionedItems?$skip=1&$top=1")())
+    assert(!queried(cache, "VersionedItems?$format=atom&$top=1&$skip=1")())
+    assert(queried(cache, "VersionedItems?$top=2&$skip=1")())
+  }
+
+  test("a result is not cached when its entity set is written to while it is queried") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    assert(queried(cache, "VersionedItems(1)")(write(cache, "VersionedItems")))
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(!queried(cache, "VersionedItems(1)")())
+
+    // A write to another entity set does not matter
+    assert(queried(cache, "VersionedItems(2)")(write(cache, "ItemParts")))
+    assert(!queried(cache, "VersionedItems(2)")())
+  }
+
+  test("a result with $expand is not cached when any entity set is written to while it is queried") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    assert(queried(cache, "VersionedItems(1)?$expand=parts")(write(cache, "ItemParts")))
+    assert(queried(cache, "VersionedItems(1)?$expand=parts")())
+    assert(!queried(cache, "VersionedItems(1)?$expand=parts")())
+  }
+
+  test("a write invalidates the results of its entity set only") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    queried(cache, "VersionedItems(1)")()
+    queried(cache, "ItemParts(1)")()
+
+    write(cache, "ItemParts")
+    assert(!queried(cache, "VersionedItems(1)")())
+    assert(queried(cache, "ItemParts(1)")())
+
+    write(cache, "VersionedItems")
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(!queried(cache, "ItemParts(1)")())
+  }
+
+  test("a navigation path depends on the entity set it navigates to") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    queried(cache, "VersionedItems(1)/parts")()
+    write(cache, "ItemParts")
+    assert(queried(cache, "VersionedItems(1)/parts")())
+  }
+
+  test("a write invalidates the results with $expand, whatever the entity set") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    queried(cache, "VersionedItems(1)")()
+    queried(cache, "VersionedItems(1)?$expand=parts")()
+
+    write(cache, "ItemParts")
+    assert(!queried(cache, "VersionedItems(1)")())
+    assert(queried(cache, "VersionedItems(1)?$expand=parts")())
+  }
+
+  test("results expire after the TTL") {
+    val ttl = 200
+    val cache = new ODataQueryCache(true, 1024, ttl)
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(!queried(cache, "VersionedItems(1)")())
+
+    Thread.sleep(ttl * 2)
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(!queried(cache, "VersionedItems(1)")())
+  }
+
+  test("only successful results which are not streamed are cached") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    def queriedTwice(result: => ProcessorResult): Boolean = {
+      val context = requestContext(Method.GET, "VersionedItems(1)")
+      queried(cache, context, result)() && queried(cache, context, result)()
+    }
+    assert(queriedTwice(new ProcessorResult(NOT_FOUND, QueryResult.from(new VersionedItem(1, 1, null)))))
+    assert(queriedTwice(new ProcessorResult(OK)))
+    assert(queriedTwice(new ProcessorResult(OK, QueryResult.from(Stream.empty()))))
+    assert(queriedTwice(new ProcessorResult(OK, QueryResult.from(new ODataServerException(UNKNOWN_ERROR, "Failed")))))
+  }
+
+  test("requests without a parsed URI, and service and metadata documents, are not cached") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    val request = new ODataRequest.Builder().setMethod(Method.GET).setUri("http://localhost:8080/odata.svc/").build()
+    val unparsed = new ODataRequestContext(request, entityDataModel)
+    val result = new ProcessorResult(OK, QueryResult.from("{}"))
+    assert(queried(cache, unparsed, result)())
+    assert(queried(cache, unparsed, result)())
+
+    for (path <- Seq("", "$metadata")) {
+      assert(queried(cache, requestContext(Method.GET, path), result)())
+      assert(queried(cache, requestContext(Method.GET, path), result)())
+    }
+  }
+
+  test("function and action calls are not cached, and an action call invalidates all results") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    val result = new ProcessorResult(OK, QueryResult.from("{}"))
+    val functionCall = requestContext(Method.GET,
+      ResourcePathUri(FunctionImportCall("VersionedItemCount", None, None), Nil))
+    val actionCall = requestContext(Method.GET, ResourcePathUri(ActionImportCall("ResetItems"), Nil))
+    for (call <- Seq(functionCall, actionCall)) {
+      assert(queried(cache, call, result)())
+      assert(queried(cache, call, result)())
+    }
+
+    queried(cache, "ItemParts(1)")()
+    cache.written(requestContext(Method.POST, ResourcePathUri(ActionImportCall("ResetItems"), Nil)))
+    assert(queried(cache, "ItemParts(1)")())
+  }
+
+  test("entity URIs are cached by their type and options") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    def entity(id: String): ODataRequestContext =
+      requestContext(Method.GET, EntityUri(Some("ODataPipelineTest.VersionedItem"), List(IdOption(id))))
+    val result = new ProcessorResult(OK, QueryResult.from(new VersionedItem(1, 1, null)))
+    assert(queried(cache, entity("VersionedItems(1)"), result)())
+    assert(!queried(cache, entity("VersionedItems(1)"), result)())
+    assert(queried(cache, entity("VersionedItems(2)"), result)())
+  }
+
+  test("a write of which the entity set is not known invalidates all results") {
+    val cache = new ODataQueryCache(true, 1024, 60000)
+    queried(cache, "VersionedItems(1)")()
+    queried(cache, "ItemParts(1)")()
+    write(cache, "")
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(queried(cache, "ItemParts(1)")())
+
+    val request = new ODataRequest.Builder().setMethod(Method.POST).setUri("http://localhost:8080/odata.svc/").build()
+    cache.written(new ODataRequestContext(request, entityDataModel))
+    assert(queried(cache, "VersionedItems(1)")())
+    assert(queried(cache, "ItemParts(1)")())
+  }
+
+  test("a write to a disabled cache is ignored") {
+    val disabled = new ODataQueryCache(false, 1024, 60000)
+    write(disabled, "VersionedItems")
+    assert(queried(disabled, "VersionedItems(1)")())
+  }
+
+  test("the least recently used results are dropped") {
+    val cache = new ODataQueryCache(true, 16, 60000)
+    (1 to 64).foreach(id => queried(cache, s"VersionedItems($id)")())
+    assert((1 to 64).count(id => !queried(cache, s"VersionedItems($id)")()) <= 16)
+  }
+}
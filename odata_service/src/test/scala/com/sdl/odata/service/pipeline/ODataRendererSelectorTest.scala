@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.io.OutputStream
+import java.util.Arrays.asList
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.collection.JavaConverters._
+
+import com.sdl.odata.api.edm.model.EntityDataModel
+import com.sdl.odata.api.parser.{ActionImportCall, FunctionImportCall, ODataUri, RelativeUri, ResourcePathUri}
+import com.sdl.odata.api.processor.query.QueryResult
+import com.sdl.odata.api.renderer.{ChunkedActionRenderResult, ODataRenderer, RendererFactory}
+import com.sdl.odata.api.service.HeaderNames.ACCEPT
+import com.sdl.odata.api.service.{MediaType, ODataRequest, ODataRequestContext, ODataResponse}
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser.ODataParserImpl
+import org.scalatest.FunSuite
+
+class ODataRendererSelectorTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  val parser = new ODataParserImpl
+
+  /**
+   * A renderer with a fixed score, counting how often it is scored.
+   */
+  class ScoredRenderer(score: Int, cacheable: Boolean = true) extends ODataRenderer {
+    val scored = new AtomicInteger()
+
+    override def score(requestContext: ODataRequestContext, data: QueryResult): Int = {
+      scored.incrementAndGet()
+      score
+    }
+
+    override def isScoreCacheable: Boolean = cacheable
+
+    override def render(requestContext: ODataRequestContext, data: QueryResult,
+                        responseBuilder: ODataResponse.Builder): Unit = throw new UnsupportedOperationException
+
+    override def renderStart(requestContext: ODataRequestContext, result: QueryResult,
+                             outputStream: OutputStream): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderBody(requestContext: ODataRequestContext, result: QueryResult,
+                            previousResult: ChunkedActionRenderResult): ChunkedActionRenderResult =
+      throw new UnsupportedOperationException
+
+    override def renderEnd(requestContext: ODataRequestContext, result: QueryResult,
+                           previousResult: ChunkedActionRenderResult): Unit =
+      throw new UnsupportedOperationException
+  }
+
+  /**
+   * A renderer which scores by the position of the first accepted media type it matches, as the real renderers do.
+   */
+  class AcceptingRenderer(mediaType: MediaType) extends ScoredRenderer(0) {
+    override def score(requestContext: ODataRequestContext, data: QueryResult): Int = {
+      scored.incrementAndGet()
+      val accepted = requestContext.getRequest.getAccept.asScala
+      val position = accepted.indexWhere(_.matches(mediaType))
+      if (position < 0) 0 else 10 - position
+    }
+  }
+
+  def rendererFactory(renderers: ODataRenderer*): RendererFactory = {
+    val rendererList = asList(renderers: _*)
+    new RendererFactory {
+      override def getRenderers: java.util.List[ODataRenderer] = rendererList
+    }
+  }
+
+  def requestContext(path: String, accept: String = "application/json",
+                     model: EntityDataModel = entityDataModel): ODataRequestContext = {
+    val uri = "http://localhost:8080/odata.svc/" + path
+    val request = new ODataRequest.Builder()
+      .setMethod(ODataRequest.Method.GET)
+      .setUri(uri)
+      .setHeader(ACCEPT, accept)
+      .build()
+    new ODataRequestContext(request, parser.parseUri(uri, entityDataModel), model)
+  }
+
+  def requestContext(relativeUri: RelativeUri): ODataRequestContext = {
+    val request = new ODataRequest.Builder()
+      .setMethod(ODataRequest.Method.GET)
+      .setUri("http://localhost:8080/odata.svc/")
+      .setHeader(ACCEPT, "application/json")
+      .build()
+    new ODataRequestContext(request, ODataUri("http://localhost:8080/odata.svc", relativeUri), entityDataModel)
+  }
+
+  val data = QueryResult.from(new VersionedItem(1, 1, null))
+
+  test("the renderer with the highest score wins; of renderers with the same score, the first one") {
+    val low = new ScoredRenderer(1)
+    val first = new ScoredRenderer(3)
+    val second = new ScoredRenderer(3)
+    val none = new ScoredRenderer(0)
+    for (cacheSize <- Seq(0, 16)) {
+      val selector = new ODataRendererSelector(rendererFactory(low, first, second, none), cacheSize)
+      assert(selector.select(requestContext("VersionedItems(1)"), data).contains(first))
+    }
+
+    val selector = new ODataRendererSelector(rendererFactory(none), 16)
+    assert(selector.select(requestContext("VersionedItems(1)"), data).isEmpty)
+  }
+
+  test("a selection is remembered for the same inputs") {
+    val json = new ScoredRenderer(2)
+    val atom = new ScoredRenderer(1)
+    val selector = new ODataRendererSelector(rendererFactory(json, atom), 16)
+
+    assert(selector.select(requestContext("VersionedItems(1)"), data).contains(json))
+    assert(selector.select(requestContext("VersionedItems(1)"), data).contains(json))
+    assert(selector.select(requestContext("VersionedItems(2)"), data).contains(json))
+    assert(json.scored.get == 1)
+
+    // Another Accept header, URI shape or result type is scored again
+    selector.select(requestContext("VersionedItems(1)", accept = "application/atom+xml"), data)
+    selector.select(requestContext("VersionedItems/$count"), data)
+    selector.select(requestContext("VersionedItems(1)"), QueryResult.from(asList(new VersionedItem(1, 1, null))))
+    assert(json.scored.get == 4)
+  }
+
+  test("Accept headers with the same media types share a selection, however they are spelled") {
+    val json = new ScoredRenderer(2)
+    val selector = new ODataRendererSelector(rendererFactory(json), 16)
+
+    selector.select(requestContext("VersionedItems(1)", accept = "application/json;odata.metadata=minimal;charset=utf-8"),
+      data)
+    selector.select(requestContext("VersionedItems(1)", accept = "application/json; charset=utf-8; odata.metadata=minimal"),
+      data)
+    assert(json.scored.get == 1)
+
+    // A header which can not be parsed is scored every time
+    selector.select(requestContext("VersionedItems(1)", accept = "json"), data)
+    selector.select(requestContext("VersionedItems(1)", accept = "json"), data)
+    assert(json.scored.get == 3)
+  }
+
+  test("a remembered selection is the renderer a full scoring pass selects") {
+    val json = new AcceptingRenderer(MediaType.JSON)
+    val atom = new AcceptingRenderer(MediaType.ATOM_XML)
+    val xml = new AcceptingRenderer(MediaType.XML)
+    val scoring = new ODataRendererSelector(rendererFactory(json, atom, xml), 0)
+    val remembering = new ODataRendererSelector(rendererFactory(json, atom, xml), 16)
+
+    for {
+      accept <- Seq("application/json", "application/atom+xml, application/json", "application/xml",
+        "*/*", "text/plain", "application/xml,application/json;q=0.9")
+      path <- Seq("VersionedItems(1)", "VersionedItems(2)", "VersionedItems/$count")
+    } {
+      val context = requestContext(path, accept = accept)
+      val expected = scoring.select(context, data)
+      assert(remembering.select(context, data) == expected)
+
+      // The second selection is remembered, and scores none of the renderers
+      val scored = json.scored.get
+      assert(remembering.select(context, data) == expected)
+      assert(json.scored.get == scored)
+    }
+  }
+
+  test("function calls, action calls and property values have their own URI shape") {
+    val json = new ScoredRenderer(2)
+    val selector = new ODataRendererSelector(rendererFactory(json), 16)
+
+    selector.select(requestContext("VersionedItems(1)/version"), data)
+    selector.select(requestContext("VersionedItems(1)/version/$value"), data)
+    selector.select(requestContext(ResourcePathUri(FunctionImportCall("VersionedItemCount", None, None), Nil)), data)
+    selector.select(requestContext(ResourcePathUri(ActionImportCall("ResetItems"), Nil)), data)
+    assert(json.scored.get == 4)
+  }
+
+  test("renderers whose score can not be cached are scored every time, and compete with the remembered winner") {
+    val cacheable = new ScoredRenderer(2)
+    val uncacheable = new ScoredRenderer(3, cacheable = false)
+    val selector = new ODataRendererSelector(rendererFactory(cacheable, uncacheable), 16)
+    assert(selector.select(requestContext("VersionedItems(1)"), data).contains(uncacheable))
+    assert(selector.select(requestContext("VersionedItems(1)"), data).contains(uncacheable))
+    assert(cacheable.scored.get == 1)
+    assert(uncacheable.scored.get == 2)
+
+    // Of renderers with the same score the first one wins, whether its score can be cached or not
+    val first = new ScoredRenderer(2, cacheable = false)
+    val second = new ScoredRenderer(2)
+    val sameScore = new ODataRendererSelector(rendererFactory(first, second), 16)
+    assert(sameScore.select(requestContext("VersionedItems(1)"), data).contains(first))
+    assert(sameScore.select(requestContext("VersionedItems(1)"), data).contains(first))
+  }
+
+  test("the remembered selections are dropped when the cache is full") {
+    val renderer = new ScoredRenderer(1)
+    val selector = new ODataRendererSelector(rendererFactory(renderer), 1)
+    selector.select(requestContext("VersionedItems(1)"), data)
+    selector.select(requestContext("VersionedItems/$count"), data)
+    selector.select(requestContext("VersionedItems(1)"), data)
+    assert(renderer.scored.get == 3)
+  }
+
+  test("the remembered selections are dropped when the renderers change") {
+    val renderer = new ScoredRenderer(1)
+    val replacement = new ScoredRenderer(1)
+    var renderers = asList[ODataRenderer](renderer)
+    val selector = new ODataRendererSelector(new RendererFactory {
+      override def getRenderers: java.util.List[ODataRenderer] = renderers
+    }, 16)
+    assert(selector.select(requestContext("VersionedItems(1)"), data).contains(renderer))
+    renderers = asList[ODataRenderer](replacement)
+    assert(selector.select(requestContext("VersionedItems(1)"), data).contains(replacement))
+  }
+
+  test("the selection is not remembered when the shape of the URI can not be determined") {
+    val renderer = new ScoredRenderer(1)
+    val selector = new ODataRendererSelector(rendererFactory(renderer), 16)
+    assert(selector.select(requestContext("VersionedItems(1)", model = null), data).contains(renderer))
+    assert(selector.select(requestContext("VersionedItems(1)", model = null), data).contains(renderer))
+    assert(renderer.scored.get == 2)
+
+    // Without a parsed URI, or with a URI that does not target a type, it is
+    val request = new ODataRequest.Builder().setMethod(ODataRequest.Method.GET)
+      .setUri("http://localhost:8080/odata.svc/").build()
+    selector.select(new ODataRequestContext(request, entityDataModel), data)
+    selector.select(new ODataRequestContext(request, entityDataModel), data)
+    selector.select(requestContext(""), data)
+    selector.select(requestContext(""), data)
+    assert(renderer.scored.get == 4)
+  }
+}
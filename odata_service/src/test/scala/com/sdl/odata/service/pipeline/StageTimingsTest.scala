@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014-2022 All Rights Reserved by the RWS Group for and on behalf of its affiliates and subsidiaries.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sdl.odata.service.pipeline
+
+import java.util.Optional
+
+import com.sdl.odata.api.service.ODataPipelineStage._
+import com.sdl.odata.api.service.ODataRequest.Method
+import com.sdl.odata.api.service.ODataResponse.Status
+import com.sdl.odata.api.service.ODataResponse.Status.{CREATED, OK}
+import com.sdl.odata.api.service._
+import com.sdl.odata.edm.factory.annotations.AnnotationEntityDataModelFactory
+import com.sdl.odata.parser.ODataParserImpl
+import org.scalatest.FunSuite
+
+class StageTimingsTest extends FunSuite {
+
+  val entityDataModel = {
+    val factory = new AnnotationEntityDataModelFactory
+    factory.addClass(classOf[VersionedItem])
+    factory.addClass(classOf[ItemPart])
+    factory.buildEntityDataModel()
+  }
+
+  val request = new ODataRequest.Builder()
+    .setMethod(Method.POST)
+    .setUri("http://localhost:8080/odata.svc/VersionedItems")
+    .build()
+
+  val requestContext = new ODataRequestContext(request, entityDataModel)
+
+  val parsedRequestContext =
+    requestContext.withUri(new ODataParserImpl().parseUri(request.getUri, entityDataModel))
+
+  test("the stages are recorded in the order they are entered, once the request is complete") {
+    val metrics = new RecordingRequestMetrics
+    val timings = StageTimings.start(Optional.of(metrics))
+    timings.enter(requestContext, Some(PARSE))
+    timings.enter(parsedRequestContext, Some(UNMARSHALL))
+    timings.enter(parsedRequestContext, Some(WRITE))
+    timings.enter(parsedRequestContext, Some(RENDER))
+    assert(metrics.stages.isEmpty)
+    assert(metrics.requests.isEmpty)
+
+    timings.complete(parsedRequestContext, CREATED)
+    assert(metrics.stages.map(_.stage) == Seq(PARSE, UNMARSHALL, WRITE, RENDER))
+    assert(metrics.stages.forall(stage => stage.entitySet == "VersionedItems" && stage.method == Method.POST &&
+      stage.status == CREATED && stage.durationNanos >= 0))
+    assert(metrics.requests == Seq(("VersionedItems", Method.POST, CREATED)))
+    assert(metrics.stages.map(_.durationNanos).sum <= metrics.requestDurations.head)
+  }
+
+  test("only the first completion is recorded, and stages entered afterwards are ignored") {
+    val metrics = new RecordingRequestMetrics
+    val timings = StageTimings.start(Optional.of(metrics))
+    timings.enter(requestContext, Some(PARSE))
+    timings.complete(requestContext, OK)
+    timings.enter(requestContext, Some(RENDER))
+    timings.complete(requestContext, CREATED)
+    assert(metrics.stages.map(_.stage) == Seq(PARSE))
+    assert(metrics.requests.size == 1)
+  }
+
+  test("the entity set is taken from the last request context with a parsed URI") {
+    val metrics = new RecordingRequestMetrics
+    val timings = StageTimings.start(Optional.of(metrics))
+    timings.enter(requestContext, Some(PARSE))
+    timings.enter(parsedRequestContext, Some(QUERY))
+    timings.enter(requestContext, None)
+    timings.complete(requestContext, OK)
+    assert(metrics.stages.map(_.stage) == Seq(PARSE, QUERY))
+    assert(metrics.requests == Seq(("VersionedItems", Method.POST, OK)))
+
+    // Without a parsed URI, the request is recorded without an entity set
+    val unparsed = new RecordingRequestMetrics
+    val unparsedTimings = StageTimings.start(Optional.of(unparsed))
+    unparsedTimings.enter(requestContext, Some(PARSE))
+    unparsedTimings.complete(requestContext, Status.BAD_REQUEST)
+    assert(unparsed.stages.map(stage => (stage.stage, stage.entitySet)) == Seq((PARSE, null)))
+    assert(unparsed.requests == Seq((null, Method.POST, Status.BAD_REQUEST)))
+  }
+
+  test("without metrics, nothing is recorded") {
+    val timings = StageTimings.start(Optional.empty())
+    assert(timings eq StageTimings.Disabled)
+    timings.enter(requestContext, Some(PARSE))
+    timings.complete(requestContext, OK)
+  }
+}
+
+/**
+ * Request metrics which keep what is recorded.
+ */
+class RecordingRequestMetrics extends ODataRequestMetrics {
+  @volatile var stages: Seq[RecordedStage] = Vector()
+  @volatile var requests: Seq[(String, Method, Status)] = Vector()
+  @volatile var requestDurations: Seq[Long] = Vector()
+
+  override def recordStage(stage: ODataPipelineStage, entitySet: String, method: Method, status: Status,
+                           durationNanos: Long): Unit = synchronized {
+    stages :+= RecordedStage(stage, entitySet, method, status, durationNanos)
+  }
+
+  override def recordRequest(entitySet: String, method: Method, status: Status, durationNanos: Long): Unit =
+    synchronized {
+      requests :+= ((entitySet, method, status))
+      requestDurations :+= durationNanos
+    }
+}
+
+case class RecordedStage(stage: ODataPipelineStage, entitySet: String, method: Method, status: Status,
+                         durationNanos: Long)
@@ -39,7 +39,7 @@ import static org.springframework.boot.Banner.Mode.OFF;
 @Configuration
 @EnableAutoConfiguration(exclude = {HibernateJpaAutoConfiguration.class, DataSourceAutoConfiguration.class,
         DataSourceTransactionManagerAutoConfiguration.class})
-@ComponentScan({"com.sdl.odata.controller"})
+@ComponentScan({"com.sdl.odata.controller", "com.sdl.odata.webservice"})
 public class ODataServiceContainer {
     private static final Logger LOG = LoggerFactory.getLogger(ODataServiceContainer.class);
 
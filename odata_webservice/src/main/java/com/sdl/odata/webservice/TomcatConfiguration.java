@@ -16,11 +16,22 @@
 package com.sdl.odata.webservice;
 
 import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http11.AbstractHttp11JsseProtocol;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.coyote.http11.Http11Nio2Protocol;
 import org.apache.coyote.http11.Http11NioProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.File;
@@ -28,42 +39,209 @@ import java.io.IOException;
 
 /**
  * Basic configuration for running embeded Tomcat with https support.
+ * <p>
+ * The connectors are tuned by the {@code tomcat} properties: the protocol implementation ({@code nio} or
+ * {@code nio2}), the request threads, the backlog of connections, keep-alive limits, socket buffers and compression.
+ * Settings which are left at 0 or empty keep the defaults of Tomcat, or what the {@code server.tomcat} properties of
+ * Spring Boot set. With {@code tomcat.http2.enabled} the connectors also speak HTTP/2: over TLS negotiated by ALPN,
+ * and in clear text by upgrading an HTTP/1.1 connection or with prior knowledge, so that clients can run concurrent
+ * requests over a single connection.
  */
 @Configuration
-public class TomcatConfiguration {
+public class TomcatConfiguration implements WebServerFactoryCustomizer<TomcatServletWebServerFactory>, Ordered {
+    private static final Logger LOG = LoggerFactory.getLogger(TomcatConfiguration.class);
+
     private static final String HTTPS_SCHEME = "https";
+    private static final String NIO2 = "nio2";
 
-    @Value("${https.enabled}")
+    @Value("${https.enabled:false}")
     private String httpsModeFlag;
 
-    @Value("${https.port}")
+    @Value("${https.port:8084}")
     private String httpsPort;
 
-    @Value("${https.keystore-passwd}")
+    @Value("${https.keystore-passwd:}")
     private String keystorePasswd;
 
-    @Value("${https.keystore-path}")
+    @Value("${https.keystore-path:}")
     private String keystorePath;
 
-    @Value("${https.truststore-passwd}")
+    @Value("${https.truststore-passwd:}")
     private String truststorePasswd;
 
-    @Value("${https.key-alias}")
+    @Value("${https.key-alias:}")
     private String keyAlias;
 
+    @Value("${tomcat.protocol:nio}")
+    private String connectorProtocol;
+
+    @Value("${tomcat.max-threads:0}")
+    private int maxThreads;
+
+    @Value("${tomcat.min-spare-threads:0}")
+    private int minSpareThreads;
+
+    @Value("${tomcat.accept-count:0}")
+    private int acceptCount;
+
+    @Value("${tomcat.max-connections:0}")
+    private int maxConnections;
+
+    @Value("${tomcat.connection-timeout:0}")
+    private int connectionTimeout;
+
+    @Value("${tomcat.keep-alive-timeout:0}")
+    private int keepAliveTimeout;
+
+    @Value("${tomcat.max-keep-alive-requests:0}")
+    private int maxKeepAliveRequests;
+
+    @Value("${tomcat.socket.send-buffer:0}")
+    private int socketSendBuffer;
+
+    @Value("${tomcat.socket.app-write-buffer:0}")
+    private int appWriteBuffer;
+
+    @Value("${tomcat.http2.enabled:true}")
+    private boolean http2Enabled;
+
+    @Value("${tomcat.http2.max-concurrent-streams:0}")
+    private long http2MaxConcurrentStreams;
+
+    @Value("${tomcat.http2.max-concurrent-stream-execution:0}")
+    private int http2MaxConcurrentStreamExecution;
+
+    @Value("${tomcat.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${tomcat.compression.min-size:0}")
+    private int compressionMinSize;
+
+    @Value("${tomcat.compression.mime-types:}")
+    private String compressionMimeTypes;
 
     @Bean
     public TomcatServletWebServerFactory servletContainer() {
         TomcatServletWebServerFactory tomcat = new TomcatServletWebServerFactory();
+        tomcat.setProtocol(getProtocolClassName());
         if (Boolean.parseBoolean(httpsModeFlag)) {
             tomcat.addAdditionalTomcatConnectors(createSslConnector());
         }
         return tomcat;
     }
 
+    /**
+     * Tunes the default connector. This runs after the customizers of Spring Boot, so that the {@code tomcat}
+     * properties take precedence over the {@code server.tomcat} properties.
+     *
+     * @param tomcat The factory of the embedded Tomcat.
+     */
+    @Override
+    public void customize(TomcatServletWebServerFactory tomcat) {
+        tomcat.addConnectorCustomizers(this::customizeConnector);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private String getProtocolClassName() {
+        return NIO2.equalsIgnoreCase(connectorProtocol) ? Http11Nio2Protocol.class.getName() :
+                Http11NioProtocol.class.getName();
+    }
+
+    private void customizeConnector(Connector connector) {
+        ProtocolHandler handler = connector.getProtocolHandler();
+        if (handler instanceof AbstractProtocol) {
+            AbstractProtocol<?> protocolHandler = (AbstractProtocol<?>) handler;
+            if (maxThreads > 0) {
+                protocolHandler.setMaxThreads(maxThreads);
+            }
+            if (minSpareThreads > 0) {
+                protocolHandler.setMinSpareThreads(minSpareThreads);
+            }
+            if (acceptCount > 0) {
+                protocolHandler.setAcceptCount(acceptCount);
+            }
+            if (maxConnections != 0) {
+                protocolHandler.setMaxConnections(maxConnections);
+            }
+            if (connectionTimeout > 0) {
+                protocolHandler.setConnectionTimeout(connectionTimeout);
+            }
+            if (keepAliveTimeout > 0) {
+                protocolHandler.setKeepAliveTimeout(keepAliveTimeout);
+            }
+        }
+        if (handler instanceof AbstractHttp11Protocol) {
+            AbstractHttp11Protocol<?> http11Protocol = (AbstractHttp11Protocol<?>) handler;
+            if (maxKeepAliveRequests != 0) {
+                http11Protocol.setMaxKeepAliveRequests(maxKeepAliveRequests);
+            }
+            if (compressionEnabled) {
+                http11Protocol.setCompression("on");
+                if (compressionMinSize > 0) {
+                    http11Protocol.setCompressionMinSize(compressionMinSize);
+                }
+                if (!compressionMimeTypes.isEmpty()) {
+                    http11Protocol.setCompressibleMimeType(compressionMimeTypes);
+                }
+            }
+        }
+        if (socketSendBuffer > 0) {
+            setSocketProperty(connector, "socket.txBufSize", socketSendBuffer);
+        }
+        if (appWriteBuffer > 0) {
+            setSocketProperty(connector, "socket.appWriteBufSize", appWriteBuffer);
+        }
+        if (http2Enabled && !hasHttp2(connector)) {
+            connector.addUpgradeProtocol(createHttp2Protocol());
+        }
+    }
+
+    private Http2Protocol createHttp2Protocol() {
+        Http2Protocol http2Protocol = new Http2Protocol();
+        if (http2MaxConcurrentStreams > 0) {
+            http2Protocol.setMaxConcurrentStreams(http2MaxConcurrentStreams);
+        }
+        if (http2MaxConcurrentStreamExecution > 0) {
+            http2Protocol.setMaxConcurrentStreamExecution(http2MaxConcurrentStreamExecution);
+        }
+        if (keepAliveTimeout > 0) {
+            http2Protocol.setKeepAliveTimeout(keepAliveTimeout);
+        }
+        if (compressionEnabled) {
+            http2Protocol.setCompression("on");
+            if (compressionMinSize > 0) {
+                http2Protocol.setCompressionMinSize(compressionMinSize);
+            }
+            if (!compressionMimeTypes.isEmpty()) {
+                http2Protocol.setCompressibleMimeType(compressionMimeTypes);
+            }
+        }
+        return http2Protocol;
+    }
+
+    private static boolean hasHttp2(Connector connector) {
+        // Spring Boot adds HTTP/2 itself when server.http2.enabled is set
+        for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+            if (upgradeProtocol instanceof Http2Protocol) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setSocketProperty(Connector connector, String name, int value) {
+        if (!connector.setProperty(name, String.valueOf(value))) {
+            LOG.warn("Unable to set {} on connector {}", name, connector);
+        }
+    }
+
     private Connector createSslConnector() {
-        Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
-        Http11NioProtocol protocol = (Http11NioProtocol) connector.getProtocolHandler();
+        Connector connector = new Connector(getProtocolClassName());
+        AbstractHttp11JsseProtocol<?> protocol = (AbstractHttp11JsseProtocol<?>) connector.getProtocolHandler();
         try {
             File keystore = new ClassPathResource(keystorePath).getFile();
             connector.setScheme(HTTPS_SCHEME);
@@ -75,6 +253,8 @@ public class TomcatConfiguration {
             protocol.setTruststoreFile(keystore.getAbsolutePath());
             protocol.setTruststorePass(truststorePasswd);
             protocol.setKeyAlias(keyAlias);
+            // Spring Boot only customizes the default connector
+            customizeConnector(connector);
             return connector;
         } catch (IOException ex) {
             throw new IllegalStateException("cant access keystore: [" + "keystore"